@@ -0,0 +1,120 @@
+package com.wastech.url_shortener.loadtest;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver for {@code jdbc:counting:<url>} that delegates to the real driver and counts every
+ * statement execution (a batch counts once). Wrapping at the driver keeps the application's
+ * DataSource beans, including their concrete Hikari type, untouched; {@code unwrap} still reaches
+ * the Postgres connection for COPY.
+ */
+public class CountingDriver implements Driver {
+
+	private static final String PREFIX = "jdbc:counting:";
+	private static final LongAdder EXECUTIONS = new LongAdder();
+
+	static {
+		try {
+			DriverManager.registerDriver(new CountingDriver());
+		} catch (SQLException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	static String wrapUrl(String jdbcUrl) {
+		return PREFIX + jdbcUrl.substring("jdbc:".length());
+	}
+
+	static long executions() {
+		return EXECUTIONS.sum();
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		Connection connection = DriverManager.getConnection("jdbc:" + url.substring(PREFIX.length()), info);
+		return proxy(Connection.class, connection, (target, method, args) -> {
+			Object result = invoke(target, method, args);
+			return switch (method.getName()) {
+				case "createStatement" -> countingStatement(Statement.class, (Statement) result);
+				case "prepareStatement" -> countingStatement(PreparedStatement.class, (PreparedStatement) result);
+				case "prepareCall" -> countingStatement(CallableStatement.class, (CallableStatement) result);
+				default -> result;
+			};
+		});
+	}
+
+	private static <T extends Statement> T countingStatement(Class<T> type, T statement) {
+		return proxy(type, statement, (target, method, args) -> {
+			if (method.getName().startsWith("execute")) {
+				EXECUTIONS.increment();
+			}
+			return invoke(target, method, args);
+		});
+	}
+
+	private interface Handler {
+		Object handle(Object target, Method method, Object[] args) throws Throwable;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target, Handler handler) {
+		InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+		return (T) Proxy.newProxyInstance(CountingDriver.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url != null && url.startsWith(PREFIX);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+}
@@ -0,0 +1,78 @@
+package com.wastech.url_shortener.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local stand-ins for the services the application needs: an embedded Postgres, a Redis server
+ * binary and a single-node KRaft Kafka broker, each on a free port.
+ */
+final class EmbeddedInfrastructure implements AutoCloseable {
+
+	private final EmbeddedPostgres postgres;
+	private final RedisServer redis;
+	private final int redisPort;
+	private final EmbeddedKafkaKraftBroker kafka;
+
+	EmbeddedInfrastructure() throws IOException {
+		this.postgres = EmbeddedPostgres.builder().start();
+		this.redisPort = freePort();
+		this.redis = new RedisServer(redisPort);
+		this.redis.start();
+		this.kafka = new EmbeddedKafkaKraftBroker(1, 3);
+		this.kafka.afterPropertiesSet();
+	}
+
+	/**
+	 * Points the application at the embedded services through the same placeholders the
+	 * deployment uses, and turns off limits that would throttle the generated load.
+	 */
+	Map<String, String> applicationProperties() {
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("DATABASE_URL", postgres.getJdbcUrl("postgres", "postgres"));
+		properties.put("DATABASE_USERNAME", "postgres");
+		properties.put("DATABASE_PASSWORD", "postgres");
+		properties.put("REDIS_HOST", "localhost");
+		properties.put("REDIS_PORT", Integer.toString(redisPort));
+		properties.put("spring.data.redis.host", "localhost");
+		properties.put("spring.data.redis.port", Integer.toString(redisPort));
+		properties.put("KAFKA_BOOTSTRAP_SERVERS", kafka.getBrokersAsString());
+		properties.put("KAFKA_CONSUMER_AUTO_OFFSET_RESET", "earliest");
+		properties.put("RATE_LIMIT_ENABLED", "false");
+		properties.put("JPA_GENERATE_STATISTICS", "false");
+		properties.put("LOG_LEVEL_APP", "WARN");
+		properties.put("LOG_LEVEL_HIBERNATE_SQL", "WARN");
+		properties.put("LOG_LEVEL_HIBERNATE_BINDER", "WARN");
+		return properties;
+	}
+
+	/**
+	 * Applies {@link #applicationProperties()} to this JVM for an in-process application, with
+	 * statement counting on the database connection and a random server port.
+	 */
+	void applySystemProperties() {
+		applicationProperties().forEach(System::setProperty);
+		System.setProperty("DATABASE_URL", CountingDriver.wrapUrl(postgres.getJdbcUrl("postgres", "postgres")));
+		System.setProperty("spring.datasource.driver-class-name", CountingDriver.class.getName());
+		System.setProperty("server.port", "0");
+	}
+
+	@Override
+	public void close() throws IOException {
+		kafka.destroy();
+		redis.stop();
+		postgres.close();
+	}
+
+	static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
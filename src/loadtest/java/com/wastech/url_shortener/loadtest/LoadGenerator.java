@@ -0,0 +1,126 @@
+package com.wastech.url_shortener.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Open-model load: request {@code i} is due at {@code start + i / rate} regardless of how earlier
+ * requests fared, and its latency is measured from that intended start. A slow server therefore
+ * shows up as queueing delay in the percentiles instead of silently lowering the offered rate
+ * (coordinated omission). Service time, measured from the actual send, is kept separately.
+ */
+final class LoadGenerator {
+
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+	private final ShortenerClient client;
+	private final ExecutorService executor;
+	private final Operation[] weightedOperations;
+	private final int maxInFlight;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final Map<Operation, Histogram> responseTimes = new EnumMap<>(Operation.class);
+	private final Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+	private final LongAdder dropped = new LongAdder();
+
+	LoadGenerator(ShortenerClient client, ExecutorService executor, Map<Operation, Integer> mix, int maxInFlight) {
+		this.client = client;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.weightedOperations = mix.entrySet().stream()
+			.flatMap(entry -> Stream.generate(entry::getKey).limit(entry.getValue()))
+			.toArray(Operation[]::new);
+		for (Operation operation : Operation.values()) {
+			responseTimes.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+			serviceTimes.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+			errors.put(operation, new LongAdder());
+		}
+	}
+
+	/**
+	 * Offers load for {@code seconds} and waits for the requests still in flight.
+	 */
+	void run(double ratePerSecond, long seconds) throws InterruptedException {
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(seconds);
+		for (long i = 0; ; i++) {
+			long intended = start + i * intervalNanos;
+			if (intended >= end) {
+				break;
+			}
+			long wait;
+			while ((wait = intended - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+			if (inFlight.incrementAndGet() > maxInFlight) {
+				// The client itself would become the bottleneck; count it rather than block the schedule
+				inFlight.decrementAndGet();
+				dropped.increment();
+				errors.get(operation).increment();
+				continue;
+			}
+			executor.execute(() -> issue(operation, intended));
+		}
+		while (inFlight.get() > 0) {
+			Thread.sleep(10);
+		}
+	}
+
+	private void issue(Operation operation, long intendedStart) {
+		long actualStart = System.nanoTime();
+		boolean success = false;
+		try {
+			success = client.execute(operation);
+		} catch (Exception e) {
+			// Timeouts and connection failures count as errors, with their latency recorded
+		} finally {
+			long finished = System.nanoTime();
+			record(responseTimes.get(operation), finished - intendedStart);
+			record(serviceTimes.get(operation), finished - actualStart);
+			if (!success) {
+				errors.get(operation).increment();
+			}
+			inFlight.decrementAndGet();
+		}
+	}
+
+	private static void record(Histogram histogram, long nanos) {
+		histogram.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+	}
+
+	void reset() {
+		responseTimes.values().forEach(Histogram::reset);
+		serviceTimes.values().forEach(Histogram::reset);
+		errors.values().forEach(LongAdder::reset);
+		dropped.reset();
+	}
+
+	Map<Operation, Histogram> responseTimes() {
+		return responseTimes;
+	}
+
+	Map<Operation, Histogram> serviceTimes() {
+		return serviceTimes;
+	}
+
+	long errors(Operation operation) {
+		return errors.get(operation).sum();
+	}
+
+	long dropped() {
+		return dropped.sum();
+	}
+}
@@ -0,0 +1,78 @@
+package com.wastech.url_shortener.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Prints per-operation percentiles (in milliseconds, corrected for coordinated omission), throughput
+ * and the backend calls per request, and writes each operation's full percentile distribution as
+ * an {@code .hgrm} file for plotting.
+ */
+final class LoadReport {
+
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final LoadGenerator generator;
+	private final double elapsedSeconds;
+	private final long dbCalls;
+	private final long redisCommands;
+
+	LoadReport(LoadGenerator generator, double elapsedSeconds, long dbCalls, long redisCommands) {
+		this.generator = generator;
+		this.elapsedSeconds = elapsedSeconds;
+		this.dbCalls = dbCalls;
+		this.redisCommands = redisCommands;
+	}
+
+	void print(PrintStream out, LoadTestSettings settings) {
+		out.println();
+		out.println("Load test: " + settings);
+		out.printf(Locale.ROOT, "%-9s %9s %7s %9s %9s %9s %9s %9s %11s%n",
+			"operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+		long total = 0;
+		long totalErrors = 0;
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = generator.responseTimes().get(operation);
+			long count = histogram.getTotalCount();
+			long errors = generator.errors(operation);
+			if (count == 0 && errors == 0) {
+				continue;
+			}
+			total += count;
+			totalErrors += errors;
+			out.printf(Locale.ROOT, "%-9s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %11.2f%n",
+				operation.name().toLowerCase(Locale.ROOT), count, errors, count / elapsedSeconds,
+				millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / MICROS_PER_MILLI,
+				millis(generator.serviceTimes().get(operation), 99));
+		}
+		out.printf(Locale.ROOT, "total     %9d %7d %9.1f  (dropped by client: %d)%n", total, totalErrors, total / elapsedSeconds, generator.dropped());
+		if (total > 0) {
+			// Includes background work (persistence consumer, key pool refills) amortized over requests
+			out.printf(Locale.ROOT, "DB statements per request: %.2f, Redis commands per request: %.2f%n",
+				dbCalls / (double) total, redisCommands / (double) total);
+		}
+	}
+
+	void writeDistributions(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = generator.responseTimes().get(operation);
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+			Path file = directory.resolve(operation.name().toLowerCase(Locale.ROOT) + ".hgrm");
+			try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+				histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+			}
+		}
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+	}
+}
@@ -0,0 +1,88 @@
+package com.wastech.url_shortener.loadtest;
+
+import com.wastech.url_shortener.UrlShortenerApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Boots the application against embedded Postgres, Redis and Kafka, seeds users and short codes,
+ * then offers a fixed-rate request mix: a warmup phase whose results are discarded, followed by the
+ * measured phase. Run with {@code ./mvnw -Ploadtest verify -Dloadtest.rate=500 -Dloadtest.duration=120}.
+ */
+public final class LoadTestMain {
+
+	private LoadTestMain() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+		try (EmbeddedInfrastructure infrastructure = new EmbeddedInfrastructure();
+			 ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			infrastructure.applySystemProperties();
+			ConfigurableApplicationContext context = SpringApplication.run(UrlShortenerApplication.class, args);
+			try {
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				run(settings, new ShortenerClient("http://localhost:" + port, usernames(settings.users), executor),
+					context.getBean(StringRedisTemplate.class), executor);
+			} finally {
+				context.close();
+			}
+		}
+		// Embedded broker and client threads are not all daemons
+		System.exit(0);
+	}
+
+	private static void run(LoadTestSettings settings, ShortenerClient client, StringRedisTemplate redis,
+							ExecutorService executor) throws Exception {
+		client.registerAndLogInAll();
+		for (int i = 0; i < settings.seedUrls; i++) {
+			client.shorten(i % client.userCount());
+		}
+
+		LoadGenerator generator = new LoadGenerator(client, executor, settings.mix, settings.maxInFlight);
+		if (settings.warmupSeconds > 0) {
+			System.out.printf("Warming up for %ds...%n", settings.warmupSeconds);
+			generator.run(settings.ratePerSecond, settings.warmupSeconds);
+			generator.reset();
+		}
+
+		System.out.printf("Measuring for %ds at %.0f requests/s...%n", settings.durationSeconds, settings.ratePerSecond);
+		long dbCallsBefore = CountingDriver.executions();
+		long redisCommandsBefore = redisCommandsProcessed(redis);
+		long started = System.nanoTime();
+		generator.run(settings.ratePerSecond, settings.durationSeconds);
+		double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+		// The INFO call itself is one command; negligible against the run
+		long redisCommands = redisCommandsProcessed(redis) - redisCommandsBefore;
+		long dbCalls = CountingDriver.executions() - dbCallsBefore;
+
+		LoadReport report = new LoadReport(generator, elapsedSeconds, dbCalls, redisCommands);
+		report.print(System.out, settings);
+		report.writeDistributions(settings.reportDirectory);
+		System.out.println("Percentile distributions written to " + settings.reportDirectory.toAbsolutePath());
+	}
+
+	private static long redisCommandsProcessed(StringRedisTemplate redis) {
+		Properties stats = redis.execute((RedisCallback<Properties>) (RedisConnection connection) ->
+			connection.serverCommands().info("stats"));
+		return stats == null ? 0 : Long.parseLong(stats.getProperty("total_commands_processed", "0"));
+	}
+
+	private static List<String> usernames(int count) {
+		List<String> usernames = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			usernames.add("loadtest-user-" + i);
+		}
+		return usernames;
+	}
+}
@@ -0,0 +1,74 @@
+package com.wastech.url_shortener.loadtest;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test parameters, read from {@code loadtest.*} system properties (the {@code loadtest} Maven
+ * profile passes them through from the command line).
+ */
+final class LoadTestSettings {
+
+	final double ratePerSecond;
+	final long durationSeconds;
+	final long warmupSeconds;
+	final int users;
+	final int seedUrls;
+	final int maxInFlight;
+	final Map<Operation, Integer> mix;
+	final Path reportDirectory;
+
+	private LoadTestSettings(double ratePerSecond, long durationSeconds, long warmupSeconds, int users, int seedUrls,
+							 int maxInFlight, Map<Operation, Integer> mix, Path reportDirectory) {
+		this.ratePerSecond = ratePerSecond;
+		this.durationSeconds = durationSeconds;
+		this.warmupSeconds = warmupSeconds;
+		this.users = users;
+		this.seedUrls = seedUrls;
+		this.maxInFlight = maxInFlight;
+		this.mix = mix;
+		this.reportDirectory = reportDirectory;
+	}
+
+	static LoadTestSettings fromSystemProperties() {
+		double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+		if (rate <= 0) {
+			throw new IllegalArgumentException("loadtest.rate must be positive.");
+		}
+		return new LoadTestSettings(
+			rate,
+			Long.parseLong(System.getProperty("loadtest.duration", "60")),
+			Long.parseLong(System.getProperty("loadtest.warmup", "15")),
+			Integer.parseInt(System.getProperty("loadtest.users", "50")),
+			Integer.parseInt(System.getProperty("loadtest.seed-urls", "1000")),
+			Integer.parseInt(System.getProperty("loadtest.max-in-flight", "5000")),
+			parseMix(System.getProperty("loadtest.mix", "shorten:20,lookup:25,redirect:40,list:10,login:5")),
+			Path.of(System.getProperty("loadtest.report-dir", "target/loadtest")));
+	}
+
+	// "shorten:20,lookup:30" -> relative weights per operation
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Invalid loadtest.mix entry: " + entry);
+			}
+			int weight = Integer.parseInt(parts[1].trim());
+			if (weight > 0) {
+				weights.put(Operation.fromName(parts[0].trim()), weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("loadtest.mix must give at least one operation a positive weight.");
+		}
+		return weights;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("rate=%.0f/s duration=%ds warmup=%ds users=%d seedUrls=%d maxInFlight=%d mix=%s",
+			ratePerSecond, durationSeconds, warmupSeconds, users, seedUrls, maxInFlight, mix);
+	}
+}
@@ -0,0 +1,20 @@
+package com.wastech.url_shortener.loadtest;
+
+import java.util.Locale;
+
+enum Operation {
+	/** POST /api/urls/shorten */
+	SHORTEN,
+	/** GET /api/urls/{shortCode}, the authenticated details lookup */
+	LOOKUP,
+	/** GET /r/{shortCode} */
+	REDIRECT,
+	/** GET /api/urls/my-urls */
+	LIST,
+	/** POST /api/auth/login */
+	LOGIN;
+
+	static Operation fromName(String name) {
+		return valueOf(name.toUpperCase(Locale.ROOT));
+	}
+}
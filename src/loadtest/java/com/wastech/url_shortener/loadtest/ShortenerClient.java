@@ -0,0 +1,136 @@
+package com.wastech.url_shortener.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Issues the load test operations over HTTP and keeps the state they share: one JWT per test user
+ * and a ring of short codes known to exist, which lookups and redirects pick from.
+ */
+final class ShortenerClient {
+
+	private static final int KNOWN_CODES_CAPACITY = 100_000;
+	private static final String PASSWORD = "load-test-password";
+
+	private final HttpClient httpClient;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final String baseUrl;
+	private final List<String> usernames;
+	private final AtomicReferenceArray<String> tokens;
+	private final AtomicReferenceArray<String> knownCodes = new AtomicReferenceArray<>(KNOWN_CODES_CAPACITY);
+	private final AtomicLong knownCodesWritten = new AtomicLong();
+	private final AtomicLongArray urlCounters;
+
+	ShortenerClient(String baseUrl, List<String> usernames, ExecutorService executor) {
+		this.baseUrl = baseUrl;
+		this.usernames = usernames;
+		this.tokens = new AtomicReferenceArray<>(usernames.size());
+		this.urlCounters = new AtomicLongArray(usernames.size());
+		this.httpClient = HttpClient.newBuilder()
+			.executor(executor)
+			.connectTimeout(Duration.ofSeconds(5))
+			.followRedirects(HttpClient.Redirect.NEVER)
+			.build();
+	}
+
+	void registerAndLogInAll() throws IOException, InterruptedException {
+		for (int user = 0; user < usernames.size(); user++) {
+			int status = post("/api/auth/register", null,
+				Map.of("username", usernames.get(user), "password", PASSWORD)).statusCode();
+			if (status != 201) {
+				throw new IllegalStateException("Could not register load test user " + usernames.get(user) + ": HTTP " + status);
+			}
+			if (!login(user)) {
+				throw new IllegalStateException("Could not log in load test user " + usernames.get(user));
+			}
+		}
+	}
+
+	/**
+	 * @return whether the server answered with a 2xx or 3xx status
+	 */
+	boolean execute(Operation operation) throws IOException, InterruptedException {
+		int user = ThreadLocalRandom.current().nextInt(usernames.size());
+		return switch (operation) {
+			case SHORTEN -> shorten(user);
+			case LOOKUP -> isSuccess(get("/api/urls/" + randomKnownCode(), tokens.get(user)));
+			case REDIRECT -> isSuccess(get("/r/" + randomKnownCode(), null));
+			case LIST -> isSuccess(get("/api/urls/my-urls", tokens.get(user)));
+			case LOGIN -> login(user);
+		};
+	}
+
+	boolean shorten(int user) throws IOException, InterruptedException {
+		String longUrl = "https://example.com/load/" + usernames.get(user) + "/" + urlCounters.incrementAndGet(user);
+		HttpResponse<String> response = post("/api/urls/shorten", tokens.get(user), Map.of("longUrl", longUrl));
+		if (!isSuccess(response)) {
+			return false;
+		}
+		JsonNode shortCode = objectMapper.readTree(response.body()).get("shortCode");
+		if (shortCode != null && !shortCode.isNull()) {
+			long slot = knownCodesWritten.getAndIncrement();
+			knownCodes.set((int) (slot % KNOWN_CODES_CAPACITY), shortCode.asText());
+		}
+		return true;
+	}
+
+	int userCount() {
+		return usernames.size();
+	}
+
+	private boolean login(int user) throws IOException, InterruptedException {
+		HttpResponse<String> response = post("/api/auth/login", null,
+			Map.of("username", usernames.get(user), "password", PASSWORD));
+		if (!isSuccess(response)) {
+			return false;
+		}
+		tokens.set(user, objectMapper.readTree(response.body()).get("accessToken").asText());
+		return true;
+	}
+
+	String randomKnownCode() {
+		long written = Math.min(knownCodesWritten.get(), KNOWN_CODES_CAPACITY);
+		if (written == 0) {
+			throw new IllegalStateException("No short codes available; seed some with SHORTEN first.");
+		}
+		String code = knownCodes.get(ThreadLocalRandom.current().nextInt((int) written));
+		return code == null ? knownCodes.get(0) : code;
+	}
+
+	private HttpResponse<String> get(String path, String token) throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30)).GET();
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> post(String path, String token, Object body) throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+			.timeout(Duration.ofSeconds(30))
+			.header("Content-Type", "application/json")
+			.POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static boolean isSuccess(HttpResponse<?> response) {
+		return response.statusCode() >= 200 && response.statusCode() < 400;
+	}
+}
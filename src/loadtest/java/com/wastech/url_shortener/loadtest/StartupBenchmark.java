@@ -0,0 +1,170 @@
+package com.wastech.url_shortener.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching an application JVM to its first successful redirect, which is
+ * when a scale-out instance starts doing useful work. Each variant is launched as a separate
+ * process against the same embedded Postgres, Redis and Kafka:
+ * <ul>
+ *   <li>{@code baseline}: the packaged jar with default settings.</li>
+ *   <li>{@code fast-start}: the extracted jar from {@code -Pfast-start} with AOT, the CDS archive and
+ *   the fast-start profile; skipped if that build has not been run.</li>
+ * </ul>
+ * Run with {@code ./mvnw -Pfast-start,loadtest verify -Dloadtest.skip=true -Dstartup.benchmark.skip=false}.
+ */
+public final class StartupBenchmark {
+
+	private static final String ARCHIVE_NAME = "application.jsa";
+
+	private StartupBenchmark() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int iterations = Integer.parseInt(System.getProperty("startup.iterations", "5"));
+		Duration timeout = Duration.ofSeconds(Long.parseLong(System.getProperty("startup.timeout-seconds", "180")));
+		Path jar = Path.of(System.getProperty("startup.jar"));
+		Path fastStartDirectory = Path.of(System.getProperty("startup.fast-start-dir", "target/faststart"));
+		List<String> jvmArgs = splitArgs(System.getProperty("startup.jvm-args", ""));
+		Path logDirectory = Path.of(System.getProperty("loadtest.report-dir", "target/loadtest"));
+		Files.createDirectories(logDirectory);
+
+		Map<String, List<String>> variants = new LinkedHashMap<>();
+		variants.put("baseline", List.of("-jar", jar.toString()));
+		Path fastStartJar = fastStartDirectory.resolve(jar.getFileName());
+		if (Files.exists(fastStartDirectory.resolve(ARCHIVE_NAME)) && Files.exists(fastStartJar)) {
+			variants.put("fast-start", List.of(
+				"-XX:SharedArchiveFile=" + fastStartDirectory.resolve(ARCHIVE_NAME),
+				"-Dspring.aot.enabled=true",
+				"-Dspring.profiles.active=fast-start",
+				"-jar", fastStartJar.toString()));
+		} else {
+			System.out.println("No CDS archive in " + fastStartDirectory + "; build with -Pfast-start to benchmark it.");
+		}
+
+		try (EmbeddedInfrastructure infrastructure = new EmbeddedInfrastructure();
+			 ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Map<String, String> properties = infrastructure.applicationProperties();
+			HttpClient httpClient = HttpClient.newBuilder()
+				.executor(executor)
+				.connectTimeout(Duration.ofSeconds(1))
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.build();
+
+			// The first boot creates the schema and one short code for every later boot to redirect
+			String shortCode;
+			int port = EmbeddedInfrastructure.freePort();
+			Process seed = launch(variants.get("baseline"), jvmArgs, properties, port, logDirectory.resolve("startup-seed.log"));
+			try {
+				awaitRedirect(httpClient, port, null, timeout);
+				ShortenerClient client = new ShortenerClient("http://localhost:" + port, List.of("startup-benchmark"), executor);
+				client.registerAndLogInAll();
+				if (!client.shorten(0)) {
+					throw new IllegalStateException("Could not create the short code to redirect.");
+				}
+				shortCode = client.randomKnownCode();
+				awaitRedirect(httpClient, port, shortCode, timeout);
+			} finally {
+				stop(seed);
+			}
+
+			Map<String, List<Long>> results = new LinkedHashMap<>();
+			for (int i = 0; i < iterations; i++) {
+				// Interleaved so drift in the machine's state affects every variant alike
+				for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+					port = EmbeddedInfrastructure.freePort();
+					Path log = logDirectory.resolve("startup-" + variant.getKey() + "-" + i + ".log");
+					long launched = System.nanoTime();
+					Process process = launch(variant.getValue(), jvmArgs, properties, port, log);
+					try {
+						awaitRedirect(httpClient, port, shortCode, timeout);
+						results.computeIfAbsent(variant.getKey(), name -> new ArrayList<>())
+							.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched));
+					} finally {
+						stop(process);
+					}
+				}
+			}
+			print(results);
+			System.out.println("Application logs written to " + logDirectory.toAbsolutePath());
+		}
+		System.exit(0);
+	}
+
+	private static Process launch(List<String> variantArgs, List<String> jvmArgs, Map<String, String> properties,
+								  int port, Path log) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmArgs);
+		properties.forEach((name, value) -> command.add("-D" + name + "=" + value));
+		command.add("-Dserver.port=" + port);
+		command.addAll(variantArgs);
+		return new ProcessBuilder(command)
+			.redirectErrorStream(true)
+			.redirectOutput(log.toFile())
+			.start();
+	}
+
+	/**
+	 * Polls until the code redirects, or with no code until the server answers at all.
+	 */
+	private static void awaitRedirect(HttpClient httpClient, int port, String shortCode, Duration timeout)
+		throws InterruptedException {
+		String path = shortCode == null ? "/actuator/health" : "/r/" + shortCode;
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+			.timeout(Duration.ofSeconds(5))
+			.GET()
+			.build();
+		long deadline = System.nanoTime() + timeout.toNanos();
+		while (System.nanoTime() < deadline) {
+			try {
+				int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+				if (shortCode == null || (status >= 300 && status < 400)) {
+					return;
+				}
+			} catch (IOException e) {
+				// Not listening yet
+			}
+			Thread.sleep(10);
+		}
+		throw new IllegalStateException("No response from " + path + " on port " + port + " within " + timeout);
+	}
+
+	private static void stop(Process process) throws InterruptedException {
+		process.destroy();
+		if (!process.waitFor(30, TimeUnit.SECONDS)) {
+			process.destroyForcibly().waitFor();
+		}
+	}
+
+	private static void print(Map<String, List<Long>> results) {
+		System.out.println();
+		System.out.printf("%-12s %8s %8s %8s  (ms from launch to first redirect)%n", "variant", "min", "median", "max");
+		results.forEach((variant, millis) -> {
+			List<Long> sorted = new ArrayList<>(millis);
+			Collections.sort(sorted);
+			System.out.printf(Locale.ROOT, "%-12s %8d %8d %8d%n",
+				variant, sorted.getFirst(), sorted.get(sorted.size() / 2), sorted.getLast());
+		});
+	}
+
+	private static List<String> splitArgs(String args) {
+		return args.isBlank() ? List.of() : List.of(args.trim().split("\\s+"));
+	}
+}
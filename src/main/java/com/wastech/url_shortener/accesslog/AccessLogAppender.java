@@ -0,0 +1,119 @@
+package com.wastech.url_shortener.accesslog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Moves access log records off the request thread: requests copy their record into the ring
+ * buffer, and a single background thread formats and writes them to the {@code access} logger.
+ * Setting that logger above INFO (e.g. through {@code /actuator/loggers/access}) stops recording.
+ */
+@Component
+@Slf4j
+public class AccessLogAppender {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access");
+    private static final int DRAIN_BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final AccessLogRingBuffer ringBuffer;
+    private final LongAdder written = new LongAdder();
+    private final StringBuilder line = new StringBuilder(256);
+    private final Consumer<AccessLogEntry> writer = this::write;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "access-log-appender");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    public AccessLogAppender(AccessLogProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.ringBuffer = new AccessLogRingBuffer(properties.getBufferSize());
+        if (enabled) {
+            executor.execute(this::drainLoop);
+        }
+    }
+
+    public boolean isRecording() {
+        return enabled && ACCESS_LOG.isInfoEnabled();
+    }
+
+    /**
+     * Copies the record into the ring buffer; drops it if the appender is a full buffer behind.
+     */
+    public void append(long timestampMillis, String method, String endpoint, int status, long durationNanos,
+                       RequestTimings timings, String clientAddress) {
+        long sequence = ringBuffer.claim();
+        if (sequence < 0) {
+            return;
+        }
+        ringBuffer.slot(sequence).fill(timestampMillis, method, endpoint, status, durationNanos, timings, clientAddress);
+        ringBuffer.publish(sequence);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int capacity() {
+        return ringBuffer.capacity();
+    }
+
+    public long pending() {
+        return ringBuffer.pending();
+    }
+
+    public long dropped() {
+        return ringBuffer.dropped();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Access log appender did not finish flushing; {} records lost.", ringBuffer.pending());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (ringBuffer.drain(writer, DRAIN_BATCH_SIZE) == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not write access log record: {}", e.getMessage());
+            }
+        }
+        // Flush what was published before shutdown; slots claimed but never published are skipped
+        ringBuffer.drain(writer, ringBuffer.capacity());
+    }
+
+    private void write(AccessLogEntry entry) {
+        line.setLength(0);
+        entry.appendTo(line);
+        ACCESS_LOG.info(line.toString());
+        written.increment();
+    }
+}
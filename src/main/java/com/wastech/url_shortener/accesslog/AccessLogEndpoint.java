@@ -0,0 +1,54 @@
+package com.wastech.url_shortener.accesslog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/accesslog} shows sampling rates and appender counters;
+ * {@code POST /actuator/accesslog} with {@code {"endpoint": "/r/{shortCode}", "rate": 0.01}} changes
+ * one route's sample rate, or the default rate when {@code endpoint} is omitted.
+ */
+@Component
+@Endpoint(id = "accesslog")
+@RequiredArgsConstructor
+public class AccessLogEndpoint {
+
+    private final AccessLogAppender appender;
+    private final AccessLogSampler sampler;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", appender.isEnabled());
+        status.put("recording", appender.isRecording());
+        status.put("defaultSampleRate", sampler.getDefaultRate());
+        status.put("sampleRates", sampler.getRates());
+        status.put("bufferCapacity", appender.capacity());
+        status.put("pending", appender.pending());
+        status.put("written", appender.written());
+        status.put("dropped", appender.dropped());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> sampleRate(@Nullable String endpoint, double rate) {
+        try {
+            if (endpoint == null) {
+                sampler.setDefaultRate(rate);
+            } else {
+                sampler.setRate(endpoint, rate);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), "Invalid sample rate");
+        }
+        return status();
+    }
+}
@@ -0,0 +1,55 @@
+package com.wastech.url_shortener.accesslog;
+
+/**
+ * One preallocated ring buffer slot. Fields are written by the request thread that claimed the
+ * slot and read by the appender only after {@link #sequence} shows the slot as published.
+ */
+final class AccessLogEntry {
+
+    volatile long sequence = -1;
+
+    long timestampMillis;
+    String method;
+    String endpoint;
+    int status;
+    long durationNanos;
+    long redisNanos;
+    int redisCalls;
+    long dbNanos;
+    int dbCalls;
+    long kafkaNanos;
+    int kafkaCalls;
+    String clientAddress;
+
+    void fill(long timestampMillis, String method, String endpoint, int status, long durationNanos,
+              RequestTimings timings, String clientAddress) {
+        this.timestampMillis = timestampMillis;
+        this.method = method;
+        this.endpoint = endpoint;
+        this.status = status;
+        this.durationNanos = durationNanos;
+        this.redisNanos = timings.redisNanos;
+        this.redisCalls = timings.redisCalls;
+        this.dbNanos = timings.dbNanos;
+        this.dbCalls = timings.dbCalls;
+        this.kafkaNanos = timings.kafkaNanos;
+        this.kafkaCalls = timings.kafkaCalls;
+        this.clientAddress = clientAddress;
+    }
+
+    // t=1760000000000 GET /r/{shortCode} 302 us=850 redis=1/240 db=0/0 kafka=0/0 ip=10.0.0.7
+    void appendTo(StringBuilder line) {
+        line.append("t=").append(timestampMillis)
+            .append(' ').append(method)
+            .append(' ').append(endpoint)
+            .append(' ').append(status)
+            .append(" us=").append(durationNanos / 1000)
+            .append(" redis=").append(redisCalls).append('/').append(redisNanos / 1000)
+            .append(" db=").append(dbCalls).append('/').append(dbNanos / 1000)
+            .append(" kafka=").append(kafkaCalls).append('/').append(kafkaNanos / 1000)
+            .append(" ip=").append(clientAddress);
+        method = null;
+        endpoint = null;
+        clientAddress = null;
+    }
+}
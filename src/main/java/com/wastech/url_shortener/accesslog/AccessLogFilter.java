@@ -0,0 +1,89 @@
+package com.wastech.url_shortener.accesslog;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Outermost servlet filter: times the whole request, including the security chain, and hands one
+ * record per sampled request to the {@link AccessLogAppender}. Records are keyed by route pattern
+ * so sampling and log volume do not depend on the short code in the path. Asynchronous requests,
+ * such as logins, are recorded when they complete, with their final status.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    // Requests rejected before reaching a handler (401, 429, unknown paths) have no route pattern
+    private static final String UNMATCHED_ENDPOINT = "unmatched";
+
+    private final AccessLogAppender appender;
+    private final AccessLogSampler sampler;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!appender.isRecording()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long startedMillis = System.currentTimeMillis();
+        long started = System.nanoTime();
+        RequestTimings timings = RequestTimings.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            timings.end();
+            if (request.isAsyncStarted()) {
+                // Work done on other threads after this point is not attributed
+                RequestTimings initialDispatch = timings.copy();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, startedMillis, started, initialDispatch);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, startedMillis, started, timings);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long startedMillis, long started,
+                        RequestTimings timings) {
+        String endpoint = endpointOf(request);
+        int status = response.getStatus();
+        if (sampler.shouldSample(endpoint, status)) {
+            appender.append(startedMillis, request.getMethod(), endpoint, status, System.nanoTime() - started,
+                timings, request.getRemoteAddr());
+        }
+    }
+
+    private static String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof String endpoint ? endpoint : UNMATCHED_ENDPOINT;
+    }
+}
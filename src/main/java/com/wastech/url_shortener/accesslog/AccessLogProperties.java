@@ -0,0 +1,22 @@
+package com.wastech.url_shortener.accesslog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "app.access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = true;
+
+    /** Records waiting for the appender; rounded up to a power of two. Full buffers drop records. */
+    private int bufferSize = 16384;
+
+    private double defaultSampleRate = 1.0;
+
+    /** Sample rates keyed by route pattern, e.g. {@code /r/{shortCode}}. */
+    private Map<String, Double> sampleRates = new LinkedHashMap<>();
+}
@@ -0,0 +1,84 @@
+package com.wastech.url_shortener.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated {@link AccessLogEntry} slots.
+ * Producers claim a sequence with a CAS on the tail and publish the slot by writing its sequence;
+ * when the consumer falls a full ring behind, new records are dropped rather than blocking requests.
+ */
+final class AccessLogRingBuffer {
+
+    private final AccessLogEntry[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    AccessLogRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new AccessLogEntry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new AccessLogEntry();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the claimed sequence, or {@code -1} if the ring is full
+     */
+    long claim() {
+        while (true) {
+            long current = tail.get();
+            if (current - head.get() >= slots.length) {
+                dropped.increment();
+                return -1;
+            }
+            if (tail.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    AccessLogEntry slot(long sequence) {
+        return slots[(int) (sequence & mask)];
+    }
+
+    void publish(long sequence) {
+        slot(sequence).sequence = sequence;
+    }
+
+    /**
+     * Hands up to {@code max} published entries to {@code consumer} in order. Only the appender
+     * thread may call this.
+     */
+    int drain(Consumer<AccessLogEntry> consumer, int max) {
+        long next = head.get();
+        int drained = 0;
+        while (drained < max) {
+            AccessLogEntry entry = slot(next);
+            if (entry.sequence != next) {
+                break;
+            }
+            consumer.accept(entry);
+            next++;
+            drained++;
+            head.lazySet(next);
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    long pending() {
+        return tail.get() - head.get();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,56 @@
+package com.wastech.url_shortener.accesslog;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-endpoint sampling of access log records. Server errors are always kept; everything else is
+ * kept with the rate configured for its route pattern, or the default rate. Rates can be changed at
+ * runtime through the {@code accesslog} actuator endpoint.
+ */
+@Component
+public class AccessLogSampler {
+
+    private final Map<String, Double> rates = new ConcurrentHashMap<>();
+    private volatile double defaultRate;
+
+    public AccessLogSampler(AccessLogProperties properties) {
+        setDefaultRate(properties.getDefaultSampleRate());
+        properties.getSampleRates().forEach(this::setRate);
+    }
+
+    public boolean shouldSample(String endpoint, int status) {
+        if (status >= 500) {
+            return true;
+        }
+        double rate = rates.getOrDefault(endpoint, defaultRate);
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public void setRate(String endpoint, double rate) {
+        rates.put(endpoint, checkRate(rate));
+    }
+
+    public void setDefaultRate(double rate) {
+        defaultRate = checkRate(rate);
+    }
+
+    public double getDefaultRate() {
+        return defaultRate;
+    }
+
+    public Map<String, Double> getRates() {
+        return new TreeMap<>(rates);
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1 || Double.isNaN(rate)) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1, got " + rate + ".");
+        }
+        return rate;
+    }
+}
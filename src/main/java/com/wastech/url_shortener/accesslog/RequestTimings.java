@@ -0,0 +1,75 @@
+package com.wastech.url_shortener.accesslog;
+
+/**
+ * Per-thread accumulator of time spent in Redis, the database and Kafka during the current request.
+ * The instance is reused for every request on a thread; recording outside a request is a no-op.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = ThreadLocal.withInitial(RequestTimings::new);
+
+    private boolean active;
+    long redisNanos;
+    int redisCalls;
+    long dbNanos;
+    int dbCalls;
+    long kafkaNanos;
+    int kafkaCalls;
+
+    private RequestTimings() {
+    }
+
+    static RequestTimings begin() {
+        RequestTimings timings = CURRENT.get();
+        timings.redisNanos = 0;
+        timings.redisCalls = 0;
+        timings.dbNanos = 0;
+        timings.dbCalls = 0;
+        timings.kafkaNanos = 0;
+        timings.kafkaCalls = 0;
+        timings.active = true;
+        return timings;
+    }
+
+    void end() {
+        active = false;
+    }
+
+    /**
+     * Detached copy for a record written after the thread has moved on, e.g. on async completion.
+     */
+    RequestTimings copy() {
+        RequestTimings copy = new RequestTimings();
+        copy.redisNanos = redisNanos;
+        copy.redisCalls = redisCalls;
+        copy.dbNanos = dbNanos;
+        copy.dbCalls = dbCalls;
+        copy.kafkaNanos = kafkaNanos;
+        copy.kafkaCalls = kafkaCalls;
+        return copy;
+    }
+
+    public static void recordRedis(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings.active) {
+            timings.redisNanos += nanos;
+            timings.redisCalls++;
+        }
+    }
+
+    public static void recordDb(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings.active) {
+            timings.dbNanos += nanos;
+            timings.dbCalls++;
+        }
+    }
+
+    public static void recordKafka(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings.active) {
+            timings.kafkaNanos += nanos;
+            timings.kafkaCalls++;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.wastech.url_shortener.bulkimport;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class BulkImportJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final String path;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile long resumedFromLine;
+    private volatile long linesCommitted;
+    private volatile long inserted;
+    private volatile long duplicates;
+    private volatile long rejected;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+}
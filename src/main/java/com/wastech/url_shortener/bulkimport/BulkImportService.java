@@ -0,0 +1,308 @@
+package com.wastech.url_shortener.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wastech.url_shortener.cache.MappingCache;
+import com.wastech.url_shortener.dto.BulkImportRequest;
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.service.KeyGenerationService;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.service.PendingWriteOverlay;
+import com.wastech.url_shortener.sharding.ShardRouter;
+import com.wastech.url_shortener.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads legacy mappings in chunks: lines are parsed and normalized in parallel, codes are kept or
+ * assigned from one leased KGS range per chunk, and each chunk is streamed with {@code COPY FROM STDIN}
+ * into a temporary staging table and merged with {@code ON CONFLICT DO NOTHING}, one transaction per
+ * chunk and target database. Re-running the same file resumes from its checkpoint.
+ * <p>
+ * Kept legacy codes are reserved in the key generator before they are loaded, so it never issues
+ * one of them later. A kept code that was issued moments ago and is still on its way to Postgres
+ * belongs to that user; the legacy row is skipped as a duplicate.
+ */
+@Service
+@Slf4j
+public class BulkImportService {
+
+    private static final int PRIMARY_TARGET = -1;
+
+    private static final String STAGING_DDL =
+        "CREATE TEMP TABLE import_staging (short_code VARCHAR(10), long_url VARCHAR(2048), created_at TIMESTAMP, " +
+            "click_count BIGINT, expires_at TIMESTAMP, user_id BIGINT) ON COMMIT DROP";
+    private static final String COPY_SQL =
+        "COPY import_staging (short_code, long_url, created_at, click_count, expires_at, user_id) FROM STDIN WITH (FORMAT csv)";
+    private static final String MERGE_SQL =
+        "INSERT INTO shortened_urls (short_code, long_url, created_at, click_count, expires_at, user_id) " +
+            "SELECT short_code, long_url, created_at, click_count, expires_at, user_id FROM import_staging " +
+            "ON CONFLICT (short_code) DO NOTHING RETURNING short_code, long_url, expires_at";
+
+    private final HikariDataSource primaryDataSource;
+    private final KeyGenerationService keyGenerationService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MappingCache mappingCache;
+    private final ObjectProvider<ShardRouter> shardRouterProvider;
+    private final ObjectProvider<ShardRoutingDataSource> shardRoutingDataSourceProvider;
+    private final ObjectMapper objectMapper;
+    private final MappingChangePublisher mappingChangePublisher;
+    private final PendingWriteOverlay pendingWriteOverlay;
+    private final Map<String, BulkImportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+
+    public BulkImportService(HikariDataSource primaryDataSource,
+                             KeyGenerationService keyGenerationService,
+                             StringRedisTemplate stringRedisTemplate,
+                             MappingCache mappingCache,
+                             ObjectProvider<ShardRouter> shardRouterProvider,
+                             ObjectProvider<ShardRoutingDataSource> shardRoutingDataSourceProvider,
+                             ObjectMapper objectMapper,
+                             MappingChangePublisher mappingChangePublisher,
+                             PendingWriteOverlay pendingWriteOverlay) {
+        this.primaryDataSource = primaryDataSource;
+        this.keyGenerationService = keyGenerationService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.mappingCache = mappingCache;
+        this.shardRouterProvider = shardRouterProvider;
+        this.shardRoutingDataSourceProvider = shardRoutingDataSourceProvider;
+        this.objectMapper = objectMapper;
+        this.mappingChangePublisher = mappingChangePublisher;
+        this.pendingWriteOverlay = pendingWriteOverlay;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkImportJob startImport(BulkImportRequest request) {
+        Path source = Path.of(request.getPath());
+        if (!Files.isReadable(source)) {
+            throw new IllegalArgumentException("Import file is not readable: " + request.getPath());
+        }
+        BulkImportJob job = new BulkImportJob(UUID.randomUUID().toString(), request.getPath());
+        jobs.put(job.getId(), job);
+        importExecutor.submit(() -> run(job, request, source));
+        return job;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public Optional<BulkImportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<BulkImportJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    private void run(BulkImportJob job, BulkImportRequest request, Path source) {
+        ImportRecordParser parser = new ImportRecordParser(request.getFormat(), request.isKeepLegacyCodes(), objectMapper);
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            ImportCheckpoint checkpoint = ImportCheckpoint.load(source.resolveSibling(source.getFileName() + ".checkpoint"));
+            job.setResumedFromLine(checkpoint.getLinesCommitted());
+            log.info("Importing {} from line {}", request.getPath(), checkpoint.getLinesCommitted() + 1);
+
+            List<String> chunk = new ArrayList<>(request.getChunkSize());
+            long lineNumber = 0;
+            long chunkStartLine = checkpoint.getLinesCommitted() + 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= checkpoint.getLinesCommitted()) {
+                    continue;
+                }
+                if (lineNumber > 1 || !request.isHasHeader() || request.getFormat() != ImportFormat.CSV) {
+                    chunk.add(line);
+                }
+                if (lineNumber - chunkStartLine + 1 >= request.getChunkSize()) {
+                    loadChunk(job, request, parser, checkpoint, chunk, chunkStartLine, lineNumber);
+                    chunk.clear();
+                    chunkStartLine = lineNumber + 1;
+                }
+            }
+            if (lineNumber >= chunkStartLine) {
+                loadChunk(job, request, parser, checkpoint, chunk, chunkStartLine, lineNumber);
+            }
+            job.setStatus(BulkImportJob.Status.COMPLETED);
+            log.info("Import of {} completed: {} inserted, {} duplicates, {} rejected",
+                request.getPath(), job.getInserted(), job.getDuplicates(), job.getRejected());
+        } catch (Exception e) {
+            log.error("Import of {} failed at line {}: {}", request.getPath(), job.getLinesCommitted() + 1, e.getMessage(), e);
+            job.setStatus(BulkImportJob.Status.FAILED);
+            job.setError(e.getMessage());
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void loadChunk(BulkImportJob job, BulkImportRequest request, ImportRecordParser parser,
+                           ImportCheckpoint checkpoint, List<String> lines, long chunkStartLine, long lastLine)
+        throws IOException, SQLException {
+        List<ImportRecord> parsed = lines.parallelStream()
+            .map(parser::parse)
+            .filter(Objects::nonNull)
+            .toList();
+        job.setRejected(job.getRejected() + lines.size() - parsed.size());
+
+        List<ImportRecord> records = parsed;
+        if (request.isKeepLegacyCodes() && !parsed.isEmpty()) {
+            keyGenerationService.reserveCodes(parsed.stream().map(ImportRecord::getShortCode).toList());
+            records = withoutPendingWrites(parsed);
+        } else if (!parsed.isEmpty()) {
+            long leaseStart = checkpoint.leaseFor(chunkStartLine, parsed.size());
+            if (leaseStart < 0) {
+                leaseStart = keyGenerationService.leaseKeyRange(parsed.size());
+                checkpoint.recordLease(chunkStartLine, leaseStart, parsed.size());
+            }
+            // Codes an earlier import kept are replaced one by one; on a resumed chunk these may
+            // differ from the first attempt, which only matters if that attempt partially committed
+            Set<String> reserved = keyGenerationService.reservedAmong(leaseStart, parsed.size());
+            for (int i = 0; i < parsed.size(); i++) {
+                String code = keyGenerationService.encodeKey(leaseStart + i);
+                parsed.get(i).setShortCode(reserved.contains(code) ? keyGenerationService.leaseUnreservedKey() : code);
+            }
+        }
+
+        long inserted = 0;
+        for (Map.Entry<Integer, List<ImportRecord>> target : groupByTarget(records).entrySet()) {
+            List<ImportRecord> loaded = copyInto(dataSourceFor(target.getKey()), target.getValue(), request.getUserId());
+            inserted += loaded.size();
+            if (request.isPrimeCache()) {
+                primeCache(loaded);
+            }
+            mappingChangePublisher.publishCreated(loaded.stream()
+                .map(record -> new KeyRequest(record.getShortCode(), record.getLongUrl(), request.getUserId(), record.getExpiresAt()))
+                .toList());
+        }
+        checkpoint.commit(lastLine);
+
+        job.setInserted(job.getInserted() + inserted);
+        job.setDuplicates(job.getDuplicates() + parsed.size() - inserted);
+        job.setLinesCommitted(lastLine);
+        log.info("Import {}: committed through line {} ({} inserted so far)", job.getId(), lastLine, job.getInserted());
+    }
+
+    // Drops kept codes that are in the pending-write overlay: issued to a user and not persisted yet
+    private List<ImportRecord> withoutPendingWrites(List<ImportRecord> records) {
+        List<Object> pending = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ImportRecord record : records) {
+                connection.keyCommands().exists(pendingWriteOverlay.key(record.getShortCode()).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<ImportRecord> kept = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            if (!Boolean.TRUE.equals(pending.get(i))) {
+                kept.add(records.get(i));
+            }
+        }
+        return kept;
+    }
+
+    private Map<Integer, List<ImportRecord>> groupByTarget(List<ImportRecord> records) {
+        ShardRouter shardRouter = shardRouterProvider.getIfAvailable();
+        Map<Integer, List<ImportRecord>> targets = new TreeMap<>();
+        for (ImportRecord record : records) {
+            int target = shardRouter == null ? PRIMARY_TARGET : shardRouter.shardFor(record.getShortCode());
+            targets.computeIfAbsent(target, t -> new ArrayList<>()).add(record);
+        }
+        return targets;
+    }
+
+    private DataSource dataSourceFor(int target) {
+        return target == PRIMARY_TARGET ? primaryDataSource : shardRoutingDataSourceProvider.getObject().shard(target);
+    }
+
+    private List<ImportRecord> copyInto(DataSource dataSource, List<ImportRecord> records, Long userId) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(STAGING_DDL);
+                }
+                connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(toCsv(records, userId)));
+
+                List<ImportRecord> inserted = new ArrayList<>();
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery(MERGE_SQL)) {
+                    while (rs.next()) {
+                        Timestamp expiresAt = rs.getTimestamp("expires_at");
+                        inserted.add(new ImportRecord(rs.getString("short_code"), rs.getString("long_url"), null,
+                            expiresAt == null ? null : expiresAt.toLocalDateTime(), 0));
+                    }
+                }
+                connection.commit();
+                return inserted;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String toCsv(List<ImportRecord> records, Long userId) {
+        StringBuilder csv = new StringBuilder(records.size() * 128);
+        String user = userId == null ? "" : userId.toString();
+        for (ImportRecord record : records) {
+            appendQuoted(csv, record.getShortCode()).append(',');
+            appendQuoted(csv, record.getLongUrl()).append(',');
+            csv.append(Timestamp.valueOf(record.getCreatedAt())).append(',');
+            csv.append(record.getClickCount()).append(',');
+            if (record.getExpiresAt() != null) {
+                csv.append(Timestamp.valueOf(record.getExpiresAt()));
+            }
+            csv.append(',').append(user).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private void primeCache(List<ImportRecord> loaded) {
+        long nowMillis = System.currentTimeMillis();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ImportRecord record : loaded) {
+                mappingCache.queuePut(connection, record.getShortCode(), record.getLongUrl(), record.getExpiresAt(), nowMillis);
+            }
+            return null;
+        });
+    }
+}
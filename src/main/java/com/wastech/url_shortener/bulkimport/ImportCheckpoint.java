@@ -0,0 +1,79 @@
+package com.wastech.url_shortener.bulkimport;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Progress of an import, stored next to the input file. {@code linesCommitted} only advances after
+ * a chunk is committed on every target. A chunk that leased KGS codes records its lease first, so a
+ * retried chunk reuses the same codes and its already-loaded rows are skipped as duplicates.
+ */
+@Getter
+public class ImportCheckpoint {
+
+    private final Path path;
+    private long linesCommitted;
+    private long pendingChunkStartLine = -1;
+    private long pendingLeaseStart = -1;
+    private long pendingLeaseCount;
+
+    private ImportCheckpoint(Path path) {
+        this.path = path;
+    }
+
+    public static ImportCheckpoint load(Path path) throws IOException {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(path);
+        if (Files.exists(path)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            checkpoint.linesCommitted = Long.parseLong(properties.getProperty("linesCommitted", "0"));
+            checkpoint.pendingChunkStartLine = Long.parseLong(properties.getProperty("pendingChunkStartLine", "-1"));
+            checkpoint.pendingLeaseStart = Long.parseLong(properties.getProperty("pendingLeaseStart", "-1"));
+            checkpoint.pendingLeaseCount = Long.parseLong(properties.getProperty("pendingLeaseCount", "0"));
+        }
+        return checkpoint;
+    }
+
+    /** @return the lease recorded for this exact chunk, or -1 if there is none */
+    public long leaseFor(long chunkStartLine, long count) {
+        return pendingChunkStartLine == chunkStartLine && pendingLeaseCount == count ? pendingLeaseStart : -1;
+    }
+
+    public void recordLease(long chunkStartLine, long leaseStart, long count) throws IOException {
+        this.pendingChunkStartLine = chunkStartLine;
+        this.pendingLeaseStart = leaseStart;
+        this.pendingLeaseCount = count;
+        save();
+    }
+
+    public void commit(long lastLine) throws IOException {
+        this.linesCommitted = lastLine;
+        this.pendingChunkStartLine = -1;
+        this.pendingLeaseStart = -1;
+        this.pendingLeaseCount = 0;
+        save();
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("linesCommitted", Long.toString(linesCommitted));
+        properties.setProperty("pendingChunkStartLine", Long.toString(pendingChunkStartLine));
+        properties.setProperty("pendingLeaseStart", Long.toString(pendingLeaseStart));
+        properties.setProperty("pendingLeaseCount", Long.toString(pendingLeaseCount));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "url-shortener bulk import checkpoint");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
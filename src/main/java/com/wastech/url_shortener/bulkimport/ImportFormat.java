@@ -0,0 +1,10 @@
+package com.wastech.url_shortener.bulkimport;
+
+/**
+ * CSV rows are {@code code,long_url,created_at,expires_at,click_count}; NDJSON objects use the
+ * keys {@code code, longUrl, createdAt, expiresAt, clickCount}. Only {@code long_url} is required.
+ */
+public enum ImportFormat {
+    CSV,
+    NDJSON
+}
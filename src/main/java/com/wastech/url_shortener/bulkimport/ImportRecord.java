@@ -0,0 +1,18 @@
+package com.wastech.url_shortener.bulkimport;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRecord {
+    private String shortCode;
+    private String longUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+    private long clickCount;
+}
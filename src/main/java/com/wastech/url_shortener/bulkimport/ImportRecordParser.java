@@ -0,0 +1,174 @@
+package com.wastech.url_shortener.bulkimport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wastech.url_shortener.util.Base62;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses, validates and normalizes one line of an import file. Stateless and thread-safe, so
+ * chunks are processed with a parallel stream. Returns {@code null} for rows that must be skipped.
+ */
+public class ImportRecordParser {
+
+    private static final int MAX_URL_LENGTH = 2048;
+
+    private final ImportFormat format;
+    private final boolean requireCode;
+    private final ObjectMapper objectMapper;
+
+    public ImportRecordParser(ImportFormat format, boolean requireCode, ObjectMapper objectMapper) {
+        this.format = format;
+        this.requireCode = requireCode;
+        this.objectMapper = objectMapper;
+    }
+
+    public ImportRecord parse(String line) {
+        if (line == null || line.isBlank()) {
+            return null;
+        }
+        try {
+            ImportRecord record = format == ImportFormat.CSV ? parseCsv(line) : parseJson(line);
+            return normalize(record);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private ImportRecord parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        return new ImportRecord(
+            field(fields, 0),
+            field(fields, 1),
+            parseTimestamp(field(fields, 2)),
+            parseTimestamp(field(fields, 3)),
+            field(fields, 4) == null ? 0 : Long.parseLong(field(fields, 4)));
+    }
+
+    private ImportRecord parseJson(String line) throws Exception {
+        JsonNode node = objectMapper.readTree(line);
+        return new ImportRecord(
+            text(node, "code"),
+            text(node, "longUrl"),
+            parseTimestamp(text(node, "createdAt")),
+            parseTimestamp(text(node, "expiresAt")),
+            node.path("clickCount").asLong(0));
+    }
+
+    private ImportRecord normalize(ImportRecord record) {
+        if (record.getShortCode() != null && !Base62.isValidCode(record.getShortCode())) {
+            return null;
+        }
+        if (requireCode && record.getShortCode() == null) {
+            return null;
+        }
+        String longUrl = normalizeUrl(record.getLongUrl());
+        if (longUrl == null) {
+            return null;
+        }
+        record.setLongUrl(longUrl);
+        if (record.getCreatedAt() == null) {
+            record.setCreatedAt(LocalDateTime.now());
+        }
+        record.setClickCount(Math.max(0, record.getClickCount()));
+        return record;
+    }
+
+    // Lower-cases scheme and host and drops default ports, so equal URLs from the old system compare equal here.
+    static String normalizeUrl(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        try {
+            URI uri = new URI(raw.trim());
+            String scheme = uri.getScheme() == null ? null : uri.getScheme().toLowerCase(Locale.ROOT);
+            if ((!"http".equals(scheme) && !"https".equals(scheme)) || uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+            StringBuilder normalized = new StringBuilder(raw.length()).append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                normalized.append(uri.getRawUserInfo()).append('@');
+            }
+            normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                normalized.append(':').append(port);
+            }
+            normalized.append(uri.getRawPath() == null ? "" : uri.getRawPath());
+            if (uri.getRawQuery() != null) {
+                normalized.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                normalized.append('#').append(uri.getRawFragment());
+            }
+            return normalized.length() > MAX_URL_LENGTH ? null : normalized.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            // Stored timestamps are local wall-clock times, like LocalDateTime.now() elsewhere
+            return OffsetDateTime.parse(value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() || value.asText().isBlank() ? null : value.asText();
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 quoting within a single line; embedded newlines are not supported.
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,8 @@
+package com.wastech.url_shortener.cache;
+
+public enum CacheEncoding {
+    /** One Redis string per mapping ({@code shortener:ms:<code>}) with a per-key TTL. */
+    STRING,
+    /** Mappings grouped into small Redis hashes so Redis can keep them listpack-encoded. */
+    BUCKETED
+}
@@ -0,0 +1,21 @@
+package com.wastech.url_shortener.cache;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class CacheMigrationJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final CacheEncoding from;
+    private final CacheEncoding to;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile long keysScanned;
+    private volatile long mappingsMigrated;
+    private volatile long mappingsDropped;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+}
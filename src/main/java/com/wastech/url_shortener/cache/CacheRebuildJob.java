@@ -0,0 +1,19 @@
+package com.wastech.url_shortener.cache;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class CacheRebuildJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile long recordsRead;
+    private volatile long mappingsWritten;
+    private volatile long mappingsRemoved;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+}
@@ -0,0 +1,58 @@
+package com.wastech.url_shortener.cache;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A cached mapping as stored in Redis: {@code <expiresAt>:<staleAfter>:<longUrl>} with both stamps
+ * as base-36 epoch millis. {@code expiresAt} is the link's own expiry (0 if it never expires);
+ * {@code staleAfter} is when the cache entry itself must no longer be served, which replaces the
+ * per-key TTL in the bucketed encoding.
+ */
+public record CachedMapping(String longUrl, long expiresAtMillis, long staleAfterMillis) {
+
+    private static final char SEPARATOR = ':';
+
+    public boolean isFresh(long nowMillis) {
+        return nowMillis < staleAfterMillis && (expiresAtMillis == 0 || nowMillis < expiresAtMillis);
+    }
+
+    public LocalDateTime expiresAt() {
+        return expiresAtMillis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMillis), ZoneId.systemDefault());
+    }
+
+    public String encode() {
+        return Long.toString(expiresAtMillis, 36) + SEPARATOR + Long.toString(staleAfterMillis, 36) + SEPARATOR + longUrl;
+    }
+
+    /**
+     * @return {@code null} for values not written in this format, e.g. plain URLs cached before the
+     * stamps were introduced; callers treat those as misses
+     */
+    public static CachedMapping decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        int first = value.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : value.indexOf(SEPARATOR, first + 1);
+        if (first <= 0 || second <= first + 1 || !isBase36(value, 0, first) || !isBase36(value, first + 1, second)) {
+            return null;
+        }
+        return new CachedMapping(value.substring(second + 1),
+            Long.parseLong(value, 0, first, 36),
+            Long.parseLong(value, first + 1, second, 36));
+    }
+
+    private static boolean isBase36(String value, int from, int to) {
+        if (to - from > 13) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (Character.digit(value.charAt(i), 36) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
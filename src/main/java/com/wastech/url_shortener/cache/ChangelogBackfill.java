@@ -0,0 +1,156 @@
+package com.wastech.url_shortener.cache;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.replica.ReplicaContext;
+import com.wastech.url_shortener.replica.ReplicaRoutingDataSource;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Seeds the mapping changelog with the mappings that existed before it did, so rebuilds from the
+ * changelog are complete. Needed once; rows are read from a replica when there is one. A change
+ * committed between a row being read and its record being sent can be overtaken by the older
+ * backfill record, so run it while mappings are not being edited, or at least not deleted.
+ */
+@Service
+@Slf4j
+public class ChangelogBackfill {
+
+    private static final String SQL = "SELECT short_code, long_url, expires_at, user_id FROM shortened_urls "
+        + "WHERE expires_at IS NULL OR expires_at > ?";
+    private static final int BATCH_SIZE = 1000;
+
+    private final HikariDataSource primaryDataSource;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSourceProvider;
+    private final ObjectProvider<ShardRoutingDataSource> shardRoutingDataSourceProvider;
+    private final MappingChangePublisher mappingChangePublisher;
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "changelog-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ChangelogBackfillJob currentJob;
+
+    public ChangelogBackfill(HikariDataSource primaryDataSource,
+                             ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSourceProvider,
+                             ObjectProvider<ShardRoutingDataSource> shardRoutingDataSourceProvider,
+                             MappingChangePublisher mappingChangePublisher) {
+        this.primaryDataSource = primaryDataSource;
+        this.replicaRoutingDataSourceProvider = replicaRoutingDataSourceProvider;
+        this.shardRoutingDataSourceProvider = shardRoutingDataSourceProvider;
+        this.mappingChangePublisher = mappingChangePublisher;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public synchronized ChangelogBackfillJob startBackfill() {
+        if (currentJob != null && currentJob.getStatus() == ChangelogBackfillJob.Status.RUNNING) {
+            throw new IllegalStateException("A changelog backfill is already running.");
+        }
+        ChangelogBackfillJob job = new ChangelogBackfillJob();
+        currentJob = job;
+        backfillExecutor.submit(() -> runBackfill(job));
+        return job;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public Optional<ChangelogBackfillJob> getCurrentBackfill() {
+        return Optional.ofNullable(currentJob);
+    }
+
+    private void runBackfill(ChangelogBackfillJob job) {
+        log.info("Backfilling {} from shortened_urls.", MappingChangePublisher.MAPPING_CHANGELOG_TOPIC);
+        try {
+            for (DataSource source : sources()) {
+                backfillFrom(source, job);
+            }
+            job.setStatus(ChangelogBackfillJob.Status.COMPLETED);
+            log.info("Changelog backfill finished: {} mappings published.", job.getMappingsPublished());
+        } catch (Exception e) {
+            job.setStatus(ChangelogBackfillJob.Status.FAILED);
+            job.setError(e.getMessage());
+            log.error("Changelog backfill failed after {} mappings: {}", job.getMappingsPublished(), e.getMessage(), e);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void backfillFrom(DataSource source, ChangelogBackfillJob job) throws SQLException {
+        Connection connection = ReplicaContext.onReplica(() -> DataSourceUtils.getConnection(source));
+        try {
+            // The Postgres driver only streams with a cursor inside a transaction
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+                statement.setFetchSize(BATCH_SIZE * 10);
+                statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                try (ResultSet rs = statement.executeQuery()) {
+                    List<KeyRequest> batch = new ArrayList<>(BATCH_SIZE);
+                    while (rs.next()) {
+                        Timestamp expiresAt = rs.getTimestamp("expires_at");
+                        long userId = rs.getLong("user_id");
+                        batch.add(new KeyRequest(rs.getString("short_code"), rs.getString("long_url"),
+                            rs.wasNull() ? null : userId, expiresAt == null ? null : expiresAt.toLocalDateTime()));
+                        if (batch.size() == BATCH_SIZE) {
+                            publish(batch, job);
+                        }
+                    }
+                    publish(batch, job);
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    // The producer blocks once its buffer is full, which paces the scan to what Kafka accepts
+    private void publish(List<KeyRequest> batch, ChangelogBackfillJob job) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IllegalStateException("Changelog backfill was interrupted.");
+        }
+        mappingChangePublisher.publishCreated(List.copyOf(batch));
+        job.setMappingsPublished(job.getMappingsPublished() + batch.size());
+        batch.clear();
+    }
+
+    private List<DataSource> sources() {
+        ShardRoutingDataSource shards = shardRoutingDataSourceProvider.getIfAvailable();
+        if (shards == null) {
+            // Not the lazy @Primary proxy: it would borrow only after ReplicaContext is reset
+            ReplicaRoutingDataSource replicas = replicaRoutingDataSourceProvider.getIfAvailable();
+            return List.of(replicas != null ? replicas : primaryDataSource);
+        }
+        List<DataSource> sources = new ArrayList<>(shards.shardCount());
+        for (int i = 0; i < shards.shardCount(); i++) {
+            sources.add(shards.shard(i));
+        }
+        return sources;
+    }
+}
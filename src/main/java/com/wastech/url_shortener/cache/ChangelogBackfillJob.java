@@ -0,0 +1,17 @@
+package com.wastech.url_shortener.cache;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ChangelogBackfillJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile Status status = Status.RUNNING;
+    private volatile long mappingsPublished;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+}
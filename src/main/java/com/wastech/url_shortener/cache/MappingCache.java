@@ -0,0 +1,277 @@
+package com.wastech.url_shortener.cache;
+
+import com.wastech.url_shortener.util.Base62;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The single place that knows how short code mappings are laid out in Redis. Every mapping read or
+ * write goes through here so the encoding can be switched with {@code app.cache.encoding}:
+ * <ul>
+ *   <li>{@code STRING}: one key per mapping with a per-key TTL.</li>
+ *   <li>{@code BUCKETED}: mappings spread over {@code bucket-count} hashes, one field per code. With
+ *   {@code hash-max-listpack-entries} above the bucket fill and {@code hash-max-listpack-value} above
+ *   the longest cached value, Redis keeps each bucket as one listpack instead of a key, dict entry
+ *   and expire entry per mapping.</li>
+ * </ul>
+ * Both encodings embed the link expiry and a staleness stamp in the value, so a hit never needs a
+ * second TTL round trip. Fields in a bucket cannot expire on their own; stale ones are treated as
+ * misses, overwritten on refill and removed by {@link MappingCacheMaintenance}.
+ * <p>
+ * Instances from before the encoded format read {@code shortCode:<code>} values as plain URLs, so
+ * encoded strings live under their own prefix and the legacy keys are never written. During a
+ * rolling deploy every eviction also deletes the legacy key, so old instances cannot keep serving a
+ * mapping that was changed on a new one; the migration job folds the remaining legacy keys in.
+ */
+@Component
+@Slf4j
+public class MappingCache {
+
+    public static final String STRING_KEY_PREFIX = "shortener:ms:";
+    public static final String LEGACY_STRING_KEY_PREFIX = "shortCode:";
+    public static final String BUCKET_KEY_PREFIX = "shortener:mb:";
+    public static final long CACHE_TTL_SECONDS = 3600;
+
+    // KEYS: source, target. ARGV: expected source value, source field ('' for a string key), new
+    // value ('' to only remove the source), target field ('' for a string key), then the target's
+    // PX millis for a string key or the bucket's EXPIRE seconds
+    private static final byte[] MIGRATE_SCRIPT = bytes(
+        "local current " +
+        "if ARGV[2] == '' then current = redis.call('GET', KEYS[1]) else current = redis.call('HGET', KEYS[1], ARGV[2]) end " +
+        "if current ~= ARGV[1] then return 0 end " +
+        "if ARGV[2] == '' then redis.call('DEL', KEYS[1]) else redis.call('HDEL', KEYS[1], ARGV[2]) end " +
+        "if ARGV[3] == '' then return 0 end " +
+        "if ARGV[4] == '' then redis.call('SET', KEYS[2], ARGV[3], 'PX', ARGV[5], 'NX') " +
+        "elseif redis.call('HSETNX', KEYS[2], ARGV[4], ARGV[3]) == 1 then redis.call('EXPIRE', KEYS[2], ARGV[5]) end " +
+        "return 1");
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheEncoding encoding;
+    private final int bucketCount;
+
+    public MappingCache(StringRedisTemplate stringRedisTemplate,
+                        @Value("${app.cache.encoding:STRING}") CacheEncoding encoding,
+                        @Value("${app.cache.bucket-count:1048576}") int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("app.cache.bucket-count must be positive.");
+        }
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.encoding = encoding;
+        this.bucketCount = bucketCount;
+    }
+
+    public CacheEncoding encoding() {
+        return encoding;
+    }
+
+    public Optional<CachedMapping> get(String shortCode) {
+        String value = encoding == CacheEncoding.BUCKETED
+            ? (String) stringRedisTemplate.opsForHash().get(bucketKey(shortCode), shortCode)
+            : stringRedisTemplate.opsForValue().get(STRING_KEY_PREFIX + shortCode);
+        return fromReply(value, System.currentTimeMillis());
+    }
+
+    /**
+     * Reads many mappings in one round trip: a single MGET for string keys, or one pipelined HMGET
+     * per bucket. Codes that miss or are stale are absent from the result.
+     */
+    public Map<String, CachedMapping> getAll(Collection<String> shortCodes) {
+        List<String> codes = List.copyOf(new LinkedHashSet<>(shortCodes));
+        Map<String, CachedMapping> found = new HashMap<>();
+        if (codes.isEmpty()) {
+            return found;
+        }
+        long nowMillis = System.currentTimeMillis();
+        if (encoding == CacheEncoding.BUCKETED) {
+            Map<String, List<String>> codesByBucket = new LinkedHashMap<>();
+            for (String shortCode : codes) {
+                codesByBucket.computeIfAbsent(bucketKey(shortCode), bucket -> new ArrayList<>()).add(shortCode);
+            }
+            List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                codesByBucket.forEach((bucket, fields) ->
+                    connection.hashCommands().hMGet(bytes(bucket), fields.stream().map(MappingCache::bytes).toArray(byte[][]::new)));
+                return null;
+            });
+            int i = 0;
+            for (List<String> fields : codesByBucket.values()) {
+                collect(fields, (List<?>) replies.get(i++), nowMillis, found);
+            }
+        } else {
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(codes.stream().map(code -> STRING_KEY_PREFIX + code).toList());
+            collect(codes, values, nowMillis, found);
+        }
+        return found;
+    }
+
+    private void collect(List<String> codes, List<?> values, long nowMillis, Map<String, CachedMapping> found) {
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < codes.size(); i++) {
+            String code = codes.get(i);
+            fromReply(values.get(i), nowMillis).ifPresent(mapping -> found.put(code, mapping));
+        }
+    }
+
+    /**
+     * Queues exactly one read command for {@code shortCode} on a pipelined connection. Its reply
+     * goes to {@link #fromReply(Object, long)}.
+     */
+    public void queueGet(RedisConnection connection, String shortCode) {
+        if (encoding == CacheEncoding.BUCKETED) {
+            connection.hashCommands().hGet(bytes(bucketKey(shortCode)), bytes(shortCode));
+        } else {
+            connection.stringCommands().get(bytes(STRING_KEY_PREFIX + shortCode));
+        }
+    }
+
+    public Optional<CachedMapping> fromReply(Object reply, long nowMillis) {
+        CachedMapping mapping = CachedMapping.decode((String) reply);
+        return mapping != null && mapping.isFresh(nowMillis) ? Optional.of(mapping) : Optional.empty();
+    }
+
+    public void put(String shortCode, String longUrl, LocalDateTime expiresAt) {
+        long nowMillis = System.currentTimeMillis();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            queuePut(connection, shortCode, longUrl, expiresAt, nowMillis);
+            return null;
+        });
+    }
+
+    /**
+     * Queues the write for one mapping; nothing is queued if the link has already expired.
+     */
+    public void queuePut(RedisConnection connection, String shortCode, String longUrl, LocalDateTime expiresAt, long nowMillis) {
+        long expiresAtMillis = expiresAt == null ? 0 : expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long staleAfterMillis = nowMillis + CACHE_TTL_SECONDS * 1000;
+        if (expiresAtMillis != 0) {
+            staleAfterMillis = Math.min(staleAfterMillis, expiresAtMillis);
+        }
+        queuePut(connection, shortCode, new CachedMapping(longUrl, expiresAtMillis, staleAfterMillis), nowMillis);
+    }
+
+    public void queuePut(RedisConnection connection, String shortCode, CachedMapping mapping, long nowMillis) {
+        if (mapping.staleAfterMillis() <= nowMillis) {
+            return;
+        }
+        byte[] value = bytes(mapping.encode());
+        if (encoding == CacheEncoding.BUCKETED) {
+            byte[] bucket = bytes(bucketKey(shortCode));
+            connection.hashCommands().hSet(bucket, bytes(shortCode), value);
+            // Backstop for buckets that stop receiving writes; the maintenance sweep handles the rest
+            connection.keyCommands().expire(bucket, CACHE_TTL_SECONDS * 2);
+        } else {
+            connection.stringCommands().set(bytes(STRING_KEY_PREFIX + shortCode), value,
+                Expiration.milliseconds(mapping.staleAfterMillis() - nowMillis), RedisStringCommands.SetOption.upsert());
+        }
+    }
+
+    /**
+     * Queues the move of one mapping from a key or bucket field of another encoding into this one, as
+     * a script so it is atomic: the source is only moved, and removed, if it still holds
+     * {@code expected}, so a mapping changed or evicted after it was read is neither overwritten nor
+     * brought back. An entry already written in this encoding wins. With a {@code null} or stale
+     * mapping the source is only removed. The reply is 1 if the mapping was moved, otherwise 0.
+     *
+     * @param sourceField the bucket field holding the mapping, or {@code null} for a string key
+     */
+    public void queueMigrate(RedisConnection connection, String sourceKey, String sourceField, String expected,
+                             String shortCode, CachedMapping mapping, long nowMillis) {
+        String targetKey = sourceKey;
+        String targetField = "";
+        String value = "";
+        long ttl = 0;
+        if (mapping != null && mapping.staleAfterMillis() > nowMillis) {
+            value = mapping.encode();
+            if (encoding == CacheEncoding.BUCKETED) {
+                targetKey = bucketKey(shortCode);
+                targetField = shortCode;
+                ttl = CACHE_TTL_SECONDS * 2;
+            } else {
+                targetKey = STRING_KEY_PREFIX + shortCode;
+                ttl = mapping.staleAfterMillis() - nowMillis;
+            }
+        }
+        connection.scriptingCommands().eval(MIGRATE_SCRIPT, ReturnType.INTEGER, 2,
+            bytes(sourceKey), bytes(targetKey), bytes(expected), bytes(sourceField == null ? "" : sourceField),
+            bytes(value), bytes(targetField), bytes(Long.toString(ttl)));
+    }
+
+    public void queueEvict(RedisConnection connection, String shortCode) {
+        if (encoding == CacheEncoding.BUCKETED) {
+            connection.hashCommands().hDel(bytes(bucketKey(shortCode)), bytes(shortCode));
+            connection.keyCommands().del(bytes(LEGACY_STRING_KEY_PREFIX + shortCode));
+        } else {
+            connection.keyCommands().del(bytes(STRING_KEY_PREFIX + shortCode), bytes(LEGACY_STRING_KEY_PREFIX + shortCode));
+        }
+    }
+
+    public void evict(String shortCode) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            queueEvict(connection, shortCode);
+            return null;
+        });
+    }
+
+    public void evictAll(Collection<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return;
+        }
+        if (encoding == CacheEncoding.BUCKETED) {
+            Map<String, List<byte[]>> fieldsByBucket = new HashMap<>();
+            for (String shortCode : shortCodes) {
+                fieldsByBucket.computeIfAbsent(bucketKey(shortCode), bucket -> new ArrayList<>()).add(bytes(shortCode));
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                fieldsByBucket.forEach((bucket, fields) ->
+                    connection.hashCommands().hDel(bytes(bucket), fields.toArray(new byte[0][])));
+                return null;
+            });
+            stringRedisTemplate.delete(shortCodes.stream().map(code -> LEGACY_STRING_KEY_PREFIX + code).toList());
+        } else {
+            stringRedisTemplate.delete(shortCodes.stream()
+                .flatMap(code -> Stream.of(STRING_KEY_PREFIX + code, LEGACY_STRING_KEY_PREFIX + code))
+                .toList());
+        }
+    }
+
+    public String bucketKey(String shortCode) {
+        return BUCKET_KEY_PREFIX + Long.remainderUnsigned(mix(Base62.decode(shortCode)), bucketCount);
+    }
+
+    // A mixed id modulo a fixed bucket count rather than id / bucket size: imported legacy codes are
+    // sparse over the key space, and a fixed count keeps the bucket fill (and so the listpack
+    // thresholds it has to stay under) predictable.
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
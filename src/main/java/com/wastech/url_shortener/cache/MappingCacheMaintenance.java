@@ -0,0 +1,229 @@
+package com.wastech.url_shortener.cache;
+
+import com.wastech.url_shortener.util.Base62;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Converts the existing mapping keyspace into the configured {@link CacheEncoding} with a SCAN over
+ * the other encoding's keys, and sweeps stale fields out of buckets. Migration is idempotent: run it
+ * again after every instance has switched encodings to pick up entries written during the rollout.
+ * Every run also folds plain-URL {@code shortCode:} keys left by instances from before the encoded
+ * format into the configured encoding.
+ */
+@Service
+@Slf4j
+public class MappingCacheMaintenance {
+
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MappingCache mappingCache;
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile CacheMigrationJob currentJob;
+
+    public MappingCacheMaintenance(StringRedisTemplate stringRedisTemplate, MappingCache mappingCache) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.mappingCache = mappingCache;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        migrationExecutor.shutdownNow();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public synchronized CacheMigrationJob startMigration() {
+        if (currentJob != null && currentJob.getStatus() == CacheMigrationJob.Status.RUNNING) {
+            throw new IllegalStateException("A cache migration is already running.");
+        }
+        CacheEncoding to = mappingCache.encoding();
+        CacheEncoding from = to == CacheEncoding.BUCKETED ? CacheEncoding.STRING : CacheEncoding.BUCKETED;
+        CacheMigrationJob job = new CacheMigrationJob(from, to);
+        currentJob = job;
+        migrationExecutor.submit(() -> runMigration(job));
+        return job;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public Optional<CacheMigrationJob> getCurrentMigration() {
+        return Optional.ofNullable(currentJob);
+    }
+
+    private void runMigration(CacheMigrationJob job) {
+        log.info("Migrating cached mappings from {} to {} encoding.", job.getFrom(), job.getTo());
+        try {
+            scan(MappingCache.LEGACY_STRING_KEY_PREFIX + "*", keys -> migrateStringKeys(keys, MappingCache.LEGACY_STRING_KEY_PREFIX, job));
+            if (job.getFrom() == CacheEncoding.STRING) {
+                scan(MappingCache.STRING_KEY_PREFIX + "*", keys -> migrateStringKeys(keys, MappingCache.STRING_KEY_PREFIX, job));
+            } else {
+                scan(MappingCache.BUCKET_KEY_PREFIX + "*", keys -> migrateBuckets(keys, job));
+            }
+            job.setStatus(CacheMigrationJob.Status.COMPLETED);
+            log.info("Cache migration finished: {} mappings migrated, {} dropped.", job.getMappingsMigrated(), job.getMappingsDropped());
+        } catch (Exception e) {
+            job.setStatus(CacheMigrationJob.Status.FAILED);
+            job.setError(e.getMessage());
+            log.error("Cache migration failed after {} keys: {}", job.getKeysScanned(), e.getMessage(), e);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    // Each key is moved by a script that first checks it still holds the value read here, so a
+    // mapping changed or evicted between the two pipelines stays as the application left it
+    private void migrateStringKeys(List<String> keys, String prefix, CacheMigrationJob job) {
+        List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.stringCommands().get(MappingCache.bytes(key));
+                connection.keyCommands().pTtl(MappingCache.bytes(key));
+            }
+            return null;
+        });
+        long nowMillis = System.currentTimeMillis();
+        List<Object> moved = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < keys.size(); i++) {
+                String value = (String) replies.get(2 * i);
+                Long ttlMillis = (Long) replies.get(2 * i + 1);
+                if (value == null) {
+                    continue;
+                }
+                String shortCode = keys.get(i).substring(prefix.length());
+                CachedMapping mapping = null;
+                if (ttlMillis != null && ttlMillis > 0 && Base62.isValidCode(shortCode)) {
+                    mapping = CachedMapping.decode(value);
+                    if (mapping == null) {
+                        // Plain URLs predate the expiry stamp, so the link's expiry is unknown; the
+                        // TTL was already capped at it, so the entry goes stale when the key would
+                        // have expired
+                        mapping = new CachedMapping(value, 0, nowMillis + ttlMillis);
+                    }
+                }
+                mappingCache.queueMigrate(connection, keys.get(i), null, value, shortCode, mapping, nowMillis);
+            }
+            return null;
+        });
+        long migrated = countMoved(moved);
+        job.setKeysScanned(job.getKeysScanned() + keys.size());
+        job.setMappingsMigrated(job.getMappingsMigrated() + migrated);
+        job.setMappingsDropped(job.getMappingsDropped() + keys.size() - migrated);
+    }
+
+    // Fields are moved one by one like string keys; a bucket disappears once its last field is moved,
+    // and fields written meanwhile by instances still on the old encoding wait for the next run
+    private void migrateBuckets(List<String> buckets, CacheMigrationJob job) {
+        List<Object> replies = readBuckets(buckets);
+        long nowMillis = System.currentTimeMillis();
+        long[] fields = new long[1];
+        List<Object> moved = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < buckets.size(); i++) {
+                String bucket = buckets.get(i);
+                bucketEntries(replies.get(i)).forEach((shortCode, value) -> {
+                    CachedMapping mapping = Base62.isValidCode(shortCode) ? CachedMapping.decode(value) : null;
+                    if (mapping != null && !mapping.isFresh(nowMillis)) {
+                        mapping = null;
+                    }
+                    mappingCache.queueMigrate(connection, bucket, shortCode, value, shortCode, mapping, nowMillis);
+                    fields[0]++;
+                });
+            }
+            return null;
+        });
+        long migrated = countMoved(moved);
+        job.setKeysScanned(job.getKeysScanned() + buckets.size());
+        job.setMappingsMigrated(job.getMappingsMigrated() + migrated);
+        job.setMappingsDropped(job.getMappingsDropped() + fields[0] - migrated);
+    }
+
+    private static long countMoved(List<Object> replies) {
+        return replies.stream().filter(reply -> reply instanceof Long moved && moved == 1).count();
+    }
+
+    /**
+     * Bucket fields have no TTL of their own, so entries that are never read again would stay until
+     * their bucket goes idle. This removes them.
+     */
+    @Scheduled(initialDelayString = "${app.cache.sweep-interval-ms:3600000}", fixedDelayString = "${app.cache.sweep-interval-ms:3600000}")
+    public void sweepStaleFields() {
+        if (mappingCache.encoding() != CacheEncoding.BUCKETED) {
+            return;
+        }
+        long[] removed = new long[1];
+        try {
+            scan(MappingCache.BUCKET_KEY_PREFIX + "*", buckets -> {
+                List<Object> replies = readBuckets(buckets);
+                long nowMillis = System.currentTimeMillis();
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (int i = 0; i < buckets.size(); i++) {
+                        List<byte[]> stale = new ArrayList<>();
+                        bucketEntries(replies.get(i)).forEach((shortCode, value) -> {
+                            CachedMapping mapping = CachedMapping.decode(value);
+                            if (mapping == null || !mapping.isFresh(nowMillis)) {
+                                stale.add(MappingCache.bytes(shortCode));
+                            }
+                        });
+                        if (!stale.isEmpty()) {
+                            connection.hashCommands().hDel(MappingCache.bytes(buckets.get(i)), stale.toArray(new byte[0][]));
+                            removed[0] += stale.size();
+                        }
+                    }
+                    return null;
+                });
+            });
+            log.info("Removed {} stale fields from cache buckets.", removed[0]);
+        } catch (Exception e) {
+            log.warn("Cache bucket sweep stopped after removing {} fields: {}", removed[0], e.getMessage());
+        }
+    }
+
+    private List<Object> readBuckets(List<String> buckets) {
+        return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String bucket : buckets) {
+                connection.hashCommands().hGetAll(MappingCache.bytes(bucket));
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> bucketEntries(Object reply) {
+        return reply == null ? Map.of() : (Map<String, String>) reply;
+    }
+
+    private void scan(String pattern, Consumer<List<String>> batchHandler) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == SCAN_BATCH_SIZE) {
+                    batchHandler.accept(batch);
+                    batch = new ArrayList<>(SCAN_BATCH_SIZE);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchHandler.accept(batch);
+        }
+    }
+}
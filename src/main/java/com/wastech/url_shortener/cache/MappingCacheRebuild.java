@@ -0,0 +1,222 @@
+package com.wastech.url_shortener.cache;
+
+import com.wastech.url_shortener.localstore.OffHeapMappingStore;
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.serialization.KeyRequestDeserializer;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.util.Base62;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Repopulates Redis, and this instance's local store when enabled, from the mapping changelog
+ * instead of scanning Postgres. The topic is read from the beginning up to the end offsets seen at
+ * the start, as fast as the brokers deliver it; each poll is applied as one pipelined Redis round
+ * trip. Records arrive in changelog order per short code, so a code that is not yet compacted
+ * still ends up with its latest mapping, and tombstones remove what earlier records wrote.
+ * <p>
+ * The invalidation listener may evict a code changed during the rebuild before the rebuild writes
+ * the code's older mapping back. Once the rebuild has written everything, it therefore evicts once
+ * more every code with a record past the starting end offsets.
+ */
+@Service
+@Slf4j
+public class MappingCacheRebuild {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MappingCache mappingCache;
+    private final ObjectProvider<OffHeapMappingStore> localStoreProvider;
+    private final Map<String, Object> consumerProperties;
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile CacheRebuildJob currentJob;
+
+    public MappingCacheRebuild(StringRedisTemplate stringRedisTemplate, MappingCache mappingCache,
+                               ObjectProvider<OffHeapMappingStore> localStoreProvider,
+                               @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.mappingCache = mappingCache;
+        this.localStoreProvider = localStoreProvider;
+        this.consumerProperties = Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+            ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10_000,
+            ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 8 * 1024 * 1024);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public synchronized CacheRebuildJob startRebuild() {
+        if (currentJob != null && currentJob.getStatus() == CacheRebuildJob.Status.RUNNING) {
+            throw new IllegalStateException("A cache rebuild is already running.");
+        }
+        CacheRebuildJob job = new CacheRebuildJob();
+        currentJob = job;
+        rebuildExecutor.submit(() -> runRebuild(job));
+        return job;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public Optional<CacheRebuildJob> getCurrentRebuild() {
+        return Optional.ofNullable(currentJob);
+    }
+
+    private void runRebuild(CacheRebuildJob job) {
+        log.info("Rebuilding the mapping cache from {}.", MappingChangePublisher.MAPPING_CHANGELOG_TOPIC);
+        try (KafkaConsumer<String, KeyRequest> consumer = new KafkaConsumer<>(consumerProperties,
+            new StringDeserializer(), new KeyRequestDeserializer())) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo partition : consumer.partitionsFor(MappingChangePublisher.MAPPING_CHANGELOG_TOPIC)) {
+                partitions.add(new TopicPartition(partition.topic(), partition.partition()));
+            }
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            readUpTo(consumer, partitions, endOffsets, records -> apply(records, endOffsets, job));
+
+            // Every rebuild write has landed; later records are handled by the invalidation listener
+            partitions.forEach(partition -> consumer.seek(partition, endOffsets.get(partition)));
+            consumer.resume(partitions);
+            Map<TopicPartition, Long> changedUpTo = consumer.endOffsets(partitions);
+            readUpTo(consumer, partitions, changedUpTo, records -> evictChanged(records, changedUpTo, job));
+            job.setStatus(CacheRebuildJob.Status.COMPLETED);
+            log.info("Cache rebuild finished: {} records, {} mappings written, {} removed.",
+                job.getRecordsRead(), job.getMappingsWritten(), job.getMappingsRemoved());
+        } catch (Exception e) {
+            job.setStatus(CacheRebuildJob.Status.FAILED);
+            job.setError(e.getMessage());
+            log.error("Cache rebuild failed after {} records: {}", job.getRecordsRead(), e.getMessage(), e);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    // Polls until every partition reaches its end offset, pausing partitions as they do
+    private static void readUpTo(KafkaConsumer<String, KeyRequest> consumer, List<TopicPartition> partitions,
+                                 Map<TopicPartition, Long> endOffsets, Consumer<ConsumerRecords<String, KeyRequest>> handler) {
+        Set<TopicPartition> pending = new HashSet<>(partitions);
+        while (!pending.isEmpty()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Cache rebuild was interrupted.");
+            }
+            handler.accept(consumer.poll(POLL_TIMEOUT));
+            List<TopicPartition> done = pending.stream()
+                .filter(partition -> consumer.position(partition) >= endOffsets.get(partition))
+                .toList();
+            consumer.pause(done);
+            done.forEach(pending::remove);
+        }
+    }
+
+    private static List<ConsumerRecord<String, KeyRequest>> before(ConsumerRecords<String, KeyRequest> records,
+                                                                 Map<TopicPartition, Long> endOffsets) {
+        List<ConsumerRecord<String, KeyRequest>> batch = new ArrayList<>(records.count());
+        for (ConsumerRecord<String, KeyRequest> record : records) {
+            Long end = endOffsets.get(new TopicPartition(record.topic(), record.partition()));
+            if (record.key() != null && end != null && record.offset() < end) {
+                batch.add(record);
+            }
+        }
+        return batch;
+    }
+
+    private void apply(ConsumerRecords<String, KeyRequest> records, Map<TopicPartition, Long> endOffsets, CacheRebuildJob job) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<ConsumerRecord<String, KeyRequest>> batch = before(records, endOffsets);
+        long nowMillis = System.currentTimeMillis();
+        long[] written = new long[1];
+        long[] removed = new long[1];
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ConsumerRecord<String, KeyRequest> record : batch) {
+                KeyRequest mapping = record.value();
+                if (mapping == null) {
+                    mappingCache.queueEvict(connection, record.key());
+                    removed[0]++;
+                } else {
+                    mappingCache.queuePut(connection, record.key(), mapping.getLongUrl(), mapping.getExpiresAt(), nowMillis);
+                    written[0]++;
+                }
+            }
+            return null;
+        });
+
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        if (localStore != null) {
+            for (ConsumerRecord<String, KeyRequest> record : batch) {
+                if (!Base62.isValidCode(record.key())) {
+                    continue;
+                }
+                long key = Base62.decode(record.key());
+                KeyRequest mapping = record.value();
+                long expiresAtMillis = mapping == null || mapping.getExpiresAt() == null
+                    ? 0 : mapping.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                if (mapping == null || (expiresAtMillis != 0 && expiresAtMillis <= nowMillis)) {
+                    localStore.remove(key);
+                } else {
+                    localStore.put(key, record.key(), mapping.getLongUrl(), expiresAtMillis, nowMillis);
+                }
+            }
+        }
+        job.setRecordsRead(job.getRecordsRead() + records.count());
+        job.setMappingsWritten(job.getMappingsWritten() + written[0]);
+        job.setMappingsRemoved(job.getMappingsRemoved() + removed[0]);
+    }
+
+    private void evictChanged(ConsumerRecords<String, KeyRequest> records, Map<TopicPartition, Long> endOffsets, CacheRebuildJob job) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<ConsumerRecord<String, KeyRequest>> batch = before(records, endOffsets);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            batch.forEach(record -> mappingCache.queueEvict(connection, record.key()));
+            return null;
+        });
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        if (localStore != null) {
+            batch.stream()
+                .map(ConsumerRecord::key)
+                .filter(Base62::isValidCode)
+                .forEach(shortCode -> localStore.remove(Base62.decode(shortCode)));
+        }
+        job.setRecordsRead(job.getRecordsRead() + records.count());
+        job.setMappingsRemoved(job.getMappingsRemoved() + batch.size());
+    }
+}
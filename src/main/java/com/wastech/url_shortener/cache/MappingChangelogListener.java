@@ -0,0 +1,60 @@
+package com.wastech.url_shortener.cache;
+
+import com.wastech.url_shortener.localstore.OffHeapMappingStore;
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.redirectrules.RedirectRuleRegistry;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.util.Base62;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Invalidates cached copies of mappings changed anywhere in the cluster. Every instance consumes
+ * the changelog in its own group, since each has its own local store; the group is named after the
+ * host so a restarted instance, whose local store survives on disk, resumes where it stopped.
+ * Evicting Redis again after commit also removes a stale copy a concurrent reader may have cached
+ * between the writer's eviction and its commit. Creations are skipped: nothing cached can be older.
+ * Updates also recompile the link's redirect rules, which are not part of the cached mapping.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MappingChangelogListener {
+
+    private final MappingCache mappingCache;
+    private final ObjectProvider<OffHeapMappingStore> localStoreProvider;
+    private final RedirectRuleRegistry redirectRuleRegistry;
+
+    @KafkaListener(topics = MappingChangePublisher.MAPPING_CHANGELOG_TOPIC,
+        groupId = "url-shortener-invalidation-${HOSTNAME:${random.uuid}}",
+        properties = "auto.offset.reset=latest")
+    public void onChange(ConsumerRecord<String, KeyRequest> record) {
+        String shortCode = record.key();
+        if (shortCode == null || (record.value() != null && isCreation(record))) {
+            return;
+        }
+        mappingCache.evict(shortCode);
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        if (localStore != null && Base62.isValidCode(shortCode)) {
+            localStore.remove(Base62.decode(shortCode));
+        }
+        if (record.value() == null) {
+            redirectRuleRegistry.remove(shortCode);
+        } else {
+            redirectRuleRegistry.refresh(shortCode);
+        }
+        log.debug("Invalidated cached copies of short code {}.", shortCode);
+    }
+
+    private static boolean isCreation(ConsumerRecord<String, KeyRequest> record) {
+        Header change = record.headers().lastHeader(MappingChangePublisher.CHANGE_HEADER);
+        return change != null && MappingChangePublisher.CREATED.equals(new String(change.value(), StandardCharsets.UTF_8));
+    }
+}
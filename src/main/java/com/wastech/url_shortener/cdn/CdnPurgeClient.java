@@ -0,0 +1,20 @@
+package com.wastech.url_shortener.cdn;
+
+import java.util.Collection;
+
+/**
+ * Invalidates cached responses at the edge. Implementations are called after the change has
+ * committed, on the request thread, so they should hand slow provider calls off to a queue.
+ */
+public interface CdnPurgeClient {
+
+    /**
+     * @param paths request paths relative to the public origin, e.g. {@code /r/abc1234}
+     */
+    void purge(Collection<String> paths);
+
+    /**
+     * Invalidates every cached redirect, for changes too large to list path by path.
+     */
+    void purgeAll();
+}
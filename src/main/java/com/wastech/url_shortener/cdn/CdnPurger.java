@@ -0,0 +1,102 @@
+package com.wastech.url_shortener.cdn;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purges the edge-cached redirect of a short code once the change to it has
+ * committed, so the edge cannot refetch the old mapping in between. Details responses are private
+ * and never cached at the edge. A failed purge is logged, not rethrown: the change is already
+ * committed and cached copies still age out with their s-maxage.
+ * <p>
+ * Other instances can still serve the old target for a while after the commit: from their
+ * off-heap store until it ages out, or until the changelog invalidation reaches them. An edge
+ * refetch in that window would cache the old target for the full s-maxage, so every purge is
+ * repeated once that window has passed.
+ */
+@Component
+@Slf4j
+public class CdnPurger {
+
+    private final CdnPurgeClient cdnPurgeClient;
+    private final long secondPurgeDelaySeconds;
+    private final ScheduledExecutorService secondPurgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cdn-second-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CdnPurger(CdnPurgeClient cdnPurgeClient,
+                     @Value("${app.cdn.second-purge-delay-seconds:330}") long secondPurgeDelaySeconds) {
+        this.cdnPurgeClient = cdnPurgeClient;
+        this.secondPurgeDelaySeconds = secondPurgeDelaySeconds;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        secondPurgeExecutor.shutdownNow();
+    }
+
+    public void purgeAfterCommit(String shortCode) {
+        runAfterCommit(() -> purgeNowAndLater(() -> purge(shortCode), "short code " + shortCode));
+    }
+
+    /**
+     * Purges every cached redirect once the transaction has committed, for bulk deletes whose
+     * paths are too many to list.
+     */
+    public void purgeAllAfterCommit() {
+        runAfterCommit(() -> purgeNowAndLater(this::purgeAll, "all short codes"));
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void purgeNowAndLater(Runnable purge, String description) {
+        purge.run();
+        if (secondPurgeDelaySeconds <= 0) {
+            return;
+        }
+        try {
+            secondPurgeExecutor.schedule(purge, secondPurgeDelaySeconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not schedule the second CDN purge for {}: shutting down.", description);
+        }
+    }
+
+    private void purge(String shortCode) {
+        try {
+            cdnPurgeClient.purge(List.of("/r/" + shortCode));
+        } catch (RuntimeException e) {
+            log.warn("CDN purge failed for short code {}: {}", shortCode, e.getMessage());
+        }
+    }
+
+    private void purgeAll() {
+        try {
+            cdnPurgeClient.purgeAll();
+        } catch (RuntimeException e) {
+            log.warn("CDN purge of all redirects failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.wastech.url_shortener.cdn;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Default for deployments without a CDN in front: records what would have been purged.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.cdn", name = "provider", havingValue = "none", matchIfMissing = true)
+@Slf4j
+public class NoOpCdnPurgeClient implements CdnPurgeClient {
+
+    @Override
+    public void purge(Collection<String> paths) {
+        log.debug("No CDN configured; skipping purge of {}", paths);
+    }
+
+    @Override
+    public void purgeAll() {
+        log.debug("No CDN configured; skipping purge of all redirects");
+    }
+}
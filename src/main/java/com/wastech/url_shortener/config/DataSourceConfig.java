@@ -0,0 +1,40 @@
+package com.wastech.url_shortener.config;
+
+import com.wastech.url_shortener.replica.ReplicaRoutingDataSource;
+import com.wastech.url_shortener.resilience.CircuitBreakingDataSource;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    // Transactions only borrow a pooled connection at their first statement, which is where the
+    // DatabaseConcurrencyLimiter sits; without this the pool wait happens before the limiter runs.
+    // Deferring the borrow also lets replica routing see whether the transaction is read-only, and
+    // keeps transactions that are answered from the second-level cache working while the database
+    // circuit breaker is open.
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                 DependencyBreakers breakers) {
+        ReplicaRoutingDataSource routing = replicaRoutingDataSource.getIfAvailable();
+        return new LazyConnectionDataSourceProxy(
+            new CircuitBreakingDataSource(routing != null ? routing : primaryDataSource, breakers.database()));
+    }
+}
@@ -1,37 +1,127 @@
 package com.wastech.url_shortener.config;
 
+import com.wastech.url_shortener.exception.DatabaseOverloadedException;
 import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
+import com.wastech.url_shortener.serialization.KeyRequestDeserializer;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.service.UserCacheEvictor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.util.concurrent.TimeUnit;
 
 @EnableKafka
 @Configuration
+@RequiredArgsConstructor
 public class KafkaTopicConfig {
 
+    private final MeterRegistry meterRegistry;
+    private final KafkaProperties kafkaProperties;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    // Fast-start instances start the listener containers from DeferredStartup once they are ready
+    @Value("${app.fast-start.enabled:false}")
+    private boolean fastStart;
+
     @Bean
     public NewTopic urlPersistenceTopic() {
         return new NewTopic("url-persistence-topic", 3, (short) 1);
     }
 
+    // Compaction keeps the latest mapping per short code; tombstones stay long enough for snapshot
+    // readers and invalidation consumers that were briefly behind to see them
+    @Bean
+    public NewTopic mappingChangelogTopic() {
+        return TopicBuilder.name(MappingChangePublisher.MAPPING_CHANGELOG_TOPIC)
+            .partitions(3)
+            .replicas(1)
+            .compact()
+            .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, String.valueOf(TimeUnit.DAYS.toMillis(1)))
+            .config(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, String.valueOf(TimeUnit.HOURS.toMillis(1)))
+            .build();
+    }
+
+    // Invalidations only matter to instances that are running, so an hour of retention is plenty
+    @Bean
+    public NewTopic userInvalidationTopic() {
+        return TopicBuilder.name(UserCacheEvictor.USER_INVALIDATION_TOPIC)
+            .partitions(1)
+            .replicas(1)
+            .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(TimeUnit.HOURS.toMillis(1)))
+            .build();
+    }
+
+    // Declaring any template or producer factory replaces Boot's auto-configured ones, so the
+    // KeyRequest pair is declared here too, built from the same spring.kafka.producer properties
+    @Bean
+    public ProducerFactory<String, KeyRequest> producerFactory() {
+        return producerFactory(null, null);
+    }
+
+    @Bean
+    public KafkaTemplate<String, KeyRequest> kafkaTemplate() {
+        return new KafkaTemplate<>(producerFactory());
+    }
+
+    // Plain string records, such as the user ids on the user invalidation topic
+    @Bean
+    public ProducerFactory<String, String> stringProducerFactory() {
+        return producerFactory(new StringSerializer(), new StringSerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> stringKafkaTemplate() {
+        return new KafkaTemplate<>(stringProducerFactory());
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> stringKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(
+            kafkaConsumerProperties(),
+            new StringDeserializer(),
+            new StringDeserializer()
+        ));
+        factory.setAutoStartup(!fastStart);
+        return factory;
+    }
+
     @Bean
     public ConsumerFactory<String, KeyRequest> consumerFactory() {
-        // Use DefaultKafkaConsumerFactory for JSON deserialization
-        return new DefaultKafkaConsumerFactory<>(
+        // Binary KeyRequest payloads, with a JSON fallback for records produced before the switch
+        DefaultKafkaConsumerFactory<String, KeyRequest> factory = new DefaultKafkaConsumerFactory<>(
             kafkaConsumerProperties(),
             new org.apache.kafka.common.serialization.StringDeserializer(),
-            new JsonDeserializer<>(KeyRequest.class, false)
+            new KeyRequestDeserializer()
         );
+        // Exports client metrics such as records-lag-max for the persistence consumer
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
@@ -39,6 +129,46 @@ public class KafkaTopicConfig {
         ConcurrentKafkaListenerContainerFactory<String, KeyRequest> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(persistenceBackOff());
+        errorHandler.setBackOffFunction((record, e) -> isDatabaseOutage(e) ? outageBackOff() : null);
+        factory.setCommonErrorHandler(errorHandler);
+        factory.setAutoStartup(!fastStart);
+        return factory;
+    }
+
+    // Records that fail for any other reason are retried with growing delays and then given up on
+    private ExponentialBackOff persistenceBackOff() {
+        ExponentialBackOff backOff = new ExponentialBackOff(200L, 2.0);
+        backOff.setMaxInterval(5000L);
+        backOff.setMaxElapsedTime(300_000L);
+        return backOff;
+    }
+
+    // Records rejected while the database is overloaded or unreachable are redelivered with growing
+    // delays, which throttles the consumer instead of dropping mappings. There is no give-up time: a
+    // mapping shortened during an outage must wait however long the outage lasts.
+    private ExponentialBackOff outageBackOff() {
+        ExponentialBackOff backOff = new ExponentialBackOff(200L, 2.0);
+        backOff.setMaxInterval(5000L);
+        return backOff;
+    }
+
+    // The listener's exception arrives wrapped in ListenerExecutionFailedException
+    private static boolean isDatabaseOutage(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DatabaseOverloadedException || DependencyBreakers.isUnavailable(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Null serializers fall back to the classes configured in the producer properties
+    private <V> DefaultKafkaProducerFactory<String, V> producerFactory(Serializer<String> keySerializer,
+                                                                      Serializer<V> valueSerializer) {
+        DefaultKafkaProducerFactory<String, V> factory = new DefaultKafkaProducerFactory<>(
+            kafkaProperties.buildProducerProperties(null), keySerializer, valueSerializer);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
         return factory;
     }
 
@@ -47,8 +177,7 @@ public class KafkaTopicConfig {
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.GROUP_ID_CONFIG, "url-shortener-group");
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, org.apache.kafka.common.serialization.StringDeserializer.class);
-        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.wastech.url_shortener.model");
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KeyRequestDeserializer.class);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
         return props;
     }
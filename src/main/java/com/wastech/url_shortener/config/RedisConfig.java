@@ -1,15 +1,72 @@
 package com.wastech.url_shortener.config;
 
+import com.wastech.url_shortener.accesslog.RequestTimings;
+import com.wastech.url_shortener.resilience.CircuitBreaker;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RedisConfig {
 
+    // Every template operation, pipeline and script goes through this execute overload, so timing it
+    // here attributes all Redis time of a request to its access log record, and guarding it here puts
+    // every Redis call behind the circuit breaker
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory, DependencyBreakers breakers) {
+        CircuitBreaker breaker = breakers.redis();
+        return new StringRedisTemplate(connectionFactory) {
+            @Override
+            public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+                long started = System.nanoTime();
+                try {
+                    return breaker.execute(() -> super.execute(action, exposeConnection, pipeline),
+                        DependencyBreakers::isUnavailable,
+                        () -> new RedisConnectionFailureException("Redis circuit breaker is open."));
+                } finally {
+                    RequestTimings.recordRedis(System.nanoTime() - started);
+                }
+            }
+        };
+    }
+
+    /**
+     * Fast-start instances talk to Redis through Lettuce, which connects on first use, instead of the
+     * Redisson-backed factory the Redisson starter registers otherwise. That keeps the redirect path
+     * independent of the Redisson client, whose creation is deferred until the application is ready.
+     */
     @Bean
-    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
-        return new StringRedisTemplate(connectionFactory);
+    @ConditionalOnProperty(prefix = "app.fast-start", name = "enabled", havingValue = "true")
+    public LettuceConnectionFactory redisConnectionFactory(RedisConnectionDetails connectionDetails,
+                                                           @Value("${spring.data.redis.timeout:250ms}") Duration timeout,
+                                                           @Value("${spring.data.redis.connect-timeout:1s}") Duration connectTimeout) {
+        RedisConnectionDetails.Standalone standalone = connectionDetails.getStandalone();
+        RedisStandaloneConfiguration configuration =
+            new RedisStandaloneConfiguration(standalone.getHost(), standalone.getPort());
+        configuration.setDatabase(standalone.getDatabase());
+        configuration.setUsername(connectionDetails.getUsername());
+        configuration.setPassword(RedisPassword.of(connectionDetails.getPassword()));
+        return new LettuceConnectionFactory(configuration,
+            LettuceClientConfiguration.builder()
+                .commandTimeout(timeout)
+                .clientOptions(ClientOptions.builder()
+                    .socketOptions(SocketOptions.builder().connectTimeout(connectTimeout).build())
+                    .build())
+                .build());
     }
-}
\ No newline at end of file
+}
@@ -7,16 +7,35 @@ import org.redisson.config.Config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
 
 @Configuration
 public class RedissonConfig {
     @Value("${redisson.singleServerConfig.address}")
     private String redissonAddress;
+
+    @Value("${spring.data.redis.timeout:250ms}")
+    private Duration timeout;
+
+    @Value("${spring.data.redis.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    // Lazy so fast-start instances connect only when DeferredStartup (or a lock/batch user) asks for it.
+    // Without fast start the Redisson-backed RedisConnectionFactory still creates it during refresh.
     @Bean
+    @Lazy
     public RedissonClient redissonClient() {
         Config config = new Config();
+        // Redisson's own defaults (3 s timeout, 3 retries 1.5 s apart) hold a request for seconds when
+        // Redis is gone; one quick retry keeps a blip invisible and lets the circuit breaker see outages
         config.useSingleServer()
-            .setAddress(redissonAddress);
+            .setAddress(redissonAddress)
+            .setTimeout((int) timeout.toMillis())
+            .setConnectTimeout((int) connectTimeout.toMillis())
+            .setRetryAttempts(1)
+            .setRetryInterval((int) timeout.toMillis());
         return Redisson.create(config);
     }
 }
@@ -1,11 +1,20 @@
 package com.wastech.url_shortener.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wastech.url_shortener.security.BoundedPasswordEncoder;
 import com.wastech.url_shortener.security.JwtAuthenticationEntryPoint;
 import com.wastech.url_shortener.security.JwtAuthenticationFilter;
+import com.wastech.url_shortener.security.PasswordHashingExecutor;
+import com.wastech.url_shortener.security.PasswordHashingProperties;
+import com.wastech.url_shortener.security.RateLimitFilter;
+import com.wastech.url_shortener.service.RateLimitService;
 import com.wastech.url_shortener.service.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -20,23 +29,34 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 @Configuration
 @EnableMethodSecurity
+@EnableConfigurationProperties(PasswordHashingProperties.class)
 @RequiredArgsConstructor
 public class SecurityConfig {
 
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtAuthenticationEntryPoint unauthorizedHandler;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordHashingExecutor passwordHashingExecutor(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        return new PasswordHashingExecutor(properties, meterRegistry);
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties, PasswordHashingExecutor passwordHashingExecutor,
+                                           MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(properties.getCost()), passwordHashingExecutor, meterRegistry);
+    }
+
+    @Bean
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Rehashes on login when the stored hash has a lower cost than configured
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -46,19 +66,23 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, DaoAuthenticationProvider authenticationProvider) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
             .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth ->
                 auth.requestMatchers("/api/auth/**").permitAll()
+                    .requestMatchers("/r/**").permitAll()
+                    // Writable endpoints (logger levels, access log sampling) are for admins only
+                    .requestMatchers(HttpMethod.POST, "/actuator/**").hasRole("ADMIN")
                     .requestMatchers("/actuator/**").permitAll()
                     .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                     .anyRequest().authenticated()
             );
 
-        http.authenticationProvider(authenticationProvider());
+        http.authenticationProvider(authenticationProvider);
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(new RateLimitFilter(rateLimitService, objectMapper), JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -13,6 +13,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -20,15 +22,17 @@ public class AuthController {
 
     private final AuthService authService;
 
+    // Completes asynchronously: the request thread is free while the password hash is checked
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        String jwt = authService.authenticateUser(loginRequest);
-        return ResponseEntity.ok(new AuthResponse(jwt));
+    public CompletableFuture<ResponseEntity<AuthResponse>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        return authService.authenticateUser(loginRequest)
+            .thenApply(jwt -> ResponseEntity.ok(new AuthResponse(jwt)));
     }
 
+    // Completes asynchronously as well: the password is hashed and the user inserted off the request thread
     @PostMapping("/register")
-    public ResponseEntity<String> registerUser(@Valid @RequestBody RegistrationRequest registrationRequest) {
-        authService.registerUser(registrationRequest);
-        return new ResponseEntity<>("User registered successfully!", HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<String>> registerUser(@Valid @RequestBody RegistrationRequest registrationRequest) {
+        return authService.registerUser(registrationRequest)
+            .thenApply(ignored -> new ResponseEntity<>("User registered successfully!", HttpStatus.CREATED));
     }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.wastech.url_shortener.controller;
+
+import com.wastech.url_shortener.bulkimport.BulkImportJob;
+import com.wastech.url_shortener.bulkimport.BulkImportService;
+import com.wastech.url_shortener.dto.BulkImportRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/imports")
+public class BulkImportController {
+
+    private final BulkImportService bulkImportService;
+
+    @PostMapping
+    public ResponseEntity<BulkImportJob> startImport(@Valid @RequestBody BulkImportRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(bulkImportService.startImport(request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<BulkImportJob>> getImports() {
+        return ResponseEntity.ok(bulkImportService.getJobs());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BulkImportJob> getImport(@PathVariable String id) {
+        return bulkImportService.getJob(id)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Import not found."));
+    }
+}
@@ -0,0 +1,71 @@
+package com.wastech.url_shortener.controller;
+
+import com.wastech.url_shortener.cache.CacheMigrationJob;
+import com.wastech.url_shortener.cache.CacheRebuildJob;
+import com.wastech.url_shortener.cache.ChangelogBackfill;
+import com.wastech.url_shortener.cache.ChangelogBackfillJob;
+import com.wastech.url_shortener.cache.MappingCacheMaintenance;
+import com.wastech.url_shortener.cache.MappingCacheRebuild;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/cache")
+public class CacheAdminController {
+
+    private final MappingCacheMaintenance mappingCacheMaintenance;
+    private final MappingCacheRebuild mappingCacheRebuild;
+    private final ChangelogBackfill changelogBackfill;
+
+    @PostMapping("/migration")
+    public ResponseEntity<CacheMigrationJob> startMigration() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(mappingCacheMaintenance.startMigration());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/migration")
+    public ResponseEntity<CacheMigrationJob> getMigration() {
+        return mappingCacheMaintenance.getCurrentMigration()
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No cache migration has been started."));
+    }
+
+    @PostMapping("/rebuild")
+    public ResponseEntity<CacheRebuildJob> startRebuild() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(mappingCacheRebuild.startRebuild());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/rebuild")
+    public ResponseEntity<CacheRebuildJob> getRebuild() {
+        return mappingCacheRebuild.getCurrentRebuild()
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No cache rebuild has been started."));
+    }
+
+    @PostMapping("/changelog-backfill")
+    public ResponseEntity<ChangelogBackfillJob> startChangelogBackfill() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(changelogBackfill.startBackfill());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @GetMapping("/changelog-backfill")
+    public ResponseEntity<ChangelogBackfillJob> getChangelogBackfill() {
+        return changelogBackfill.getCurrentBackfill()
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No changelog backfill has been started."));
+    }
+}
@@ -0,0 +1,87 @@
+package com.wastech.url_shortener.controller;
+
+import com.wastech.url_shortener.dto.RedirectTarget;
+import com.wastech.url_shortener.redirectrules.CompiledRedirectRules;
+import com.wastech.url_shortener.redirectrules.RedirectRuleRegistry;
+import com.wastech.url_shortener.redirectrules.RedirectRulesProperties;
+import com.wastech.url_shortener.redirectrules.UserAgentClassifier;
+import com.wastech.url_shortener.service.ShorteningService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Redirects are cacheable so repeat clicks are answered by the browser or the CDN. Every link can
+ * still be changed by its owner, so none is immutable and all get a 302 rather than a permanent 301,
+ * which browsers keep indefinitely. The CDN copy is purged on every change and may live for
+ * {@code s-maxage}; browsers cannot be purged, so their {@code max-age} stays short. Both are capped
+ * at the link's expiry. Cached clicks do not reach the origin and are not counted.
+ * <p>
+ * Links with redirect rules pick their target per visitor, so they always get an uncacheable 302.
+ */
+@RestController
+public class RedirectController {
+
+    private final ShorteningService shorteningService;
+    private final RedirectRuleRegistry redirectRuleRegistry;
+    private final String countryHeader;
+    private final Duration maxAge;
+    private final Duration sharedMaxAge;
+
+    public RedirectController(ShorteningService shorteningService,
+                              RedirectRuleRegistry redirectRuleRegistry,
+                              RedirectRulesProperties redirectRulesProperties,
+                              @Value("${app.redirect.max-age-seconds:300}") long maxAgeSeconds,
+                              @Value("${app.redirect.shared-max-age-seconds:2592000}") long sharedMaxAgeSeconds) {
+        this.shorteningService = shorteningService;
+        this.redirectRuleRegistry = redirectRuleRegistry;
+        this.countryHeader = redirectRulesProperties.getCountryHeader();
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+        this.sharedMaxAge = Duration.ofSeconds(sharedMaxAgeSeconds);
+    }
+
+    @GetMapping("/r/{shortCode}")
+    public ResponseEntity<Void> redirect(@PathVariable String shortCode, HttpServletRequest request) {
+        RedirectTarget target = shorteningService.resolveLongUrl(shortCode)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Short URL not found or expired."));
+        CompiledRedirectRules rules = redirectRuleRegistry.find(shortCode);
+        if (rules != null) {
+            String selected = rules.select(
+                CompiledRedirectRules.countryKey(request.getHeader(countryHeader)),
+                UserAgentClassifier.classify(request.getHeader(HttpHeaders.USER_AGENT)),
+                CompiledRedirectRules.languageKey(request.getHeader(HttpHeaders.ACCEPT_LANGUAGE)),
+                System.currentTimeMillis());
+            return ResponseEntity.status(HttpStatus.FOUND)
+                .cacheControl(CacheControl.noStore())
+                .location(URI.create(selected != null ? selected : target.getLongUrl()))
+                .build();
+        }
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).sMaxAge(sharedMaxAge).cachePublic();
+        LocalDateTime expiresAt = target.getExpiresAt();
+        if (expiresAt != null) {
+            Duration remaining = Duration.between(LocalDateTime.now(), expiresAt);
+            cacheControl = remaining.getSeconds() <= 0
+                ? CacheControl.noStore()
+                : CacheControl.maxAge(min(maxAge, remaining)).sMaxAge(min(sharedMaxAge, remaining)).cachePublic();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+            .cacheControl(cacheControl)
+            .location(URI.create(target.getLongUrl()))
+            .build();
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
@@ -0,0 +1,46 @@
+package com.wastech.url_shortener.controller;
+
+import com.wastech.url_shortener.sharding.ShardMoveJob;
+import com.wastech.url_shortener.sharding.ShardRebalancer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/shards")
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardAdminController {
+
+    private final ShardRebalancer shardRebalancer;
+
+    @PostMapping("/moves")
+    public ResponseEntity<ShardMoveJob> startMove(@RequestParam long start,
+                                                  @RequestParam long end,
+                                                  @RequestParam int targetShard,
+                                                  @RequestParam(defaultValue = "false") boolean deleteFromSource) {
+        try {
+            ShardMoveJob job = shardRebalancer.startMove(start, end, targetShard, deleteFromSource);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/moves")
+    public ResponseEntity<List<ShardMoveJob>> getMoves() {
+        return ResponseEntity.ok(shardRebalancer.getJobs());
+    }
+
+    @GetMapping("/moves/{id}")
+    public ResponseEntity<ShardMoveJob> getMove(@PathVariable String id) {
+        return shardRebalancer.getJob(id)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Shard move not found."));
+    }
+}
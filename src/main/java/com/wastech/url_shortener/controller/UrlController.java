@@ -1,5 +1,8 @@
 package com.wastech.url_shortener.controller;
 
+import com.wastech.url_shortener.dto.RedirectRulesRequest;
+import com.wastech.url_shortener.dto.ResolveUrlsRequest;
+import com.wastech.url_shortener.dto.ResolvedUrl;
 import com.wastech.url_shortener.dto.ShortenUrlRequest;
 import com.wastech.url_shortener.dto.ShortenUrlResponse;
 import com.wastech.url_shortener.model.ShortenedUrl;
@@ -7,11 +10,15 @@ import com.wastech.url_shortener.service.ShorteningService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,17 +34,7 @@ public class UrlController {
     public ResponseEntity<ShortenUrlResponse> shortenUrl(@Valid @RequestBody ShortenUrlRequest request) {
         String longUrl = request.getLongUrl();
 
-        log.info("=== URL Shortening Request Debug ===");
-        log.info("Request object: {}", request);
-        log.info("Long URL received: '{}'", longUrl);
-        log.info("Long URL is null: {}", longUrl == null);
-        log.info("Long URL is blank: {}", longUrl == null || longUrl.trim().isEmpty());
-        if (longUrl != null) {
-            log.info("Long URL length: {}", longUrl.length());
-            log.info("Long URL starts with http: {}", longUrl.startsWith("http"));
-            log.info("Long URL starts with https: {}", longUrl.startsWith("https"));
-        }
-        log.info("=== End Debug ===");
+        log.debug("Shorten request for long URL: '{}'", longUrl);
 
         try {
             ShortenUrlResponse response = shorteningService.shortenUrl(longUrl);
@@ -49,21 +46,38 @@ public class UrlController {
         }
     }
 
+    /**
+     * Carries a weak ETag over the mapping (long URL, expiry, last change) and, once the mapping has
+     * been changed, Last-Modified, so clients can revalidate with a conditional GET. The click count
+     * is not part of the validators: a 304 means the link is unchanged, not that no one clicked it.
+     */
     @GetMapping("/{shortCode}")
     public ResponseEntity<ShortenUrlResponse> getUrlDetails(@PathVariable String shortCode) {
-        log.info("Received request for short code details: {}", shortCode);
+        log.debug("Received request for short code details: {}", shortCode);
         Optional<ShortenUrlResponse> responseOptional = shorteningService.getLongUrl(shortCode);
 
         if (responseOptional.isPresent()) {
             ShortenUrlResponse response = responseOptional.get();
-            log.info("Found URL details for short code {}: {}", shortCode, response.getLongUrl());
-            return ResponseEntity.ok(response);
+            log.debug("Found URL details for short code {}: {}", shortCode, response.getLongUrl());
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(detailsEtag(response));
+            if (response.getLastModifiedAt() != null) {
+                builder.lastModified(response.getLastModifiedAt().atZone(ZoneId.systemDefault()));
+            }
+            // Spring answers 304 itself when If-None-Match / If-Modified-Since match these headers
+            return builder.body(response);
         } else {
-            log.warn("Short code {} not found or expired.", shortCode);
+            log.debug("Short code {} not found or expired.", shortCode);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Short URL not found or expired.");
         }
     }
 
+    @PostMapping("/resolve")
+    public ResponseEntity<List<ResolvedUrl>> resolveUrls(@Valid @RequestBody ResolveUrlsRequest request) {
+        return ResponseEntity.ok(shorteningService.resolveBatch(request.getShortCodes()));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ShortenUrlResponse> updateUrl(@PathVariable Long id, @RequestBody String newLongUrl) {
         ShortenedUrl updatedUrl = shorteningService.updateShortenedUrl(id, newLongUrl);
@@ -78,6 +92,26 @@ public class UrlController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Sets the link's conditional targets; {@code {"rules": []}} goes back to the single long URL.
+     */
+    @PutMapping("/{id}/rules")
+    public ResponseEntity<ShortenUrlResponse> updateRedirectRules(@PathVariable Long id, @RequestBody RedirectRulesRequest request) {
+        ShortenedUrl updatedUrl;
+        try {
+            updatedUrl = shorteningService.updateRedirectRules(id, request.getRules());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.ok(new ShortenUrlResponse(
+            updatedUrl.getShortCode(),
+            updatedUrl.getLongUrl(),
+            updatedUrl.getClickCount(),
+            updatedUrl.getExpiresAt(),
+            updatedUrl.getRedirectRules() == null ? "Redirect rules removed." : "Redirect rules updated."
+        ));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteUrl(@PathVariable Long id) {
         shorteningService.deleteShortenedUrl(id);
@@ -107,4 +141,9 @@ public class UrlController {
         shorteningService.deleteAllShortenedUrls();
         return ResponseEntity.ok("All URLs deleted successfully by admin.");
     }
-}
\ No newline at end of file
+
+    private static String detailsEtag(ShortenUrlResponse response) {
+        String mapping = response.getLongUrl() + '|' + response.getExpiresAt() + '|' + response.getLastModifiedAt();
+        return "W/\"" + DigestUtils.md5DigestAsHex(mapping.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,27 @@
+package com.wastech.url_shortener.controller;
+
+import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/users")
+public class UserController {
+
+    private final UserService userService;
+
+    @PutMapping("/{id}/plan")
+    public ResponseEntity<String> updatePlan(@PathVariable Long id, @RequestParam boolean paid) {
+        try {
+            User user = userService.updatePlan(id, paid);
+            return ResponseEntity.ok("Plan for user " + user.getUsername() + " updated to " + (paid ? "paid" : "free") + ".");
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+}
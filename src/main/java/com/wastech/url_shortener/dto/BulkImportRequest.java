@@ -0,0 +1,39 @@
+package com.wastech.url_shortener.dto;
+
+import com.wastech.url_shortener.bulkimport.ImportFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportRequest {
+
+    /** Path of the export file on the server; progress is checkpointed next to it. */
+    @NotBlank(message = "Import file path cannot be blank")
+    private String path;
+
+    @NotNull(message = "Import format is required")
+    private ImportFormat format;
+
+    /** CSV only: skip the first line. */
+    private boolean hasHeader = true;
+
+    /** Keep the codes from the old shortener instead of assigning new ones from the KGS. */
+    private boolean keepLegacyCodes = true;
+
+    /** Owner of the imported links; null imports them without an owner. */
+    private Long userId;
+
+    /** Write imported, non-expired mappings to the Redis cache as they are loaded. */
+    private boolean primeCache = false;
+
+    @Min(1000)
+    @Max(500000)
+    private int chunkSize = 50000;
+}
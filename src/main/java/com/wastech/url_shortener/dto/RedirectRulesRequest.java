@@ -0,0 +1,17 @@
+package com.wastech.url_shortener.dto;
+
+import com.wastech.url_shortener.redirectrules.RedirectRule;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedirectRulesRequest {
+
+    /** Evaluated in order, first match wins; empty or null removes the link's rules. */
+    private List<RedirectRule> rules;
+}
@@ -0,0 +1,16 @@
+package com.wastech.url_shortener.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedirectTarget {
+    private String longUrl;
+    /** When the mapping stops being valid; null for links that never expire. */
+    private LocalDateTime expiresAt;
+}
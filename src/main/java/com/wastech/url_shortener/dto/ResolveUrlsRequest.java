@@ -0,0 +1,19 @@
+package com.wastech.url_shortener.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResolveUrlsRequest {
+
+    @NotEmpty(message = "At least one short code is required")
+    @Size(max = 5000, message = "At most 5000 short codes can be resolved per request")
+    private List<String> shortCodes;
+}
@@ -0,0 +1,23 @@
+package com.wastech.url_shortener.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResolvedUrl {
+    private String shortCode;
+    /** Null if the code does not exist or has expired. */
+    private String longUrl;
+    private LocalDateTime expiresAt;
+    private boolean found;
+    /**
+     * True if the link has redirect rules. {@code longUrl} is then only the fallback target, so
+     * visitors must be sent through {@code /r/{shortCode}} to have the rules applied.
+     */
+    private boolean redirectRules;
+}
@@ -1,6 +1,7 @@
 // src/main/java/com/wastech/url_shortener/dto/ShortenUrlResponse.java
 package com.wastech.url_shortener.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,5 +17,11 @@ public class ShortenUrlResponse {
     private Long clickCount;
     private LocalDateTime expiresAt;
     private String message;
+    /** Drives the Last-Modified header of details responses; null when unknown. */
+    @JsonIgnore
+    private LocalDateTime lastModifiedAt;
 
-}
\ No newline at end of file
+    public ShortenUrlResponse(String shortCode, String longUrl, Long clickCount, LocalDateTime expiresAt, String message) {
+        this(shortCode, longUrl, clickCount, expiresAt, message, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.wastech.url_shortener.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection of the columns {@link ShortenUrlResponse} needs, so list, details and redirect
+ * lookups select five columns instead of the entity plus its user and roles.
+ */
+public interface ShortenedUrlSummary {
+    String getShortCode();
+    String getLongUrl();
+    Long getClickCount();
+    LocalDateTime getExpiresAt();
+    LocalDateTime getUpdatedAt();
+}
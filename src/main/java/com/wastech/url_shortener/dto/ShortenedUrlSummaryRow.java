@@ -0,0 +1,18 @@
+package com.wastech.url_shortener.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link ShortenedUrlSummary} read with plain JDBC, for queries Spring Data does not run (batch
+ * lookups by code and the shard repositories).
+ */
+@Value
+public class ShortenedUrlSummaryRow implements ShortenedUrlSummary {
+    String shortCode;
+    String longUrl;
+    Long clickCount;
+    LocalDateTime expiresAt;
+    LocalDateTime updatedAt;
+}
@@ -0,0 +1,38 @@
+package com.wastech.url_shortener.edgeresolve;
+
+import com.wastech.url_shortener.service.ShorteningService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.edge-resolve", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(EdgeResolveProperties.class)
+public class EdgeResolveConfig {
+
+    private static final int MIN_SECRET_BYTES = 32;
+
+    @Bean
+    public EdgeResolveServer edgeResolveServer(EdgeResolveProperties properties, ShorteningService shorteningService,
+                                               MeterRegistry meterRegistry) throws UnknownHostException {
+        InetAddress address = InetAddress.getByName(properties.getBindAddress());
+        if (address.isAnyLocalAddress()
+            || !(address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress())) {
+            throw new IllegalStateException("app.edge-resolve.bind-address must be a loopback or private address of the "
+                + "internal interface, not " + properties.getBindAddress() + ".");
+        }
+        String secret = properties.getSharedSecret();
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("app.edge-resolve.shared-secret must be at least " + MIN_SECRET_BYTES + " bytes.");
+        }
+        return new EdgeResolveServer(properties, new InetSocketAddress(address, properties.getPort()),
+            secret.getBytes(StandardCharsets.UTF_8), shorteningService, new EdgeResolveMetrics(meterRegistry));
+    }
+}
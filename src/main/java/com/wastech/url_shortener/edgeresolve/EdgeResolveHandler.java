@@ -0,0 +1,192 @@
+package com.wastech.url_shortener.edgeresolve;
+
+import com.wastech.url_shortener.dto.ResolvedUrl;
+import com.wastech.url_shortener.service.ShorteningService;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One per connection, running on a worker executor rather than the I/O loop since lookups may
+ * block on Redis or Postgres. Responses are written as they complete and flushed once per read
+ * burst, so a pipelined batch of frames costs a single syscall on the way out.
+ */
+@Slf4j
+class EdgeResolveHandler extends ChannelInboundHandlerAdapter {
+
+    private final ShorteningService shorteningService;
+    private final byte[] sharedSecret;
+    private final int maxBatchSize;
+    private final long authTimeoutMillis;
+    private final EdgeResolveMetrics metrics;
+
+    private boolean authenticated;
+    private ScheduledFuture<?> authDeadline;
+
+    EdgeResolveHandler(ShorteningService shorteningService, byte[] sharedSecret, int maxBatchSize,
+                       long authTimeoutMillis, EdgeResolveMetrics metrics) {
+        this.shorteningService = shorteningService;
+        this.sharedSecret = sharedSecret;
+        this.maxBatchSize = maxBatchSize;
+        this.authTimeoutMillis = authTimeoutMillis;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        authDeadline = ctx.executor().schedule(() -> {
+            if (!authenticated) {
+                log.debug("Closing edge resolve connection from {}: no AUTH frame in time.", ctx.channel().remoteAddress());
+                ctx.close();
+            }
+        }, authTimeoutMillis, TimeUnit.MILLISECONDS);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (authDeadline != null) {
+            authDeadline.cancel(false);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame = (ByteBuf) msg;
+        try {
+            byte opcode = frame.readByte();
+            if (!authenticated) {
+                authenticate(ctx, opcode, frame);
+            } else if (opcode == EdgeResolveProtocol.RESOLVE) {
+                resolve(ctx, frame);
+            } else {
+                protocolViolation(ctx, "unexpected opcode " + opcode);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // Stop reading from a client that pipelines faster than it drains its responses
+        ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        if (cause instanceof ReadTimeoutException) {
+            log.debug("Closing idle edge resolve connection from {}.", ctx.channel().remoteAddress());
+        } else if (cause instanceof IndexOutOfBoundsException) {
+            protocolViolation(ctx, "truncated frame");
+            return;
+        } else {
+            log.warn("Edge resolve connection from {} failed: {}", ctx.channel().remoteAddress(), cause.getMessage());
+        }
+        ctx.close();
+    }
+
+    private void authenticate(ChannelHandlerContext ctx, byte opcode, ByteBuf frame) {
+        byte[] presented = new byte[frame.readableBytes()];
+        frame.readBytes(presented);
+        boolean accepted = opcode == EdgeResolveProtocol.AUTH && MessageDigest.isEqual(sharedSecret, presented);
+        ByteBuf reply = ctx.alloc().buffer(EdgeResolveProtocol.LENGTH_FIELD_BYTES + 2)
+            .writeInt(2)
+            .writeByte(EdgeResolveProtocol.AUTH)
+            .writeByte(accepted ? EdgeResolveProtocol.AUTH_OK : EdgeResolveProtocol.AUTH_FAILED);
+        if (accepted) {
+            authenticated = true;
+            authDeadline.cancel(false);
+            ctx.write(reply);
+        } else {
+            metrics.authFailed();
+            log.warn("Rejected edge resolve connection from {}: bad shared secret.", ctx.channel().remoteAddress());
+            ctx.writeAndFlush(reply).addListener(future -> ctx.close());
+        }
+    }
+
+    private void resolve(ChannelHandlerContext ctx, ByteBuf frame) {
+        int requestId = frame.readInt();
+        int count = frame.readUnsignedShort();
+        if (count > maxBatchSize) {
+            protocolViolation(ctx, count + " codes in one request, the limit is " + maxBatchSize);
+            return;
+        }
+        List<String> shortCodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = frame.readUnsignedByte();
+            shortCodes.add(frame.readCharSequence(length, StandardCharsets.US_ASCII).toString());
+        }
+
+        long startNanos = System.nanoTime();
+        List<ResolvedUrl> results;
+        try {
+            results = shorteningService.resolveForRedirect(shortCodes);
+        } catch (RuntimeException e) {
+            metrics.failed();
+            log.warn("Edge resolve request {} failed: {}", requestId, e.getMessage());
+            ctx.write(ctx.alloc().buffer(EdgeResolveProtocol.LENGTH_FIELD_BYTES + 5)
+                .writeInt(5)
+                .writeByte(EdgeResolveProtocol.ERROR)
+                .writeInt(requestId));
+            return;
+        }
+        ctx.write(encode(ctx, requestId, results));
+        metrics.resolved(System.nanoTime() - startNanos, results);
+    }
+
+    private static ByteBuf encode(ChannelHandlerContext ctx, int requestId, List<ResolvedUrl> results) {
+        ByteBuf response = ctx.alloc().buffer(EdgeResolveProtocol.LENGTH_FIELD_BYTES + 7 + results.size() * 96);
+        response.writeInt(0);
+        response.writeByte(EdgeResolveProtocol.RESOLVE).writeInt(requestId).writeShort(results.size());
+        for (ResolvedUrl result : results) {
+            if (!result.isFound()) {
+                response.writeByte(EdgeResolveProtocol.NOT_FOUND);
+                continue;
+            }
+            if (result.isRedirectRules()) {
+                response.writeByte(EdgeResolveProtocol.REDIRECT_RULES);
+                continue;
+            }
+            int entryStart = response.writerIndex();
+            response.writeByte(EdgeResolveProtocol.FOUND).writeLong(toEpochMillis(result.getExpiresAt()));
+            int lengthIndex = response.writerIndex();
+            response.writeShort(0);
+            int urlBytes = response.writeCharSequence(result.getLongUrl(), StandardCharsets.UTF_8);
+            if (urlBytes > EdgeResolveProtocol.MAX_URL_BYTES) {
+                response.writerIndex(entryStart).writeByte(EdgeResolveProtocol.NOT_FOUND);
+                continue;
+            }
+            response.setShort(lengthIndex, urlBytes);
+        }
+        response.setInt(0, response.readableBytes() - EdgeResolveProtocol.LENGTH_FIELD_BYTES);
+        return response;
+    }
+
+    private static long toEpochMillis(LocalDateTime expiresAt) {
+        return expiresAt == null ? EdgeResolveProtocol.NO_EXPIRY : expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void protocolViolation(ChannelHandlerContext ctx, String reason) {
+        log.warn("Closing edge resolve connection from {}: {}.", ctx.channel().remoteAddress(), reason);
+        ctx.close();
+    }
+}
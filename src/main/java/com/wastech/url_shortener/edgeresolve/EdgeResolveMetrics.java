@@ -0,0 +1,56 @@
+package com.wastech.url_shortener.edgeresolve;
+
+import com.wastech.url_shortener.dto.ResolvedUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class EdgeResolveMetrics {
+
+    private final Timer requestTimer;
+    private final Counter foundCodes;
+    private final Counter notFoundCodes;
+    private final Counter failedRequests;
+    private final Counter authFailures;
+
+    EdgeResolveMetrics(MeterRegistry meterRegistry) {
+        this.requestTimer = Timer.builder("shortener.edge.resolve")
+            .description("Time to answer one RESOLVE frame on the edge resolve listener")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(meterRegistry);
+        this.foundCodes = Counter.builder("shortener.edge.resolve.codes").tag("result", "found")
+            .description("Short codes resolved through the edge resolve listener").register(meterRegistry);
+        this.notFoundCodes = Counter.builder("shortener.edge.resolve.codes").tag("result", "not_found")
+            .description("Short codes resolved through the edge resolve listener").register(meterRegistry);
+        this.failedRequests = Counter.builder("shortener.edge.resolve.errors")
+            .description("RESOLVE frames answered with ERROR").register(meterRegistry);
+        this.authFailures = Counter.builder("shortener.edge.resolve.auth.failures")
+            .description("Edge resolve connections closed for a wrong shared secret").register(meterRegistry);
+    }
+
+    void resolved(long durationNanos, List<ResolvedUrl> results) {
+        requestTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        int found = 0;
+        for (ResolvedUrl result : results) {
+            if (result.isFound()) {
+                found++;
+            }
+        }
+        foundCodes.increment(found);
+        notFoundCodes.increment(results.size() - found);
+    }
+
+    void failed() {
+        failedRequests.increment();
+    }
+
+    void authFailed() {
+        authFailures.increment();
+    }
+}
@@ -0,0 +1,36 @@
+package com.wastech.url_shortener.edgeresolve;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.edge-resolve")
+public class EdgeResolveProperties {
+
+    private boolean enabled = false;
+
+    /** A loopback or private address of the internal interface; wildcard and public addresses are refused. */
+    private String bindAddress = "127.0.0.1";
+
+    private int port = 7070;
+
+    /** Shared with the edge proxies, at least 32 bytes. */
+    private String sharedSecret;
+
+    /** Codes per RESOLVE frame; larger frames close the connection. */
+    private int maxBatchSize = 512;
+
+    private int maxFrameBytes = 64 * 1024;
+
+    private int ioThreads = 2;
+
+    /** Threads running lookups. Each connection is pinned to one, which keeps pipelined responses in order. */
+    private int workerThreads = 32;
+
+    /** Connections that have not authenticated within this time are closed. */
+    private Duration authTimeout = Duration.ofSeconds(5);
+
+    private Duration idleTimeout = Duration.ofMinutes(5);
+}
@@ -0,0 +1,41 @@
+package com.wastech.url_shortener.edgeresolve;
+
+/**
+ * Wire format of the internal edge resolve listener. Every frame is a 4-byte big-endian payload
+ * length followed by the payload, whose first byte is the opcode:
+ * <pre>
+ * AUTH     client: 0x01 secret-bytes
+ *          server: 0x01 status:u8                 (0 = ok; otherwise the server closes the connection)
+ * RESOLVE  client: 0x02 request-id:u32 count:u16 { length:u8 ascii-code }*
+ *          server: 0x02 request-id:u32 count:u16 { 0x00 expires-at:i64 length:u16 utf8-url | 0x01 | 0x02 }*
+ * ERROR    server: 0x7F request-id:u32            (the lookup failed; the connection stays usable)
+ * </pre>
+ * {@code expires-at} is in epoch milliseconds, -1 for links that never expire. Result {@code i}
+ * answers code {@code i} of the request, duplicates included; 0x01 means not found or expired.
+ * 0x02 means the link has redirect rules, which pick the target per visitor: the edge must send
+ * the visitor on to {@code /r/{code}} rather than redirect or cache anything itself.
+ * Clients may pipeline any number of RESOLVE frames without waiting, and responses come back in
+ * request order. Any malformed frame closes the connection.
+ */
+final class EdgeResolveProtocol {
+
+    static final int LENGTH_FIELD_BYTES = 4;
+
+    static final byte AUTH = 0x01;
+    static final byte RESOLVE = 0x02;
+    static final byte ERROR = 0x7F;
+
+    static final byte AUTH_OK = 0x00;
+    static final byte AUTH_FAILED = 0x01;
+
+    static final byte FOUND = 0x00;
+    static final byte NOT_FOUND = 0x01;
+    static final byte REDIRECT_RULES = 0x02;
+
+    static final long NO_EXPIRY = -1L;
+
+    static final int MAX_URL_BYTES = 0xFFFF;
+
+    private EdgeResolveProtocol() {
+    }
+}
@@ -0,0 +1,99 @@
+package com.wastech.url_shortener.edgeresolve;
+
+import com.wastech.url_shortener.service.ShorteningService;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Internal listener that lets our edge proxies resolve short codes without going through
+ * Spring MVC, Security and Jackson. Lookups share {@link ShorteningService}'s cache and
+ * repository path; see {@link EdgeResolveProtocol} for the wire format. Binds once the context
+ * is refreshed, so edges never reach a half-started instance.
+ */
+@Slf4j
+public class EdgeResolveServer implements SmartLifecycle {
+
+    private final EdgeResolveProperties properties;
+    private final InetSocketAddress bindAddress;
+    private final byte[] sharedSecret;
+    private final ShorteningService shorteningService;
+    private final EdgeResolveMetrics metrics;
+
+    private EventLoopGroup acceptGroup;
+    private EventLoopGroup ioGroup;
+    private EventExecutorGroup workerGroup;
+    private volatile Channel serverChannel;
+
+    EdgeResolveServer(EdgeResolveProperties properties, InetSocketAddress bindAddress, byte[] sharedSecret,
+                      ShorteningService shorteningService, EdgeResolveMetrics metrics) {
+        this.properties = properties;
+        this.bindAddress = bindAddress;
+        this.sharedSecret = sharedSecret;
+        this.shorteningService = shorteningService;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void start() {
+        acceptGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("edge-resolve-accept", true));
+        ioGroup = new NioEventLoopGroup(properties.getIoThreads(), new DefaultThreadFactory("edge-resolve-io", true));
+        workerGroup = new DefaultEventExecutorGroup(properties.getWorkerThreads(), new DefaultThreadFactory("edge-resolve-worker", true));
+        long idleSeconds = properties.getIdleTimeout().toSeconds();
+        long authTimeoutMillis = properties.getAuthTimeout().toMillis();
+
+        ServerBootstrap bootstrap = new ServerBootstrap()
+            .group(acceptGroup, ioGroup)
+            .channel(NioServerSocketChannel.class)
+            .option(ChannelOption.SO_BACKLOG, 1024)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childOption(ChannelOption.SO_KEEPALIVE, true)
+            .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(256 * 1024, 1024 * 1024))
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.pipeline()
+                        .addLast(new ReadTimeoutHandler(idleSeconds, TimeUnit.SECONDS))
+                        .addLast(new LengthFieldBasedFrameDecoder(properties.getMaxFrameBytes(), 0,
+                            EdgeResolveProtocol.LENGTH_FIELD_BYTES, 0, EdgeResolveProtocol.LENGTH_FIELD_BYTES))
+                        .addLast(workerGroup, "resolve", new EdgeResolveHandler(shorteningService, sharedSecret,
+                            properties.getMaxBatchSize(), authTimeoutMillis, metrics));
+                }
+            });
+        serverChannel = bootstrap.bind(bindAddress).syncUninterruptibly().channel();
+        log.info("Edge resolve listener bound to {}.", bindAddress);
+    }
+
+    @Override
+    public void stop() {
+        Channel channel = serverChannel;
+        serverChannel = null;
+        if (channel != null) {
+            channel.close().syncUninterruptibly();
+        }
+        acceptGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        ioGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        workerGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return serverChannel != null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.wastech.url_shortener.exception;
+
+public class DatabaseOverloadedException extends RuntimeException {
+
+    public DatabaseOverloadedException(String message) {
+        super(message);
+    }
+}
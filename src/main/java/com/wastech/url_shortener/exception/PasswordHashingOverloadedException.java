@@ -0,0 +1,8 @@
+package com.wastech.url_shortener.exception;
+
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package com.wastech.url_shortener.localstore;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.local-store", name = "enabled", havingValue = "true")
+public class LocalStoreConfig {
+
+    @Bean
+    public OffHeapMappingStore offHeapMappingStore(@Value("${app.local-store.directory}") String directory,
+                                                   @Value("${app.local-store.initial-capacity:1000000}") long initialCapacity,
+                                                   @Value("${app.local-store.max-age-seconds:300}") long maxAgeSeconds,
+                                                   MeterRegistry meterRegistry) throws IOException {
+        OffHeapMappingStore store = new OffHeapMappingStore(Path.of(directory), initialCapacity, maxAgeSeconds * 1000);
+        Gauge.builder("shortener.localstore.entries", store, OffHeapMappingStore::size)
+            .description("Mappings held in the local off-heap store")
+            .register(meterRegistry);
+        Gauge.builder("shortener.localstore.arena", store, OffHeapMappingStore::arenaBytes)
+            .description("Bytes written to the local store's append-only arena")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        return store;
+    }
+}
@@ -0,0 +1,89 @@
+package com.wastech.url_shortener.localstore;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file mapped read-write as a series of 1 GiB {@link MappedByteBuffer}s and addressed with
+ * {@code long} offsets. Values must not straddle a chunk boundary; callers keep records aligned.
+ * Only absolute accessors are used, so concurrent readers never share buffer position state.
+ */
+final class MappedRegion implements AutoCloseable {
+
+    static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    private MappedRegion(FileChannel channel, long size) throws IOException {
+        this.channel = channel;
+        this.size = size;
+        int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(CHUNK_SIZE, size - position));
+        }
+    }
+
+    /** Maps {@code path}, growing the file to {@code size} bytes if it is smaller. */
+    static MappedRegion open(Path path, long size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedRegion(channel, Math.max(size, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    long getLong(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    void putLong(long offset, long value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) (offset & CHUNK_MASK), value);
+    }
+
+    int getInt(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getInt((int) (offset & CHUNK_MASK));
+    }
+
+    void putInt(long offset, int value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putInt((int) (offset & CHUNK_MASK), value);
+    }
+
+    void get(long offset, byte[] target) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].get((int) (offset & CHUNK_MASK), target);
+    }
+
+    void put(long offset, byte[] source) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].put((int) (offset & CHUNK_MASK), source);
+    }
+
+    /** Bytes left in the chunk containing {@code offset}. */
+    static long remainingInChunk(long offset) {
+        return CHUNK_SIZE - (offset & CHUNK_MASK);
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,473 @@
+package com.wastech.url_shortener.localstore;
+
+import com.wastech.url_shortener.util.Base62;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Local copy of short code → long URL mappings that lives outside the Java heap. An open-addressing
+ * table keyed by {@code Base62.decode(code)} maps to offsets in an append-only arena holding the
+ * code, the UTF-8 long URL and its expiry stamp. Both are memory-mapped files, so a restarted
+ * instance maps its previous contents back instead of re-fetching them, and tens of millions of
+ * entries cost the GC nothing.
+ * <p>
+ * Index layout: 64-byte header, then 16-byte slots {@code [key + 1][record offset]}; key 0 marks an
+ * empty slot and offset -1 a removed entry. Arena records are 8-byte aligned:
+ * {@code [expiresAt][storedAt][urlLength:int][codeLength:short][pad:short][code][url]}.
+ * Writers are serialized; readers run optimistically and retry under the read lock.
+ */
+@Slf4j
+public class OffHeapMappingStore implements AutoCloseable {
+
+    public record Mapping(String longUrl, long expiresAtMillis) {
+    }
+
+    private static final long INDEX_MAGIC = 0x55524C5F49445831L;
+    private static final long ARENA_MAGIC = 0x55524C5F41524E31L;
+    // 2: slots are placed with the actual Murmur3 fmix64 constants
+    private static final long VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final long H_MAGIC = 0;
+    private static final long H_VERSION = 8;
+    private static final long H_GENERATION = 16;
+    private static final long H_CAPACITY = 24;      // index
+    private static final long H_SIZE = 32;          // index
+    private static final long H_USED = 40;          // index
+    private static final long H_WRITE_POSITION = 24; // arena
+    private static final long H_GARBAGE = 32;       // arena
+
+    private static final int SLOT_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final long R_EXPIRES_AT = 0;
+    private static final long R_STORED_AT = 8;
+    private static final long R_URL_LENGTH = 16;
+    private static final long R_CODE_LENGTH = 20;
+    // Long URLs are at most 2048 characters of up to 3 UTF-8 bytes
+    private static final int MAX_URL_BYTES = 2048 * 3;
+
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    private static final long MIN_ARENA_SIZE = 64L << 20;
+    private static final long COMPACTION_MIN_GARBAGE = 64L << 20;
+
+    private final Path indexPath;
+    private final Path arenaPath;
+    private final long maxAgeMillis;
+    private final StampedLock lock = new StampedLock();
+
+    private volatile MappedRegion index;
+    private volatile MappedRegion arena;
+    private volatile long capacity;
+    private long generation;
+    private long size;
+    private long used;
+    private long writePosition;
+    private long garbage;
+
+    /**
+     * @param maxAgeMillis entries stored longer ago than this are reported as misses so they are
+     *                     refreshed from the shared tiers; 0 keeps them until removed or expired
+     */
+    public OffHeapMappingStore(Path directory, long initialCapacity, long maxAgeMillis) throws IOException {
+        Files.createDirectories(directory);
+        this.indexPath = directory.resolve("mappings.idx");
+        this.arenaPath = directory.resolve("mappings.arena");
+        this.maxAgeMillis = maxAgeMillis;
+        if (!reopen()) {
+            Files.deleteIfExists(indexPath);
+            Files.deleteIfExists(arenaPath);
+            create(indexPath, arenaPath, tableCapacity(initialCapacity), MIN_ARENA_SIZE, 1);
+            log.info("Created local mapping store in {} with {} slots", directory, capacity);
+        } else {
+            log.info("Mapped local mapping store from {}: {} entries", directory, size);
+        }
+    }
+
+    public Mapping get(long key, String shortCode, long nowMillis) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Mapping mapping = lookup(key, shortCode, nowMillis);
+                if (lock.validate(stamp)) {
+                    return mapping;
+                }
+            } catch (RuntimeException e) {
+                // Torn read during a concurrent write; retried under the read lock below.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return lookup(key, shortCode, nowMillis);
+        } catch (IllegalStateException e) {
+            log.warn("Ignoring local mapping store entry for {}: {}", shortCode, e.getMessage());
+            return null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void put(long key, String shortCode, String longUrl, long expiresAtMillis, long nowMillis) {
+        byte[] code = shortCode.getBytes(StandardCharsets.US_ASCII);
+        byte[] url = longUrl.getBytes(StandardCharsets.UTF_8);
+        if (code.length == 0 || code.length > Base62.MAX_CODE_LENGTH || url.length > MAX_URL_BYTES) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            long slot = findSlot(index, capacity, key);
+            if (slot < 0 && used + 1 > capacity * MAX_LOAD_FACTOR) {
+                rebuild(capacity * 2, nowMillis);
+                slot = findSlot(index, capacity, key);
+            }
+            if (slot > 0) {
+                long existing = index.getLong(slot + 8);
+                if (existing >= 0 && sameRecord(existing, code, url, expiresAtMillis)) {
+                    arena.putLong(existing + R_STORED_AT, nowMillis);
+                    return;
+                }
+                if (existing >= 0) {
+                    garbage += recordSize(arena, existing);
+                } else {
+                    size++;
+                }
+                index.putLong(slot + 8, append(code, url, expiresAtMillis, nowMillis));
+            } else {
+                long free = -slot;
+                index.putLong(free + 8, append(code, url, expiresAtMillis, nowMillis));
+                index.putLong(free, key + 1);
+                size++;
+                used++;
+            }
+            writeHeaders();
+            if (garbage > COMPACTION_MIN_GARBAGE && garbage > writePosition / 2) {
+                rebuild(capacity, nowMillis);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = findSlot(index, capacity, key);
+            if (slot > 0) {
+                long existing = index.getLong(slot + 8);
+                if (existing >= 0) {
+                    garbage += recordSize(arena, existing);
+                    index.putLong(slot + 8, -1);
+                    size--;
+                    writeHeaders();
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            MappedRegion oldIndex = index;
+            MappedRegion oldArena = arena;
+            Path indexTmp = tempPath(indexPath);
+            Path arenaTmp = tempPath(arenaPath);
+            Files.deleteIfExists(indexTmp);
+            Files.deleteIfExists(arenaTmp);
+            create(indexTmp, arenaTmp, capacity, MIN_ARENA_SIZE, generation + 1);
+            publish(indexTmp, arenaTmp, oldIndex, oldArena);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long arenaBytes() {
+        return writePosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            index.force();
+            arena.force();
+            index.close();
+            arena.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Mapping lookup(long key, String shortCode, long nowMillis) {
+        MappedRegion currentIndex = index;
+        MappedRegion currentArena = arena;
+        long slot = findSlot(currentIndex, capacity, key);
+        if (slot < 0) {
+            return null;
+        }
+        long record = currentIndex.getLong(slot + 8);
+        if (record < 0) {
+            return null;
+        }
+        checkOffset(currentArena, record);
+        long expiresAt = currentArena.getLong(record + R_EXPIRES_AT);
+        long storedAt = currentArena.getLong(record + R_STORED_AT);
+        if ((expiresAt != 0 && expiresAt <= nowMillis) || (maxAgeMillis > 0 && storedAt + maxAgeMillis <= nowMillis)) {
+            return null;
+        }
+        int urlLength = currentArena.getInt(record + R_URL_LENGTH);
+        int codeLength = currentArena.getInt(record + R_CODE_LENGTH) >>> 16;
+        checkLengths(currentArena, record, codeLength, urlLength);
+        byte[] code = new byte[codeLength];
+        currentArena.get(record + RECORD_HEADER_SIZE, code);
+        // Codes with leading zeros of different lengths decode to the same key
+        if (!shortCode.equals(new String(code, StandardCharsets.US_ASCII))) {
+            return null;
+        }
+        byte[] url = new byte[urlLength];
+        currentArena.get(record + RECORD_HEADER_SIZE + codeLength, url);
+        return new Mapping(new String(url, StandardCharsets.UTF_8), expiresAt);
+    }
+
+    /** @return the slot offset holding {@code key}, or the negated offset of the empty slot where it belongs */
+    private static long findSlot(MappedRegion index, long capacity, long key) {
+        long mask = capacity - 1;
+        long stored = key + 1;
+        long i = mix(key) & mask;
+        for (long probes = 0; probes < capacity; probes++) {
+            long offset = HEADER_SIZE + i * SLOT_SIZE;
+            long current = index.getLong(offset);
+            if (current == stored) {
+                return offset;
+            }
+            if (current == 0) {
+                return -offset;
+            }
+            i = (i + 1) & mask;
+        }
+        throw new IllegalStateException("Local mapping store index is full.");
+    }
+
+    private long append(byte[] code, byte[] url, long expiresAtMillis, long nowMillis) throws IOException {
+        long length = align(RECORD_HEADER_SIZE + code.length + url.length);
+        long position = writePosition;
+        if (MappedRegion.remainingInChunk(position) < length) {
+            garbage += MappedRegion.remainingInChunk(position);
+            position += MappedRegion.remainingInChunk(position);
+        }
+        if (position + length > arena.size()) {
+            MappedRegion grown = MappedRegion.open(arenaPath, Math.max(arena.size() * 2, position + length));
+            arena.close();
+            arena = grown;
+        }
+        writeRecord(arena, position, code, url, expiresAtMillis, nowMillis);
+        writePosition = position + length;
+        return position;
+    }
+
+    private static void writeRecord(MappedRegion arena, long position, byte[] code, byte[] url, long expiresAtMillis, long storedAtMillis) {
+        arena.putLong(position + R_EXPIRES_AT, expiresAtMillis);
+        arena.putLong(position + R_STORED_AT, storedAtMillis);
+        arena.putInt(position + R_URL_LENGTH, url.length);
+        arena.putInt(position + R_CODE_LENGTH, code.length << 16);
+        arena.put(position + RECORD_HEADER_SIZE, code);
+        arena.put(position + RECORD_HEADER_SIZE + code.length, url);
+    }
+
+    private boolean sameRecord(long record, byte[] code, byte[] url, long expiresAtMillis) {
+        if (arena.getLong(record + R_EXPIRES_AT) != expiresAtMillis
+            || arena.getInt(record + R_URL_LENGTH) != url.length
+            || (arena.getInt(record + R_CODE_LENGTH) >>> 16) != code.length) {
+            return false;
+        }
+        byte[] stored = new byte[code.length + url.length];
+        arena.get(record + RECORD_HEADER_SIZE, stored);
+        return Arrays.equals(stored, 0, code.length, code, 0, code.length)
+            && Arrays.equals(stored, code.length, stored.length, url, 0, url.length);
+    }
+
+    /**
+     * Optimistic reads can see a slot offset or lengths from a write in progress, and a damaged file
+     * can hold anything; both are rejected before they size an allocation.
+     */
+    private static void checkOffset(MappedRegion arena, long record) {
+        if (record < HEADER_SIZE || record + RECORD_HEADER_SIZE > arena.size()) {
+            throw new IllegalStateException("Invalid record offset " + record);
+        }
+    }
+
+    private static void checkLengths(MappedRegion arena, long record, int codeLength, int urlLength) {
+        if (codeLength == 0 || codeLength > Base62.MAX_CODE_LENGTH || urlLength < 0 || urlLength > MAX_URL_BYTES
+            || record + RECORD_HEADER_SIZE + codeLength + urlLength > arena.size()) {
+            throw new IllegalStateException("Invalid record at offset " + record
+                + " (code length " + codeLength + ", URL length " + urlLength + ")");
+        }
+    }
+
+    private static long recordSize(MappedRegion arena, long record) {
+        return align(RECORD_HEADER_SIZE + (arena.getInt(record + R_CODE_LENGTH) >>> 16) + arena.getInt(record + R_URL_LENGTH));
+    }
+
+    // Copies live, unexpired entries into fresh files (larger table or compacted arena) and swaps them in.
+    private void rebuild(long newCapacity, long nowMillis) throws IOException {
+        MappedRegion oldIndex = index;
+        MappedRegion oldArena = arena;
+        long oldCapacity = capacity;
+        Path indexTmp = tempPath(indexPath);
+        Path arenaTmp = tempPath(arenaPath);
+        Files.deleteIfExists(indexTmp);
+        Files.deleteIfExists(arenaTmp);
+        create(indexTmp, arenaTmp, newCapacity, Math.max(MIN_ARENA_SIZE, (writePosition - garbage) * 2), generation + 1);
+
+        for (long i = 0; i < oldCapacity; i++) {
+            long offset = HEADER_SIZE + i * SLOT_SIZE;
+            long storedKey = oldIndex.getLong(offset);
+            long record = oldIndex.getLong(offset + 8);
+            if (storedKey == 0 || record < 0) {
+                continue;
+            }
+            try {
+                checkOffset(oldArena, record);
+                checkLengths(oldArena, record, oldArena.getInt(record + R_CODE_LENGTH) >>> 16, oldArena.getInt(record + R_URL_LENGTH));
+            } catch (IllegalStateException e) {
+                log.warn("Dropping local mapping store slot {}: {}", i, e.getMessage());
+                continue;
+            }
+            long expiresAt = oldArena.getLong(record + R_EXPIRES_AT);
+            if (expiresAt != 0 && expiresAt <= nowMillis) {
+                continue;
+            }
+            long length = recordSize(oldArena, record);
+            byte[] bytes = new byte[(int) length];
+            oldArena.get(record, bytes);
+            long position = writePosition;
+            if (MappedRegion.remainingInChunk(position) < length) {
+                position += MappedRegion.remainingInChunk(position);
+            }
+            if (position + length > arena.size()) {
+                MappedRegion grown = MappedRegion.open(arenaTmp, Math.max(arena.size() * 2, position + length));
+                arena.close();
+                arena = grown;
+            }
+            arena.put(position, bytes);
+            writePosition = position + length;
+            long slot = -findSlot(index, capacity, storedKey - 1);
+            index.putLong(slot + 8, position);
+            index.putLong(slot, storedKey);
+            size++;
+            used++;
+        }
+        writeHeaders();
+        publish(indexTmp, arenaTmp, oldIndex, oldArena);
+        log.info("Rebuilt local mapping store: {} entries, {} slots, {} arena bytes", size, capacity, writePosition);
+    }
+
+    // Fresh files become the live ones. The shared generation stamp lets reopen() detect a crash between the two moves.
+    private void publish(Path indexTmp, Path arenaTmp, MappedRegion oldIndex, MappedRegion oldArena) throws IOException {
+        index.force();
+        arena.force();
+        Files.move(indexTmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(arenaTmp, arenaPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        oldIndex.close();
+        oldArena.close();
+    }
+
+    private void create(Path newIndexPath, Path newArenaPath, long newCapacity, long arenaSize, long newGeneration) throws IOException {
+        index = MappedRegion.open(newIndexPath, HEADER_SIZE + newCapacity * SLOT_SIZE);
+        arena = MappedRegion.open(newArenaPath, arenaSize);
+        capacity = newCapacity;
+        generation = newGeneration;
+        size = 0;
+        used = 0;
+        writePosition = HEADER_SIZE;
+        garbage = 0;
+        index.putLong(H_MAGIC, INDEX_MAGIC);
+        index.putLong(H_VERSION, VERSION);
+        index.putLong(H_GENERATION, generation);
+        index.putLong(H_CAPACITY, capacity);
+        arena.putLong(H_MAGIC, ARENA_MAGIC);
+        arena.putLong(H_VERSION, VERSION);
+        arena.putLong(H_GENERATION, generation);
+        writeHeaders();
+    }
+
+    private boolean reopen() {
+        if (!Files.exists(indexPath) || !Files.exists(arenaPath)) {
+            return false;
+        }
+        try {
+            MappedRegion existingIndex = MappedRegion.open(indexPath, HEADER_SIZE);
+            MappedRegion existingArena = MappedRegion.open(arenaPath, HEADER_SIZE);
+            boolean valid = existingIndex.getLong(H_MAGIC) == INDEX_MAGIC
+                && existingArena.getLong(H_MAGIC) == ARENA_MAGIC
+                && existingIndex.getLong(H_VERSION) == VERSION
+                && existingArena.getLong(H_VERSION) == VERSION
+                && existingIndex.getLong(H_GENERATION) == existingArena.getLong(H_GENERATION)
+                && existingIndex.size() == HEADER_SIZE + existingIndex.getLong(H_CAPACITY) * SLOT_SIZE;
+            if (!valid) {
+                existingIndex.close();
+                existingArena.close();
+                log.warn("Local mapping store files are incomplete or from another version; starting empty.");
+                return false;
+            }
+            index = existingIndex;
+            arena = existingArena;
+            capacity = index.getLong(H_CAPACITY);
+            generation = index.getLong(H_GENERATION);
+            size = index.getLong(H_SIZE);
+            used = index.getLong(H_USED);
+            writePosition = arena.getLong(H_WRITE_POSITION);
+            garbage = arena.getLong(H_GARBAGE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not map local mapping store, starting empty: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeHeaders() {
+        index.putLong(H_SIZE, size);
+        index.putLong(H_USED, used);
+        arena.putLong(H_WRITE_POSITION, writePosition);
+        arena.putLong(H_GARBAGE, garbage);
+    }
+
+    private static Path tempPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private static long tableCapacity(long expectedEntries) {
+        long needed = Math.max(1024, (long) (expectedEntries / MAX_LOAD_FACTOR));
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private static long align(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    // Murmur3 finalizer: sequential KGS keys would otherwise cluster in adjacent slots.
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,175 @@
+package com.wastech.url_shortener.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Domain meters for the lookup, shorten, key generation and persistence paths. Every meter is
+ * registered once up front with a fixed, low-cardinality tag set so recording is a field access
+ * plus an atomic update.
+ */
+@Component
+public class ShortenerMetrics {
+
+    /**
+     * Ways a request is still served while Redis or the database is unavailable.
+     */
+    public enum Fallback {
+        /** Redis skipped; the mapping was read from the database. */
+        REDIS_BYPASSED,
+        /** Redirect answered from the in-process degraded-mode cache. */
+        LOCAL_CACHE,
+        /** Shortened without checking for the user's existing link. */
+        DEDUP_SKIPPED,
+        /** Shortened without recording the pending-write overlay. */
+        OVERLAY_SKIPPED,
+        /** Key taken from the instance's local reserve instead of the shared pool. */
+        LOCAL_KEY_RESERVE,
+        /** Link details answered from the cache without the database. */
+        CACHE_ONLY_DETAILS
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer lookupTimer;
+    private final Timer shortenTimer;
+    private final Timer kafkaPublishSuccessTimer;
+    private final Timer kafkaPublishFailureTimer;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter dbFallbacks;
+    private final Counter emergencyKeys;
+    private final AtomicLong keyPoolSize = new AtomicLong();
+    private final AtomicReference<Double> keyPoolDrainRate = new AtomicReference<>(0.0);
+    private final Counter keyPoolRefilledKeys;
+    private final Timer persistenceTimer;
+    private final Timer persistenceLagTimer;
+    private final Counter persistenceDuplicates;
+    private final Map<Fallback, Counter> fallbacks = new EnumMap<>(Fallback.class);
+
+    public ShortenerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        this.lookupTimer = latencyTimer("shortener.lookup", "Time to resolve a short code (getLongUrl)").register(meterRegistry);
+        this.shortenTimer = latencyTimer("shortener.shorten", "Time to shorten a long URL").register(meterRegistry);
+        this.kafkaPublishSuccessTimer = latencyTimer("shortener.kafka.publish", "Time until the persistence topic acknowledges a mapping")
+            .tag("result", "success").register(meterRegistry);
+        this.kafkaPublishFailureTimer = latencyTimer("shortener.kafka.publish", "Time until the persistence topic acknowledges a mapping")
+            .tag("result", "failure").register(meterRegistry);
+
+        this.cacheHits = Counter.builder("shortener.cache.requests").tag("result", "hit")
+            .description("Short code lookups answered by the Redis cache").register(meterRegistry);
+        this.cacheMisses = Counter.builder("shortener.cache.requests").tag("result", "miss")
+            .description("Short code lookups answered by the Redis cache").register(meterRegistry);
+        this.dbFallbacks = Counter.builder("shortener.db.fallback")
+            .description("Cache misses that had to be resolved from Postgres").register(meterRegistry);
+
+        Gauge.builder("shortener.kgs.pool.size", keyPoolSize, AtomicLong::get)
+            .description("Pre-generated keys left in the key pool, as of the last check").register(meterRegistry);
+        this.emergencyKeys = Counter.builder("shortener.kgs.emergency.keys")
+            .description("Keys generated on demand because the key pool was empty").register(meterRegistry);
+        Gauge.builder("shortener.kgs.pool.drain.rate", keyPoolDrainRate, AtomicReference::get)
+            .description("Keys taken from the pool per second across the cluster, exponentially weighted")
+            .baseUnit("keys/s").register(meterRegistry);
+        this.keyPoolRefilledKeys = Counter.builder("shortener.kgs.pool.refilled.keys")
+            .description("Keys added to the pool by refills").register(meterRegistry);
+
+        this.persistenceTimer = latencyTimer("shortener.persistence.process", "Time to persist one mapping from the persistence topic")
+            .register(meterRegistry);
+        this.persistenceLagTimer = Timer.builder("shortener.persistence.lag")
+            .description("Delay between publishing a mapping and the consumer processing it")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(10))
+            .register(meterRegistry);
+        this.persistenceDuplicates = Counter.builder("shortener.persistence.duplicates")
+            .description("Mappings skipped because the short code was already persisted").register(meterRegistry);
+
+        for (Fallback fallback : Fallback.values()) {
+            fallbacks.put(fallback, Counter.builder("shortener.degraded.fallbacks")
+                .description("Requests served through a fallback while a dependency was unavailable")
+                .tag("fallback", fallback.name().toLowerCase())
+                .register(meterRegistry));
+        }
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+            .description(description)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30));
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordLookup(Timer.Sample sample) {
+        sample.stop(lookupTimer);
+    }
+
+    public void recordShorten(Timer.Sample sample) {
+        sample.stop(shortenTimer);
+    }
+
+    public void recordKafkaPublish(Timer.Sample sample, boolean success) {
+        sample.stop(success ? kafkaPublishSuccessTimer : kafkaPublishFailureTimer);
+    }
+
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public void dbFallback() {
+        dbFallbacks.increment();
+    }
+
+    public void keyPoolSize(Long size) {
+        if (size != null) {
+            keyPoolSize.set(size);
+        }
+    }
+
+    public void keyPoolDrainRate(double keysPerSecond) {
+        keyPoolDrainRate.set(keysPerSecond);
+    }
+
+    public void keyPoolRefilled(long keys) {
+        keyPoolRefilledKeys.increment(keys);
+    }
+
+    public void emergencyKeyGenerated() {
+        emergencyKeys.increment();
+    }
+
+    public void recordPersistence(Timer.Sample sample) {
+        sample.stop(persistenceTimer);
+    }
+
+    public void recordPersistenceLag(long publishedAtMillis) {
+        persistenceLagTimer.record(Math.max(0, System.currentTimeMillis() - publishedAtMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public void persistenceDuplicateSkipped() {
+        persistenceDuplicates.increment();
+    }
+
+    public void degradedFallback(Fallback fallback) {
+        fallbacks.get(fallback).increment();
+    }
+}
@@ -2,6 +2,7 @@ package com.wastech.url_shortener.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -9,8 +10,10 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
@@ -40,8 +43,19 @@ public class ShortenedUrl {
     @Column(name = "expires_at")
     private LocalDateTime expiresAt;
 
-    @ManyToOne
+    /** Last change of the mapping itself (not the click count); null if never changed since creation. */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /** JSON list of {@code RedirectRule}s; null for a link that always redirects to {@code longUrl}. */
+    @Column(name = "redirect_rules", columnDefinition = "text")
+    @ToString.Exclude
+    private String redirectRules;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
 
     public ShortenedUrl(String shortCode, String longUrl, User user) {
@@ -0,0 +1,337 @@
+package com.wastech.url_shortener.redirectrules;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A link's rules compiled into lookup tables. Each rule is one bit of a {@code long}; every
+ * dimension maps a visitor attribute to the mask of rules that accept it, with rules that leave
+ * the dimension unconstrained set in every entry. Selecting a target is the AND of four masks and
+ * a trailing-zero count, so evaluation reads only arrays built here and allocates nothing.
+ * <p>
+ * Countries and languages are packed into ints ({@link #countryKey}, {@link #languageKey}) and
+ * looked up by binary search in short sorted arrays; devices index a mask per {@link DeviceClass};
+ * time windows are the only per-rule check. Weighted variants store cumulative weights.
+ */
+public final class CompiledRedirectRules {
+
+    public static final int MAX_RULES = Long.SIZE;
+    public static final int MAX_VARIANTS = 16;
+    public static final int MAX_WEIGHT = 1_000_000;
+
+    /** Key of an absent or unrecognised country or language; matches only unconstrained rules. */
+    public static final int UNKNOWN = 0;
+
+    private static final DeviceClass[] DEVICE_CLASSES = DeviceClass.values();
+
+    private final int[] countryKeys;
+    private final long[] countryMasks;
+    private final long anyCountry;
+
+    private final long[] deviceMasks;
+
+    private final int[] languageKeys;
+    private final long[] languageMasks;
+    private final long anyLanguage;
+
+    private final int[] windowRules;
+    private final long[] windowStarts;
+    private final long[] windowEnds;
+    private final long anyTime;
+
+    /** Variants of rule {@code r} are {@code [variantStarts[r], variantStarts[r + 1])}. */
+    private final int[] variantStarts;
+    private final int[] cumulativeWeights;
+    private final String[] variantUrls;
+
+    private CompiledRedirectRules(int[] countryKeys, long[] countryMasks, long anyCountry, long[] deviceMasks,
+                                  int[] languageKeys, long[] languageMasks, long anyLanguage,
+                                  int[] windowRules, long[] windowStarts, long[] windowEnds, long anyTime,
+                                  int[] variantStarts, int[] cumulativeWeights, String[] variantUrls) {
+        this.countryKeys = countryKeys;
+        this.countryMasks = countryMasks;
+        this.anyCountry = anyCountry;
+        this.deviceMasks = deviceMasks;
+        this.languageKeys = languageKeys;
+        this.languageMasks = languageMasks;
+        this.anyLanguage = anyLanguage;
+        this.windowRules = windowRules;
+        this.windowStarts = windowStarts;
+        this.windowEnds = windowEnds;
+        this.anyTime = anyTime;
+        this.variantStarts = variantStarts;
+        this.cumulativeWeights = cumulativeWeights;
+        this.variantUrls = variantUrls;
+    }
+
+    /**
+     * @return the target of the first matching rule, or {@code null} if none matches and the link's
+     * own URL applies
+     */
+    public String select(int countryKey, DeviceClass device, int languageKey, long nowMillis) {
+        long matching = deviceMasks[device.ordinal()]
+            & lookup(countryKeys, countryMasks, anyCountry, countryKey)
+            & lookup(languageKeys, languageMasks, anyLanguage, languageKey);
+        if (matching == 0) {
+            return null;
+        }
+        long timely = anyTime;
+        for (int i = 0; i < windowRules.length; i++) {
+            if (nowMillis >= windowStarts[i] && nowMillis < windowEnds[i]) {
+                timely |= 1L << windowRules[i];
+            }
+        }
+        matching &= timely;
+        if (matching == 0) {
+            return null;
+        }
+        int rule = Long.numberOfTrailingZeros(matching);
+        int first = variantStarts[rule];
+        int last = variantStarts[rule + 1] - 1;
+        if (first == last) {
+            return variantUrls[first];
+        }
+        int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[last]);
+        int variant = first;
+        while (draw >= cumulativeWeights[variant]) {
+            variant++;
+        }
+        return variantUrls[variant];
+    }
+
+    public int ruleCount() {
+        return variantStarts.length - 1;
+    }
+
+    private static long lookup(int[] keys, long[] masks, long any, int key) {
+        if (key == UNKNOWN || keys.length == 0) {
+            return any;
+        }
+        int index = Arrays.binarySearch(keys, key);
+        return index < 0 ? any : any | masks[index];
+    }
+
+    /**
+     * Packs an ISO 3166-1 alpha-2 code, in either case, into {@code 1..676}. Returns {@link #UNKNOWN}
+     * for anything else, including the {@code XX} and {@code T1} placeholders some CDNs send.
+     */
+    public static int countryKey(CharSequence country) {
+        if (country == null || country.length() != 2) {
+            return UNKNOWN;
+        }
+        int first = letter(country.charAt(0));
+        int second = letter(country.charAt(1));
+        if (first < 0 || second < 0 || (first == 'x' - 'a' && second == 'x' - 'a')) {
+            return UNKNOWN;
+        }
+        return first * 26 + second + 1;
+    }
+
+    /**
+     * Packs the primary subtag of the first Accept-Language entry, e.g. {@code en} of
+     * {@code en-GB,en;q=0.8}, into five bits per letter. Quality values are not weighed: browsers
+     * list the preferred language first.
+     */
+    public static int languageKey(CharSequence acceptLanguage) {
+        if (acceptLanguage == null) {
+            return UNKNOWN;
+        }
+        int length = acceptLanguage.length();
+        int i = 0;
+        while (i < length && acceptLanguage.charAt(i) == ' ') {
+            i++;
+        }
+        int key = 0;
+        int letters = 0;
+        for (; i < length; i++) {
+            int letter = letter(acceptLanguage.charAt(i));
+            if (letter < 0) {
+                break;
+            }
+            if (++letters > 3) {
+                return UNKNOWN;
+            }
+            key = (key << 5) | (letter + 1);
+        }
+        if (letters < 2) {
+            return UNKNOWN;
+        }
+        if (i < length) {
+            char next = acceptLanguage.charAt(i);
+            if (next != '-' && next != '_' && next != ';' && next != ',' && next != ' ') {
+                return UNKNOWN;
+            }
+        }
+        return key;
+    }
+
+    private static int letter(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        return -1;
+    }
+
+    /**
+     * Validates and compiles a link's rules.
+     *
+     * @throws IllegalArgumentException if the rules are malformed; the message names the rule
+     */
+    public static CompiledRedirectRules compile(List<RedirectRule> rules) {
+        if (rules == null || rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one redirect rule is required.");
+        }
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalArgumentException("A link can have at most " + MAX_RULES + " redirect rules.");
+        }
+        TreeMap<Integer, Long> countries = new TreeMap<>();
+        TreeMap<Integer, Long> languages = new TreeMap<>();
+        long anyCountry = 0;
+        long anyLanguage = 0;
+        long anyTime = 0;
+        long[] deviceMasks = new long[DEVICE_CLASSES.length];
+        int windows = 0;
+        int[] windowRules = new int[rules.size()];
+        long[] windowStarts = new long[rules.size()];
+        long[] windowEnds = new long[rules.size()];
+        int[] variantStarts = new int[rules.size() + 1];
+        int variantCount = 0;
+        for (RedirectRule rule : rules) {
+            variantCount += rule != null && rule.getVariants() != null ? rule.getVariants().size() : 1;
+        }
+        int[] cumulativeWeights = new int[variantCount];
+        String[] variantUrls = new String[variantCount];
+
+        int variant = 0;
+        for (int r = 0; r < rules.size(); r++) {
+            RedirectRule rule = rules.get(r);
+            if (rule == null) {
+                throw new IllegalArgumentException("Rule " + (r + 1) + " is empty.");
+            }
+            long bit = 1L << r;
+
+            if (rule.getCountries() == null || rule.getCountries().isEmpty()) {
+                anyCountry |= bit;
+            } else {
+                for (String country : rule.getCountries()) {
+                    int key = countryKey(country);
+                    if (key == UNKNOWN) {
+                        throw new IllegalArgumentException("Rule " + (r + 1) + ": '" + country + "' is not a two-letter country code.");
+                    }
+                    countries.merge(key, bit, (a, b) -> a | b);
+                }
+            }
+
+            if (rule.getDevices() == null || rule.getDevices().isEmpty()) {
+                for (int d = 0; d < deviceMasks.length; d++) {
+                    deviceMasks[d] |= bit;
+                }
+            } else {
+                for (DeviceClass device : rule.getDevices()) {
+                    if (device == null) {
+                        throw new IllegalArgumentException("Rule " + (r + 1) + ": unknown device class.");
+                    }
+                    deviceMasks[device.ordinal()] |= bit;
+                }
+            }
+
+            if (rule.getLanguages() == null || rule.getLanguages().isEmpty()) {
+                anyLanguage |= bit;
+            } else {
+                for (String language : rule.getLanguages()) {
+                    int key = languageKey(language);
+                    if (key == UNKNOWN || language.length() > 3) {
+                        throw new IllegalArgumentException("Rule " + (r + 1) + ": '" + language + "' is not a language subtag.");
+                    }
+                    languages.merge(key, bit, (a, b) -> a | b);
+                }
+            }
+
+            if (rule.getStartsAt() == null && rule.getEndsAt() == null) {
+                anyTime |= bit;
+            } else {
+                long start = toEpochMillis(rule.getStartsAt(), Long.MIN_VALUE);
+                long end = toEpochMillis(rule.getEndsAt(), Long.MAX_VALUE);
+                if (start >= end) {
+                    throw new IllegalArgumentException("Rule " + (r + 1) + ": the time window ends before it starts.");
+                }
+                windowRules[windows] = r;
+                windowStarts[windows] = start;
+                windowEnds[windows] = end;
+                windows++;
+            }
+
+            variantStarts[r] = variant;
+            if (rule.getVariants() == null) {
+                if (rule.getUrl() == null) {
+                    throw new IllegalArgumentException("Rule " + (r + 1) + " needs a url or variants.");
+                }
+                cumulativeWeights[variant] = 1;
+                variantUrls[variant++] = checkUrl(rule.getUrl(), r);
+            } else {
+                if (rule.getUrl() != null) {
+                    throw new IllegalArgumentException("Rule " + (r + 1) + " has both a url and variants.");
+                }
+                if (rule.getVariants().isEmpty() || rule.getVariants().size() > MAX_VARIANTS) {
+                    throw new IllegalArgumentException("Rule " + (r + 1) + " needs 1 to " + MAX_VARIANTS + " variants.");
+                }
+                int total = 0;
+                for (RedirectRule.Variant v : rule.getVariants()) {
+                    if (v == null || v.getWeight() < 1 || v.getWeight() > MAX_WEIGHT) {
+                        throw new IllegalArgumentException("Rule " + (r + 1) + ": variant weights must be between 1 and " + MAX_WEIGHT + ".");
+                    }
+                    total += v.getWeight();
+                    cumulativeWeights[variant] = total;
+                    variantUrls[variant++] = checkUrl(v.getUrl(), r);
+                }
+            }
+        }
+        variantStarts[rules.size()] = variant;
+
+        return new CompiledRedirectRules(
+            countries.keySet().stream().mapToInt(Integer::intValue).toArray(),
+            countries.values().stream().mapToLong(Long::longValue).toArray(),
+            anyCountry,
+            deviceMasks,
+            languages.keySet().stream().mapToInt(Integer::intValue).toArray(),
+            languages.values().stream().mapToLong(Long::longValue).toArray(),
+            anyLanguage,
+            Arrays.copyOf(windowRules, windows),
+            Arrays.copyOf(windowStarts, windows),
+            Arrays.copyOf(windowEnds, windows),
+            anyTime,
+            variantStarts,
+            cumulativeWeights,
+            variantUrls);
+    }
+
+    private static long toEpochMillis(LocalDateTime time, long unbounded) {
+        return time == null ? unbounded : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String checkUrl(String url, int rule) {
+        if (url == null || url.isBlank() || url.length() > 2048) {
+            throw new IllegalArgumentException("Rule " + (rule + 1) + ": target URLs must be 1 to 2048 characters.");
+        }
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+            if (!(scheme.equals("http") || scheme.equals("https")) || uri.getHost() == null) {
+                throw new IllegalArgumentException("Rule " + (rule + 1) + ": '" + url + "' is not an absolute http(s) URL.");
+            }
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Rule " + (rule + 1) + ": '" + url + "' is not a valid URL.");
+        }
+        return url;
+    }
+}
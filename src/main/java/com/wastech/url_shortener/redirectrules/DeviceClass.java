@@ -0,0 +1,8 @@
+package com.wastech.url_shortener.redirectrules;
+
+public enum DeviceClass {
+    DESKTOP,
+    MOBILE,
+    TABLET,
+    BOT
+}
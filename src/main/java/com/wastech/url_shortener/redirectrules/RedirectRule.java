@@ -0,0 +1,45 @@
+package com.wastech.url_shortener.redirectrules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One conditional target of a link, as submitted and as stored in {@code redirect_rules}. Every
+ * condition left empty matches any visitor; the first rule whose conditions all match picks the
+ * target. A rule has either a single {@code url} or weighted {@code variants} for an A/B split.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedirectRule {
+
+    /** ISO 3166-1 alpha-2 codes as sent in the country header, e.g. {@code US}. */
+    private List<String> countries;
+
+    private List<DeviceClass> devices;
+
+    /** Primary language subtags, e.g. {@code en}; matched against the first Accept-Language entry. */
+    private List<String> languages;
+
+    /** Inclusive start of the time window, server time; null for no lower bound. */
+    private LocalDateTime startsAt;
+
+    /** Exclusive end of the time window, server time; null for no upper bound. */
+    private LocalDateTime endsAt;
+
+    private String url;
+
+    private List<Variant> variants;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+        private String url;
+        private int weight;
+    }
+}
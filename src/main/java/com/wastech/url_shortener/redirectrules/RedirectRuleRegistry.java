@@ -0,0 +1,142 @@
+package com.wastech.url_shortener.redirectrules;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wastech.url_shortener.model.ShortenedUrl;
+import com.wastech.url_shortener.repository.ShortenedUrlRepository;
+import com.wastech.url_shortener.sharding.ShardedShortenedUrlRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled redirect rules of every link that has any, held in memory on each instance. Links with
+ * rules are few and a miss here must not cost a database read on the redirect path, so the whole
+ * set is loaded up front rather than on demand; a lookup is a single map read.
+ * <p>
+ * Entries carry the link's {@code updated_at} as a version and only newer versions replace them,
+ * so a full reload that read a row before a concurrent change cannot undo it. Cleared and deleted
+ * rules leave an empty entry until the next reload finds the row without rules.
+ */
+@Component
+@Slf4j
+public class RedirectRuleRegistry {
+
+    private record Entry(CompiledRedirectRules rules, long version) {
+    }
+
+    private static final TypeReference<List<RedirectRule>> RULE_LIST = new TypeReference<>() {
+    };
+
+    private final ShortenedUrlRepository shortenedUrlRepository;
+    private final ObjectProvider<ShardedShortenedUrlRepository> shardedRepositoryProvider;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public RedirectRuleRegistry(ShortenedUrlRepository shortenedUrlRepository,
+                                ObjectProvider<ShardedShortenedUrlRepository> shardedRepositoryProvider,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry) {
+        this.shortenedUrlRepository = shortenedUrlRepository;
+        this.shardedRepositoryProvider = shardedRepositoryProvider;
+        this.objectMapper = objectMapper;
+        Gauge.builder("shortener.redirect.rules.links", entries, map -> map.values().stream().filter(e -> e.rules() != null).count())
+            .description("Links with compiled redirect rules on this instance")
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the link's compiled rules, or {@code null} if it has none
+     */
+    public CompiledRedirectRules find(String shortCode) {
+        Entry entry = entries.get(shortCode);
+        return entry == null ? null : entry.rules();
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.redirect-rules.refresh-interval-ms:300000}")
+    public void reload() {
+        long startedAt = System.currentTimeMillis();
+        List<ShortenedUrl> withRules;
+        try {
+            ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+            withRules = sharded != null ? sharded.findWithRedirectRules() : shortenedUrlRepository.findByRedirectRulesIsNotNull();
+        } catch (RuntimeException e) {
+            log.warn("Could not reload redirect rules; keeping the {} loaded links: {}", entries.size(), e.getMessage());
+            return;
+        }
+        Set<String> present = new HashSet<>();
+        for (ShortenedUrl url : withRules) {
+            present.add(url.getShortCode());
+            apply(url.getShortCode(), url.getRedirectRules(), versionOf(url));
+        }
+        // Entries changed after the scan started may not be in it yet
+        entries.entrySet().removeIf(e -> !present.contains(e.getKey()) && e.getValue().version() < startedAt);
+        log.debug("Loaded redirect rules for {} links.", present.size());
+    }
+
+    /**
+     * Re-reads one link after a change elsewhere in the cluster.
+     */
+    public void refresh(String shortCode) {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        Optional<ShortenedUrl> url = sharded != null ? sharded.findByShortCode(shortCode) : shortenedUrlRepository.findByShortCode(shortCode);
+        if (url.isEmpty()) {
+            remove(shortCode);
+            return;
+        }
+        apply(shortCode, url.get().getRedirectRules(), versionOf(url.get()));
+    }
+
+    public void remove(String shortCode) {
+        apply(shortCode, null, System.currentTimeMillis());
+    }
+
+    /**
+     * Serializes rules for the {@code redirect_rules} column.
+     */
+    public String toJson(List<RedirectRule> rules) {
+        try {
+            return objectMapper.writeValueAsString(rules);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Redirect rules cannot be serialized: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private void apply(String shortCode, String json, long version) {
+        Entry current = entries.get(shortCode);
+        if (current != null && current.version() > version) {
+            return;
+        }
+        if (current != null && current.version() == version && (json == null) == (current.rules() == null)) {
+            return; // Unchanged since it was compiled
+        }
+        Entry compiled = new Entry(json == null ? null : compile(shortCode, json), version);
+        entries.merge(shortCode, compiled, (existing, candidate) -> existing.version() > candidate.version() ? existing : candidate);
+    }
+
+    private CompiledRedirectRules compile(String shortCode, String json) {
+        try {
+            return CompiledRedirectRules.compile(objectMapper.readValue(json, RULE_LIST));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.warn("Ignoring unreadable redirect rules of short code {}: {}", shortCode, e.getMessage());
+            return null;
+        }
+    }
+
+    private static long versionOf(ShortenedUrl url) {
+        LocalDateTime changed = url.getUpdatedAt() != null ? url.getUpdatedAt() : url.getCreatedAt();
+        return changed == null ? 0 : changed.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,9 @@
+package com.wastech.url_shortener.redirectrules;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RedirectRulesProperties.class)
+public class RedirectRulesConfig {
+}
@@ -0,0 +1,18 @@
+package com.wastech.url_shortener.redirectrules;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.redirect-rules")
+public class RedirectRulesProperties {
+
+    /** Request header carrying the visitor's country, set by the CDN or load balancer. */
+    private String countryHeader = "CF-IPCountry";
+
+    /**
+     * Full reload of every link with rules. Changes arrive through the mapping changelog within
+     * moments; the reload only repairs changes this instance missed while it was not consuming.
+     */
+    private long refreshIntervalMs = 300_000;
+}
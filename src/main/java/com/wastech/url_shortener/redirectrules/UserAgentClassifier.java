@@ -0,0 +1,149 @@
+package com.wastech.url_shortener.redirectrules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Classifies a User-Agent header into a {@link DeviceClass} in one pass and without allocating.
+ * The marker tokens are compiled once into an Aho-Corasick automaton over lower-cased ASCII, with
+ * every missing transition resolved through the failure links up front, so each character costs
+ * one table lookup however many tokens overlap. Characters outside ASCII cannot be part of a token
+ * and reset the automaton.
+ * <p>
+ * Precedence follows the usual convention: bots, then tablets (including Android without
+ * {@code Mobile}), then phones; anything else counts as a desktop.
+ */
+public final class UserAgentClassifier {
+
+    private static final int BOT = 1;
+    private static final int TABLET = 1 << 1;
+    private static final int MOBILE = 1 << 2;
+    private static final int ANDROID = 1 << 3;
+
+    private static final Map<String, Integer> TOKENS = Map.ofEntries(
+        Map.entry("bot", BOT),
+        Map.entry("crawler", BOT),
+        Map.entry("spider", BOT),
+        Map.entry("slurp", BOT),
+        Map.entry("facebookexternalhit", BOT),
+        Map.entry("headlesschrome", BOT),
+        Map.entry("curl/", BOT),
+        Map.entry("wget/", BOT),
+        Map.entry("python-requests", BOT),
+        Map.entry("ipad", TABLET),
+        Map.entry("tablet", TABLET),
+        Map.entry("kindle", TABLET),
+        Map.entry("silk/", TABLET),
+        Map.entry("playbook", TABLET),
+        Map.entry("mobile", MOBILE),
+        Map.entry("iphone", MOBILE),
+        Map.entry("ipod", MOBILE),
+        Map.entry("windows phone", MOBILE),
+        Map.entry("opera mini", MOBILE),
+        Map.entry("blackberry", MOBILE),
+        Map.entry("android", ANDROID));
+
+    private static final int ALPHABET = 128;
+
+    /** Longer headers are classified by their prefix; the markers appear early in practice. */
+    private static final int MAX_SCANNED = 512;
+
+    private static final int[] TRANSITIONS;
+    private static final int[] OUTPUTS;
+
+    static {
+        List<int[]> gotos = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        gotos.add(emptyRow());
+        outputs.add(0);
+        for (Map.Entry<String, Integer> token : TOKENS.entrySet()) {
+            int state = 0;
+            for (char c : token.getKey().toLowerCase(Locale.ROOT).toCharArray()) {
+                if (gotos.get(state)[c] < 0) {
+                    gotos.get(state)[c] = gotos.size();
+                    gotos.add(emptyRow());
+                    outputs.add(0);
+                }
+                state = gotos.get(state)[c];
+            }
+            outputs.set(state, outputs.get(state) | token.getValue());
+        }
+
+        int states = gotos.size();
+        int[] transitions = new int[states * ALPHABET];
+        int[] output = new int[states];
+        int[] failure = new int[states];
+        for (int state = 0; state < states; state++) {
+            output[state] = outputs.get(state);
+        }
+        // Breadth-first, so a state's failure target is complete before the state itself
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = gotos.get(0)[c];
+            transitions[c] = Math.max(next, 0);
+            if (next > 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            output[state] |= output[failure[state]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = gotos.get(state)[c];
+                if (next > 0) {
+                    failure[next] = transitions[failure[state] * ALPHABET + c];
+                    transitions[state * ALPHABET + c] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * ALPHABET + c] = transitions[failure[state] * ALPHABET + c];
+                }
+            }
+        }
+        TRANSITIONS = transitions;
+        OUTPUTS = output;
+    }
+
+    private UserAgentClassifier() {
+    }
+
+    public static DeviceClass classify(CharSequence userAgent) {
+        if (userAgent == null) {
+            return DeviceClass.DESKTOP;
+        }
+        int flags = 0;
+        int state = 0;
+        int length = Math.min(userAgent.length(), MAX_SCANNED);
+        for (int i = 0; i < length; i++) {
+            char c = userAgent.charAt(i);
+            if (c >= ALPHABET) {
+                state = 0;
+                continue;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            state = TRANSITIONS[state * ALPHABET + c];
+            flags |= OUTPUTS[state];
+        }
+        if ((flags & BOT) != 0) {
+            return DeviceClass.BOT;
+        }
+        if ((flags & TABLET) != 0 || ((flags & ANDROID) != 0 && (flags & MOBILE) == 0)) {
+            return DeviceClass.TABLET;
+        }
+        if ((flags & MOBILE) != 0) {
+            return DeviceClass.MOBILE;
+        }
+        return DeviceClass.DESKTOP;
+    }
+
+    private static int[] emptyRow() {
+        int[] row = new int[ALPHABET];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
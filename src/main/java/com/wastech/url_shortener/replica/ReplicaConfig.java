@@ -0,0 +1,44 @@
+package com.wastech.url_shortener.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             ReplicaProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        List<ReplicaProperties.Replica> nodes = properties.getNodes();
+        if (nodes.isEmpty()) {
+            throw new IllegalStateException("app.datasource.replicas.enabled is set but no replica nodes are configured.");
+        }
+        LinkedHashMap<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ReplicaProperties.Replica node = nodes.get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(node.getUrl());
+            dataSource.setUsername(node.getUsername());
+            dataSource.setPassword(node.getPassword());
+            dataSource.setMaximumPoolSize(node.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            replicas.put("replica-" + i, dataSource);
+        }
+        ReplicaRoutingDataSource routingDataSource =
+            new ReplicaRoutingDataSource(primaryDataSource, replicas, properties.getMaxStalenessMs(), meterRegistry);
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+}
@@ -0,0 +1,43 @@
+package com.wastech.url_shortener.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound override for {@link ReplicaRoutingDataSource}. Without one, read-only transactions
+ * go to a replica and everything else to the primary.
+ */
+public final class ReplicaContext {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Target> CURRENT_TARGET = new ThreadLocal<>();
+
+    private ReplicaContext() {
+    }
+
+    static Target current() {
+        return CURRENT_TARGET.get();
+    }
+
+    public static <T> T onReplica(Supplier<T> work) {
+        return callWith(Target.REPLICA, work);
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        return callWith(Target.PRIMARY, work);
+    }
+
+    private static <T> T callWith(Target target, Supplier<T> work) {
+        Target previous = CURRENT_TARGET.get();
+        CURRENT_TARGET.set(target);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_TARGET.remove();
+            } else {
+                CURRENT_TARGET.set(previous);
+            }
+        }
+    }
+}
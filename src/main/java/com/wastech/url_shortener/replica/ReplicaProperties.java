@@ -0,0 +1,29 @@
+package com.wastech.url_shortener.replica;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.replicas")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    /** Replicas lagging the primary by more than this are skipped until they catch up. */
+    private long maxStalenessMs = 5000;
+
+    private long healthCheckIntervalMs = 2000;
+
+    private List<Replica> nodes = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
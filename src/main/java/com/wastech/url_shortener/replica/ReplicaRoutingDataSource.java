@@ -0,0 +1,144 @@
+package com.wastech.url_shortener.replica;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends read-only transactions (and work wrapped in {@link ReplicaContext#onReplica}) to a healthy
+ * replica, round-robin, and everything else to the primary. A replica is taken out of rotation
+ * when its replay lag exceeds the configured max staleness or it cannot hand out a connection,
+ * and the primary serves its reads until the next health check succeeds. Must sit behind a
+ * {@code LazyConnectionDataSourceProxy} so the read-only flag is known before the connection is chosen.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    // A caught-up replica reports 0 even when the primary is idle; a standalone stand-in (tests) reports 0 as well.
+    private static final String LAG_SQL =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint END";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaKeys;
+    private final Map<String, JdbcTemplate> healthChecks = new HashMap<>();
+    private final Map<String, Boolean> healthy = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> lagMs = new HashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final long maxStalenessMs;
+
+    public ReplicaRoutingDataSource(DataSource primary, LinkedHashMap<String, DataSource> replicas,
+                                    long maxStalenessMs, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.replicaKeys = new ArrayList<>(replicas.keySet());
+        this.maxStalenessMs = maxStalenessMs;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        for (String key : replicaKeys) {
+            healthChecks.put(key, new JdbcTemplate(replicas.get(key)));
+            healthy.put(key, Boolean.TRUE);
+            AtomicLong lag = new AtomicLong();
+            lagMs.put(key, lag);
+            Gauge.builder("shortener.db.replica.lag", lag, AtomicLong::get)
+                .description("Replay lag of the replica behind the primary")
+                .baseUnit("milliseconds")
+                .tag("replica", key)
+                .register(meterRegistry);
+            Gauge.builder("shortener.db.replica.healthy", healthy, h -> h.get(key) ? 1 : 0)
+                .description("Whether the replica is currently serving reads")
+                .tag("replica", key)
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        ReplicaContext.Target target = ReplicaContext.current();
+        boolean readOnly = target == ReplicaContext.Target.REPLICA
+            || (target == null && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        return readOnly ? pickReplica() : PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            markUnhealthy((String) key, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-check-interval-ms:2000}")
+    public void checkReplicas() {
+        for (String key : replicaKeys) {
+            try {
+                Long lag = healthChecks.get(key).queryForObject(LAG_SQL, Long.class);
+                long current = lag == null ? Long.MAX_VALUE : lag;
+                lagMs.get(key).set(current);
+                if (current > maxStalenessMs) {
+                    markUnhealthy(key, "replay lag " + current + "ms exceeds " + maxStalenessMs + "ms");
+                } else if (healthy.put(key, Boolean.TRUE) == Boolean.FALSE) {
+                    log.info("Replica {} is back in rotation (lag {}ms).", key, current);
+                }
+            } catch (Exception e) {
+                markUnhealthy(key, e.getMessage());
+            }
+        }
+    }
+
+    public void close() throws Exception {
+        for (DataSource dataSource : replicas.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private String pickReplica() {
+        int size = replicaKeys.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            String key = replicaKeys.get((start + i) % size);
+            if (healthy.get(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private void markUnhealthy(String key, String reason) {
+        if (healthy.put(key, Boolean.FALSE) == Boolean.TRUE) {
+            log.warn("Replica {} taken out of rotation, reads fall back to the primary: {}", key, reason);
+        }
+    }
+}
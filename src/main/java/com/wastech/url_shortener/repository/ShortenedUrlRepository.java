@@ -1,17 +1,33 @@
 package com.wastech.url_shortener.repository;
 
+import com.wastech.url_shortener.dto.ShortenedUrlSummary;
 import com.wastech.url_shortener.model.ShortenedUrl;
 import com.wastech.url_shortener.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ShortenedUrlRepository extends JpaRepository<ShortenedUrl, Long> {
+public interface ShortenedUrlRepository extends JpaRepository<ShortenedUrl, Long>, ShortenedUrlRepositoryCustom {
     Optional<ShortenedUrl> findByShortCode(String shortCode);
     Optional<ShortenedUrl> findByLongUrl(String longUrl);
     List<ShortenedUrl> findByUser(User user);
+    List<ShortenedUrl> findByRedirectRulesIsNotNull();
     Optional<ShortenedUrl> findByIdAndUser(Long id, User user);
+
+    Optional<ShortenedUrlSummary> findSummaryByShortCode(String shortCode);
+    Optional<ShortenedUrlSummary> findFirstSummaryByUserIdAndLongUrl(Long userId, String longUrl);
+    List<ShortenedUrlSummary> findSummariesByUserId(Long userId);
+    List<ShortenedUrlSummary> findAllProjectedBy();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ShortenedUrl s SET s.clickCount = s.clickCount + 1 WHERE s.shortCode = :shortCode")
+    int incrementClickCount(@Param("shortCode") String shortCode);
 }
\ No newline at end of file
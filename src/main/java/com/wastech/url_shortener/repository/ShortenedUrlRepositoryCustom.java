@@ -0,0 +1,15 @@
+package com.wastech.url_shortener.repository;
+
+import com.wastech.url_shortener.dto.ShortenedUrlSummary;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ShortenedUrlRepositoryCustom {
+
+    /**
+     * Loads every mapping among {@code shortCodes} with one {@code short_code = ANY(?)} query, so the
+     * statement stays the same whatever the batch size. Codes that do not exist are simply absent.
+     */
+    List<ShortenedUrlSummary> findSummariesByShortCodes(Collection<String> shortCodes);
+}
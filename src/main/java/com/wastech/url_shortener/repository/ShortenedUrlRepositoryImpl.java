@@ -0,0 +1,50 @@
+package com.wastech.url_shortener.repository;
+
+import com.wastech.url_shortener.dto.ShortenedUrlSummary;
+import com.wastech.url_shortener.dto.ShortenedUrlSummaryRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+public class ShortenedUrlRepositoryImpl implements ShortenedUrlRepositoryCustom {
+
+    public static final String SUMMARY_COLUMNS = "short_code, long_url, click_count, expires_at, updated_at";
+
+    public static final String FIND_BY_SHORT_CODES_SQL =
+        "SELECT " + SUMMARY_COLUMNS + " FROM shortened_urls WHERE short_code = ANY(?)";
+
+    public static final RowMapper<ShortenedUrlSummary> SUMMARY_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp expiresAt = rs.getTimestamp("expires_at");
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        return new ShortenedUrlSummaryRow(
+            rs.getString("short_code"),
+            rs.getString("long_url"),
+            rs.getLong("click_count"),
+            expiresAt == null ? null : expiresAt.toLocalDateTime(),
+            updatedAt == null ? null : updatedAt.toLocalDateTime());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShortenedUrlRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<ShortenedUrlSummary> findSummariesByShortCodes(Collection<String> shortCodes) {
+        return findSummariesByShortCodes(jdbcTemplate, shortCodes);
+    }
+
+    public static List<ShortenedUrlSummary> findSummariesByShortCodes(JdbcTemplate jdbcTemplate, Collection<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return List.of();
+        }
+        Object[] codes = shortCodes.toArray();
+        return jdbcTemplate.query(FIND_BY_SHORT_CODES_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", codes)),
+            SUMMARY_ROW_MAPPER);
+    }
+}
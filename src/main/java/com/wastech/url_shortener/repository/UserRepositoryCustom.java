@@ -0,0 +1,15 @@
+package com.wastech.url_shortener.repository;
+
+import com.wastech.url_shortener.model.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Loads a user through Hibernate's natural-id API so the username → id mapping, the user row
+     * and its roles can all be served from the second-level cache. Roles are initialized before
+     * returning, since the user outlives the session as the authentication principal.
+     */
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,253 @@
+package com.wastech.url_shortener.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker for one dependency. Outcomes are counted in one-second buckets over a sliding
+ * window; once the window holds enough calls and the share of failed or slow ones reaches the
+ * threshold, the breaker opens and callers fail at once instead of waiting for the dependency's
+ * timeout. After the open interval a few trial calls are let through: if they all succeed the
+ * breaker closes, and any failure opens it again.
+ * <p>
+ * The closed path is a state read, a clock read and two atomic increments. Buckets are reset
+ * without a lock, so a call racing a bucket rollover may be lost; the rates are estimates.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final boolean enabled;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final int windowSeconds;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAtNanos;
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+    private final AtomicLongArray bucketSeconds;
+    private final AtomicLongArray bucketCalls;
+    private final AtomicLongArray bucketFailures;
+
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter slowCalls;
+    private final Counter rejections;
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+
+    public CircuitBreaker(String name, CircuitBreakerProperties.Settings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = settings.isEnabled();
+        this.failureRateThreshold = settings.getFailureRateThreshold();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(settings.getSlowCallMs());
+        this.minimumCalls = settings.getMinimumCalls();
+        this.windowSeconds = settings.getWindowSeconds();
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(settings.getOpenMs());
+        this.halfOpenCalls = settings.getHalfOpenCalls();
+        this.bucketSeconds = new AtomicLongArray(windowSeconds);
+        this.bucketCalls = new AtomicLongArray(windowSeconds);
+        this.bucketFailures = new AtomicLongArray(windowSeconds);
+
+        Gauge.builder("shortener.circuit.state", state, s -> s.get().ordinal())
+            .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+            .tag("name", name)
+            .register(meterRegistry);
+        this.successes = callCounter(meterRegistry, "success");
+        this.failures = callCounter(meterRegistry, "failure");
+        this.slowCalls = callCounter(meterRegistry, "slow");
+        this.rejections = callCounter(meterRegistry, "rejected");
+        for (State target : State.values()) {
+            transitions.put(target, Counter.builder("shortener.circuit.transitions")
+                .description("Circuit breaker state changes")
+                .tag("name", name)
+                .tag("to", target.name().toLowerCase())
+                .register(meterRegistry));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Share of failed or slow calls in the current window, or 0 below the minimum call count.
+     */
+    public double getFailureRate() {
+        long now = nowSeconds();
+        long calls = 0;
+        long failed = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            if (now - bucketSeconds.get(i) < windowSeconds) {
+                calls += bucketCalls.get(i);
+                failed += bucketFailures.get(i);
+            }
+        }
+        return calls < minimumCalls ? 0 : (double) failed / calls;
+    }
+
+    /**
+     * Runs the call unless the breaker is open. Exceptions matching {@code isFailure} count against
+     * the dependency; any other exception means it answered and counts as a success.
+     *
+     * @throws RuntimeException from {@code whenOpen} if the call was not permitted
+     */
+    public <T> T execute(Supplier<T> call, Predicate<Throwable> isFailure, Supplier<? extends RuntimeException> whenOpen) {
+        if (!tryAcquire()) {
+            throw whenOpen.get();
+        }
+        long started = System.nanoTime();
+        try {
+            T result = call.get();
+            onSuccess(System.nanoTime() - started);
+            return result;
+        } catch (RuntimeException e) {
+            if (isFailure.test(e)) {
+                onFailure();
+            } else {
+                onSuccess(System.nanoTime() - started);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Whether a call would currently be let through, without taking a trial permit. Lets callers
+     * that do not run the guarded call themselves fail fast before doing any other work.
+     */
+    public boolean isCallPermitted() {
+        return !enabled || state.get() != State.OPEN || System.nanoTime() - openedAtNanos >= openNanos;
+    }
+
+    public boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                rejections.increment();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                halfOpenSuccesses.set(0);
+                halfOpenPermits.set(halfOpenCalls);
+                transitioned(State.HALF_OPEN);
+            }
+        }
+        if (halfOpenPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    public void onSuccess(long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        if (slowCallNanos > 0 && durationNanos >= slowCallNanos) {
+            slowCalls.increment();
+            recordFailure();
+            return;
+        }
+        successes.increment();
+        record(false);
+        if (state.get() == State.HALF_OPEN && halfOpenSuccesses.incrementAndGet() >= halfOpenCalls
+            && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            resetWindow();
+            transitioned(State.CLOSED);
+        }
+    }
+
+    public void onFailure() {
+        if (!enabled) {
+            return;
+        }
+        failures.increment();
+        recordFailure();
+    }
+
+    private void recordFailure() {
+        record(true);
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (current == State.CLOSED && getFailureRate() >= failureRateThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State from) {
+        openedAtNanos = System.nanoTime();
+        if (state.compareAndSet(from, State.OPEN)) {
+            transitioned(State.OPEN);
+        }
+    }
+
+    private void transitioned(State to) {
+        transitions.get(to).increment();
+        if (to == State.OPEN) {
+            log.warn("Circuit breaker '{}' opened; calls fail fast for the next {} ms.", name, TimeUnit.NANOSECONDS.toMillis(openNanos));
+        } else {
+            log.info("Circuit breaker '{}' is {}.", name, to.name().toLowerCase().replace('_', '-'));
+        }
+    }
+
+    private void record(boolean failed) {
+        long now = nowSeconds();
+        int index = (int) (now % windowSeconds);
+        long stamp = bucketSeconds.get(index);
+        if (stamp != now && bucketSeconds.compareAndSet(index, stamp, now)) {
+            bucketCalls.set(index, 0);
+            bucketFailures.set(index, 0);
+        }
+        bucketCalls.incrementAndGet(index);
+        if (failed) {
+            bucketFailures.incrementAndGet(index);
+        }
+    }
+
+    private void resetWindow() {
+        for (int i = 0; i < windowSeconds; i++) {
+            bucketCalls.set(i, 0);
+            bucketFailures.set(i, 0);
+        }
+    }
+
+    private static long nowSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    private Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("shortener.circuit.calls")
+            .description("Calls through a circuit breaker by outcome")
+            .tag("name", name)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
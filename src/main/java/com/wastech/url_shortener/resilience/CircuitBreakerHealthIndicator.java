@@ -0,0 +1,39 @@
+package com.wastech.url_shortener.resilience;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reports {@code DEGRADED} while any breaker is open or half-open. The instance still serves in
+ * that state, so the status maps to HTTP 200 and ranks between {@code UP} and {@code DOWN}; see
+ * {@code management.endpoint.health.status} in application.yml.
+ */
+@Component("circuitBreakersHealthIndicator")
+public class CircuitBreakerHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "Serving with fallbacks while a dependency is unavailable");
+
+    private final DependencyBreakers breakers;
+
+    public CircuitBreakerHealthIndicator(DependencyBreakers breakers) {
+        this.breakers = breakers;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+        for (CircuitBreaker breaker : breakers.all()) {
+            if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+                builder.status(DEGRADED);
+            }
+            builder.withDetail(breaker.getName(), Map.of(
+                "state", breaker.getState().name(),
+                "failureRate", breaker.getFailureRate()));
+        }
+        return builder.build();
+    }
+}
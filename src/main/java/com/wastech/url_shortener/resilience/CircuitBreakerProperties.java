@@ -0,0 +1,55 @@
+package com.wastech.url_shortener.resilience;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    /** Guards every Redis command, pipeline and script sent through the string template. */
+    private Settings redis = new Settings(200);
+
+    /**
+     * Guards borrowing a database connection. Only failed borrows count: a slow borrow usually means
+     * the pool is busy, not that Postgres is gone, and the pool's own timeout turns a borrow that
+     * waits too long into a failure.
+     */
+    private Settings database = new Settings();
+
+    /** Entries kept for redirects served while Redis is unavailable. */
+    private long degradedCacheSize = 100_000;
+
+    /** How long such an entry may be served; bounds staleness once Redis is back. */
+    private long degradedCacheTtlSeconds = 60;
+
+    @Data
+    public static class Settings {
+
+        private boolean enabled = true;
+
+        /** Share of failed or slow calls in the window that opens the breaker. */
+        private double failureRateThreshold = 0.5;
+
+        /** Calls slower than this count as failures; 0 counts only calls that fail. */
+        private long slowCallMs;
+
+        /** Calls the window must hold before the failure rate is trusted. */
+        private int minimumCalls = 20;
+
+        private int windowSeconds = 10;
+
+        /** How long an open breaker fails calls before letting trial calls through. */
+        private long openMs = 5000;
+
+        /** Trial calls that must all succeed to close the breaker again. */
+        private int halfOpenCalls = 5;
+
+        public Settings() {
+        }
+
+        Settings(long slowCallMs) {
+            this.slowCallMs = slowCallMs;
+        }
+    }
+}
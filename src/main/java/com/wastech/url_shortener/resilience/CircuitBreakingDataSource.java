@@ -0,0 +1,57 @@
+package com.wastech.url_shortener.resilience;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Borrows connections through the database circuit breaker. While Postgres is unreachable every
+ * borrow would wait out the pool's connection timeout; once the breaker has opened it fails at
+ * once instead. The SQL state marks the failure as a connection error, so Hibernate and Spring
+ * translate it like any other lost connection.
+ * <p>
+ * Only borrows that fail count against the database, including those that time out waiting for the
+ * pool. Waiting for a busy pool is not an outage, so borrow time is not measured.
+ */
+public class CircuitBreakingDataSource extends DelegatingDataSource {
+
+    private static final String CONNECTION_FAILURE_STATE = "08001";
+
+    private final CircuitBreaker breaker;
+
+    public CircuitBreakingDataSource(DataSource target, CircuitBreaker breaker) {
+        super(target);
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return borrow(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return borrow(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private interface Borrow {
+        Connection get() throws SQLException;
+    }
+
+    private Connection borrow(Borrow borrow) throws SQLException {
+        if (!breaker.tryAcquire()) {
+            throw new SQLTransientConnectionException("Database circuit breaker is open.", CONNECTION_FAILURE_STATE);
+        }
+        try {
+            Connection connection = borrow.get();
+            breaker.onSuccess(0);
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+    }
+}
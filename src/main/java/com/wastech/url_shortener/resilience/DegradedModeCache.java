@@ -0,0 +1,40 @@
+package com.wastech.url_shortener.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wastech.url_shortener.dto.RedirectTarget;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived in-process copy of mappings, used only while Redis is unavailable. Without it every
+ * redirect during a Redis outage would become a database read; with it a hot link costs one read
+ * per instance per TTL. It is neither read nor written while Redis answers, so it never competes
+ * with the local off-heap store.
+ */
+@Component
+public class DegradedModeCache {
+
+    private final Cache<String, RedirectTarget> cache;
+
+    public DegradedModeCache(CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(properties.getDegradedCacheSize())
+            .expireAfterWrite(Duration.ofSeconds(properties.getDegradedCacheTtlSeconds()))
+            .build();
+        Gauge.builder("shortener.degraded.cache.size", cache, Cache::estimatedSize)
+            .description("Mappings held for serving redirects while Redis is unavailable")
+            .register(meterRegistry);
+    }
+
+    public RedirectTarget get(String shortCode) {
+        return cache.getIfPresent(shortCode);
+    }
+
+    public void put(String shortCode, RedirectTarget target) {
+        cache.put(shortCode, target);
+    }
+}
@@ -0,0 +1,48 @@
+package com.wastech.url_shortener.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.List;
+
+/**
+ * The circuit breakers of the two stateful dependencies. The Redis breaker sits in the string
+ * template, the database breaker where a connection is borrowed from the pool, so every caller is
+ * covered without wrapping call sites one by one.
+ */
+@Component
+public class DependencyBreakers {
+
+    private final CircuitBreaker redis;
+    private final CircuitBreaker database;
+
+    public DependencyBreakers(CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        this.redis = new CircuitBreaker("redis", properties.getRedis(), meterRegistry);
+        this.database = new CircuitBreaker("database", properties.getDatabase(), meterRegistry);
+    }
+
+    public CircuitBreaker redis() {
+        return redis;
+    }
+
+    public CircuitBreaker database() {
+        return database;
+    }
+
+    public List<CircuitBreaker> all() {
+        return List.of(redis, database);
+    }
+
+    /**
+     * Whether the exception means the dependency could not be reached or did not answer in time, as
+     * opposed to an answer the caller did not like (a constraint violation, a bad script).
+     */
+    public static boolean isUnavailable(Throwable e) {
+        return e instanceof DataAccessResourceFailureException
+            || e instanceof TransientDataAccessException
+            || e instanceof CannotCreateTransactionException;
+    }
+}
@@ -0,0 +1,9 @@
+package com.wastech.url_shortener.resilience;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CircuitBreakerProperties.class)
+public class ResilienceConfig {
+}
@@ -0,0 +1,100 @@
+package com.wastech.url_shortener.security;
+
+import com.wastech.url_shortener.exception.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a small pool of its own so a burst of logins cannot occupy the request
+ * threads that serve redirects. The queue is bounded and a full queue fails the submission at once
+ * with {@link PasswordHashingOverloadedException} instead of letting requests pile up. Work already
+ * running on a hashing thread, such as the hash check inside an asynchronous login, runs inline.
+ */
+@Slf4j
+public class PasswordHashingExecutor {
+
+    private static final ThreadLocal<Boolean> HASHING_THREAD = ThreadLocal.withInitial(() -> false);
+
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWait;
+    private final Counter rejections;
+
+    public PasswordHashingExecutor(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        int threads = properties.getThreads() > 0
+            ? properties.getThreads()
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    HASHING_THREAD.set(true);
+                    runnable.run();
+                }, "password-hash-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        this.queueWait = Timer.builder("shortener.password.hash.wait")
+            .description("Time password hashing work waited for a hashing thread")
+            .register(meterRegistry);
+        this.rejections = Counter.builder("shortener.password.hash.rejected")
+            .description("Logins and registrations refused because the hashing queue was full")
+            .register(meterRegistry);
+        Gauge.builder("shortener.password.hash.queue", executor, pool -> pool.getQueue().size())
+            .description("Password hashing work waiting for a thread")
+            .register(meterRegistry);
+        log.info("Password hashing on {} threads with a queue of {}.", threads, properties.getQueueCapacity());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @throws PasswordHashingOverloadedException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new PasswordHashingOverloadedException("Too many logins in progress; try again shortly.");
+        }
+    }
+
+    /**
+     * Runs the task on a hashing thread and waits for it, or runs it directly if already on one.
+     */
+    public <T> T call(Supplier<T> task) {
+        if (HASHING_THREAD.get()) {
+            return task.get();
+        }
+        try {
+            return submit(task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
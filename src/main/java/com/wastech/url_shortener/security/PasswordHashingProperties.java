@@ -0,0 +1,21 @@
+package com.wastech.url_shortener.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.password-hashing")
+public class PasswordHashingProperties {
+
+    /**
+     * BCrypt cost for new hashes. Each step doubles the time per hash; stored hashes with a lower
+     * cost are rehashed on the next successful login.
+     */
+    private int cost = 12;
+
+    /** Hashing threads; 0 uses half the available processors so redirects keep the rest. */
+    private int threads = 0;
+
+    /** Hashes allowed to wait for a thread; further logins and registrations get a 503 at once. */
+    private int queueCapacity = 32;
+}
@@ -0,0 +1,168 @@
+package com.wastech.url_shortener.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.service.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs after {@link JwtAuthenticationFilter} so the authenticated principal is available for
+ * per-user limits. Not a component on purpose: it must only be registered inside the security chain.
+ * <p>
+ * Batch resolves are charged by the number of short codes in the body, which is read here and
+ * replayed to the controller.
+ * <p>
+ * Per-IP limits use {@code getRemoteAddr()}, which Tomcat resolves from X-Forwarded-For when the
+ * request came through a trusted proxy ({@code server.forward-headers-strategy}).
+ */
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String URLS_PATH_PREFIX = "/api/urls/";
+    private static final String SHORTEN_PATH = "/api/urls/shorten";
+    private static final String RESOLVE_PATH = "/api/urls/resolve";
+    // Well above the 5000 quoted, comma-separated codes ResolveUrlsRequest accepts
+    private static final int MAX_RESOLVE_BODY_BYTES = 256 * 1024;
+    private static final String REDIRECT_PATH_PREFIX = "/r/";
+
+    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        long retryAfterSeconds = 0;
+
+        if ("POST".equals(request.getMethod()) && SHORTEN_PATH.equals(path)) {
+            retryAfterSeconds = rateLimitService.admitShorten(currentUser(), request.getRemoteAddr());
+        } else if ("POST".equals(request.getMethod()) && RESOLVE_PATH.equals(path)) {
+            byte[] body = request.getInputStream().readNBytes(MAX_RESOLVE_BODY_BYTES + 1);
+            if (body.length > MAX_RESOLVE_BODY_BYTES) {
+                response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "Request body too large.");
+                return;
+            }
+            retryAfterSeconds = rateLimitService.admitResolve(currentUser(), request.getRemoteAddr(), countShortCodes(body));
+            request = new CachedBodyRequest(request, body);
+        } else if ("GET".equals(request.getMethod()) && isShortCodeLookup(path)) {
+            retryAfterSeconds = rateLimitService.admitLookup(request.getRemoteAddr());
+        } else if ("GET".equals(request.getMethod()) && path.startsWith(REDIRECT_PATH_PREFIX) && path.length() > REDIRECT_PATH_PREFIX.length()) {
+            retryAfterSeconds = rateLimitService.admitLookup(request.getRemoteAddr());
+        }
+
+        if (retryAfterSeconds > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            response.setContentType("text/plain");
+            response.getWriter().write("Rate limit exceeded. Retry after " + retryAfterSeconds + " seconds.");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static boolean isShortCodeLookup(String path) {
+        if (!path.startsWith(URLS_PATH_PREFIX) || path.length() == URLS_PATH_PREFIX.length()) {
+            return false;
+        }
+        String code = path.substring(URLS_PATH_PREFIX.length());
+        return code.indexOf('/') < 0 && !"my-urls".equals(code);
+    }
+
+    /**
+     * A body that does not parse counts as one code; the controller rejects it with a 400.
+     */
+    private int countShortCodes(byte[] body) {
+        try {
+            JsonNode shortCodes = objectMapper.readTree(body).path("shortCodes");
+            return Math.max(1, shortCodes.size());
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    private static User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return null;
+    }
+
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
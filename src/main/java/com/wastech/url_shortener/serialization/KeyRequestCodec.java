@@ -0,0 +1,184 @@
+package com.wastech.url_shortener.serialization;
+
+import com.wastech.url_shortener.model.KeyRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Versioned binary layout for {@link KeyRequest} on the persistence topic:
+ * <pre>
+ * magic(1) version(1) flags(1) [userId: zigzag varlong] [expiresAt: zigzag varlong epoch millis]
+ * [shortCode: varint length + UTF-8] [longUrl: varint length + UTF-8]
+ * </pre>
+ * Absent fields are marked in {@code flags} and omitted. The magic byte is never the first byte
+ * of a JSON document, which lets readers tell new payloads from legacy JSON ones.
+ */
+public final class KeyRequestCodec {
+
+    public static final byte MAGIC = (byte) 0xC1;
+    public static final byte VERSION_1 = 1;
+
+    private static final int HAS_USER_ID = 1;
+    private static final int HAS_EXPIRES_AT = 1 << 1;
+    private static final int HAS_SHORT_CODE = 1 << 2;
+    private static final int HAS_LONG_URL = 1 << 3;
+
+    private KeyRequestCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(KeyRequest request) {
+        byte[] shortCode = request.getShortCode() == null ? null : request.getShortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] longUrl = request.getLongUrl() == null ? null : request.getLongUrl().getBytes(StandardCharsets.UTF_8);
+
+        int flags = 0;
+        int size = 3;
+        if (request.getUserId() != null) {
+            flags |= HAS_USER_ID;
+            size += 10;
+        }
+        if (request.getExpiresAt() != null) {
+            flags |= HAS_EXPIRES_AT;
+            size += 10;
+        }
+        if (shortCode != null) {
+            flags |= HAS_SHORT_CODE;
+            size += 5 + shortCode.length;
+        }
+        if (longUrl != null) {
+            flags |= HAS_LONG_URL;
+            size += 5 + longUrl.length;
+        }
+
+        Writer out = new Writer(size);
+        out.put(MAGIC);
+        out.put(VERSION_1);
+        out.put((byte) flags);
+        if (request.getUserId() != null) {
+            out.putZigZag(request.getUserId());
+        }
+        if (request.getExpiresAt() != null) {
+            out.putZigZag(request.getExpiresAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+        if (shortCode != null) {
+            out.putBytes(shortCode);
+        }
+        if (longUrl != null) {
+            out.putBytes(longUrl);
+        }
+        return out.toByteArray();
+    }
+
+    public static KeyRequest decode(byte[] data) {
+        if (!isBinary(data) || data.length < 3) {
+            throw new IllegalArgumentException("Not a binary KeyRequest payload.");
+        }
+        if (data[1] != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported KeyRequest payload version: " + data[1]);
+        }
+        Reader in = new Reader(data, 2);
+        int flags = in.get() & 0xFF;
+
+        KeyRequest request = new KeyRequest();
+        if ((flags & HAS_USER_ID) != 0) {
+            request.setUserId(in.getZigZag());
+        }
+        if ((flags & HAS_EXPIRES_AT) != 0) {
+            request.setExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(in.getZigZag()), ZoneOffset.UTC));
+        }
+        if ((flags & HAS_SHORT_CODE) != 0) {
+            request.setShortCode(in.getString());
+        }
+        if ((flags & HAS_LONG_URL) != 0) {
+            request.setLongUrl(in.getString());
+        }
+        return request;
+    }
+
+    private static final class Writer {
+        private final byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void put(byte b) {
+            buffer[position++] = b;
+        }
+
+        void putVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void putZigZag(long value) {
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putBytes(byte[] bytes) {
+            putVarLong(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            byte[] result = new byte[position];
+            System.arraycopy(buffer, 0, result, 0, position);
+            return result;
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        byte get() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated KeyRequest payload.");
+            }
+            return data[position++];
+        }
+
+        long getVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in KeyRequest payload.");
+        }
+
+        long getZigZag() {
+            long raw = getVarLong();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        String getString() {
+            long length = getVarLong();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Truncated KeyRequest payload.");
+            }
+            String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
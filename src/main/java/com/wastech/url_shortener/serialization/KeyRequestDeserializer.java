@@ -0,0 +1,30 @@
+package com.wastech.url_shortener.serialization;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Reads the binary {@link KeyRequestCodec} format and falls back to JSON for records written
+ * before the producers were switched over.
+ */
+public class KeyRequestDeserializer implements Deserializer<KeyRequest> {
+
+    private final JsonDeserializer<KeyRequest> legacyJsonDeserializer = new JsonDeserializer<>(KeyRequest.class, false);
+
+    @Override
+    public KeyRequest deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (KeyRequestCodec.isBinary(data)) {
+            return KeyRequestCodec.decode(data);
+        }
+        return legacyJsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        legacyJsonDeserializer.close();
+    }
+}
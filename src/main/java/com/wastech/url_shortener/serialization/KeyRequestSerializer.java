@@ -0,0 +1,12 @@
+package com.wastech.url_shortener.serialization;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class KeyRequestSerializer implements Serializer<KeyRequest> {
+
+    @Override
+    public byte[] serialize(String topic, KeyRequest data) {
+        return data == null ? null : KeyRequestCodec.encode(data);
+    }
+}
@@ -6,18 +6,21 @@ import com.wastech.url_shortener.payload.LoginRequest;
 import com.wastech.url_shortener.payload.RegistrationRequest;
 import com.wastech.url_shortener.repository.UserRepository;
 import com.wastech.url_shortener.security.JwtTokenProvider;
+import com.wastech.url_shortener.security.PasswordHashingExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,29 +28,47 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AuthService {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final AuthenticationManager authenticationManager;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
+    private final UserCacheEvictor userCacheEvictor;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TransactionTemplate transactionTemplate;
 
-    public String authenticateUser(LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(
-                loginRequest.getUsername(),
-                loginRequest.getPassword()
-            )
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        return tokenProvider.generateToken(authentication);
+    /**
+     * Authenticates on a password hashing thread, so the request thread is released while the hash
+     * is checked. The token is the only result: the API is stateless and the security context of a
+     * pooled thread must not carry the user into its next task.
+     *
+     * @throws com.wastech.url_shortener.exception.PasswordHashingOverloadedException if too many
+     * logins are already waiting
+     */
+    public CompletableFuture<String> authenticateUser(LoginRequest loginRequest) {
+        return passwordHashingExecutor.submit(() -> {
+            Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                    loginRequest.getUsername(),
+                    loginRequest.getPassword()
+                )
+            );
+            return tokenProvider.generateToken(authentication);
+        });
     }
 
-    @Transactional
-    public void registerUser(RegistrationRequest registrationRequest) {
-        if (userRepository.findByUsername(registrationRequest.getUsername()).isPresent()) {
-            throw new RuntimeException("Username is already taken!");
-        }
-
+    /**
+     * Registers on a password hashing thread, like {@link #authenticateUser(LoginRequest)}, so the
+     * request thread is released while the password is hashed and the user inserted. Relies on the
+     * unique username constraint rather than checking for the name first, which saves a round trip
+     * and closes the race between two registrations of the same name. The password is hashed before
+     * the transaction starts, so no pooled connection is held meanwhile.
+     *
+     * @throws com.wastech.url_shortener.exception.PasswordHashingOverloadedException if too many
+     * logins and registrations are already waiting
+     */
+    public CompletableFuture<Void> registerUser(RegistrationRequest registrationRequest) {
         // Default to USER role if no roles are specified or invalid roles
         Set<Role> roles = new HashSet<>();
         if (registrationRequest.getRoles() != null && !registrationRequest.getRoles().isEmpty()) {
@@ -65,13 +86,43 @@ public class AuthService {
         if (roles.isEmpty()) {
             roles.add(Role.ROLE_USER);
         }
+        Set<Role> userRoles = roles;
 
-        User user = new User();
-        user.setUsername(registrationRequest.getUsername());
-        user.setPassword(passwordEncoder.encode(registrationRequest.getPassword()));
-        user.setRoles(roles);
-        user.setPaid(false);
+        return passwordHashingExecutor.submit(() -> {
+            User user = new User();
+            user.setUsername(registrationRequest.getUsername());
+            user.setPassword(passwordEncoder.encode(registrationRequest.getPassword()));
+            user.setRoles(userRoles);
+            user.setPaid(false);
+            insertUser(user);
+            return null;
+        });
+    }
 
-        userRepository.save(user);
+    private void insertUser(User user) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                User savedUser = userRepository.saveAndFlush(user);
+                userCacheEvictor.evictAfterCommit(savedUser.getId());
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateUsername(e)) {
+                throw e;
+            }
+            throw new RuntimeException("Username is already taken!");
+        }
+    }
+
+    // Schemas created before the constraint was named carry a generated name; Postgres names the
+    // key column in the message of any unique violation, so that is checked as well
+    private static boolean isDuplicateUsername(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String message = violation.getSQLException().getMessage();
+                return User.USERNAME_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName())
+                    || UNIQUE_VIOLATION.equals(violation.getSQLState()) && message != null && message.contains("(username)");
+            }
+        }
+        return false;
     }
 }
\ No newline at end of file
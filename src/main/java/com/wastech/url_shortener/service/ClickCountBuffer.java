@@ -0,0 +1,70 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.service.DatabaseConcurrencyLimiter.Priority;
+import com.wastech.url_shortener.sharding.ShardedShortenedUrlRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates clicks for redirects served without touching the database and writes them as one
+ * batched UPDATE per target every second.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClickCountBuffer {
+
+    private static final String INCREMENT_SQL = "UPDATE shortened_urls SET click_count = click_count + ? WHERE short_code = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+    private final ObjectProvider<ShardedShortenedUrlRepository> shardedRepositoryProvider;
+
+    private volatile ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void record(String shortCode) {
+        pending.computeIfAbsent(shortCode, code -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, LongAdder> drained = pending;
+        pending = new ConcurrentHashMap<>();
+
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        Map<JdbcTemplate, List<Object[]>> batches = new HashMap<>();
+        drained.forEach((shortCode, clicks) -> {
+            JdbcTemplate target = sharded != null ? sharded.shardFor(shortCode) : jdbcTemplate;
+            batches.computeIfAbsent(target, t -> new ArrayList<>()).add(new Object[]{clicks.sum(), shortCode});
+        });
+        batches.forEach((target, args) -> {
+            try {
+                databaseConcurrencyLimiter.execute(Priority.PERSISTENCE, () -> target.batchUpdate(INCREMENT_SQL, args));
+            } catch (Exception e) {
+                // Re-queue so the clicks are retried on the next flush
+                args.forEach(arg -> pending.computeIfAbsent((String) arg[1], code -> new LongAdder()).add((Long) arg[0]));
+                log.warn("Could not flush {} buffered click counts, will retry: {}", args.size(), e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
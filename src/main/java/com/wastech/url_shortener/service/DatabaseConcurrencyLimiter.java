@@ -0,0 +1,156 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.accesslog.RequestTimings;
+import com.wastech.url_shortener.exception.DatabaseOverloadedException;
+import com.wastech.url_shortener.resilience.CircuitBreaker;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Gradient-style adaptive concurrency limit for database work. The allowed number of in-flight
+ * calls shrinks when recent latency rises above the long-term baseline and grows again while
+ * latency stays flat, so callers fail fast instead of queueing on the Hikari pool.
+ * Lower-priority callers may only use a share of the current limit. While the database circuit
+ * breaker is open every call is rejected up front, the same way as an overload.
+ */
+@Component
+@Slf4j
+public class DatabaseConcurrencyLimiter {
+
+    public enum Priority {
+        REDIRECT(1.0),
+        PERSISTENCE(0.9),
+        LISTING(0.5);
+
+        private final double share;
+
+        Priority(double share) {
+            this.share = share;
+        }
+    }
+
+    private static final double SHORT_RTT_ALPHA = 0.1;
+    private static final double LONG_RTT_ALPHA = 0.002;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final long MIN_RTT_NANOS = 100_000;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final CircuitBreaker breaker;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Priority, Counter> rejections = new EnumMap<>(Priority.class);
+    private volatile double limit;
+
+    // Guarded by "this"; only touched from onSample.
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public DatabaseConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      DependencyBreakers breakers,
+                                      @Value("${app.db-limiter.enabled:true}") boolean enabled,
+                                      @Value("${app.db-limiter.initial-limit:20}") int initialLimit,
+                                      @Value("${app.db-limiter.min-limit:4}") int minLimit,
+                                      @Value("${app.db-limiter.max-limit:200}") int maxLimit) {
+        this.enabled = enabled;
+        this.breaker = breakers.database();
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+
+        Gauge.builder("shortener.db.concurrency.limit", this, l -> l.limit)
+            .description("Current adaptive limit of concurrent database calls")
+            .register(meterRegistry);
+        Gauge.builder("shortener.db.concurrency.in_flight", inFlight, AtomicInteger::get)
+            .description("Database calls currently in flight")
+            .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            rejections.put(priority, Counter.builder("shortener.db.concurrency.rejected")
+                .description("Database calls rejected by the concurrency limiter")
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry));
+        }
+    }
+
+    public <T> T execute(Priority priority, Supplier<T> call) {
+        if (!breaker.isCallPermitted()) {
+            rejections.get(priority).increment();
+            throw new DatabaseOverloadedException("Database is unavailable, please retry shortly.");
+        }
+        if (!enabled) {
+            long start = System.nanoTime();
+            try {
+                return call.get();
+            } finally {
+                RequestTimings.recordDb(System.nanoTime() - start);
+            }
+        }
+        if (!tryAcquire(priority)) {
+            rejections.get(priority).increment();
+            throw new DatabaseOverloadedException("Database is overloaded, please retry shortly.");
+        }
+        int inFlightAtStart = inFlight.get();
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            onSample(elapsed, inFlightAtStart);
+            RequestTimings.recordDb(elapsed);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    private boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        double rtt = Math.max(rttNanos, MIN_RTT_NANOS);
+        if (longRttNanos == 0) {
+            shortRttNanos = rtt;
+            longRttNanos = rtt;
+            return;
+        }
+        shortRttNanos = shortRttNanos * (1 - SHORT_RTT_ALPHA) + rtt * SHORT_RTT_ALPHA;
+        longRttNanos = longRttNanos * (1 - LONG_RTT_ALPHA) + rtt * LONG_RTT_ALPHA;
+
+        // After a sustained slowdown the baseline is inflated; let it recover faster.
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, longRttNanos / shortRttNanos));
+        double target = current * gradient + Math.sqrt(current);
+        boolean appLimited = inFlightAtStart < current / 2;
+        if (appLimited && target > current) {
+            return;
+        }
+        double next = current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
@@ -1,51 +1,266 @@
 package com.wastech.url_shortener.service;
 
+import com.wastech.url_shortener.metrics.ShortenerMetrics;
+import com.wastech.url_shortener.metrics.ShortenerMetrics.Fallback;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
 import com.wastech.url_shortener.util.Base62;
+import com.wastech.url_shortener.util.FeistelPermutation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Hands out unique short codes derived from a Redis counter, in one of two modes:
+ * <ul>
+ *   <li>{@code POOL}: codes are materialized ahead of time into a Redis set and popped per request.</li>
+ *   <li>{@code PERMUTED}: each instance leases counter ranges and maps every value through a keyed
+ *   {@link FeistelPermutation}, so codes are unique by construction and need no pool.</li>
+ * </ul>
+ * The first permuted lease records the counter value at that moment as the permutation offset.
+ * Values below it keep their sequential codes; values above it map into the part of the 62^7 space
+ * above the offset, so permuted codes never collide with codes issued before the switch. From then
+ * on every instance permutes, whatever its mode, and all of them need the same secret.
+ * <p>
+ * In {@code POOL} mode each instance also holds a small reserve of codes popped from the pool ahead
+ * of time, so shortening keeps working while Redis is unavailable. {@code PERMUTED} instances need
+ * no reserve: the rest of their leased range serves the same purpose.
+ * <p>
+ * Legacy codes kept by bulk imports are recorded in a reserved set when they have the shape of a
+ * generated code. Pool refills, permuted leases and on-demand keys skip reserved codes, so a
+ * generated code never lands on an imported row.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KeyGenerationService {
 
+    public enum Mode { POOL, PERMUTED }
+
     private final StringRedisTemplate redisTemplate;
-    private final RedissonClient redissonClient;
+    // Resolved on first use so fast-start instances can defer creating the Redisson client
+    private final ObjectProvider<RedissonClient> redissonClient;
+    private final ShortenerMetrics shortenerMetrics;
     private static final String KEY_POOL_SET = "shortener:key_pool";
     private static final String KEY_COUNTER = "shortener:key_counter";
     private static final String KEY_GEN_LOCK = "shortener:key_gen_lock";
-    private static final int MIN_KEY_POOL_SIZE = 10000;
+    private static final String KEY_COUNTER_RANGE_FIX = "shortener:key_counter_range_fix";
+    private static final String KEY_PERMUTATION_OFFSET = "shortener:key_permutation_offset";
+    private static final String KEY_POOL_ISSUED = "shortener:key_pool:issued";
+    private static final String KEY_RESERVED_SET = "shortener:key_reserved";
     private static final int GENERATE_BATCH_SIZE = 50000;
+    private static final int SADD_CHUNK_SIZE = 10000;
     private static final int SHORT_CODE_LENGTH = 7;
+    private static final long CODE_SPACE = 3_521_614_606_208L; // 62^7
+
+    private static final RedisScript<String> LEASE_SCRIPT = RedisScript.of(
+        "local finish = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "return tostring(finish) .. ':' .. (redis.call('GET', KEYS[2]) or '')", String.class);
+    // Batches used to advance the counter by 1 while issuing GENERATE_BATCH_SIZE keys, so keys up to
+    // counter + GENERATE_BATCH_SIZE may already be in use. The first run skips past them; the marker
+    // and the increment are one atomic step, so no lease can slip in between.
+    private static final RedisScript<Long> SKIP_LEGACY_BATCHES_SCRIPT = RedisScript.of(
+        "if redis.call('SETNX', KEYS[2], '1') == 1 then redis.call('INCRBY', KEYS[1], ARGV[1]) return 1 end " +
+            "return 0", Long.class);
+    // Adds generated codes to the pool unless an import reserved them; atomic against a concurrent
+    // reservation, which records the code as reserved before removing it from the pool
+    private static final RedisScript<Long> ADD_UNRESERVED_SCRIPT = RedisScript.of(
+        "local added = 0 " +
+            "for _, code in ipairs(ARGV) do " +
+            "if redis.call('SISMEMBER', KEYS[2], code) == 0 then added = added + redis.call('SADD', KEYS[1], code) end " +
+            "end return added", Long.class);
+    private static final RedisScript<String> ACTIVATE_PERMUTATION_SCRIPT = RedisScript.of(
+        "if redis.call('EXISTS', KEYS[2]) == 0 then redis.call('SET', KEYS[2], redis.call('GET', KEYS[1]) or '0') end " +
+            "return redis.call('GET', KEYS[2])", String.class);
+
+    @Value("${app.keygen.mode:POOL}")
+    private Mode mode;
+
+    @Value("${app.keygen.permutation-secret:}")
+    private String permutationSecret;
+
+    @Value("${app.keygen.lease-size:1000}")
+    private int leaseSize;
+
+    private volatile long permutationOffset;
+    private volatile FeistelPermutation permutation;
+    private long nextLeased;
+    private long leaseEnd;
+    private Set<String> leasedReserved = Set.of();
+    private volatile boolean legacyBatchesSkipped;
+
+    @Value("${app.keygen.pool.min-size:10000}")
+    private long minPoolSize;
+
+    @Value("${app.keygen.pool.max-refill-size:1000000}")
+    private long maxRefillSize;
+
+    @Value("${app.keygen.pool.horizon-seconds:300}")
+    private double horizonSeconds;
+
+    @Value("${app.keygen.pool.low-water-seconds:30}")
+    private double lowWaterSeconds;
+
+    @Value("${app.keygen.pool.ewma-window-seconds:10}")
+    private double ewmaWindowSeconds;
+
+    @Value("${app.keygen.pool.local-reserve:200}")
+    private int localReserveSize;
+
+    // Popped from the shared pool, so no other instance can issue them; lost on shutdown
+    private final ConcurrentLinkedQueue<String> localReserve = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger localReserveCount = new AtomicInteger();
+
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "key-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refillInFlight = new AtomicBoolean();
+    private final AtomicBoolean emergencyLogged = new AtomicBoolean();
+    private volatile double drainRate;
+    private volatile long lowWaterMark = 10000;
+    private long lastSampleNanos;
+    private long lastSampleIssued;
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+    }
+
+    /**
+     * Samples the pool once per interval and folds the cluster-wide drain rate into an EWMA. Every
+     * issued key bumps a shared counter in the same round trip as its SPOP, so all instances see the
+     * same rate. Falling below the low-water mark starts a refill right away.
+     */
+    @Scheduled(fixedRateString = "${app.keygen.pool.sample-interval-ms:1000}")
+    public void samplePool() {
+        if (mode == Mode.PERMUTED) {
+            return;
+        }
+        List<Object> sample;
+        try {
+            sample = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sCard(KEY_POOL_SET.getBytes(StandardCharsets.UTF_8));
+                connection.stringCommands().get(KEY_POOL_ISSUED.getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not sample the key pool: {}", e.getMessage());
+            return;
+        }
+        long now = System.nanoTime();
+        long size = sample.get(0) == null ? 0 : (Long) sample.get(0);
+        long issued = sample.get(1) == null ? 0 : Long.parseLong((String) sample.get(1));
+        shortenerMetrics.keyPoolSize(size);
+
+        if (lastSampleNanos != 0) {
+            double seconds = (now - lastSampleNanos) / 1e9;
+            long drained = Math.max(0, issued - lastSampleIssued);
+            double alpha = 1 - Math.exp(-seconds / ewmaWindowSeconds);
+            drainRate += alpha * (drained / seconds - drainRate);
+            shortenerMetrics.keyPoolDrainRate(drainRate);
+        }
+        lastSampleNanos = now;
+        lastSampleIssued = issued;
+        lowWaterMark = Math.max(minPoolSize, (long) Math.ceil(drainRate * lowWaterSeconds));
+
+        if (size < lowWaterMark) {
+            requestRefill();
+        }
+        topUpLocalReserve();
+    }
 
-    // Scheduled to run periodically to check and replenish the key pool
-    @Scheduled(fixedRate = 30000) // Every 30 seconds
+    // Counted as issued like any other popped key, so the drain rate includes reserve top-ups
+    @SuppressWarnings("unchecked")
+    private void topUpLocalReserve() {
+        int missing = localReserveSize - localReserveCount.get();
+        if (missing < localReserveSize / 2) {
+            return;
+        }
+        List<Object> popped;
+        try {
+            popped = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.setCommands().sPop(KEY_POOL_SET.getBytes(StandardCharsets.UTF_8), missing);
+                connection.stringCommands().incrBy(KEY_POOL_ISSUED.getBytes(StandardCharsets.UTF_8), missing);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Could not top up the local key reserve: {}", e.getMessage());
+            return;
+        }
+        List<String> keys = popped.get(0) == null ? List.of() : (List<String>) popped.get(0);
+        localReserve.addAll(keys);
+        localReserveCount.addAndGet(keys.size());
+    }
+
+    private void requestRefill() {
+        if (refillInFlight.compareAndSet(false, true)) {
+            try {
+                refillExecutor.execute(() -> {
+                    try {
+                        replenishKeyPool();
+                    } finally {
+                        refillInFlight.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refillInFlight.set(false);
+            }
+        }
+    }
+
+    /**
+     * Tops the pool up to cover {@code horizon-seconds} of the current drain rate. Only one instance
+     * refills at a time; the others skip rather than wait, since the pool is shared.
+     */
     public void replenishKeyPool() {
-        RLock lock = redissonClient.getLock(KEY_GEN_LOCK);
+        RLock lock = redissonClient.getObject().getLock(KEY_GEN_LOCK);
         try {
-            // Acquire lock with a timeout to prevent deadlocks
-            if (lock.tryLock(10, 30, TimeUnit.SECONDS)) {
+            if (lock.tryLock(0, 30, TimeUnit.SECONDS)) {
                 Long currentPoolSize = redisTemplate.opsForSet().size(KEY_POOL_SET);
-                log.info("Current key pool size: {}", currentPoolSize);
-
-                if (currentPoolSize == null || currentPoolSize < MIN_KEY_POOL_SIZE) {
-                    log.info("Replenishing key pool. Generating {} new keys.", GENERATE_BATCH_SIZE);
-                    generateAndAddKeys(GENERATE_BATCH_SIZE);
+                long size = currentPoolSize == null ? 0 : currentPoolSize;
+                shortenerMetrics.keyPoolSize(size);
+                if (size < lowWaterMark) {
+                    long target = Math.max(lowWaterMark + GENERATE_BATCH_SIZE, (long) Math.ceil(drainRate * horizonSeconds));
+                    int count = (int) Math.min(maxRefillSize, Math.max(GENERATE_BATCH_SIZE, target - size));
+                    log.info("Replenishing key pool: {} keys left, draining at {}/s, generating {} new keys.",
+                        size, String.format("%.1f", drainRate), count);
+                    generateAndAddKeys(count);
+                    emergencyLogged.set(false);
                 }
-            } else {
-                log.warn("Could not acquire key generation lock. Another instance might be generating keys.");
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("Key generation interrupted: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("Key pool refill failed: {}", e.getMessage(), e);
         } finally {
             if (lock.isHeldByCurrentThread()) {
                 lock.unlock();
@@ -53,34 +268,223 @@ public class KeyGenerationService {
         }
     }
 
+    // Activation is cluster-wide and cannot be undone, so an instance that could not permute must
+    // not start in PERMUTED mode at all rather than activate the offset and then fail every lease
+    @PostConstruct
+    void validatePermutationSecret() {
+        if (mode == Mode.PERMUTED && !hasPermutationSecret()) {
+            throw new IllegalStateException("app.keygen.mode is PERMUTED; app.keygen.permutation-secret must be set.");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            skipPastLegacyBatches();
+        } catch (Exception e) {
+            log.warn("Could not check the key counter for legacy batches; the first lease will: {}", e.getMessage());
+        }
+    }
+
+    // Runs once per instance, at startup or before the first lease if that comes earlier
+    private void skipPastLegacyBatches() {
+        if (legacyBatchesSkipped) {
+            return;
+        }
+        Long skipped = redisTemplate.execute(SKIP_LEGACY_BATCHES_SCRIPT, List.of(KEY_COUNTER, KEY_COUNTER_RANGE_FIX),
+            Integer.toString(GENERATE_BATCH_SIZE));
+        if (Long.valueOf(1).equals(skipped)) {
+            log.info("Advanced key counter past keys issued by legacy batches.");
+        }
+        legacyBatchesSkipped = true;
+    }
+
     private void generateAndAddKeys(int count) {
-        Set<String> newKeys = new java.util.HashSet<>();
-        long startId = redisTemplate.opsForValue().increment(KEY_COUNTER, 1) - 1;
-        long nextIdToGenerate = startId;
+        long nextIdToGenerate = leaseKeyRange(count);
+        List<String> keys = List.of(KEY_POOL_SET, KEY_RESERVED_SET);
+        long added = 0;
+        for (int offset = 0; offset < count; offset += SADD_CHUNK_SIZE) {
+            int chunk = Math.min(SADD_CHUNK_SIZE, count - offset);
+            Object[] codes = new Object[chunk];
+            for (int i = 0; i < chunk; i++) {
+                codes[i] = encodeKey(nextIdToGenerate + offset + i);
+            }
+            Long chunkAdded = redisTemplate.execute(ADD_UNRESERVED_SCRIPT, keys, codes);
+            added += chunkAdded == null ? 0 : chunkAdded;
+        }
+        shortenerMetrics.keyPoolRefilled(added);
+        log.info("Added {} new keys to the pool ({} skipped as reserved).", added, count - added);
+    }
+
+    /**
+     * Records codes kept by a bulk import so the generator never issues them. Only codes of the
+     * generated length can collide; they are marked reserved first and then taken out of the pool,
+     * so a concurrent refill cannot put one back.
+     */
+    public void reserveCodes(Collection<String> codes) {
+        List<byte[]> generatorShaped = codes.stream()
+            .filter(code -> code != null && code.length() == SHORT_CODE_LENGTH)
+            .map(code -> code.getBytes(StandardCharsets.UTF_8))
+            .toList();
+        if (generatorShaped.isEmpty()) {
+            return;
+        }
+        byte[] reservedKey = KEY_RESERVED_SET.getBytes(StandardCharsets.UTF_8);
+        byte[] poolKey = KEY_POOL_SET.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int offset = 0; offset < generatorShaped.size(); offset += SADD_CHUNK_SIZE) {
+                byte[][] chunk = generatorShaped.subList(offset, Math.min(generatorShaped.size(), offset + SADD_CHUNK_SIZE))
+                    .toArray(byte[][]::new);
+                connection.setCommands().sAdd(reservedKey, chunk);
+                connection.setCommands().sRem(poolKey, chunk);
+            }
+            return null;
+        });
+    }
 
+    /**
+     * @return the codes of the counter values {@code [start, start + count)} that imports reserved
+     */
+    public Set<String> reservedAmong(long start, int count) {
+        Object[] codes = new Object[count];
         for (int i = 0; i < count; i++) {
-            String newKey = Base62.encodeWithPadding(nextIdToGenerate++, SHORT_CODE_LENGTH);
-            newKeys.add(newKey);
+            codes[i] = encodeKey(start + i);
         }
+        Map<Object, Boolean> membership = redisTemplate.opsForSet().isMember(KEY_RESERVED_SET, codes);
+        if (membership == null) {
+            return Set.of();
+        }
+        Set<String> reserved = new HashSet<>();
+        membership.forEach((code, member) -> {
+            if (Boolean.TRUE.equals(member)) {
+                reserved.add((String) code);
+            }
+        });
+        return reserved;
+    }
 
-        redisTemplate.opsForSet().add(KEY_POOL_SET, newKeys.toArray(new String[0]));
-        log.info("Added {} new keys to the pool.", newKeys.size());
+    /**
+     * Leases single counter values until one encodes to a code no import reserved.
+     */
+    public String leaseUnreservedKey() {
+        while (true) {
+            long id = leaseKeyRange(1);
+            if (reservedAmong(id, 1).isEmpty()) {
+                return encodeKey(id);
+            }
+        }
     }
 
     public String getUniqueKey() {
-        String key = redisTemplate.opsForSet().pop(KEY_POOL_SET);
+        if (mode == Mode.PERMUTED) {
+            return nextLeasedKey();
+        }
+        List<Object> popped;
+        try {
+            popped = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] poolKey = KEY_POOL_SET.getBytes(StandardCharsets.UTF_8);
+                connection.setCommands().sPop(poolKey);
+                connection.setCommands().sCard(poolKey);
+                connection.stringCommands().incr(KEY_POOL_ISSUED.getBytes(StandardCharsets.UTF_8));
+                return null;
+            });
+        } catch (DataAccessException e) {
+            String reserved = DependencyBreakers.isUnavailable(e) ? localReserve.poll() : null;
+            if (reserved == null) {
+                throw e;
+            }
+            localReserveCount.decrementAndGet();
+            shortenerMetrics.degradedFallback(Fallback.LOCAL_KEY_RESERVE);
+            return reserved;
+        }
+        String key = (String) popped.get(0);
+        Long remaining = (Long) popped.get(1);
+        if (remaining == null || remaining < lowWaterMark) {
+            requestRefill();
+        }
         if (key == null) {
-            log.error("Key pool is empty! Attempting to generate on demand (emergency).");
+            shortenerMetrics.emergencyKeyGenerated();
+            if (emergencyLogged.compareAndSet(false, true)) {
+                log.warn("Key pool is empty; generating keys on demand until the refill lands.");
+            }
+            key = leaseUnreservedKey();
+        }
+        return key;
+    }
 
-            long emergencyId = redisTemplate.opsForValue().increment(KEY_COUNTER);
-            key = Base62.encodeWithPadding(emergencyId, SHORT_CODE_LENGTH);
-            log.warn("Emergency generated key: {}", key);
+    /**
+     * Reserves {@code count} consecutive counter values with a single INCRBY, for callers that
+     * assign many codes at once (the key pool refill, bulk imports).
+     *
+     * @return the first reserved value; the range is {@code [start, start + count)}
+     */
+    public long leaseKeyRange(long count) {
+        skipPastLegacyBatches();
+        List<String> keys = List.of(KEY_COUNTER, KEY_PERMUTATION_OFFSET);
+        if (mode == Mode.PERMUTED && permutation == null && hasPermutationSecret()) {
+            redisTemplate.execute(ACTIVATE_PERMUTATION_SCRIPT, keys);
+        }
+        // The offset is read atomically with the increment, so a lease either precedes activation
+        // (all values at or below the offset) or sees it, whatever this instance's mode
+        String lease = redisTemplate.execute(LEASE_SCRIPT, keys, Long.toString(count));
+        if (lease == null) {
+            throw new IllegalStateException("Could not lease a key range from Redis.");
+        }
+        int separator = lease.indexOf(':');
+        if (separator < lease.length() - 1 && permutation == null) {
+            usePermutation(lease.substring(separator + 1));
+        }
+        return Long.parseLong(lease, 0, separator, 10) - count + 1;
+    }
 
+    /**
+     * Encodes a counter value obtained from {@link #leaseKeyRange(long)}.
+     */
+    public String encodeKey(long id) {
+        FeistelPermutation current = permutation;
+        if (current != null && id > permutationOffset) {
+            return Base62.encodeWithPadding(permutationOffset + 1 + current.permute(id - permutationOffset - 1), SHORT_CODE_LENGTH);
+        }
+        return Base62.encodeWithPadding(id, SHORT_CODE_LENGTH);
+    }
+
+    // Counter values are leased in blocks so permuted codes cost two Redis round trips per lease: the
+    // lease itself and the check for codes reserved by imports.
+    private synchronized String nextLeasedKey() {
+        while (true) {
+            if (nextLeased == leaseEnd) {
+                long start = leaseKeyRange(leaseSize);
+                leasedReserved = reservedAmong(start, leaseSize);
+                nextLeased = start;
+                leaseEnd = start + leaseSize;
+            }
+            String key = encodeKey(nextLeased++);
+            if (!leasedReserved.contains(key)) {
+                return key;
+            }
+        }
+    }
+
+    private boolean hasPermutationSecret() {
+        return permutationSecret != null && !permutationSecret.isBlank();
+    }
+
+    private void usePermutation(String offset) {
+        if (!hasPermutationSecret()) {
+            throw new IllegalStateException("Permuted key generation is active; app.keygen.permutation-secret must be set.");
+        }
+        synchronized (this) {
+            if (permutation == null) {
+                permutationOffset = Long.parseLong(offset);
+                permutation = new FeistelPermutation(CODE_SPACE - permutationOffset - 1, permutationSecret);
+                log.info("Permuted key generation active above counter value {}.", permutationOffset);
+            }
         }
-        return key;
     }
 
     public Long getKeyPoolSize() {
-        return redisTemplate.opsForSet().size(KEY_POOL_SET);
+        Long size = redisTemplate.opsForSet().size(KEY_POOL_SET);
+        shortenerMetrics.keyPoolSize(size);
+        return size;
     }
 }
\ No newline at end of file
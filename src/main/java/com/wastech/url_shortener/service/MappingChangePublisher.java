@@ -0,0 +1,83 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.model.ShortenedUrl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes every committed create, update and delete of a mapping to the log-compacted changelog
+ * topic, keyed by short code: the full mapping for creates and updates, a tombstone (null value)
+ * for deletes. Compaction keeps the latest record per code, so reading the topic from the start
+ * yields the current mapping set. The {@link #CHANGE_HEADER} tells creates from updates. A failed
+ * send is logged; the cache copies it would have invalidated still age out with their TTL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MappingChangePublisher {
+
+    public static final String MAPPING_CHANGELOG_TOPIC = "url-mapping-changelog";
+    public static final String CHANGE_HEADER = "mapping-change";
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+
+    private final KafkaTemplate<String, KeyRequest> kafkaTemplate;
+
+    public void publishCreatedAfterCommit(KeyRequest mapping) {
+        afterCommit(() -> send(mapping.getShortCode(), mapping, CREATED));
+    }
+
+    /** For writers that commit outside Spring transactions, such as the bulk import. */
+    public void publishCreated(Collection<KeyRequest> mappings) {
+        mappings.forEach(mapping -> send(mapping.getShortCode(), mapping, CREATED));
+    }
+
+    public void publishUpdateAfterCommit(ShortenedUrl url) {
+        KeyRequest change = new KeyRequest(url.getShortCode(), url.getLongUrl(),
+            url.getUser() == null ? null : url.getUser().getId(), url.getExpiresAt());
+        afterCommit(() -> send(url.getShortCode(), change, UPDATED));
+    }
+
+    public void publishDeleteAfterCommit(String shortCode) {
+        publishDeletesAfterCommit(List.of(shortCode));
+    }
+
+    public void publishDeletesAfterCommit(Collection<String> shortCodes) {
+        afterCommit(() -> shortCodes.forEach(shortCode -> send(shortCode, null, null)));
+    }
+
+    private void afterCommit(Runnable publish) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    private void send(String shortCode, KeyRequest mapping, String change) {
+        ProducerRecord<String, KeyRequest> record = new ProducerRecord<>(MAPPING_CHANGELOG_TOPIC, shortCode, mapping);
+        if (change != null) {
+            record.headers().add(CHANGE_HEADER, change.getBytes(StandardCharsets.UTF_8));
+        }
+        kafkaTemplate.send(record).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.warn("Could not publish change of short code {} to the changelog: {}", shortCode, ex.getMessage());
+            }
+        });
+    }
+}
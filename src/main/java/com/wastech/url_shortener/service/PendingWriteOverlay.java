@@ -0,0 +1,86 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Short-lived Redis hashes describing mappings that were published to the persistence topic but
+ * are not yet committed to Postgres, so lookups can answer for them without a DB round trip.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PendingWriteOverlay {
+
+    private static final String PENDING_WRITE_PREFIX = "shortener:pending:";
+    private static final String FIELD_LONG_URL = "longUrl";
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_EXPIRES_AT = "expiresAt";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.pending-writes.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    public String key(String shortCode) {
+        return PENDING_WRITE_PREFIX + shortCode;
+    }
+
+    public void record(KeyRequest keyRequest) {
+        String key = key(keyRequest.getShortCode());
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_LONG_URL, keyRequest.getLongUrl());
+        if (keyRequest.getUserId() != null) {
+            fields.put(FIELD_USER_ID, keyRequest.getUserId().toString());
+        }
+        if (keyRequest.getExpiresAt() != null) {
+            fields.put(FIELD_EXPIRES_AT, Long.toString(keyRequest.getExpiresAt().toInstant(ZoneOffset.UTC).toEpochMilli()));
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.hMSet(key, fields);
+            stringConnection.expire(key, ttlSeconds);
+            return null;
+        });
+    }
+
+    public Optional<KeyRequest> fromHash(String shortCode, Map<String, String> fields) {
+        if (fields == null || fields.isEmpty() || !fields.containsKey(FIELD_LONG_URL)) {
+            return Optional.empty();
+        }
+        KeyRequest keyRequest = new KeyRequest();
+        keyRequest.setShortCode(shortCode);
+        keyRequest.setLongUrl(fields.get(FIELD_LONG_URL));
+        String userId = fields.get(FIELD_USER_ID);
+        if (userId != null) {
+            keyRequest.setUserId(Long.valueOf(userId));
+        }
+        String expiresAt = fields.get(FIELD_EXPIRES_AT);
+        if (expiresAt != null) {
+            keyRequest.setExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(expiresAt)), ZoneOffset.UTC));
+        }
+        return Optional.of(keyRequest);
+    }
+
+    public void clear(String shortCode) {
+        try {
+            stringRedisTemplate.delete(key(shortCode));
+        } catch (Exception e) {
+            // The entry expires on its own; a failed delete only delays falling through to the DB.
+            log.warn("Could not clear pending write for short code {}: {}", shortCode, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.util.Base62;
+import com.wastech.url_shortener.util.TokenBucket;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket admission control for the shorten and lookup endpoints. Buckets are checked and
+ * updated locally without any I/O; a scheduled task pushes local consumption to Redis and folds in
+ * what the rest of the cluster consumed, so limits hold cluster-wide within one sync interval.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitService {
+
+    private static final String RATE_LIMIT_KEY_PREFIX = "shortener:ratelimit:";
+    private static final long IDLE_BUCKET_EVICTION_NANOS = TimeUnit.MINUTES.toNanos(5);
+    // Buckets without local consumption are only synced while less than this share of them is left
+    private static final int SYNC_BELOW_AVAILABLE_DIVISOR = 2;
+
+    private final ObjectProvider<RedissonClient> redissonClient;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.max-buckets:200000}")
+    private int maxBuckets;
+
+    @Value("${app.rate-limit.sync-window-seconds:60}")
+    private long syncWindowSeconds;
+
+    @Value("${app.rate-limit.shorten.free-per-minute:20}")
+    private long shortenFreePerMinute;
+
+    @Value("${app.rate-limit.shorten.paid-per-minute:300}")
+    private long shortenPaidPerMinute;
+
+    @Value("${app.rate-limit.shorten.ip-per-minute:60}")
+    private long shortenIpPerMinute;
+
+    @Value("${app.rate-limit.lookup.ip-per-minute:600}")
+    private long lookupIpPerMinute;
+
+    @Value("${app.rate-limit.lookup.code-per-minute:6000}")
+    private long lookupCodePerMinute;
+
+    @Value("${app.rate-limit.resolve.ip-codes-per-minute:30000}")
+    private long resolveIpCodesPerMinute;
+
+    @Value("${app.rate-limit.resolve.user-codes-per-minute:30000}")
+    private long resolveUserCodesPerMinute;
+
+    /**
+     * @return {@code 0} if the shorten request is admitted, otherwise the Retry-After delay in seconds
+     */
+    public long admitShorten(User user, String clientIp) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long wait = acquire("ip:" + clientIp + ":shorten", shortenIpPerMinute, now);
+        if (wait == 0 && user != null) {
+            long perMinute = user.isPaid() ? shortenPaidPerMinute : shortenFreePerMinute;
+            wait = acquire("user:" + user.getId() + ":shorten:" + (user.isPaid() ? "paid" : "free"), perMinute, now);
+        }
+        return toRetryAfterSeconds(wait);
+    }
+
+    /**
+     * @return {@code 0} if the lookup is admitted, otherwise the Retry-After delay in seconds
+     */
+    public long admitLookup(String clientIp) {
+        if (!enabled) {
+            return 0;
+        }
+        return toRetryAfterSeconds(acquire("ip:" + clientIp + ":lookup", lookupIpPerMinute, System.nanoTime()));
+    }
+
+    /**
+     * Per-code limit for lookups that reach the database. Lookups served from a cache are not
+     * counted, so a popular link is never throttled while it stays cached; codes that cannot exist
+     * get no bucket, so random probes cannot grow the bucket map.
+     *
+     * @return {@code 0} if the database lookup is admitted, otherwise the Retry-After delay in seconds
+     */
+    public long admitCodeLookup(String shortCode) {
+        if (!enabled || !Base62.isValidCode(shortCode)) {
+            return 0;
+        }
+        return toRetryAfterSeconds(acquire("code:" + shortCode, lookupCodePerMinute, System.nanoTime()));
+    }
+
+    /**
+     * Batch resolves cost one token per short code, so a 5000-code batch counts like 5000 lookups.
+     * A batch larger than a bucket's capacity costs the whole bucket.
+     *
+     * @return {@code 0} if the batch is admitted, otherwise the Retry-After delay in seconds
+     */
+    public long admitResolve(User user, String clientIp, int shortCodes) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long wait = acquire("ip:" + clientIp + ":resolve", resolveIpCodesPerMinute, shortCodes, now);
+        if (wait == 0 && user != null) {
+            wait = acquire("user:" + user.getId() + ":resolve", resolveUserCodesPerMinute, shortCodes, now);
+        }
+        return toRetryAfterSeconds(wait);
+    }
+
+    private long acquire(String key, long perMinute, long now) {
+        return acquire(key, perMinute, 1, now);
+    }
+
+    // Once the map is full, keys without a bucket are admitted until idle buckets are evicted: a flood
+    // of distinct clients must not exhaust the heap, and the database has its own concurrency limit.
+    private long acquire(String key, long perMinute, long tokens, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                return 0;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(perMinute, perMinute, now));
+        }
+        return bucket.tryAcquire(Math.max(1, Math.min(tokens, bucket.getCapacity())), now);
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        if (waitNanos <= 0) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sync-interval-ms:500}")
+    public void syncWithCluster() {
+        syncWithCluster(System.nanoTime());
+    }
+
+    /**
+     * Publishes local consumption and folds in the rest of the cluster's. Only buckets that consumed
+     * tokens since the last sync, or that are running low, are sent to Redis: a bucket with plenty
+     * left cannot be pushed over its limit by one interval of remote consumption, and that
+     * consumption is still folded in once the bucket is synced again. If the batch fails, the drained
+     * tokens are handed back to their buckets so the next sync publishes them.
+     */
+    void syncWithCluster(long now) {
+        if (!enabled || buckets.isEmpty()) {
+            return;
+        }
+        long window = System.currentTimeMillis() / TimeUnit.SECONDS.toMillis(syncWindowSeconds);
+        Duration counterTtl = Duration.ofSeconds(syncWindowSeconds * 2);
+
+        RBatch batch = null;
+        List<TokenBucket> synced = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        List<RFuture<Long>> globals = new ArrayList<>();
+
+        for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+            TokenBucket bucket = entry.getValue();
+            if (now - bucket.getLastAccessNanos() > IDLE_BUCKET_EVICTION_NANOS) {
+                buckets.remove(entry.getKey(), bucket);
+                continue;
+            }
+            long delta = bucket.drainUnsyncedTokens();
+            if (delta == 0 && bucket.availableTokens(now) * SYNC_BELOW_AVAILABLE_DIVISOR >= bucket.getCapacity()) {
+                continue;
+            }
+            if (batch == null) {
+                batch = redissonClient.getObject().createBatch();
+            }
+            RAtomicLongAsync counter = batch.getAtomicLong(RATE_LIMIT_KEY_PREFIX + window + ":" + entry.getKey());
+            // INCRBY 0 would create a missing counter without the expiry; a plain read creates nothing
+            if (delta > 0) {
+                globals.add(counter.addAndGetAsync(delta));
+                counter.expireAsync(counterTtl);
+            } else {
+                globals.add(counter.getAsync());
+            }
+            synced.add(bucket);
+            deltas.add(delta);
+        }
+        if (batch == null) {
+            return;
+        }
+
+        try {
+            batch.execute();
+        } catch (Exception e) {
+            log.warn("Rate limit sync with Redis failed, enforcing local limits only: {}", e.getMessage());
+            for (int i = 0; i < synced.size(); i++) {
+                synced.get(i).restoreUnsyncedTokens(deltas.get(i));
+            }
+            return;
+        }
+
+        for (int i = 0; i < synced.size(); i++) {
+            TokenBucket bucket = synced.get(i);
+            long global = globals.get(i).toCompletableFuture().join();
+            long seen = bucket.getSyncWindow() == window ? bucket.getLastSeenGlobal() : 0;
+            bucket.consumeRemote(global - seen - deltas.get(i), now);
+            bucket.markSynced(window, global);
+        }
+    }
+}
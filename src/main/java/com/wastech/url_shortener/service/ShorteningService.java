@@ -1,16 +1,44 @@
 package com.wastech.url_shortener.service;
 
+import com.wastech.url_shortener.accesslog.RequestTimings;
+import com.wastech.url_shortener.cache.CachedMapping;
+import com.wastech.url_shortener.cache.MappingCache;
+import com.wastech.url_shortener.cdn.CdnPurger;
+import com.wastech.url_shortener.dto.RedirectTarget;
+import com.wastech.url_shortener.dto.ResolvedUrl;
 import com.wastech.url_shortener.dto.ShortenUrlResponse;
+import com.wastech.url_shortener.dto.ShortenedUrlSummary;
+import com.wastech.url_shortener.exception.DatabaseOverloadedException;
+import com.wastech.url_shortener.exception.RateLimitExceededException;
+import com.wastech.url_shortener.localstore.OffHeapMappingStore;
+import com.wastech.url_shortener.metrics.ShortenerMetrics;
+import com.wastech.url_shortener.metrics.ShortenerMetrics.Fallback;
 import com.wastech.url_shortener.model.KeyRequest;
 import com.wastech.url_shortener.model.ShortenedUrl;
 import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.redirectrules.CompiledRedirectRules;
+import com.wastech.url_shortener.redirectrules.RedirectRule;
+import com.wastech.url_shortener.redirectrules.RedirectRuleRegistry;
 import com.wastech.url_shortener.repository.ShortenedUrlRepository;
+import com.wastech.url_shortener.replica.ReplicaContext;
+import com.wastech.url_shortener.resilience.DegradedModeCache;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
 import com.wastech.url_shortener.repository.UserRepository;
+import com.wastech.url_shortener.service.DatabaseConcurrencyLimiter.Priority;
+import com.wastech.url_shortener.sharding.ShardedShortenedUrlRepository;
+import com.wastech.url_shortener.snapshot.SnapshotMappingStore;
+import com.wastech.url_shortener.util.Base62;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
@@ -18,10 +46,20 @@ import org.springframework.retry.annotation.Retryable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -35,25 +73,95 @@ public class ShorteningService {
     private final KafkaTemplate<String, KeyRequest> kafkaTemplate;
     private final StringRedisTemplate stringRedisTemplate;
     private final UserRepository userRepository;
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+    private final ShortenerMetrics shortenerMetrics;
+    private final PendingWriteOverlay pendingWriteOverlay;
+    private final ObjectProvider<ShardedShortenedUrlRepository> shardedRepositoryProvider;
+    private final ObjectProvider<OffHeapMappingStore> localStoreProvider;
+    private final ClickCountBuffer clickCountBuffer;
+    private final MappingCache mappingCache;
+    private final CdnPurger cdnPurger;
+    private final MappingChangePublisher mappingChangePublisher;
+    private final ObjectProvider<SnapshotMappingStore> snapshotStoreProvider;
+    private final RedirectRuleRegistry redirectRuleRegistry;
+    private final DegradedModeCache degradedModeCache;
+    private final DependencyBreakers breakers;
+    private final RateLimitService rateLimitService;
+
+    @Value("${app.datasource.replicas.enabled:false}")
+    private boolean replicaReadsEnabled;
+
+    @Value("${app.datasource.replicas.max-staleness-ms:5000}")
+    private long replicaMaxStalenessMs;
 
     private static final String URL_PERSISTENCE_TOPIC = "url-persistence-topic";
-    private static final String SHORT_CODE_CACHE_PREFIX = "shortCode:";
-    private static final long CACHE_TTL_SECONDS = 3600;
+    private static final String RECENT_WRITE_PREFIX = "shortener:recent_write:";
     private static final long UNPAID_USER_EXPIRATION_DAYS = 7;
+    // Replies of readCacheAndOverlay while Redis is unavailable: a cache miss, no pending write, and a
+    // recent-write marker so the database is read on the primary
+    private static final List<Object> REDIS_UNAVAILABLE_REPLIES = Arrays.asList(null, null, Boolean.TRUE);
 
-    @Transactional
+    // Not transactional: the lookup may read a replica while the click count is written to the primary.
     public Optional<ShortenUrlResponse> getLongUrl(String shortCode) {
-        // 1. Try to get from Redis cache (still primarily for simple longUrl retrieval/redirection)
-        String cachedLongUrl = stringRedisTemplate.opsForValue().get(SHORT_CODE_CACHE_PREFIX + shortCode);
+        Timer.Sample sample = shortenerMetrics.startTimer();
+        try {
+            return lookupShortCode(shortCode);
+        } finally {
+            shortenerMetrics.recordLookup(sample);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<ShortenUrlResponse> lookupShortCode(String shortCode) {
+        // 1. Try to get from Redis cache (still primarily for simple longUrl retrieval/redirection),
+        //    pipelined with the pending-write overlay so both cost a single round trip
+        List<Object> cached = readCacheAndOverlay(shortCode);
+        if (cached == null) {
+            shortenerMetrics.degradedFallback(Fallback.REDIS_BYPASSED);
+            cached = REDIS_UNAVAILABLE_REPLIES;
+        }
+        boolean recentlyWritten = replicaReadsEnabled && Boolean.TRUE.equals(cached.get(2));
+        String cachedLongUrl = mappingCache.fromReply(cached.get(0), System.currentTimeMillis())
+            .map(CachedMapping::longUrl)
+            .orElse(null);
         if (cachedLongUrl != null) {
-            log.info("Found long URL for short code '{}' in Redis cache. Proceeding to DB for full details.", shortCode);
+            shortenerMetrics.cacheHit();
+            log.debug("Found long URL for short code '{}' in Redis cache. Proceeding to DB for full details.", shortCode);
+        } else {
+            shortenerMetrics.cacheMiss();
+            shortenerMetrics.dbFallback();
+        }
+
+        // A mapping still in flight to Postgres is answered from the overlay instead of a DB miss
+        Optional<KeyRequest> pending = pendingWriteOverlay.fromHash(shortCode, (Map<String, String>) cached.get(1));
+        if (pending.isPresent()) {
+            KeyRequest pendingWrite = pending.get();
+            if (pendingWrite.getExpiresAt() != null && pendingWrite.getExpiresAt().isBefore(LocalDateTime.now())) {
+                return Optional.empty();
+            }
+            return Optional.of(new ShortenUrlResponse(shortCode, pendingWrite.getLongUrl(), 0L, pendingWrite.getExpiresAt(),
+                "URL details retrieved successfully."));
         }
 
         // 2. Get from database (always for full info, including click count, expiresAt)
-        Optional<ShortenedUrl> shortenedUrlOptional = shortenedUrlRepository.findByShortCode(shortCode);
+        Optional<? extends ShortenedUrlSummary> shortenedUrlOptional;
+        try {
+            admitDatabaseLookup(shortCode);
+            shortenedUrlOptional = databaseConcurrencyLimiter.execute(Priority.REDIRECT,
+                () -> findByShortCodeForRedirect(shortCode, recentlyWritten));
+        } catch (RuntimeException e) {
+            if (cachedLongUrl == null || !(e instanceof DatabaseOverloadedException || e instanceof RateLimitExceededException
+                || DependencyBreakers.isUnavailable(e))) {
+                throw e;
+            }
+            log.warn("Database overloaded, unavailable or rate limited; serving short code '{}' from cache without details.", shortCode);
+            shortenerMetrics.degradedFallback(Fallback.CACHE_ONLY_DETAILS);
+            return Optional.of(new ShortenUrlResponse(shortCode, cachedLongUrl, null, null,
+                "URL retrieved from cache; details are temporarily unavailable."));
+        }
 
         if (shortenedUrlOptional.isPresent()) {
-            ShortenedUrl shortenedUrl = shortenedUrlOptional.get();
+            ShortenedUrlSummary shortenedUrl = shortenedUrlOptional.get();
 
             // Check for expiration
             if (shortenedUrl.getExpiresAt() != null && shortenedUrl.getExpiresAt().isBefore(LocalDateTime.now())) {
@@ -62,20 +170,26 @@ public class ShorteningService {
             }
 
             // Increment click count
-            shortenedUrl.setClickCount(shortenedUrl.getClickCount() + 1);
-            shortenedUrlRepository.save(shortenedUrl);
+            long clickCount = shortenedUrl.getClickCount() + 1;
+            ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+            if (sharded != null) {
+                sharded.incrementClickCount(shortCode);
+            } else {
+                databaseConcurrencyLimiter.execute(Priority.REDIRECT, () -> shortenedUrlRepository.incrementClickCount(shortCode));
+            }
 
             // Update Redis cache with the latest longUrl
-            stringRedisTemplate.opsForValue().set(SHORT_CODE_CACHE_PREFIX + shortCode, shortenedUrl.getLongUrl(), CACHE_TTL_SECONDS, TimeUnit.SECONDS);
-            log.info("Cached (or updated) long URL for short code '{}' in Redis.", shortCode);
+            cacheMapping(shortCode, shortenedUrl.getLongUrl(), shortenedUrl.getExpiresAt());
+            log.debug("Cached (or updated) long URL for short code '{}' in Redis.", shortCode);
 
             // Construct and return the full ShortenUrlResponse DTO
             ShortenUrlResponse response = new ShortenUrlResponse(
                 shortenedUrl.getShortCode(),
                 shortenedUrl.getLongUrl(),
-                shortenedUrl.getClickCount(),
+                clickCount,
                 shortenedUrl.getExpiresAt(),
-                "URL details retrieved successfully."
+                "URL details retrieved successfully.",
+                shortenedUrl.getUpdatedAt()
             );
             return Optional.of(response);
         }
@@ -83,9 +197,316 @@ public class ShorteningService {
         return Optional.empty();
     }
 
+    /**
+     * Resolves a short code for redirection: the local off-heap store first, then the mapping
+     * snapshot where enabled, then Redis together with the pending-write overlay, then the database. Clicks are buffered rather than written
+     * per request, so a warm redirect never touches Postgres. While Redis is unavailable the
+     * degraded-mode cache and the primary database stand in for it.
+     */
+    public Optional<RedirectTarget> resolveLongUrl(String shortCode) {
+        if (!Base62.isValidCode(shortCode)) {
+            return Optional.empty();
+        }
+        Timer.Sample sample = shortenerMetrics.startTimer();
+        try {
+            Optional<RedirectTarget> target = resolveTarget(shortCode);
+            target.ifPresent(t -> clickCountBuffer.record(shortCode));
+            return target;
+        } finally {
+            shortenerMetrics.recordLookup(sample);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<RedirectTarget> resolveTarget(String shortCode) {
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        long key = Base62.decode(shortCode);
+        if (localStore != null) {
+            OffHeapMappingStore.Mapping local = localStore.get(key, shortCode, System.currentTimeMillis());
+            if (local != null) {
+                shortenerMetrics.cacheHit();
+                return Optional.of(new RedirectTarget(local.longUrl(), fromEpochMillis(local.expiresAtMillis())));
+            }
+        }
+        SnapshotMappingStore snapshotStore = snapshotStoreProvider.getIfAvailable();
+        if (snapshotStore != null) {
+            SnapshotMappingStore.Mapping snapshotted = snapshotStore.get(shortCode, System.currentTimeMillis());
+            if (snapshotted != null) {
+                shortenerMetrics.cacheHit();
+                return snapshotted.isGone()
+                    ? Optional.empty()
+                    : Optional.of(new RedirectTarget(snapshotted.longUrl(), fromEpochMillis(snapshotted.expiresAtMillis())));
+            }
+        }
+
+        List<Object> cached = readCacheAndOverlay(shortCode);
+        if (cached == null) {
+            return resolveWithoutRedis(shortCode);
+        }
+        Optional<CachedMapping> hit = mappingCache.fromReply(cached.get(0), System.currentTimeMillis());
+        if (hit.isPresent()) {
+            shortenerMetrics.cacheHit();
+            CachedMapping mapping = hit.get();
+            storeLocally(shortCode, mapping.longUrl(), mapping.expiresAt());
+            return Optional.of(new RedirectTarget(mapping.longUrl(), mapping.expiresAt()));
+        }
+        shortenerMetrics.cacheMiss();
+
+        Optional<KeyRequest> pending = pendingWriteOverlay.fromHash(shortCode, (Map<String, String>) cached.get(1));
+        if (pending.isPresent()) {
+            KeyRequest pendingWrite = pending.get();
+            if (pendingWrite.getExpiresAt() != null && pendingWrite.getExpiresAt().isBefore(LocalDateTime.now())) {
+                return Optional.empty();
+            }
+            return Optional.of(new RedirectTarget(pendingWrite.getLongUrl(), pendingWrite.getExpiresAt()));
+        }
+
+        shortenerMetrics.dbFallback();
+        admitDatabaseLookup(shortCode);
+        boolean recentlyWritten = replicaReadsEnabled && Boolean.TRUE.equals(cached.get(2));
+        Optional<? extends ShortenedUrlSummary> persisted = databaseConcurrencyLimiter.execute(Priority.REDIRECT,
+            () -> findByShortCodeForRedirect(shortCode, recentlyWritten));
+        if (persisted.isEmpty()) {
+            return Optional.empty();
+        }
+        ShortenedUrlSummary mapping = persisted.get();
+        if (mapping.getExpiresAt() != null && mapping.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        cacheMapping(shortCode, mapping.getLongUrl(), mapping.getExpiresAt());
+        return Optional.of(new RedirectTarget(mapping.getLongUrl(), mapping.getExpiresAt()));
+    }
+
+    // Only cache misses are charged to the per-code bucket; see RateLimitService#admitCodeLookup
+    private void admitDatabaseLookup(String shortCode) {
+        long retryAfterSeconds = rateLimitService.admitCodeLookup(shortCode);
+        if (retryAfterSeconds > 0) {
+            throw new RateLimitExceededException(retryAfterSeconds);
+        }
+    }
+
+    /**
+     * One round trip for the cache entry, the pending-write overlay and, with replica reads, the
+     * recent-write marker of a short code.
+     *
+     * @return the pipeline replies in that order, or {@code null} if Redis is unavailable
+     */
+    private List<Object> readCacheAndOverlay(String shortCode) {
+        byte[] pendingKey = pendingWriteOverlay.key(shortCode).getBytes(StandardCharsets.UTF_8);
+        byte[] recentWriteKey = (RECENT_WRITE_PREFIX + shortCode).getBytes(StandardCharsets.UTF_8);
+        try {
+            return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                mappingCache.queueGet(connection, shortCode);
+                connection.hashCommands().hGetAll(pendingKey);
+                if (replicaReadsEnabled) {
+                    connection.keyCommands().exists(recentWriteKey);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            if (!DependencyBreakers.isUnavailable(e)) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    // Redis is unavailable: the degraded-mode cache, then the primary database, since the recent-write
+    // markers are in Redis. Mappings still in flight to Postgres are not found until they are persisted.
+    private Optional<RedirectTarget> resolveWithoutRedis(String shortCode) {
+        RedirectTarget local = degradedModeCache.get(shortCode);
+        if (local != null) {
+            shortenerMetrics.degradedFallback(Fallback.LOCAL_CACHE);
+            return local.getExpiresAt() != null && local.getExpiresAt().isBefore(LocalDateTime.now())
+                ? Optional.empty()
+                : Optional.of(local);
+        }
+        shortenerMetrics.degradedFallback(Fallback.REDIS_BYPASSED);
+        shortenerMetrics.dbFallback();
+        admitDatabaseLookup(shortCode);
+        Optional<? extends ShortenedUrlSummary> persisted = databaseConcurrencyLimiter.execute(Priority.REDIRECT,
+            () -> findByShortCodeForRedirect(shortCode, true));
+        if (persisted.isEmpty()) {
+            return Optional.empty();
+        }
+        ShortenedUrlSummary mapping = persisted.get();
+        if (mapping.getExpiresAt() != null && mapping.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        RedirectTarget target = new RedirectTarget(mapping.getLongUrl(), mapping.getExpiresAt());
+        degradedModeCache.put(shortCode, target);
+        storeLocally(shortCode, mapping.getLongUrl(), mapping.getExpiresAt());
+        return Optional.of(target);
+    }
+
+    /**
+     * Resolves many short codes at once for callers that only need the targets (link checkers, mail
+     * senders), so no clicks are counted. Costs one cache read for all codes, one pipelined read of
+     * the pending-write overlay for the misses, one {@code ANY(?)} query per database and one
+     * pipelined backfill. Results follow the input order, duplicates included. Links with redirect
+     * rules are flagged, since their long URL is only the target for visitors no rule matches.
+     */
+    @PreAuthorize("isAuthenticated()")
+    public List<ResolvedUrl> resolveBatch(List<String> shortCodes) {
+        return resolveAll(shortCodes);
+    }
+
+    /**
+     * Batch form of {@link #resolveLongUrl(String)} for the internal edge resolve listener, which
+     * authenticates its connections itself. Same lookup path as {@link #resolveBatch(List)}, but the
+     * edge proxies redirect with the results, so a click is buffered for every code found. Links
+     * with redirect rules are not counted here: the edges send their visitors on to
+     * {@code /r/{shortCode}}, which counts the click when it applies the rules.
+     */
+    public List<ResolvedUrl> resolveForRedirect(List<String> shortCodes) {
+        List<ResolvedUrl> results = resolveAll(shortCodes);
+        for (ResolvedUrl result : results) {
+            if (result.isFound() && !result.isRedirectRules()) {
+                clickCountBuffer.record(result.getShortCode());
+            }
+        }
+        return results;
+    }
+
+    private List<ResolvedUrl> resolveAll(List<String> shortCodes) {
+        Map<String, RedirectTarget> resolved = new HashMap<>();
+        List<String> remaining = new ArrayList<>();
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        SnapshotMappingStore snapshotStore = snapshotStoreProvider.getIfAvailable();
+        long nowMillis = System.currentTimeMillis();
+        for (String shortCode : new LinkedHashSet<>(shortCodes)) {
+            if (!Base62.isValidCode(shortCode)) {
+                continue;
+            }
+            OffHeapMappingStore.Mapping local = localStore == null ? null : localStore.get(Base62.decode(shortCode), shortCode, nowMillis);
+            if (local != null) {
+                resolved.put(shortCode, new RedirectTarget(local.longUrl(), fromEpochMillis(local.expiresAtMillis())));
+                continue;
+            }
+            SnapshotMappingStore.Mapping snapshotted = snapshotStore == null ? null : snapshotStore.get(shortCode, nowMillis);
+            if (snapshotted == null) {
+                remaining.add(shortCode);
+            } else if (!snapshotted.isGone()) {
+                resolved.put(shortCode, new RedirectTarget(snapshotted.longUrl(), fromEpochMillis(snapshotted.expiresAtMillis())));
+            }
+        }
+
+        boolean redisAvailable = true;
+        if (!remaining.isEmpty()) {
+            try {
+                mappingCache.getAll(remaining).forEach((shortCode, mapping) ->
+                    resolved.put(shortCode, new RedirectTarget(mapping.longUrl(), mapping.expiresAt())));
+                remaining.removeIf(resolved::containsKey);
+            } catch (DataAccessException e) {
+                if (!DependencyBreakers.isUnavailable(e)) {
+                    throw e;
+                }
+                shortenerMetrics.degradedFallback(Fallback.REDIS_BYPASSED);
+                redisAvailable = false;
+            }
+        }
+        if (!remaining.isEmpty()) {
+            resolveBatchFromStorage(remaining, resolved, redisAvailable);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ResolvedUrl> results = new ArrayList<>(shortCodes.size());
+        for (String shortCode : shortCodes) {
+            RedirectTarget target = resolved.get(shortCode);
+            if (target == null || (target.getExpiresAt() != null && target.getExpiresAt().isBefore(now))) {
+                results.add(new ResolvedUrl(shortCode, null, null, false, false));
+            } else {
+                boolean redirectRules = redirectRuleRegistry.find(shortCode) != null;
+                results.add(new ResolvedUrl(shortCode, target.getLongUrl(), target.getExpiresAt(), true, redirectRules));
+            }
+        }
+        return results;
+    }
+
+    // Without Redis there is no overlay to consult and no marker to trust, so every miss is read on the
+    // primary and nothing is backfilled.
+    @SuppressWarnings("unchecked")
+    private void resolveBatchFromStorage(List<String> misses, Map<String, RedirectTarget> resolved, boolean redisAvailable) {
+        if (!redisAvailable) {
+            shortenerMetrics.dbFallback();
+            List<String> recentlyWritten = replicaReadsEnabled ? misses : List.of();
+            List<String> toLoad = replicaReadsEnabled ? List.of() : misses;
+            List<ShortenedUrlSummary> loaded = databaseConcurrencyLimiter.execute(Priority.REDIRECT,
+                () -> findByShortCodesForRedirect(toLoad, recentlyWritten));
+            for (ShortenedUrlSummary mapping : loaded) {
+                resolved.put(mapping.getShortCode(), new RedirectTarget(mapping.getLongUrl(), mapping.getExpiresAt()));
+                storeLocally(mapping.getShortCode(), mapping.getLongUrl(), mapping.getExpiresAt());
+            }
+            return;
+        }
+        // Pending writes are not in Postgres yet; recently written codes must not be read from a replica
+        List<Object> overlay = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String shortCode : misses) {
+                connection.hashCommands().hGetAll(pendingWriteOverlay.key(shortCode).getBytes(StandardCharsets.UTF_8));
+            }
+            if (replicaReadsEnabled) {
+                connection.stringCommands().mGet(misses.stream()
+                    .map(shortCode -> (RECENT_WRITE_PREFIX + shortCode).getBytes(StandardCharsets.UTF_8))
+                    .toArray(byte[][]::new));
+            }
+            return null;
+        });
+        List<String> toLoad = new ArrayList<>();
+        List<String> recentlyWritten = new ArrayList<>();
+        List<Object> markers = replicaReadsEnabled ? (List<Object>) overlay.get(misses.size()) : List.of();
+        for (int i = 0; i < misses.size(); i++) {
+            String shortCode = misses.get(i);
+            Optional<KeyRequest> pending = pendingWriteOverlay.fromHash(shortCode, (Map<String, String>) overlay.get(i));
+            if (pending.isPresent()) {
+                resolved.put(shortCode, new RedirectTarget(pending.get().getLongUrl(), pending.get().getExpiresAt()));
+            } else if (replicaReadsEnabled && markers.get(i) != null) {
+                recentlyWritten.add(shortCode);
+            } else {
+                toLoad.add(shortCode);
+            }
+        }
+
+        if (toLoad.isEmpty() && recentlyWritten.isEmpty()) {
+            return;
+        }
+        shortenerMetrics.dbFallback();
+        List<ShortenedUrlSummary> loaded = databaseConcurrencyLimiter.execute(Priority.REDIRECT,
+            () -> findByShortCodesForRedirect(toLoad, recentlyWritten));
+        if (loaded.isEmpty()) {
+            return;
+        }
+        long nowMillis = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ShortenedUrlSummary mapping : loaded) {
+                    mappingCache.queuePut(connection, mapping.getShortCode(), mapping.getLongUrl(), mapping.getExpiresAt(), nowMillis);
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            if (!DependencyBreakers.isUnavailable(e)) {
+                throw e;
+            }
+            log.debug("Redis unavailable; not backfilling {} resolved mappings.", loaded.size());
+        }
+        for (ShortenedUrlSummary mapping : loaded) {
+            resolved.put(mapping.getShortCode(), new RedirectTarget(mapping.getLongUrl(), mapping.getExpiresAt()));
+            storeLocally(mapping.getShortCode(), mapping.getLongUrl(), mapping.getExpiresAt());
+        }
+    }
+
     @Transactional
     @PreAuthorize("isAuthenticated()")
     public ShortenUrlResponse shortenUrl(String longUrl) {
+        Timer.Sample sample = shortenerMetrics.startTimer();
+        try {
+            return shortenForCurrentUser(longUrl);
+        } finally {
+            shortenerMetrics.recordShorten(sample);
+        }
+    }
+
+    private ShortenUrlResponse shortenForCurrentUser(String longUrl) {
         User currentUser = getCurrentAuthenticatedUser();
 
 
@@ -93,19 +514,26 @@ public class ShorteningService {
             throw new IllegalStateException("No authenticated user found.");
         }
 
-        log.info("Attempting to shorten Long Url: {} for user: {}", longUrl, currentUser.getUsername());
-
-        // 1. Check if the long URL has already been shortened by THIS USER
-        Optional<ShortenedUrl> existing = shortenedUrlRepository.findByLongUrl(longUrl)
-            .filter(s -> s.getUser() != null && s.getUser().getId().equals(currentUser.getId()));
+        log.debug("Attempting to shorten Long Url: {} for user: {}", longUrl, currentUser.getUsername());
 
+        // 1. Check if the long URL has already been shortened by THIS USER. While the database breaker
+        //    is open the check is skipped and the mapping is queued like any other; the user may get a
+        //    second code. Ordinary load does not skip it.
+        Optional<? extends ShortenedUrlSummary> existing;
+        if (breakers.database().isCallPermitted()) {
+            existing = findByUserIdAndLongUrl(currentUser.getId(), longUrl);
+        } else {
+            log.warn("Database unavailable; shortening {} without checking for an existing short code.", longUrl);
+            shortenerMetrics.degradedFallback(Fallback.DEDUP_SKIPPED);
+            existing = Optional.empty();
+        }
 
         if (existing.isPresent()) {
-            ShortenedUrl existingUrl = existing.get();
+            ShortenedUrlSummary existingUrl = existing.get();
             String existingShortCode = existingUrl.getShortCode();
             Long existingClickCount = existingUrl.getClickCount();
-            log.info("Long URL '{}' already shortened by user '{}' to '{}'. Returning existing short code and click count.", longUrl, currentUser.getUsername(), existingShortCode);
-            stringRedisTemplate.opsForValue().set(SHORT_CODE_CACHE_PREFIX + existingShortCode, longUrl, CACHE_TTL_SECONDS, TimeUnit.SECONDS);
+            log.debug("Long URL '{}' already shortened by user '{}' to '{}'. Returning existing short code and click count.", longUrl, currentUser.getUsername(), existingShortCode);
+            cacheMapping(existingShortCode, longUrl, existingUrl.getExpiresAt());
             return new ShortenUrlResponse(existingShortCode, existingUrl.getLongUrl(), existingClickCount, existingUrl.getExpiresAt(), "URL already shortened by you.");
         }
 
@@ -120,17 +548,27 @@ public class ShorteningService {
         // Set expiration based on user's paid status
         if (!currentUser.isPaid()) {
             expiresAt = LocalDateTime.now().plusDays(UNPAID_USER_EXPIRATION_DAYS);
-            log.info("Unpaid user: URL will expire in {} days.", UNPAID_USER_EXPIRATION_DAYS);
+            log.debug("Unpaid user: URL will expire in {} days.", UNPAID_USER_EXPIRATION_DAYS);
         } else {
-            log.info("Paid user: URL will not expire.");
+            log.debug("Paid user: URL will not expire.");
         }
 
-        // 3. Publish the mapping to Kafka for asynchronous persistence with retry logic
+        // 3. Record the in-flight mapping before publishing, so the consumer's clear can never precede it,
+        //    then publish the mapping to Kafka for asynchronous persistence with retry logic. Without Redis
+        //    the code resolves once persisted, and on this instance through the degraded-mode cache.
+        try {
+            pendingWriteOverlay.record(new KeyRequest(shortCode, longUrl, currentUser.getId(), expiresAt));
+        } catch (DataAccessException e) {
+            if (!DependencyBreakers.isUnavailable(e)) {
+                throw e;
+            }
+            shortenerMetrics.degradedFallback(Fallback.OVERLAY_SKIPPED);
+        }
         publishMappingToKafkaWithRetry(shortCode, longUrl, currentUser.getId(), expiresAt);
 
         // 4. Optionally, add to Redis cache immediately for new shortenings
-        stringRedisTemplate.opsForValue().set(SHORT_CODE_CACHE_PREFIX + shortCode, longUrl, CACHE_TTL_SECONDS, TimeUnit.SECONDS);
-        log.info("New mapping for short code '{}' and long URL '{}' cached in Redis.", shortCode, longUrl);
+        cacheMapping(shortCode, longUrl, expiresAt);
+        log.debug("New mapping for short code '{}' and long URL '{}' cached in Redis.", shortCode, longUrl);
 
         return new ShortenUrlResponse(shortCode, longUrl, 0L, expiresAt, "URL shortened successfully.");
     }
@@ -141,19 +579,26 @@ public class ShorteningService {
         backoff = @Backoff(delay = 1000, multiplier = 2)
     )
     public void publishMappingToKafkaWithRetry(String shortCode, String longUrl, Long userId, LocalDateTime expiresAt) {
-        log.info("Attempting to publish mapping to Kafka (retry attempt): ShortCode={}, LongUrl={}, UserId={}", shortCode, longUrl, userId);
+        log.debug("Attempting to publish mapping to Kafka (retry attempt): ShortCode={}, LongUrl={}, UserId={}", shortCode, longUrl, userId);
         KeyRequest keyRequest = new KeyRequest(shortCode, longUrl, userId, expiresAt);
-        kafkaTemplate.send(URL_PERSISTENCE_TOPIC, shortCode, keyRequest)
-            .whenComplete((result, ex) -> {
-                if (ex != null) {
-                    log.error("Failed to publish mapping to Kafka: ShortCode={}, LongUrl={}, UserId={}, Error={}",
-                        shortCode, longUrl, userId, ex.getMessage(), ex);
-                    throw new RuntimeException("Kafka send failed", ex);
-                } else {
-                    log.info("Successfully published mapping to Kafka: ShortCode={}, LongUrl={}, UserId={}", shortCode, longUrl, userId);
-                }
-            })
-            .join();
+        Timer.Sample sample = shortenerMetrics.startTimer();
+        long started = System.nanoTime();
+        try {
+            kafkaTemplate.send(URL_PERSISTENCE_TOPIC, shortCode, keyRequest)
+                .whenComplete((result, ex) -> {
+                    shortenerMetrics.recordKafkaPublish(sample, ex == null);
+                    if (ex != null) {
+                        log.error("Failed to publish mapping to Kafka: ShortCode={}, LongUrl={}, UserId={}, Error={}",
+                            shortCode, longUrl, userId, ex.getMessage(), ex);
+                        throw new RuntimeException("Kafka send failed", ex);
+                    } else {
+                        log.debug("Successfully published mapping to Kafka: ShortCode={}, LongUrl={}, UserId={}", shortCode, longUrl, userId);
+                    }
+                })
+                .join();
+        } finally {
+            RequestTimings.recordKafka(System.nanoTime() - started);
+        }
     }
 
     @Recover
@@ -167,31 +612,36 @@ public class ShorteningService {
     @Transactional(readOnly = true)
     @PreAuthorize("isAuthenticated()")
     public List<ShortenUrlResponse> getUserShortenedUrls() {
-        User currentUser = getCurrentAuthenticatedUser();
-        if (currentUser == null) {
-            throw new IllegalStateException("No authenticated user found.");
-        }
-        return shortenedUrlRepository.findByUser(currentUser).stream()
-            .map(this::convertToDto)
-            .collect(Collectors.toList());
+        return databaseConcurrencyLimiter.execute(Priority.LISTING, () -> {
+            User currentUser = getCurrentAuthenticatedUser();
+            if (currentUser == null) {
+                throw new IllegalStateException("No authenticated user found.");
+            }
+            return findByUserId(currentUser.getId()).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+        });
     }
 
     @Transactional(readOnly = true)
     @PreAuthorize("hasRole('ADMIN')")
     public List<ShortenUrlResponse> getAllShortenedUrls() {
-        return shortenedUrlRepository.findAll().stream()
+        return databaseConcurrencyLimiter.execute(Priority.LISTING, () -> findAll().stream()
             .map(this::convertToDto)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
     @Transactional(readOnly = true)
     @PreAuthorize("hasRole('ADMIN')")
     public List<ShortenUrlResponse> getShortenedUrlsBySpecificUserId(Long userId) {
-        User user = userRepository.findById(userId)
-            .orElseThrow(() -> new IllegalArgumentException("User with ID " + userId + " not found."));
-        return shortenedUrlRepository.findByUser(user).stream()
-            .map(this::convertToDto)
-            .collect(Collectors.toList());
+        return databaseConcurrencyLimiter.execute(Priority.LISTING, () -> {
+            if (!userRepository.existsById(userId)) {
+                throw new IllegalArgumentException("User with ID " + userId + " not found.");
+            }
+            return findByUserId(userId).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+        });
     }
 
     @Transactional
@@ -202,19 +652,68 @@ public class ShorteningService {
             throw new IllegalStateException("No authenticated user found.");
         }
 
-        ShortenedUrl urlToUpdate = shortenedUrlRepository.findByIdAndUser(id, currentUser)
+        ShortenedUrl urlToUpdate = findByIdAndUser(id, currentUser)
             .orElseThrow(() -> new IllegalArgumentException("Shortened URL not found or not owned by user."));
 
         // Invalidate cache for the old short code
-        stringRedisTemplate.delete(SHORT_CODE_CACHE_PREFIX + urlToUpdate.getShortCode());
-        log.info("Invalidated cache for short code: {}", urlToUpdate.getShortCode());
+        mappingCache.evict(urlToUpdate.getShortCode());
+        log.debug("Invalidated cache for short code: {}", urlToUpdate.getShortCode());
+        markRecentlyWritten(urlToUpdate.getShortCode());
 
         urlToUpdate.setLongUrl(newLongUrl);
-        ShortenedUrl updatedUrl = shortenedUrlRepository.save(urlToUpdate);
+        urlToUpdate.setUpdatedAt(LocalDateTime.now());
+        ShortenedUrl updatedUrl;
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        if (sharded != null) {
+            sharded.updateLongUrl(urlToUpdate.getShortCode(), newLongUrl, urlToUpdate.getUpdatedAt());
+            updatedUrl = urlToUpdate;
+        } else {
+            updatedUrl = shortenedUrlRepository.save(urlToUpdate);
+        }
 
         // Update cache with new long URL
-        stringRedisTemplate.opsForValue().set(SHORT_CODE_CACHE_PREFIX + updatedUrl.getShortCode(), updatedUrl.getLongUrl(), CACHE_TTL_SECONDS, TimeUnit.SECONDS);
-        log.info("Updated cache for short code: {} with new long URL.", updatedUrl.getShortCode());
+        cacheMapping(updatedUrl.getShortCode(), updatedUrl.getLongUrl(), updatedUrl.getExpiresAt());
+        log.debug("Updated cache for short code: {} with new long URL.", updatedUrl.getShortCode());
+        cdnPurger.purgeAfterCommit(updatedUrl.getShortCode());
+        mappingChangePublisher.publishUpdateAfterCommit(updatedUrl);
+
+        return updatedUrl;
+    }
+
+    /**
+     * Replaces the link's redirect rules, or removes them when {@code rules} is empty. The rules are
+     * compiled here once to reject malformed ones; every instance compiles its own copy when the
+     * changelog announces the update. The CDN copy is purged since it may hold a cacheable redirect.
+     */
+    @Transactional
+    @PreAuthorize("isAuthenticated()")
+    public ShortenedUrl updateRedirectRules(Long id, List<RedirectRule> rules) {
+        User currentUser = getCurrentAuthenticatedUser();
+        if (currentUser == null) {
+            throw new IllegalStateException("No authenticated user found.");
+        }
+
+        ShortenedUrl urlToUpdate = findByIdAndUser(id, currentUser)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Shortened URL not found or not owned by user."));
+
+        String redirectRules = null;
+        if (rules != null && !rules.isEmpty()) {
+            CompiledRedirectRules.compile(rules);
+            redirectRules = redirectRuleRegistry.toJson(rules);
+        }
+        urlToUpdate.setRedirectRules(redirectRules);
+        urlToUpdate.setUpdatedAt(LocalDateTime.now());
+        ShortenedUrl updatedUrl;
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        if (sharded != null) {
+            sharded.updateRedirectRules(urlToUpdate.getShortCode(), redirectRules, urlToUpdate.getUpdatedAt());
+            updatedUrl = urlToUpdate;
+        } else {
+            updatedUrl = shortenedUrlRepository.save(urlToUpdate);
+        }
+        log.debug("{} redirect rules of short code {}.", redirectRules == null ? "Removed" : "Updated", updatedUrl.getShortCode());
+        cdnPurger.purgeAfterCommit(updatedUrl.getShortCode());
+        mappingChangePublisher.publishUpdateAfterCommit(updatedUrl);
 
         return updatedUrl;
     }
@@ -227,31 +726,151 @@ public class ShorteningService {
             throw new IllegalStateException("No authenticated user found.");
         }
 
-        ShortenedUrl urlToDelete = shortenedUrlRepository.findByIdAndUser(id, currentUser)
+        ShortenedUrl urlToDelete = findByIdAndUser(id, currentUser)
             .orElseThrow(() -> new IllegalArgumentException("Shortened URL not found or not owned by user."));
 
-        stringRedisTemplate.delete(SHORT_CODE_CACHE_PREFIX + urlToDelete.getShortCode());
-        log.info("Invalidated cache for short code: {}", urlToDelete.getShortCode());
+        mappingCache.evict(urlToDelete.getShortCode());
+        log.debug("Invalidated cache for short code: {}", urlToDelete.getShortCode());
+        markRecentlyWritten(urlToDelete.getShortCode());
 
-        shortenedUrlRepository.delete(urlToDelete);
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        if (sharded != null) {
+            sharded.deleteByShortCode(urlToDelete.getShortCode());
+        } else {
+            shortenedUrlRepository.delete(urlToDelete);
+        }
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        if (localStore != null && Base62.isValidCode(urlToDelete.getShortCode())) {
+            localStore.remove(Base62.decode(urlToDelete.getShortCode()));
+        }
+        cdnPurger.purgeAfterCommit(urlToDelete.getShortCode());
+        mappingChangePublisher.publishDeleteAfterCommit(urlToDelete.getShortCode());
     }
 
     @Transactional
     @PreAuthorize("hasRole('ADMIN')")
     public void deleteAllShortenedUrls() {
         log.warn("ADMIN: Deleting ALL shortened URLs from the database.");
-        List<String> shortCodes = shortenedUrlRepository.findAll().stream()
-            .map(ShortenedUrl::getShortCode)
-            .map(s -> SHORT_CODE_CACHE_PREFIX + s)
+        List<String> shortCodes = findAll().stream()
+            .map(ShortenedUrlSummary::getShortCode)
             .collect(Collectors.toList());
         if (!shortCodes.isEmpty()) {
-            stringRedisTemplate.delete(shortCodes);
+            mappingCache.evictAll(shortCodes);
             log.info("Cleared {} short URL entries from Redis cache during bulk delete.", shortCodes.size());
         }
-        shortenedUrlRepository.deleteAll();
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        if (sharded != null) {
+            sharded.deleteAll();
+        } else {
+            shortenedUrlRepository.deleteAll();
+        }
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        if (localStore != null) {
+            localStore.clear();
+        }
+        cdnPurger.purgeAllAfterCommit();
+        mappingChangePublisher.publishDeletesAfterCommit(shortCodes);
         log.info("Successfully deleted all shortened URLs from the database.");
     }
 
+    // Routes shortened_urls access to the owning shard when sharding is enabled. Read paths use the
+    // ShortenedUrlSummary projection, or select only its columns on the shards.
+    private Optional<? extends ShortenedUrlSummary> findByShortCode(String shortCode) {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        return sharded != null ? sharded.findSummaryByShortCode(shortCode) : shortenedUrlRepository.findSummaryByShortCode(shortCode);
+    }
+
+    // Cache misses read a replica. A code changed within the staleness window, or missing on the
+    // replica (possibly not replicated yet), is read from the primary instead.
+    private Optional<? extends ShortenedUrlSummary> findByShortCodeForRedirect(String shortCode, boolean recentlyWritten) {
+        if (!replicaReadsEnabled || shardedRepositoryProvider.getIfAvailable() != null) {
+            return findByShortCode(shortCode);
+        }
+        if (recentlyWritten) {
+            return ReplicaContext.onPrimary(() -> findByShortCode(shortCode));
+        }
+        Optional<? extends ShortenedUrlSummary> fromReplica = ReplicaContext.onReplica(() -> findByShortCode(shortCode));
+        return fromReplica.isPresent() ? fromReplica : ReplicaContext.onPrimary(() -> findByShortCode(shortCode));
+    }
+
+    // Writes the mapping to Redis and the local store. Cache entries never outlive the link, so a
+    // cache hit always implies the link is still valid. While Redis is unavailable the degraded-mode
+    // cache takes the entry instead.
+    private void cacheMapping(String shortCode, String longUrl, LocalDateTime expiresAt) {
+        try {
+            mappingCache.put(shortCode, longUrl, expiresAt);
+        } catch (DataAccessException e) {
+            if (!DependencyBreakers.isUnavailable(e)) {
+                throw e;
+            }
+            degradedModeCache.put(shortCode, new RedirectTarget(longUrl, expiresAt));
+        }
+        storeLocally(shortCode, longUrl, expiresAt);
+    }
+
+    // Local store stamps are epoch millis with 0 for links that never expire.
+    private void storeLocally(String shortCode, String longUrl, LocalDateTime expiresAt) {
+        OffHeapMappingStore localStore = localStoreProvider.getIfAvailable();
+        if (localStore != null && Base62.isValidCode(shortCode)) {
+            long expiresAtMillis = expiresAt == null ? 0 : expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            localStore.put(Base62.decode(shortCode), shortCode, longUrl, expiresAtMillis, System.currentTimeMillis());
+        }
+    }
+
+    private static LocalDateTime fromEpochMillis(long epochMillis) {
+        return epochMillis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private void markRecentlyWritten(String shortCode) {
+        if (replicaReadsEnabled) {
+            stringRedisTemplate.opsForValue().set(RECENT_WRITE_PREFIX + shortCode, "1", replicaMaxStalenessMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Batch counterpart of findByShortCodeForRedirect: replica first, then the primary for recently
+    // written codes and replica misses.
+    private List<ShortenedUrlSummary> findByShortCodesForRedirect(List<String> shortCodes, List<String> recentlyWritten) {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        if (sharded != null) {
+            List<String> all = new ArrayList<>(shortCodes);
+            all.addAll(recentlyWritten);
+            return sharded.findByShortCodes(all);
+        }
+        if (!replicaReadsEnabled) {
+            return shortenedUrlRepository.findSummariesByShortCodes(shortCodes);
+        }
+        List<ShortenedUrlSummary> found = new ArrayList<>(ReplicaContext.onReplica(() -> shortenedUrlRepository.findSummariesByShortCodes(shortCodes)));
+        Set<String> foundCodes = found.stream().map(ShortenedUrlSummary::getShortCode).collect(Collectors.toSet());
+        List<String> fromPrimary = new ArrayList<>(recentlyWritten);
+        shortCodes.stream().filter(code -> !foundCodes.contains(code)).forEach(fromPrimary::add);
+        if (!fromPrimary.isEmpty()) {
+            found.addAll(ReplicaContext.onPrimary(() -> shortenedUrlRepository.findSummariesByShortCodes(fromPrimary)));
+        }
+        return found;
+    }
+
+    private Optional<? extends ShortenedUrlSummary> findByUserIdAndLongUrl(Long userId, String longUrl) {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        return sharded != null
+            ? sharded.findFirstSummaryByUserIdAndLongUrl(userId, longUrl)
+            : shortenedUrlRepository.findFirstSummaryByUserIdAndLongUrl(userId, longUrl);
+    }
+
+    private List<? extends ShortenedUrlSummary> findByUserId(Long userId) {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        return sharded != null ? sharded.findSummariesByUserId(userId) : shortenedUrlRepository.findSummariesByUserId(userId);
+    }
+
+    private List<? extends ShortenedUrlSummary> findAll() {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        return sharded != null ? sharded.findAllSummaries() : shortenedUrlRepository.findAllProjectedBy();
+    }
+
+    private Optional<ShortenedUrl> findByIdAndUser(Long id, User user) {
+        ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+        return sharded != null ? sharded.findByIdAndUserId(id, user.getId()) : shortenedUrlRepository.findByIdAndUser(id, user);
+    }
+
     private User getCurrentAuthenticatedUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() instanceof String) {
@@ -262,7 +881,7 @@ public class ShorteningService {
         return userRepository.findByUsername(userDetails.getUsername()).orElse(null);
     }
 
-    private ShortenUrlResponse convertToDto(ShortenedUrl shortenedUrl) {
+    private ShortenUrlResponse convertToDto(ShortenedUrlSummary shortenedUrl) {
         return new ShortenUrlResponse(
             shortenedUrl.getShortCode(),
             shortenedUrl.getLongUrl(),
@@ -1,18 +1,28 @@
 package com.wastech.url_shortener.service;
 
+import com.wastech.url_shortener.exception.DatabaseOverloadedException;
+import com.wastech.url_shortener.metrics.ShortenerMetrics;
 import com.wastech.url_shortener.model.KeyRequest;
 import com.wastech.url_shortener.model.ShortenedUrl;
 import com.wastech.url_shortener.model.User;
 import com.wastech.url_shortener.repository.ShortenedUrlRepository;
 import com.wastech.url_shortener.repository.UserRepository;
+import com.wastech.url_shortener.resilience.DependencyBreakers;
+import com.wastech.url_shortener.service.DatabaseConcurrencyLimiter.Priority;
+import com.wastech.url_shortener.sharding.ShardedShortenedUrlRepository;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -22,37 +32,104 @@ public class UrlPersistenceConsumer {
 
     private final ShortenedUrlRepository shortenedUrlRepository;
     private final UserRepository userRepository;
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+    private final ShortenerMetrics shortenerMetrics;
+    private final PendingWriteOverlay pendingWriteOverlay;
+    private final ObjectProvider<ShardedShortenedUrlRepository> shardedRepositoryProvider;
+    private final MappingChangePublisher mappingChangePublisher;
 
     @KafkaListener(topics = "url-persistence-topic", groupId = "url-shortener-group")
     @Transactional
-    public void processUrlPersistence(KeyRequest keyRequest) {
-        log.info("Received message for URL persistence: {}", keyRequest);
+    public void processUrlPersistence(KeyRequest keyRequest, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long publishedAt) {
+        log.debug("Received message for URL persistence: {}", keyRequest);
+        shortenerMetrics.recordPersistenceLag(publishedAt);
+        Timer.Sample sample = shortenerMetrics.startTimer();
 
         try {
-            User user = userRepository.findById(keyRequest.getUserId())
-                .orElseThrow(() -> new RuntimeException("User not found for ID: " + keyRequest.getUserId()));
-
-
-            Optional<ShortenedUrl> existingUrlOptional = shortenedUrlRepository.findByShortCode(keyRequest.getShortCode());
-
-            if (existingUrlOptional.isEmpty()) {
-                ShortenedUrl shortenedUrl = new ShortenedUrl();
-                shortenedUrl.setShortCode(keyRequest.getShortCode());
-                shortenedUrl.setLongUrl(keyRequest.getLongUrl());
-                shortenedUrl.setCreatedAt(LocalDateTime.now());
-                shortenedUrl.setClickCount(0L);
-                shortenedUrl.setUser(user);
-                shortenedUrl.setExpiresAt(keyRequest.getExpiresAt());
-
-                shortenedUrlRepository.save(shortenedUrl);
-                log.info("Successfully persisted new shortened URL: {}", shortenedUrl.getShortCode());
+            ShardedShortenedUrlRepository sharded = shardedRepositoryProvider.getIfAvailable();
+            if (sharded != null) {
+                persistToShard(sharded, keyRequest);
             } else {
-                log.warn("Short code '{}' already exists in DB. Skipping persistence for this message.", keyRequest.getShortCode());
-
+                persistToDatabase(keyRequest);
             }
+            clearPendingWriteAfterCommit(keyRequest.getShortCode());
 
+        } catch (DatabaseOverloadedException e) {
+            // Rethrown so the container's back-off redelivers the record instead of dropping it.
+            log.warn("Database overloaded, deferring persistence of short code {}", keyRequest.getShortCode());
+            throw e;
+        } catch (RuntimeException e) {
+            if (!DependencyBreakers.isUnavailable(e)) {
+                log.error("Error processing URL persistence message for shortCode {}: {}", keyRequest.getShortCode(), e.getMessage(), e);
+                return;
+            }
+            // Same for an unreachable database: the mapping waits in the topic until it is back
+            log.warn("Database unavailable, deferring persistence of short code {}: {}", keyRequest.getShortCode(), e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Error processing URL persistence message for shortCode {}: {}", keyRequest.getShortCode(), e.getMessage(), e);
+        } finally {
+            shortenerMetrics.recordPersistence(sample);
         }
     }
+
+    // The duplicate check, the user lookup and the insert share one permit; the insert is flushed
+    // while it is held rather than at commit, after the permit has been released.
+    private void persistToDatabase(KeyRequest keyRequest) {
+        boolean inserted = databaseConcurrencyLimiter.execute(Priority.PERSISTENCE, () -> {
+            if (shortenedUrlRepository.findByShortCode(keyRequest.getShortCode()).isPresent()) {
+                return false;
+            }
+            User user = userRepository.findById(keyRequest.getUserId())
+                .orElseThrow(() -> new RuntimeException("User not found for ID: " + keyRequest.getUserId()));
+            shortenedUrlRepository.saveAndFlush(toShortenedUrl(keyRequest, user));
+            return true;
+        });
+        if (inserted) {
+            mappingChangePublisher.publishCreatedAfterCommit(keyRequest);
+            log.debug("Successfully persisted new shortened URL: {}", keyRequest.getShortCode());
+        } else {
+            shortenerMetrics.persistenceDuplicateSkipped();
+            log.warn("Short code '{}' already exists in DB. Skipping persistence for this message.", keyRequest.getShortCode());
+        }
+    }
+
+    // Shards hold no app_users rows, so the user is referenced by id only and the insert doubles as the duplicate check.
+    private void persistToShard(ShardedShortenedUrlRepository sharded, KeyRequest keyRequest) {
+        User user = new User();
+        user.setId(keyRequest.getUserId());
+        boolean inserted = databaseConcurrencyLimiter.execute(Priority.PERSISTENCE,
+            () -> sharded.insertIfAbsent(toShortenedUrl(keyRequest, user)));
+        if (inserted) {
+            mappingChangePublisher.publishCreatedAfterCommit(keyRequest);
+            log.debug("Successfully persisted new shortened URL: {}", keyRequest.getShortCode());
+        } else {
+            shortenerMetrics.persistenceDuplicateSkipped();
+            log.warn("Short code '{}' already exists on its shard. Skipping persistence for this message.", keyRequest.getShortCode());
+        }
+    }
+
+    private ShortenedUrl toShortenedUrl(KeyRequest keyRequest, User user) {
+        ShortenedUrl shortenedUrl = new ShortenedUrl();
+        shortenedUrl.setShortCode(keyRequest.getShortCode());
+        shortenedUrl.setLongUrl(keyRequest.getLongUrl());
+        shortenedUrl.setCreatedAt(LocalDateTime.now());
+        shortenedUrl.setClickCount(0L);
+        shortenedUrl.setUser(user);
+        shortenedUrl.setExpiresAt(keyRequest.getExpiresAt());
+        return shortenedUrl;
+    }
+
+    private void clearPendingWriteAfterCommit(String shortCode) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingWriteOverlay.clear(shortCode);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pendingWriteOverlay.clear(shortCode);
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.hibernate.Cache;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Explicit second-level cache eviction for a user and its roles. Runs after commit so a
+ * concurrent reader cannot repopulate the cache with the pre-commit state. The username →
+ * id natural-id entry is left alone: usernames are immutable.
+ * <p>
+ * The cache is per instance, so the eviction is also broadcast on {@link #USER_INVALIDATION_TOPIC},
+ * which every instance consumes in its own group. A failed send is logged; the other instances'
+ * copies then age out with the region expiry.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheEvictor {
+
+    public static final String USER_INVALIDATION_TOPIC = "user-cache-invalidation";
+
+    private static final String ROLES_ROLE = User.class.getName() + ".roles";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final KafkaTemplate<String, String> stringKafkaTemplate;
+
+    public void evictAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictEverywhere(userId);
+                }
+            });
+        } else {
+            evictEverywhere(userId);
+        }
+    }
+
+    @KafkaListener(topics = USER_INVALIDATION_TOPIC,
+        groupId = "url-shortener-user-invalidation-${HOSTNAME:${random.uuid}}",
+        containerFactory = "stringKafkaListenerContainerFactory",
+        properties = "auto.offset.reset=latest")
+    public void onInvalidation(ConsumerRecord<String, String> record) {
+        try {
+            evict(Long.valueOf(record.value()));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring user cache invalidation with value {}.", record.value());
+        }
+    }
+
+    private void evictEverywhere(Long userId) {
+        evict(userId);
+        String id = userId.toString();
+        stringKafkaTemplate.send(USER_INVALIDATION_TOPIC, id, id).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.warn("Could not broadcast cache eviction of user {}: {}", userId, ex.getMessage());
+            }
+        });
+    }
+
+    private void evict(Long userId) {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(User.class, userId);
+        cache.evictCollectionData(ROLES_ROLE, userId);
+        log.debug("Evicted user {} from the second-level cache.", userId);
+    }
+}
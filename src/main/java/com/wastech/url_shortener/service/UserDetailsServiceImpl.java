@@ -1,23 +1,39 @@
 package com.wastech.url_shortener.service;
 
 import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.replica.ReplicaContext;
 import com.wastech.url_shortener.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserCacheEvictor userCacheEvictor;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        // Authentication always reads the primary so a fresh registration or password change is visible at once
+        User user = ReplicaContext.onPrimary(() -> userRepository.findByUsername(username))
             .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
         return user;
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores a hash recomputed at the configured cost after a successful login with an older one.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = (User) userDetails;
+        userRepository.updatePassword(user.getId(), newPassword);
+        userCacheEvictor.evictAfterCommit(user.getId());
+        user.setPassword(newPassword);
+        return user;
+    }
+}
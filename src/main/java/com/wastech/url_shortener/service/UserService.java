@@ -0,0 +1,30 @@
+package com.wastech.url_shortener.service;
+
+import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserService {
+
+    private final UserRepository userRepository;
+    private final UserCacheEvictor userCacheEvictor;
+
+    @Transactional
+    @PreAuthorize("hasRole('ADMIN')")
+    public User updatePlan(Long userId, boolean paid) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new IllegalArgumentException("User with ID " + userId + " not found."));
+        user.setPaid(paid);
+        User updatedUser = userRepository.save(user);
+        userCacheEvictor.evictAfterCommit(userId);
+        log.info("Plan for user {} changed to {}.", user.getUsername(), paid ? "paid" : "free");
+        return updatedUser;
+    }
+}
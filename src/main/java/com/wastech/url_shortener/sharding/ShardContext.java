@@ -0,0 +1,32 @@
+package com.wastech.url_shortener.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-bound shard selection read by {@link ShardRoutingDataSource}.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT_SHARD.get();
+    }
+
+    public static <T> T callOn(int shard, Supplier<T> work) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.wastech.url_shortener.sharding;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ShardMoveJob {
+
+    public enum Status { COPYING, SWITCHING, CATCHING_UP, CLEANING_UP, COMPLETED, FAILED }
+
+    private final String id;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final int targetShard;
+    private final boolean deleteFromSource;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile Status status = Status.COPYING;
+    private volatile long copiedRows;
+    private volatile long deletedRows;
+    /** Rows removed from the target because the mapping was deleted on its old owner mid-move. */
+    private volatile long replayedDeletes;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+}
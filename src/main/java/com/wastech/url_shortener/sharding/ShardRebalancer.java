@@ -0,0 +1,259 @@
+package com.wastech.url_shortener.sharding;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.serialization.KeyRequestDeserializer;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.util.Base62;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Online resharding: moves a short-code range to another shard while traffic keeps flowing.
+ * Rows are copied in the background, the route is flipped, and a second pass picks up anything
+ * written to the old owner before every instance refreshed its range table.
+ * <p>
+ * Copies only ever insert or update, so a mapping deleted on the old owner after it was copied
+ * would come back on the new one. Deletions are replayed from the mapping changelog's tombstones,
+ * read from the offsets seen when the move started: once before the flip, and again after the
+ * second pass for deletions made while instances still routed to the old owner.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+@Slf4j
+public class ShardRebalancer {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    // Base62 order is shortest code first, then character order, and the alphabet is in ASCII order;
+    // leading zeros do not change the value. Same ordering as the snapshot exporter.
+    private static final String KEY_LENGTH = "length(ltrim(short_code, '0'))";
+    private static final String KEY_DIGITS = "ltrim(short_code, '0') COLLATE \"C\"";
+    private static final String IN_RANGE =
+        "(" + KEY_LENGTH + ", " + KEY_DIGITS + ") >= (?, ?) AND (" + KEY_LENGTH + ", " + KEY_DIGITS + ") < (?, ?)";
+
+    // Only a newer source row replaces the target's: after the flip, updates land on the target and
+    // the catch-up pass must not overwrite them with the stale source copy
+    private static final String UPSERT_SQL =
+        "INSERT INTO shortened_urls (id, short_code, long_url, created_at, click_count, expires_at, updated_at, redirect_rules, user_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (short_code) DO UPDATE SET " +
+            "long_url = EXCLUDED.long_url, expires_at = EXCLUDED.expires_at, updated_at = EXCLUDED.updated_at, " +
+            "redirect_rules = EXCLUDED.redirect_rules, " +
+            "click_count = GREATEST(shortened_urls.click_count, EXCLUDED.click_count) " +
+            "WHERE shortened_urls.updated_at IS NULL OR EXCLUDED.updated_at > shortened_urls.updated_at";
+
+    private final ShardedShortenedUrlRepository shardedRepository;
+    private final ShardRouter shardRouter;
+    private final long rangeRefreshMs;
+    private final Map<String, ShardMoveJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService moveExecutor = Executors.newSingleThreadExecutor();
+    private final Map<String, Object> consumerProperties;
+
+    public ShardRebalancer(ShardedShortenedUrlRepository shardedRepository, ShardRouter shardRouter,
+                           ShardingProperties properties,
+                           @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
+        this.shardedRepository = shardedRepository;
+        this.shardRouter = shardRouter;
+        this.rangeRefreshMs = properties.getRangeRefreshMs();
+        this.consumerProperties = Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        moveExecutor.shutdownNow();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public ShardMoveJob startMove(long rangeStart, long rangeEnd, int targetShard, boolean deleteFromSource) {
+        if (rangeStart < 0 || rangeEnd > ShardRouter.KEY_SPACE || rangeStart >= rangeEnd) {
+            throw new IllegalArgumentException("Range must satisfy 0 <= start < end <= " + ShardRouter.KEY_SPACE);
+        }
+        if (targetShard < 0 || targetShard >= shardedRepository.shardCount()) {
+            throw new IllegalArgumentException("Unknown target shard: " + targetShard);
+        }
+        ShardMoveJob job = new ShardMoveJob(UUID.randomUUID().toString(), rangeStart, rangeEnd, targetShard, deleteFromSource);
+        jobs.put(job.getId(), job);
+        moveExecutor.submit(() -> run(job));
+        return job;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public Optional<ShardMoveJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<ShardMoveJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    private void run(ShardMoveJob job) {
+        try (KafkaConsumer<String, KeyRequest> changelog = new KafkaConsumer<>(consumerProperties,
+            new StringDeserializer(), new KeyRequestDeserializer())) {
+            log.info("Moving short code range [{}, {}) to shard {}", job.getRangeStart(), job.getRangeEnd(), job.getTargetShard());
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo partition : changelog.partitionsFor(MappingChangePublisher.MAPPING_CHANGELOG_TOPIC)) {
+                partitions.add(new TopicPartition(partition.topic(), partition.partition()));
+            }
+            changelog.assign(partitions);
+            // Resolve the end positions now, so replays start from the changelog as it was before the copy
+            changelog.seekToEnd(partitions);
+            partitions.forEach(changelog::position);
+            copyRange(job);
+            replayDeletes(job, changelog, partitions);
+
+            job.setStatus(ShardMoveJob.Status.SWITCHING);
+            shardRouter.reassign(job.getRangeStart(), job.getRangeEnd(), job.getTargetShard());
+            // Give every instance at least one refresh cycle to route to the new owner.
+            Thread.sleep(rangeRefreshMs * 2);
+
+            job.setStatus(ShardMoveJob.Status.CATCHING_UP);
+            copyRange(job);
+            replayDeletes(job, changelog, partitions);
+
+            if (job.isDeleteFromSource()) {
+                job.setStatus(ShardMoveJob.Status.CLEANING_UP);
+                deleteRangeFromSources(job);
+            }
+            job.setStatus(ShardMoveJob.Status.COMPLETED);
+            log.info("Shard move {} completed: {} rows copied, {} deletions replayed, {} rows removed from source shards",
+                job.getId(), job.getCopiedRows(), job.getReplayedDeletes(), job.getDeletedRows());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(job, "Interrupted");
+        } catch (Exception e) {
+            log.error("Shard move {} failed: {}", job.getId(), e.getMessage(), e);
+            fail(job, e.getMessage());
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void fail(ShardMoveJob job, String error) {
+        job.setStatus(ShardMoveJob.Status.FAILED);
+        job.setError(error);
+    }
+
+    // Pages through every other shard by id with the range predicate evaluated in SQL. Upserts make
+    // repeated passes idempotent.
+    void copyRange(ShardMoveJob job) {
+        JdbcTemplate target = shardedRepository.shard(job.getTargetShard());
+        for (int source = 0; source < shardedRepository.shardCount(); source++) {
+            if (source == job.getTargetShard()) {
+                continue;
+            }
+            JdbcTemplate sourceShard = shardedRepository.shard(source);
+            long lastId = 0;
+            while (true) {
+                List<Object[]> page = sourceShard.query(
+                    "SELECT id, short_code, long_url, created_at, click_count, expires_at, updated_at, redirect_rules, user_id " +
+                        "FROM shortened_urls WHERE id > ? AND " + IN_RANGE + " ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{
+                        rs.getLong("id"), rs.getString("short_code"), rs.getString("long_url"),
+                        rs.getTimestamp("created_at"), rs.getLong("click_count"),
+                        rs.getTimestamp("expires_at"), rs.getTimestamp("updated_at"), rs.getString("redirect_rules"),
+                        rs.getObject("user_id")
+                    },
+                    pageArgs(job, lastId));
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastId = (Long) page.get(page.size() - 1)[0];
+                target.batchUpdate(UPSERT_SQL, page);
+                job.setCopiedRows(job.getCopiedRows() + page.size());
+            }
+        }
+    }
+
+    private void deleteRangeFromSources(ShardMoveJob job) {
+        for (int source = 0; source < shardedRepository.shardCount(); source++) {
+            if (source == job.getTargetShard()) {
+                continue;
+            }
+            JdbcTemplate sourceShard = shardedRepository.shard(source);
+            long lastId = 0;
+            while (true) {
+                List<Object[]> page = sourceShard.query(
+                    "SELECT id FROM shortened_urls WHERE id > ? AND " + IN_RANGE + " ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong("id")},
+                    pageArgs(job, lastId));
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastId = (Long) page.get(page.size() - 1)[0];
+                sourceShard.batchUpdate("DELETE FROM shortened_urls WHERE id = ?", page);
+                job.setDeletedRows(job.getDeletedRows() + page.size());
+            }
+        }
+    }
+
+    /**
+     * Reads the changelog from where the previous call stopped up to its current end and deletes
+     * the range's tombstoned codes from the target shard.
+     */
+    private void replayDeletes(ShardMoveJob job, KafkaConsumer<String, KeyRequest> changelog, List<TopicPartition> partitions) {
+        Map<TopicPartition, Long> endOffsets = changelog.endOffsets(partitions);
+        Set<TopicPartition> pending = new HashSet<>(partitions);
+        changelog.resume(partitions);
+        while (true) {
+            pending.removeIf(partition -> changelog.position(partition) >= endOffsets.get(partition));
+            changelog.pause(partitions.stream().filter(partition -> !pending.contains(partition)).toList());
+            if (pending.isEmpty()) {
+                break;
+            }
+            List<Object[]> deleted = new ArrayList<>();
+            for (ConsumerRecord<String, KeyRequest> record : changelog.poll(POLL_TIMEOUT)) {
+                if (record.value() == null && record.key() != null
+                    && record.offset() < endOffsets.get(new TopicPartition(record.topic(), record.partition()))
+                    && inRange(job, record.key())) {
+                    deleted.add(new Object[]{record.key()});
+                }
+            }
+            if (!deleted.isEmpty()) {
+                int[] counts = shardedRepository.shard(job.getTargetShard())
+                    .batchUpdate("DELETE FROM shortened_urls WHERE short_code = ?", deleted);
+                job.setReplayedDeletes(job.getReplayedDeletes() + Arrays.stream(counts).filter(count -> count > 0).count());
+            }
+        }
+        // Resume from the end offsets next time even if a poll fetched past them
+        endOffsets.forEach(changelog::seek);
+    }
+
+    private static Object[] pageArgs(ShardMoveJob job, long lastId) {
+        String start = Base62.encode(job.getRangeStart()).replaceFirst("^0+", "");
+        String end = Base62.encode(job.getRangeEnd()).replaceFirst("^0+", "");
+        return new Object[]{lastId, start.length(), start, end.length(), end, PAGE_SIZE};
+    }
+
+    private static boolean inRange(ShardMoveJob job, String shortCode) {
+        long key = Base62.decode(shortCode);
+        return key >= job.getRangeStart() && key < job.getRangeEnd();
+    }
+}
@@ -0,0 +1,113 @@
+package com.wastech.url_shortener.sharding;
+
+import com.wastech.url_shortener.util.Base62;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Maps a short code to a shard through a range table over {@code Base62.decode(code)}. The table
+ * lives in Redis as a single value so every instance routes the same way, and is cached locally
+ * as an immutable snapshot that is swapped on refresh.
+ */
+@Slf4j
+public class ShardRouter {
+
+    public static final long KEY_SPACE = 3_521_614_606_208L; // 62^7
+    private static final String SHARD_RANGES_KEY = "shortener:shard_ranges";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int shardCount;
+    private volatile NavigableMap<Long, Integer> ranges;
+
+    public ShardRouter(StringRedisTemplate stringRedisTemplate, int shardCount) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.shardCount = shardCount;
+        this.ranges = evenSplit(shardCount);
+    }
+
+    public int shardFor(String shortCode) {
+        return shardForKey(Base62.decode(shortCode));
+    }
+
+    public int shardForKey(long key) {
+        Map.Entry<Long, Integer> entry = ranges.floorEntry(key);
+        return entry == null ? 0 : entry.getValue();
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public NavigableMap<Long, Integer> ranges() {
+        return ranges;
+    }
+
+    /**
+     * Publishes a new owner for {@code [start, end)} and applies it locally. Other instances pick it
+     * up on their next refresh.
+     */
+    public synchronized void reassign(long start, long end, int shard) {
+        if (shard < 0 || shard >= shardCount || start >= end) {
+            throw new IllegalArgumentException("Invalid range reassignment.");
+        }
+        TreeMap<Long, Integer> updated = new TreeMap<>(ranges);
+        int ownerAfterEnd = shardForKey(end);
+        updated.subMap(start, true, end, false).clear();
+        updated.put(start, shard);
+        if (end < KEY_SPACE && !updated.containsKey(end)) {
+            updated.put(end, ownerAfterEnd);
+        }
+        stringRedisTemplate.opsForValue().set(SHARD_RANGES_KEY, encode(updated));
+        ranges = updated;
+        log.info("Short code range [{}, {}) now routed to shard {}", start, end, shard);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.sharding.range-refresh-ms:10000}")
+    public void refresh() {
+        try {
+            String stored = stringRedisTemplate.opsForValue().get(SHARD_RANGES_KEY);
+            if (stored == null) {
+                stringRedisTemplate.opsForValue().setIfAbsent(SHARD_RANGES_KEY, encode(ranges));
+                return;
+            }
+            ranges = decode(stored);
+        } catch (Exception e) {
+            log.warn("Could not refresh shard range table, keeping the current one: {}", e.getMessage());
+        }
+    }
+
+    // The table is stored as one string ("start:shard,start:shard,...") so updates are atomic.
+    private static String encode(NavigableMap<Long, Integer> table) {
+        StringBuilder sb = new StringBuilder();
+        table.forEach((start, shard) -> {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(start).append(':').append(shard);
+        });
+        return sb.toString();
+    }
+
+    private static NavigableMap<Long, Integer> decode(String stored) {
+        TreeMap<Long, Integer> table = new TreeMap<>();
+        for (String entry : stored.split(",")) {
+            int separator = entry.indexOf(':');
+            table.put(Long.parseLong(entry.substring(0, separator)), Integer.parseInt(entry.substring(separator + 1)));
+        }
+        return table;
+    }
+
+    private static NavigableMap<Long, Integer> evenSplit(int shardCount) {
+        TreeMap<Long, Integer> split = new TreeMap<>();
+        long width = KEY_SPACE / shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            split.put(shard * width, shard);
+        }
+        return split;
+    }
+}
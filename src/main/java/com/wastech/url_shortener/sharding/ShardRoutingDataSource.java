@@ -0,0 +1,41 @@
+package com.wastech.url_shortener.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes {@code getConnection()} to the shard selected in {@link ShardContext}. Shard-aware
+ * repositories use {@link #shard(int)} directly so every shard keeps its own transaction binding.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        if (shard == null) {
+            throw new IllegalStateException("No shard selected; wrap the call in ShardContext.callOn(...).");
+        }
+        return shard;
+    }
+
+    public DataSource shard(int shard) {
+        DataSource dataSource = getResolvedDataSources().get(shard);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return dataSource;
+    }
+
+    public int shardCount() {
+        return getResolvedDataSources().size();
+    }
+
+    public void close() throws Exception {
+        for (DataSource dataSource : getResolvedDataSources().values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
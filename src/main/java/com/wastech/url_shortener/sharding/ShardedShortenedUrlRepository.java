@@ -0,0 +1,209 @@
+package com.wastech.url_shortener.sharding;
+
+import com.wastech.url_shortener.dto.ShortenedUrlSummary;
+import com.wastech.url_shortener.model.ShortenedUrl;
+import com.wastech.url_shortener.model.User;
+import com.wastech.url_shortener.repository.ShortenedUrlRepositoryImpl;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Shard-aware counterpart of {@code ShortenedUrlRepository}. Lookups by short code go to the one
+ * shard that owns the code; lookups by user or id scatter to every shard in parallel and merge.
+ * While a range is being moved, and afterwards if the move kept the source rows, a code exists on
+ * two shards; merged results keep only rows from the shard the code is currently routed to.
+ * Returned entities carry a {@link User} reference with only the id populated; read paths that only
+ * need a {@link ShortenedUrlSummary} select just its columns.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+@Slf4j
+public class ShardedShortenedUrlRepository {
+
+    private static final String COLUMNS = "id, short_code, long_url, created_at, click_count, expires_at, updated_at, redirect_rules, user_id";
+    private static final String SUMMARY_COLUMNS = ShortenedUrlRepositoryImpl.SUMMARY_COLUMNS;
+    private static final RowMapper<ShortenedUrlSummary> SUMMARY_ROW_MAPPER = ShortenedUrlRepositoryImpl.SUMMARY_ROW_MAPPER;
+
+    private static final RowMapper<ShortenedUrl> ROW_MAPPER = (rs, rowNum) -> {
+        ShortenedUrl url = new ShortenedUrl();
+        url.setId(rs.getLong("id"));
+        url.setShortCode(rs.getString("short_code"));
+        url.setLongUrl(rs.getString("long_url"));
+        url.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        url.setClickCount(rs.getLong("click_count"));
+        Timestamp expiresAt = rs.getTimestamp("expires_at");
+        url.setExpiresAt(expiresAt == null ? null : expiresAt.toLocalDateTime());
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        url.setUpdatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime());
+        url.setRedirectRules(rs.getString("redirect_rules"));
+        long userId = rs.getLong("user_id");
+        if (!rs.wasNull()) {
+            User user = new User();
+            user.setId(userId);
+            url.setUser(user);
+        }
+        return url;
+    };
+
+    private final ShardRouter shardRouter;
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final ExecutorService scatterExecutor;
+
+    public ShardedShortenedUrlRepository(ShardRoutingDataSource shardRoutingDataSource, ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+        for (int i = 0; i < shardRoutingDataSource.shardCount(); i++) {
+            shards.add(new JdbcTemplate(shardRoutingDataSource.shard(i)));
+        }
+        this.scatterExecutor = Executors.newFixedThreadPool(shards.size() * 2);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scatterExecutor.shutdown();
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public JdbcTemplate shard(int shard) {
+        return shards.get(shard);
+    }
+
+    public JdbcTemplate shardFor(String shortCode) {
+        return shards.get(shardRouter.shardFor(shortCode));
+    }
+
+    public Optional<ShortenedUrl> findByShortCode(String shortCode) {
+        return shardFor(shortCode)
+            .query("SELECT " + COLUMNS + " FROM shortened_urls WHERE short_code = ?", ROW_MAPPER, shortCode)
+            .stream().findFirst();
+    }
+
+    /**
+     * Groups the codes by owning shard and runs one {@code ANY(?)} query per shard in parallel.
+     */
+    public List<ShortenedUrlSummary> findByShortCodes(Collection<String> shortCodes) {
+        Map<Integer, List<String>> codesByShard = new HashMap<>();
+        for (String shortCode : shortCodes) {
+            codesByShard.computeIfAbsent(shardRouter.shardFor(shortCode), shard -> new ArrayList<>()).add(shortCode);
+        }
+        List<CompletableFuture<List<ShortenedUrlSummary>>> futures = new ArrayList<>(codesByShard.size());
+        codesByShard.forEach((shard, codes) -> futures.add(CompletableFuture.supplyAsync(
+            () -> ShortenedUrlRepositoryImpl.findSummariesByShortCodes(shards.get(shard), codes), scatterExecutor)));
+        List<ShortenedUrlSummary> merged = new ArrayList<>();
+        for (CompletableFuture<List<ShortenedUrlSummary>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+
+    public Optional<ShortenedUrlSummary> findSummaryByShortCode(String shortCode) {
+        return shardFor(shortCode)
+            .query("SELECT " + SUMMARY_COLUMNS + " FROM shortened_urls WHERE short_code = ?", SUMMARY_ROW_MAPPER, shortCode)
+            .stream().findFirst();
+    }
+
+    public List<ShortenedUrlSummary> findSummariesByUserId(Long userId) {
+        return scatterGather(shard -> shard.query(
+            "SELECT " + SUMMARY_COLUMNS + " FROM shortened_urls WHERE user_id = ?", SUMMARY_ROW_MAPPER, userId),
+            ShortenedUrlSummary::getShortCode);
+    }
+
+    public List<ShortenedUrlSummary> findAllSummaries() {
+        return scatterGather(shard -> shard.query("SELECT " + SUMMARY_COLUMNS + " FROM shortened_urls", SUMMARY_ROW_MAPPER),
+            ShortenedUrlSummary::getShortCode);
+    }
+
+    public List<ShortenedUrl> findWithRedirectRules() {
+        return scatterGather(shard -> shard.query(
+            "SELECT " + COLUMNS + " FROM shortened_urls WHERE redirect_rules IS NOT NULL", ROW_MAPPER),
+            ShortenedUrl::getShortCode);
+    }
+
+    public Optional<ShortenedUrlSummary> findFirstSummaryByUserIdAndLongUrl(Long userId, String longUrl) {
+        return scatterGather(shard -> shard.query(
+            "SELECT " + SUMMARY_COLUMNS + " FROM shortened_urls WHERE user_id = ? AND long_url = ?",
+            SUMMARY_ROW_MAPPER, userId, longUrl), ShortenedUrlSummary::getShortCode)
+            .stream().findFirst();
+    }
+
+    public Optional<ShortenedUrl> findByIdAndUserId(Long id, Long userId) {
+        return scatterGather(shard -> shard.query(
+            "SELECT " + COLUMNS + " FROM shortened_urls WHERE id = ? AND user_id = ?", ROW_MAPPER, id, userId),
+            ShortenedUrl::getShortCode)
+            .stream().findFirst();
+    }
+
+    /**
+     * @return {@code false} if the short code already existed on its shard
+     */
+    public boolean insertIfAbsent(ShortenedUrl url) {
+        int inserted = shardFor(url.getShortCode()).update(
+            "INSERT INTO shortened_urls (short_code, long_url, created_at, click_count, expires_at, user_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (short_code) DO NOTHING",
+            url.getShortCode(),
+            url.getLongUrl(),
+            Timestamp.valueOf(url.getCreatedAt()),
+            url.getClickCount(),
+            url.getExpiresAt() == null ? null : Timestamp.valueOf(url.getExpiresAt()),
+            url.getUser() == null ? null : url.getUser().getId());
+        return inserted > 0;
+    }
+
+    public void incrementClickCount(String shortCode) {
+        shardFor(shortCode).update("UPDATE shortened_urls SET click_count = click_count + 1 WHERE short_code = ?", shortCode);
+    }
+
+    public void updateLongUrl(String shortCode, String longUrl, LocalDateTime updatedAt) {
+        shardFor(shortCode).update("UPDATE shortened_urls SET long_url = ?, updated_at = ? WHERE short_code = ?",
+            longUrl, Timestamp.valueOf(updatedAt), shortCode);
+    }
+
+    public void updateRedirectRules(String shortCode, String redirectRules, LocalDateTime updatedAt) {
+        shardFor(shortCode).update("UPDATE shortened_urls SET redirect_rules = ?, updated_at = ? WHERE short_code = ?",
+            redirectRules, Timestamp.valueOf(updatedAt), shortCode);
+    }
+
+    public void deleteByShortCode(String shortCode) {
+        shardFor(shortCode).update("DELETE FROM shortened_urls WHERE short_code = ?", shortCode);
+    }
+
+    public void deleteAll() {
+        CompletableFuture.allOf(shards.stream()
+            .map(shard -> CompletableFuture.runAsync(() -> shard.update("DELETE FROM shortened_urls"), scatterExecutor))
+            .toArray(CompletableFuture[]::new)).join();
+    }
+
+    private <T> List<T> scatterGather(Function<JdbcTemplate, List<T>> query, Function<T, String> shortCode) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shards.get(shard)).stream()
+                .filter(row -> shardRouter.shardFor(shortCode.apply(row)) == shard)
+                .toList(), scatterExecutor));
+        }
+        List<T> merged = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,160 @@
+package com.wastech.url_shortener.snapshot;
+
+import com.wastech.url_shortener.replica.ReplicaContext;
+import com.wastech.url_shortener.replica.ReplicaRoutingDataSource;
+import com.wastech.url_shortener.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Periodically writes every live mapping into a new snapshot file. Each database streams its rows
+ * in key order and, with sharding, the shard streams are merged. The file is written under a
+ * temporary name and renamed into place, so readers only ever see complete snapshots.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.snapshot.export", name = "enabled", havingValue = "true")
+@Slf4j
+public class SnapshotExporter {
+
+    private static final Comparator<SnapshotRowCursor> KEY_ORDER =
+        Comparator.comparingLong(SnapshotRowCursor::key).thenComparing(SnapshotRowCursor::shortCode);
+
+    private final SnapshotProperties properties;
+    private final HikariDataSource primaryDataSource;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSourceProvider;
+    private final ObjectProvider<ShardRoutingDataSource> shardRoutingDataSourceProvider;
+    private final Path directory;
+    private final Timer exportTimer;
+
+    public SnapshotExporter(SnapshotProperties properties, HikariDataSource primaryDataSource,
+                            ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSourceProvider,
+                            ObjectProvider<ShardRoutingDataSource> shardRoutingDataSourceProvider,
+                            MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        this.primaryDataSource = primaryDataSource;
+        this.replicaRoutingDataSourceProvider = replicaRoutingDataSourceProvider;
+        this.shardRoutingDataSourceProvider = shardRoutingDataSourceProvider;
+        this.directory = Path.of(properties.getDirectory());
+        Files.createDirectories(directory);
+        this.exportTimer = Timer.builder("shortener.snapshot.export")
+            .description("Time to write a full mapping snapshot")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.snapshot.export.interval-ms:900000}", fixedDelayString = "${app.snapshot.export.interval-ms:900000}")
+    public void export() {
+        long startedAt = System.currentTimeMillis();
+        Path target = directory.resolve(SnapshotFormat.fileName(startedAt));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            long entries = exportTimer.recordCallable(() -> write(temporary, startedAt));
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote snapshot {} with {} mappings in {} ms.", target.getFileName(), entries, System.currentTimeMillis() - startedAt);
+            pruneOldSnapshots();
+        } catch (Exception e) {
+            log.error("Snapshot export failed: {}", e.getMessage(), e);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // Left for the next prune
+            }
+        }
+    }
+
+    private long write(Path temporary, long startedAt) throws IOException, SQLException {
+        List<SnapshotRowCursor> cursors = new ArrayList<>();
+        try (SnapshotWriter writer = new SnapshotWriter(temporary, startedAt)) {
+            for (DataSource source : sources()) {
+                cursors.add(new SnapshotRowCursor(connect(source), startedAt, properties.getExport().getFetchSize()));
+            }
+            PriorityQueue<SnapshotRowCursor> heads = new PriorityQueue<>(KEY_ORDER);
+            for (SnapshotRowCursor cursor : cursors) {
+                if (cursor.next()) {
+                    heads.add(cursor);
+                }
+            }
+            long oversized = 0;
+            while (!heads.isEmpty()) {
+                SnapshotRowCursor cursor = heads.poll();
+                if (!writer.append(cursor.key(), cursor.shortCode(), cursor.longUrl(), cursor.expiresAtMillis())) {
+                    oversized++;
+                }
+                if (cursor.next()) {
+                    heads.add(cursor);
+                }
+            }
+            writer.finish();
+            long skipped = oversized + cursors.stream().mapToLong(SnapshotRowCursor::skipped).sum();
+            if (skipped > 0) {
+                log.warn("Snapshot skipped {} mappings whose code is not Base62 or whose URL is too long; they resolve through Redis.", skipped);
+            }
+            return writer.entryCount();
+        } finally {
+            for (SnapshotRowCursor cursor : cursors) {
+                try {
+                    cursor.close();
+                } catch (SQLException e) {
+                    log.debug("Could not close snapshot cursor: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<DataSource> sources() {
+        ShardRoutingDataSource shards = shardRoutingDataSourceProvider.getIfAvailable();
+        if (shards == null) {
+            // Not the lazy @Primary proxy: it would borrow only after ReplicaContext is reset
+            ReplicaRoutingDataSource replicas = replicaRoutingDataSourceProvider.getIfAvailable();
+            return List.of(replicas != null ? replicas : primaryDataSource);
+        }
+        List<DataSource> sources = new ArrayList<>(shards.shardCount());
+        for (int i = 0; i < shards.shardCount(); i++) {
+            sources.add(shards.shard(i));
+        }
+        return sources;
+    }
+
+    // A full scan belongs on a replica when there is one; the delta overlap covers its lag
+    private static Connection connect(DataSource source) {
+        return ReplicaContext.onReplica(() -> DataSourceUtils.getConnection(source));
+    }
+
+    private void pruneOldSnapshots() throws IOException {
+        List<Path> snapshots;
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshots = files
+                .filter(SnapshotExporter::isSnapshotFile)
+                .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                .toList();
+        }
+        for (int i = properties.getExport().getRetain(); i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+            log.debug("Deleted old snapshot {}.", snapshots.get(i).getFileName());
+        }
+    }
+
+    static boolean isSnapshotFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SnapshotFormat.FILE_PREFIX) && name.endsWith(SnapshotFormat.FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,43 @@
+package com.wastech.url_shortener.snapshot;
+
+/**
+ * Layout of a mapping snapshot: an immutable file holding every live mapping sorted by
+ * {@code Base62.decode(shortCode)}, in the spirit of an SSTable.
+ * <pre>
+ * [block 0] ... [block n-1] [index] [footer]
+ * block   Deflate-compressed entries {key:i64 expiresAt:i64 codeLength:u8 urlLength:u16 code url}
+ * index   per block {firstKey:i64 offset:i64 compressedLength:i32 uncompressedLength:i32 crc32c:i32}
+ * footer  {magic:i64 version:i32 blockCount:i32 entryCount:i64 indexOffset:i64 startedAt:i64 magic:i64}
+ * </pre>
+ * Blocks hold about {@link #TARGET_BLOCK_SIZE} bytes before compression and the index has one entry
+ * per block, so it is small enough to load onto the heap. Codes with leading zeros decode to the same
+ * key as their shorter forms; such entries sit next to each other and are told apart by the code.
+ * {@code expiresAt} is in epoch milliseconds, 0 for links that never expire. {@code startedAt} is
+ * when the export began reading: changes after it have to come from the deltas. Big-endian throughout.
+ */
+final class SnapshotFormat {
+
+    static final long MAGIC = 0x55524C5F53535431L;
+    static final int VERSION = 1;
+
+    static final String FILE_PREFIX = "mappings-";
+    static final String FILE_SUFFIX = ".sst";
+
+    static final int TARGET_BLOCK_SIZE = 16 * 1024;
+    static final int ENTRY_HEADER_SIZE = 19;
+    static final int MAX_CODE_BYTES = 0xFF;
+    static final int MAX_URL_BYTES = 0xFFFF;
+    static final int MAX_ENTRY_SIZE = ENTRY_HEADER_SIZE + MAX_CODE_BYTES + MAX_URL_BYTES;
+
+    static final int INDEX_ENTRY_SIZE = 28;
+    static final int FOOTER_SIZE = 48;
+
+    static final long NO_EXPIRY = 0L;
+
+    private SnapshotFormat() {
+    }
+
+    static String fileName(long startedAtMillis) {
+        return FILE_PREFIX + startedAtMillis + FILE_SUFFIX;
+    }
+}
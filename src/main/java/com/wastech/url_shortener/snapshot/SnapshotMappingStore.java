@@ -0,0 +1,275 @@
+package com.wastech.url_shortener.snapshot;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import com.wastech.url_shortener.serialization.KeyRequestDeserializer;
+import com.wastech.url_shortener.service.MappingChangePublisher;
+import com.wastech.url_shortener.util.Base62;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Serves mappings from the newest snapshot in the shared directory plus the changes made since it
+ * started, so an edge node can redirect while Redis and Postgres are unavailable. A consumer
+ * without a group tails the persistence topic (accepted creations, before they are persisted) and
+ * the mapping changelog (committed changes, tombstones for deletes) from shortly before the
+ * snapshot started; the newest change per code
+ * wins by record timestamp. A newer snapshot is swapped in when it appears and the changes it
+ * already contains are dropped.
+ * <p>
+ * Until the tailer has caught up with the topics every lookup is a miss, so a stale snapshot entry
+ * is never served for a code that was changed since.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.snapshot.reader", name = "enabled", havingValue = "true")
+@Slf4j
+public class SnapshotMappingStore {
+
+    /** A known mapping; {@code longUrl} is null if the code was deleted or has expired. */
+    public record Mapping(String longUrl, long expiresAtMillis) {
+
+        public boolean isGone() {
+            return longUrl == null;
+        }
+    }
+
+    private record Change(String longUrl, long expiresAtMillis, long timestamp) {
+    }
+
+    private static final Mapping GONE = new Mapping(null, SnapshotFormat.NO_EXPIRY);
+    private static final String PERSISTENCE_TOPIC = "url-persistence-topic";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final long RETRY_DELAY_MS = 5000;
+
+    private final Path directory;
+    private final long deltaOverlapMs;
+    private final Map<String, Object> consumerProperties;
+    private final ConcurrentHashMap<String, Change> changes = new ConcurrentHashMap<>();
+    private final Thread tailer;
+
+    private volatile SnapshotReader snapshot;
+    private volatile boolean caughtUp;
+    private volatile long tailingFromMillis = Long.MAX_VALUE;
+    private volatile boolean running = true;
+    private volatile KafkaConsumer<String, KeyRequest> consumer;
+
+    public SnapshotMappingStore(SnapshotProperties properties,
+                                @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                MeterRegistry meterRegistry) {
+        this.directory = Path.of(properties.getDirectory());
+        this.deltaOverlapMs = properties.getDeltaOverlapMs();
+        this.consumerProperties = Map.of(
+            ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+            ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+            ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        refresh();
+
+        Gauge.builder("shortener.snapshot.entries", this, store -> store.snapshot == null ? 0 : store.snapshot.entryCount())
+            .description("Mappings in the snapshot currently served")
+            .register(meterRegistry);
+        Gauge.builder("shortener.snapshot.changes", changes, Map::size)
+            .description("Changes applied on top of the snapshot currently served")
+            .register(meterRegistry);
+        Gauge.builder("shortener.snapshot.age", this, store -> store.snapshot == null
+                ? Double.NaN : (System.currentTimeMillis() - store.snapshot.startedAtMillis()) / 1000.0)
+            .description("Time since the snapshot currently served was started")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+
+        this.tailer = new Thread(this::tailLoop, "snapshot-delta-tailer");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    /**
+     * @return the mapping, {@link Mapping#isGone() gone} if it was deleted or has expired, or
+     * {@code null} if neither the snapshot nor the changes know the code
+     */
+    public Mapping get(String shortCode, long nowMillis) {
+        if (!caughtUp || !Base62.isValidCode(shortCode)) {
+            return null;
+        }
+        Change change = changes.get(shortCode);
+        if (change != null) {
+            return live(change.longUrl(), change.expiresAtMillis(), nowMillis);
+        }
+        SnapshotReader current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        SnapshotReader.Entry entry = current.get(Base62.decode(shortCode), shortCode);
+        return entry == null ? null : live(entry.longUrl(), entry.expiresAtMillis(), nowMillis);
+    }
+
+    private static Mapping live(String longUrl, long expiresAtMillis, long nowMillis) {
+        if (longUrl == null || (expiresAtMillis != SnapshotFormat.NO_EXPIRY && expiresAtMillis <= nowMillis)) {
+            return GONE;
+        }
+        return new Mapping(longUrl, expiresAtMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${app.snapshot.reader.refresh-interval-ms:30000}")
+    public void refresh() {
+        Optional<Path> newest;
+        try (Stream<Path> files = Files.list(directory)) {
+            newest = files.filter(SnapshotExporter::isSnapshotFile)
+                .max(Comparator.comparing((Path path) -> path.getFileName().toString()));
+        } catch (IOException e) {
+            log.warn("Could not list snapshots in {}: {}", directory, e.getMessage());
+            return;
+        }
+        SnapshotReader current = snapshot;
+        if (newest.isEmpty() || (current != null && current.path().equals(newest.get()))) {
+            return;
+        }
+        try {
+            SnapshotReader next = SnapshotReader.open(newest.get());
+            if (current != null && next.startedAtMillis() <= current.startedAtMillis()) {
+                next.close();
+                return;
+            }
+            snapshot = next;
+            long covered = next.startedAtMillis() - deltaOverlapMs;
+            changes.values().removeIf(change -> change.timestamp() < covered);
+            log.info("Serving snapshot {} with {} mappings.", next.path().getFileName(), next.entryCount());
+            if (current != null) {
+                current.close();
+            }
+            if (covered < tailingFromMillis) {
+                // The tailer started later than this snapshot needs; have it seek again
+                restartTailer();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not open snapshot {}: {}", newest.get(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        restartTailer();
+        try {
+            tailer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void restartTailer() {
+        KafkaConsumer<String, KeyRequest> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    private void tailLoop() {
+        while (running) {
+            try (KafkaConsumer<String, KeyRequest> tailing = new KafkaConsumer<>(consumerProperties,
+                new StringDeserializer(), new KeyRequestDeserializer())) {
+                consumer = tailing;
+                tail(tailing);
+            } catch (WakeupException e) {
+                // Shutting down, or seeking again for a new snapshot
+                caughtUp = false;
+            } catch (RuntimeException e) {
+                log.warn("Snapshot delta tailer failed, restarting in {} ms: {}", RETRY_DELAY_MS, e.getMessage());
+                caughtUp = false;
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    private void tail(KafkaConsumer<String, KeyRequest> tailing) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (String topic : List.of(PERSISTENCE_TOPIC, MappingChangePublisher.MAPPING_CHANGELOG_TOPIC)) {
+            for (PartitionInfo partition : tailing.partitionsFor(topic)) {
+                partitions.add(new TopicPartition(topic, partition.partition()));
+            }
+        }
+        tailing.assign(partitions);
+        SnapshotReader current = snapshot;
+        if (current == null) {
+            // Nothing to patch yet; a first snapshot that started before now restarts the tailer
+            tailingFromMillis = System.currentTimeMillis();
+            tailing.seekToEnd(partitions);
+        } else {
+            long from = current.startedAtMillis() - deltaOverlapMs;
+            tailingFromMillis = from;
+            Map<TopicPartition, Long> timestamps = new HashMap<>();
+            partitions.forEach(partition -> timestamps.put(partition, from));
+            Map<TopicPartition, OffsetAndTimestamp> offsets = tailing.offsetsForTimes(timestamps);
+            for (TopicPartition partition : partitions) {
+                OffsetAndTimestamp offset = offsets.get(partition);
+                if (offset == null) {
+                    tailing.seekToEnd(List.of(partition));
+                } else {
+                    tailing.seek(partition, offset.offset());
+                }
+            }
+        }
+        Map<TopicPartition, Long> endOffsets = tailing.endOffsets(partitions);
+
+        while (running) {
+            for (ConsumerRecord<String, KeyRequest> record : tailing.poll(POLL_TIMEOUT)) {
+                apply(record);
+            }
+            if (!caughtUp && endOffsets.entrySet().stream().allMatch(end -> tailing.position(end.getKey()) >= end.getValue())) {
+                caughtUp = true;
+                log.info("Snapshot deltas caught up; {} changes on top of the snapshot.", changes.size());
+            }
+        }
+    }
+
+    private void apply(ConsumerRecord<String, KeyRequest> record) {
+        String shortCode = record.key();
+        KeyRequest value = record.value();
+        if (shortCode == null && value != null) {
+            shortCode = value.getShortCode();
+        }
+        if (shortCode == null) {
+            return;
+        }
+        Change change = value == null
+            ? new Change(null, SnapshotFormat.NO_EXPIRY, record.timestamp())
+            : new Change(value.getLongUrl(), value.getExpiresAt() == null
+                ? SnapshotFormat.NO_EXPIRY
+                : value.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), record.timestamp());
+        changes.merge(shortCode, change, (existing, incoming) -> incoming.timestamp() >= existing.timestamp() ? incoming : existing);
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.wastech.url_shortener.snapshot;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.snapshot")
+public class SnapshotProperties {
+
+    /** Shared between the exporter and the readers, e.g. a synced volume. */
+    private String directory = "/var/lib/url-shortener/snapshots";
+
+    /**
+     * Deltas are replayed from this long before a snapshot started, which covers replica lag and
+     * clock skew between the exporter and Kafka. Replaying a change the snapshot already has is harmless.
+     */
+    private long deltaOverlapMs = 60_000;
+
+    private final Export export = new Export();
+    private final Reader reader = new Reader();
+
+    @Data
+    public static class Export {
+        /** Enable on one instance only; every exporter writes a full snapshot. */
+        private boolean enabled = false;
+        private long intervalMs = 900_000;
+        /** Snapshots kept in the directory, newest first. */
+        private int retain = 3;
+        private int fetchSize = 10_000;
+    }
+
+    @Data
+    public static class Reader {
+        /** Serve redirects from the newest snapshot plus the Kafka deltas before touching Redis. */
+        private boolean enabled = false;
+        private long refreshIntervalMs = 30_000;
+    }
+}
@@ -0,0 +1,244 @@
+package com.wastech.url_shortener.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of a {@link SnapshotFormat} file. The blocks stay memory-mapped; the sparse index
+ * is loaded onto the heap, so a lookup is a binary search over the block keys plus one block scan.
+ * Recently decoded blocks are kept in a small direct-mapped cache. Safe for concurrent readers.
+ */
+final class SnapshotReader implements AutoCloseable {
+
+    record Entry(String longUrl, long expiresAtMillis) {
+    }
+
+    private record DecodedBlock(int block, ByteBuffer data) {
+    }
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int BLOCK_CACHE_SLOTS = 4096;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long startedAtMillis;
+    private final long entryCount;
+    private final int blockCount;
+    private final long[] firstKeys;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] uncompressedLengths;
+    private final int[] checksums;
+    private final AtomicReferenceArray<DecodedBlock> blockCache = new AtomicReferenceArray<>(BLOCK_CACHE_SLOTS);
+
+    private SnapshotReader(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        long size = channel.size();
+        if (size < SnapshotFormat.FOOTER_SIZE) {
+            throw new IOException("Snapshot " + path + " is truncated.");
+        }
+        ByteBuffer footer = readFully(size - SnapshotFormat.FOOTER_SIZE, SnapshotFormat.FOOTER_SIZE);
+        if (footer.getLong() != SnapshotFormat.MAGIC) {
+            throw new IOException("Snapshot " + path + " has no valid footer.");
+        }
+        int version = footer.getInt();
+        if (version != SnapshotFormat.VERSION) {
+            throw new IOException("Snapshot " + path + " has unsupported version " + version + ".");
+        }
+        this.blockCount = footer.getInt();
+        this.entryCount = footer.getLong();
+        long indexOffset = footer.getLong();
+        this.startedAtMillis = footer.getLong();
+        if (footer.getLong() != SnapshotFormat.MAGIC
+            || indexOffset + (long) blockCount * SnapshotFormat.INDEX_ENTRY_SIZE != size - SnapshotFormat.FOOTER_SIZE) {
+            throw new IOException("Snapshot " + path + " has a corrupt footer.");
+        }
+
+        this.firstKeys = new long[blockCount];
+        this.offsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.uncompressedLengths = new int[blockCount];
+        this.checksums = new int[blockCount];
+        ByteBuffer index = readFully(indexOffset, blockCount * SnapshotFormat.INDEX_ENTRY_SIZE);
+        for (int i = 0; i < blockCount; i++) {
+            firstKeys[i] = index.getLong();
+            offsets[i] = index.getLong();
+            compressedLengths[i] = index.getInt();
+            uncompressedLengths[i] = index.getInt();
+            checksums[i] = index.getInt();
+        }
+
+        int chunkCount = (int) ((indexOffset + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long position = (long) i << CHUNK_SHIFT;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, indexOffset - position));
+        }
+    }
+
+    static SnapshotReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new SnapshotReader(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long startedAtMillis() {
+        return startedAtMillis;
+    }
+
+    long entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the entry for {@code shortCode}, whose decoded Base62 value is {@code key}, or
+     * {@code null} if the snapshot does not contain it
+     */
+    Entry get(long key, String shortCode) {
+        int block = floorBlock(key);
+        if (block < 0) {
+            return null;
+        }
+        // Entries sharing a key (codes with leading zeros) may start in earlier blocks
+        while (block > 0 && firstKeys[block] == key) {
+            block--;
+        }
+        for (; block < blockCount && firstKeys[block] <= key; block++) {
+            ByteBuffer data = decode(block);
+            int position = 0;
+            int limit = data.limit();
+            while (position < limit) {
+                long entryKey = data.getLong(position);
+                int codeLength = data.get(position + 16) & 0xFF;
+                int urlLength = data.getShort(position + 17) & 0xFFFF;
+                int codeStart = position + SnapshotFormat.ENTRY_HEADER_SIZE;
+                if (entryKey > key) {
+                    return null;
+                }
+                if (entryKey == key && codeMatches(data, codeStart, codeLength, shortCode)) {
+                    byte[] url = new byte[urlLength];
+                    data.get(codeStart + codeLength, url);
+                    return new Entry(new String(url, StandardCharsets.UTF_8), data.getLong(position + 8));
+                }
+                position = codeStart + codeLength + urlLength;
+            }
+        }
+        return null;
+    }
+
+    private int floorBlock(long key) {
+        int low = 0;
+        int high = blockCount - 1;
+        int floor = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firstKeys[mid] <= key) {
+                floor = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return floor;
+    }
+
+    private static boolean codeMatches(ByteBuffer data, int start, int length, String shortCode) {
+        if (length != shortCode.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data.get(start + i) != (byte) shortCode.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer decode(int block) {
+        int slot = block & (BLOCK_CACHE_SLOTS - 1);
+        DecodedBlock cached = blockCache.get(slot);
+        if (cached != null && cached.block() == block) {
+            return cached.data();
+        }
+        byte[] compressed = new byte[compressedLengths[block]];
+        copy(offsets[block], compressed);
+        CRC32C crc = new CRC32C();
+        crc.update(compressed);
+        if ((int) crc.getValue() != checksums[block]) {
+            throw new IllegalStateException("Snapshot " + path + " has a corrupt block " + block + ".");
+        }
+        byte[] data = new byte[uncompressedLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < data.length && !inflater.finished()) {
+                int n = inflater.inflate(data, inflated, data.length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != data.length) {
+                throw new IllegalStateException("Snapshot " + path + " block " + block + " is shorter than its index entry.");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Snapshot " + path + " has a corrupt block " + block + ".", e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).asReadOnlyBuffer();
+        blockCache.set(slot, new DecodedBlock(block, buffer));
+        return buffer;
+    }
+
+    // Blocks may straddle a chunk boundary, so copies are split per chunk
+    private void copy(long offset, byte[] target) {
+        int copied = 0;
+        while (copied < target.length) {
+            long position = offset + copied;
+            MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+            int inChunk = (int) (position & CHUNK_MASK);
+            int length = Math.min(target.length - copied, chunk.capacity() - inChunk);
+            chunk.get(inChunk, target, copied, length);
+            copied += length;
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Snapshot " + path + " is truncated.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mappings are released by the GC once no lookup holds them; closing the channel is enough
+        channel.close();
+    }
+}
@@ -0,0 +1,99 @@
+package com.wastech.url_shortener.snapshot;
+
+import com.wastech.url_shortener.util.Base62;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Streams the live mappings of one database in snapshot key order. Base62 digits are in ASCII
+ * order, so sorting by the length and then the bytes of the code without its leading zeros is
+ * sorting by the decoded value; Postgres does that sort, spilling to disk as needed.
+ */
+final class SnapshotRowCursor implements AutoCloseable {
+
+    private static final String SQL = "SELECT short_code, long_url, expires_at FROM shortened_urls "
+        + "WHERE expires_at IS NULL OR expires_at > ? "
+        + "ORDER BY length(ltrim(short_code, '0')), ltrim(short_code, '0') COLLATE \"C\", short_code COLLATE \"C\"";
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+
+    private long key;
+    private String shortCode;
+    private String longUrl;
+    private long expiresAtMillis;
+    private long skipped;
+
+    SnapshotRowCursor(Connection connection, long nowMillis, int fetchSize) throws SQLException {
+        this.connection = connection;
+        try {
+            // The Postgres driver only streams with a cursor inside a transaction
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            this.statement = connection.prepareStatement(SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, new Timestamp(nowMillis));
+            this.resultSet = statement.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Advances to the next row with a Base62 short code; other codes cannot be keyed and are skipped.
+     */
+    boolean next() throws SQLException {
+        while (resultSet.next()) {
+            String code = resultSet.getString(1);
+            if (!Base62.isValidCode(code)) {
+                skipped++;
+                continue;
+            }
+            shortCode = code;
+            key = Base62.decode(code);
+            longUrl = resultSet.getString(2);
+            Timestamp expiresAt = resultSet.getTimestamp(3);
+            expiresAtMillis = expiresAt == null ? SnapshotFormat.NO_EXPIRY : expiresAt.getTime();
+            return true;
+        }
+        return false;
+    }
+
+    long key() {
+        return key;
+    }
+
+    String shortCode() {
+        return shortCode;
+    }
+
+    String longUrl() {
+        return longUrl;
+    }
+
+    long expiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    long skipped() {
+        return skipped;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            resultSet.close();
+            statement.close();
+            connection.rollback();
+        } finally {
+            connection.setAutoCommit(true);
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.wastech.url_shortener.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a {@link SnapshotFormat} file. Entries must arrive in key order; {@link #finish()} writes
+ * the index and footer and forces the file to disk. Not thread-safe.
+ */
+final class SnapshotWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final long startedAtMillis;
+    private final ByteBuffer block = ByteBuffer.allocate(SnapshotFormat.TARGET_BLOCK_SIZE + SnapshotFormat.MAX_ENTRY_SIZE);
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final CRC32C crc = new CRC32C();
+    private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+    private final DataOutputStream index = new DataOutputStream(indexBytes);
+    private byte[] compressed = new byte[SnapshotFormat.TARGET_BLOCK_SIZE];
+
+    private long position;
+    private long entryCount;
+    private int blockCount;
+    private long blockFirstKey;
+    private long lastKey = Long.MIN_VALUE;
+
+    SnapshotWriter(Path path, long startedAtMillis) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.startedAtMillis = startedAtMillis;
+    }
+
+    /**
+     * @return {@code false} if the code or URL is too long for the format and the entry was skipped
+     */
+    boolean append(long key, String shortCode, String longUrl, long expiresAtMillis) throws IOException {
+        if (key < lastKey) {
+            throw new IllegalStateException("Snapshot entries must arrive in key order: " + key + " after " + lastKey + ".");
+        }
+        byte[] code = shortCode.getBytes(StandardCharsets.US_ASCII);
+        byte[] url = longUrl.getBytes(StandardCharsets.UTF_8);
+        if (code.length > SnapshotFormat.MAX_CODE_BYTES || url.length > SnapshotFormat.MAX_URL_BYTES) {
+            return false;
+        }
+        int entrySize = SnapshotFormat.ENTRY_HEADER_SIZE + code.length + url.length;
+        if (block.position() > 0 && block.position() + entrySize > SnapshotFormat.TARGET_BLOCK_SIZE) {
+            flushBlock();
+        }
+        if (block.position() == 0) {
+            blockFirstKey = key;
+        }
+        block.putLong(key)
+            .putLong(expiresAtMillis)
+            .put((byte) code.length)
+            .putShort((short) url.length)
+            .put(code)
+            .put(url);
+        lastKey = key;
+        entryCount++;
+        return true;
+    }
+
+    long entryCount() {
+        return entryCount;
+    }
+
+    void finish() throws IOException {
+        if (block.position() > 0) {
+            flushBlock();
+        }
+        long indexOffset = position;
+        index.flush();
+        writeFully(ByteBuffer.wrap(indexBytes.toByteArray()));
+        ByteBuffer footer = ByteBuffer.allocate(SnapshotFormat.FOOTER_SIZE)
+            .putLong(SnapshotFormat.MAGIC)
+            .putInt(SnapshotFormat.VERSION)
+            .putInt(blockCount)
+            .putLong(entryCount)
+            .putLong(indexOffset)
+            .putLong(startedAtMillis)
+            .putLong(SnapshotFormat.MAGIC)
+            .flip();
+        writeFully(footer);
+        channel.force(true);
+    }
+
+    private void flushBlock() throws IOException {
+        int uncompressedLength = block.position();
+        deflater.reset();
+        deflater.setInput(block.array(), 0, uncompressedLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                byte[] grown = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, grown, 0, compressedLength);
+                compressed = grown;
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        crc.reset();
+        crc.update(compressed, 0, compressedLength);
+
+        index.writeLong(blockFirstKey);
+        index.writeLong(position);
+        index.writeInt(compressedLength);
+        index.writeInt(uncompressedLength);
+        index.writeInt((int) crc.getValue());
+
+        writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+        blockCount++;
+        block.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,61 @@
+package com.wastech.url_shortener.startup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In fast-start mode, brings up the infrastructure the redirect path does not need once the
+ * application is ready: scheduled tasks, the Redisson client, Kafka topic creation and the Kafka
+ * listener containers. The work runs off the main thread so readiness is not held back by it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeferredStartup {
+
+    private final DeferredTaskScheduler taskScheduler;
+    private final ObjectProvider<RedissonClient> redissonClient;
+    private final KafkaAdmin kafkaAdmin;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Value("${app.fast-start.enabled:false}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        taskScheduler.release();
+        Thread.ofPlatform().name("deferred-startup").daemon().start(this::startDeferredInfrastructure);
+    }
+
+    private void startDeferredInfrastructure() {
+        long started = System.nanoTime();
+        try {
+            redissonClient.getObject();
+        } catch (Exception e) {
+            log.warn("Could not create the Redisson client; it will be retried on first use: {}", e.getMessage());
+        }
+        if (!kafkaAdmin.initialize()) {
+            log.warn("Could not create or verify Kafka topics; the listeners start anyway.");
+        }
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            if (!container.isRunning()) {
+                container.start();
+            }
+        }
+        log.info("Deferred infrastructure started in {} ms.", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+}
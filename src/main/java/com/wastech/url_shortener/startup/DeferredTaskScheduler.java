@@ -0,0 +1,160 @@
+package com.wastech.url_shortener.startup;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler for {@code @Scheduled} methods that can hold back every scheduling request until
+ * {@link #release()} is called, so periodic work (key pool sampling, rate-limit sync, shard range
+ * refresh, replica health checks) does not compete with startup. Held requests are scheduled as
+ * they were asked for once released; an initial delay counts from the release. Plain
+ * {@code execute}/{@code submit} calls are never held.
+ */
+public class DeferredTaskScheduler extends ThreadPoolTaskScheduler {
+
+    private final List<PendingFuture> pending = new ArrayList<>();
+    private boolean released;
+
+    public DeferredTaskScheduler(boolean released) {
+        this.released = released;
+    }
+
+    public void release() {
+        List<PendingFuture> held;
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+            held = new ArrayList<>(pending);
+            pending.clear();
+        }
+        held.forEach(PendingFuture::schedule);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        return scheduleOrHold(() -> super.schedule(task, trigger));
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Instant startTime) {
+        return scheduleOrHold(() -> super.schedule(task, startTime));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Instant startTime, Duration period) {
+        return scheduleOrHold(() -> super.scheduleAtFixedRate(task, startTime, period));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration period) {
+        return scheduleOrHold(() -> super.scheduleAtFixedRate(task, period));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Instant startTime, Duration delay) {
+        return scheduleOrHold(() -> super.scheduleWithFixedDelay(task, startTime, delay));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration delay) {
+        return scheduleOrHold(() -> super.scheduleWithFixedDelay(task, delay));
+    }
+
+    private synchronized ScheduledFuture<?> scheduleOrHold(Supplier<ScheduledFuture<?>> scheduling) {
+        if (released) {
+            return scheduling.get();
+        }
+        PendingFuture future = new PendingFuture(scheduling);
+        pending.add(future);
+        return future;
+    }
+
+    /**
+     * Stands in for the real future until the task is scheduled; cancelling it before the release
+     * means the task is never scheduled.
+     */
+    private static final class PendingFuture implements ScheduledFuture<Object> {
+
+        private final Supplier<ScheduledFuture<?>> scheduling;
+        private final CountDownLatch settled = new CountDownLatch(1);
+        private volatile ScheduledFuture<?> scheduled;
+        private volatile boolean cancelled;
+
+        PendingFuture(Supplier<ScheduledFuture<?>> scheduling) {
+            this.scheduling = scheduling;
+        }
+
+        synchronized void schedule() {
+            if (!cancelled) {
+                scheduled = scheduling.get();
+            }
+            settled.countDown();
+        }
+
+        @Override
+        public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+            cancelled = true;
+            settled.countDown();
+            return scheduled == null || scheduled.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            ScheduledFuture<?> current = scheduled;
+            return cancelled || (current != null && current.isDone());
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            settled.await();
+            return settledFuture().get();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!settled.await(timeout, unit)) {
+                throw new TimeoutException("Task has not been released for scheduling yet.");
+            }
+            return settledFuture().get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            ScheduledFuture<?> current = scheduled;
+            return current == null ? Long.MAX_VALUE : current.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        private ScheduledFuture<?> settledFuture() {
+            ScheduledFuture<?> current = scheduled;
+            if (cancelled || current == null) {
+                throw new CancellationException();
+            }
+            return current;
+        }
+    }
+}
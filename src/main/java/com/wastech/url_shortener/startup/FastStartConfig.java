@@ -0,0 +1,22 @@
+package com.wastech.url_shortener.startup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FastStartConfig {
+
+    /**
+     * Replaces Boot's default scheduler for {@code @Scheduled} methods. Without fast start it is
+     * released from the outset and behaves like the default one.
+     */
+    @Bean
+    public DeferredTaskScheduler taskScheduler(@Value("${app.fast-start.enabled:false}") boolean fastStart,
+                                               @Value("${spring.task.scheduling.pool.size:1}") int poolSize) {
+        DeferredTaskScheduler scheduler = new DeferredTaskScheduler(!fastStart);
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+}
@@ -4,6 +4,26 @@ public class Base62 {
     private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
     private static final int BASE = ALPHABET.length();
 
+    /** Longest short code the service issues, imports or accepts in a lookup. */
+    public static final int MAX_CODE_LENGTH = 10;
+
+    /**
+     * Whether {@code code} can be a short code: 1 to {@link #MAX_CODE_LENGTH} Base62 characters.
+     * Callers check this before decoding or using the code as a storage key.
+     */
+    public static boolean isValidCode(CharSequence code) {
+        if (code == null || code.isEmpty() || code.length() > MAX_CODE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static String encode(long num) {
         if (num == 0) {
             return String.valueOf(ALPHABET.charAt(0));
@@ -0,0 +1,113 @@
+package com.wastech.url_shortener.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A keyed bijection on {@code [0, domainSize)}. A balanced Feistel network permutes the smallest
+ * even-width bit domain that covers {@code domainSize}; outputs that fall outside the domain are fed
+ * back in (cycle-walking) until they land inside it. Since the network is a permutation of the
+ * larger domain, every walk terminates and the restriction is itself a permutation. The expected
+ * number of walks is below 4 and about 1.25 for the 62^7 code space.
+ * <p>
+ * This hides the counter order from casual enumeration; it is not meant to withstand cryptanalysis.
+ */
+public final class FeistelPermutation {
+
+    private static final int ROUNDS = 8;
+
+    private final long domainSize;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public FeistelPermutation(long domainSize, String secret) {
+        if (domainSize < 1) {
+            throw new IllegalArgumentException("Domain size must be positive.");
+        }
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("A permutation secret is required.");
+        }
+        this.domainSize = domainSize;
+        int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(domainSize - 1));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        deriveRoundKeys(secret);
+    }
+
+    public long domainSize() {
+        return domainSize;
+    }
+
+    public long permute(long value) {
+        checkInDomain(value);
+        long result = value;
+        do {
+            result = encryptBlock(result);
+        } while (result >= domainSize);
+        return result;
+    }
+
+    public long invert(long value) {
+        checkInDomain(value);
+        long result = value;
+        do {
+            result = decryptBlock(result);
+        } while (result >= domainSize);
+        return result;
+    }
+
+    private long encryptBlock(long block) {
+        long left = block >>> halfBits;
+        long right = block & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            long next = left ^ roundFunction(right, round);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long decryptBlock(long block) {
+        long left = block >>> halfBits;
+        long right = block & halfMask;
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            long previous = right ^ roundFunction(left, round);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+
+    private long roundFunction(long half, int round) {
+        long mixed = half ^ roundKeys[round];
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb9fe1a85ec53L;
+        mixed ^= mixed >>> 33;
+        return mixed & halfMask;
+    }
+
+    private void deriveRoundKeys(String secret) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+            for (int round = 0; round < ROUNDS; round++) {
+                sha256.update(secretBytes);
+                sha256.update((byte) round);
+                roundKeys[round] = ByteBuffer.wrap(sha256.digest()).getLong();
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private void checkInDomain(long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Value " + value + " is outside [0, " + domainSize + ").");
+        }
+    }
+}
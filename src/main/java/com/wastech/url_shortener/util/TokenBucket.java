@@ -0,0 +1,123 @@
+package com.wastech.url_shortener.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the only state is the
+ * theoretical arrival time of the next token, advanced with a CAS on every admitted request.
+ * Consumption that happened on other nodes is folded in through {@link #consumeRemote(long, long)}.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    private final AtomicLong theoreticalArrivalNanos;
+    private final AtomicLong unsyncedTokens = new AtomicLong();
+    private volatile long lastAccessNanos;
+    private volatile long lastSeenGlobal;
+    private volatile long syncWindow = -1;
+
+    public TokenBucket(long capacity, long refillPerMinute, long nowNanos) {
+        if (capacity <= 0 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive.");
+        }
+        this.capacity = capacity;
+        this.emissionIntervalNanos = 60_000_000_000L / refillPerMinute;
+        this.burstToleranceNanos = capacity * emissionIntervalNanos;
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+        this.lastAccessNanos = nowNanos;
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return {@code 0} when the request is admitted, otherwise the nanoseconds until a token is available
+     */
+    public long tryAcquire(long nowNanos) {
+        return tryAcquire(1, nowNanos);
+    }
+
+    /**
+     * Takes {@code tokens} tokens at once, or none. More tokens than the capacity are never admitted.
+     *
+     * @return {@code 0} when the request is admitted, otherwise the nanoseconds until enough tokens are available
+     */
+    public long tryAcquire(long tokens, long nowNanos) {
+        lastAccessNanos = nowNanos;
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long newTat = Math.max(tat, nowNanos) + tokens * emissionIntervalNanos;
+            long waitNanos = newTat - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                unsyncedTokens.addAndGet(tokens);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Applies tokens consumed by other instances. The bucket can be drained but never pushed
+     * further into debt than a full burst.
+     */
+    public void consumeRemote(long tokens, long nowNanos) {
+        if (tokens <= 0) {
+            return;
+        }
+        long ceiling = nowNanos + burstToleranceNanos;
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long newTat = Math.min(Math.max(tat, nowNanos) + tokens * emissionIntervalNanos, ceiling);
+            if (newTat <= tat || theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the whole tokens that could be taken at {@code nowNanos}, between 0 and the capacity
+     */
+    public long availableTokens(long nowNanos) {
+        long headroom = nowNanos + burstToleranceNanos - Math.max(theoreticalArrivalNanos.get(), nowNanos);
+        return Math.max(0, Math.min(capacity, headroom / emissionIntervalNanos));
+    }
+
+    public long drainUnsyncedTokens() {
+        return unsyncedTokens.getAndSet(0);
+    }
+
+    /**
+     * Hands back tokens taken by {@link #drainUnsyncedTokens()} that could not be published, so the
+     * next sync pushes them again.
+     */
+    public void restoreUnsyncedTokens(long tokens) {
+        if (tokens > 0) {
+            unsyncedTokens.addAndGet(tokens);
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    public long getLastSeenGlobal() {
+        return lastSeenGlobal;
+    }
+
+    public long getSyncWindow() {
+        return syncWindow;
+    }
+
+    public void markSynced(long window, long globalCount) {
+        this.syncWindow = window;
+        this.lastSeenGlobal = globalCount;
+    }
+}
@@ -4,8 +4,15 @@ CREATE TABLE IF NOT EXISTS shortened_urls (
     long_url VARCHAR(2048) NOT NULL,
     created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     click_count BIGINT DEFAULT 0,
-    expires_at TIMESTAMP WITHOUT TIME ZONE
+    expires_at TIMESTAMP WITHOUT TIME ZONE,
+    updated_at TIMESTAMP WITHOUT TIME ZONE,
+    redirect_rules TEXT
 );
 
+ALTER TABLE shortened_urls ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITHOUT TIME ZONE;
+ALTER TABLE shortened_urls ADD COLUMN IF NOT EXISTS redirect_rules TEXT;
+
 CREATE INDEX IF NOT EXISTS idx_short_code ON shortened_urls (short_code);
-CREATE INDEX IF NOT EXISTS idx_long_url ON shortened_urls (long_url);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_long_url ON shortened_urls (long_url);
+-- Every instance loads all links with redirect rules; they are few, so index only those
+CREATE INDEX IF NOT EXISTS idx_redirect_rules ON shortened_urls (short_code) WHERE redirect_rules IS NOT NULL;
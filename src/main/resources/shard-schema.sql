@@ -0,0 +1,24 @@
+-- Schema applied to every shard when app.sharding.enabled=true. Users stay on the primary
+-- database, so user_id carries no foreign key here.
+-- Ids must stay globally unique across shards: give shard N of M a sequence with
+-- START WITH N+1 INCREMENT BY M, e.g. for shard 0 of 4:
+--   ALTER SEQUENCE shortened_urls_id_seq INCREMENT BY 4 RESTART WITH 1;
+CREATE TABLE IF NOT EXISTS shortened_urls (
+    id BIGSERIAL PRIMARY KEY,
+    short_code VARCHAR(10) NOT NULL UNIQUE,
+    long_url VARCHAR(2048) NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    click_count BIGINT DEFAULT 0,
+    expires_at TIMESTAMP WITHOUT TIME ZONE,
+    updated_at TIMESTAMP WITHOUT TIME ZONE,
+    redirect_rules TEXT,
+    user_id BIGINT
+);
+
+ALTER TABLE shortened_urls ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITHOUT TIME ZONE;
+ALTER TABLE shortened_urls ADD COLUMN IF NOT EXISTS redirect_rules TEXT;
+
+CREATE INDEX IF NOT EXISTS idx_shard_user_id ON shortened_urls (user_id);
+CREATE INDEX IF NOT EXISTS idx_shard_long_url ON shortened_urls (long_url);
+-- Every instance loads all links with redirect rules; they are few, so index only those
+CREATE INDEX IF NOT EXISTS idx_shard_redirect_rules ON shortened_urls (short_code) WHERE redirect_rules IS NOT NULL;
@@ -0,0 +1,99 @@
+package com.wastech.url_shortener.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImportRecordParserTests {
+
+	private final ImportRecordParser csv = new ImportRecordParser(ImportFormat.CSV, false, new ObjectMapper());
+	private final ImportRecordParser ndjson = new ImportRecordParser(ImportFormat.NDJSON, false, new ObjectMapper());
+
+	@Test
+	void normalizesSchemeHostAndDefaultPorts() {
+		assertThat(ImportRecordParser.normalizeUrl(" HTTPS://Example.COM:443/Path?Q=1#Frag "))
+			.isEqualTo("https://example.com/Path?Q=1#Frag");
+		assertThat(ImportRecordParser.normalizeUrl("http://example.com:80")).isEqualTo("http://example.com");
+		assertThat(ImportRecordParser.normalizeUrl("http://example.com:8080/a")).isEqualTo("http://example.com:8080/a");
+		assertThat(ImportRecordParser.normalizeUrl("https://User@Example.com/%7Ea"))
+			.as("user info and escapes are kept as they are")
+			.isEqualTo("https://User@example.com/%7Ea");
+	}
+
+	@Test
+	void rejectsUnsupportedAndOversizedUrls() {
+		assertThat(ImportRecordParser.normalizeUrl(null)).isNull();
+		assertThat(ImportRecordParser.normalizeUrl("ftp://example.com")).isNull();
+		assertThat(ImportRecordParser.normalizeUrl("example.com/path")).isNull();
+		assertThat(ImportRecordParser.normalizeUrl("https:///no-host")).isNull();
+		assertThat(ImportRecordParser.normalizeUrl("https://exa mple.com")).isNull();
+		assertThat(ImportRecordParser.normalizeUrl("https://example.com/" + "a".repeat(2048))).isNull();
+	}
+
+	@Test
+	void parsesQuotedCsvFields() {
+		ImportRecord record = csv.parse("\"abc\",\"https://example.com/?a=1,b=2\",2026-01-02T03:04:05,,\" 7 \"");
+
+		assertThat(record.getShortCode()).isEqualTo("abc");
+		assertThat(record.getLongUrl()).isEqualTo("https://example.com/?a=1,b=2");
+		assertThat(record.getCreatedAt()).isEqualTo(LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+		assertThat(record.getExpiresAt()).isNull();
+		assertThat(record.getClickCount()).isEqualTo(7);
+	}
+
+	@Test
+	void fillsMissingCsvFields() {
+		ImportRecord record = csv.parse(",https://example.com");
+
+		assertThat(record.getShortCode()).isNull();
+		assertThat(record.getCreatedAt()).isNotNull();
+		assertThat(record.getClickCount()).isZero();
+	}
+
+	@Test
+	void convertsOffsetTimestampsToLocalTime() {
+		String timestamp = "2026-01-02T03:04:05+05:30";
+
+		ImportRecord record = csv.parse("abc,https://example.com," + timestamp);
+
+		assertThat(record.getCreatedAt())
+			.isEqualTo(OffsetDateTime.parse(timestamp).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+	}
+
+	@Test
+	void skipsRejectedCsvRows() {
+		assertThat(csv.parse("")).isNull();
+		assertThat(csv.parse("   ")).isNull();
+		assertThat(csv.parse("ab-c,https://example.com")).as("invalid code").isNull();
+		assertThat(csv.parse("abc,not a url")).isNull();
+		assertThat(csv.parse("abc,\"https://example.com/\"\"quoted\"\"\"")).as("unescaped quotes are not valid in a URL").isNull();
+		assertThat(csv.parse("abc,https://example.com,yesterday")).as("bad timestamp").isNull();
+		assertThat(csv.parse("abc,https://example.com,,,many")).as("bad click count").isNull();
+		assertThat(new ImportRecordParser(ImportFormat.CSV, true, new ObjectMapper()).parse(",https://example.com"))
+			.as("code required")
+			.isNull();
+	}
+
+	@Test
+	void clampsNegativeClickCounts() {
+		assertThat(csv.parse("abc,https://example.com,,,-5").getClickCount()).isZero();
+	}
+
+	@Test
+	void parsesNdjsonObjects() {
+		ImportRecord record = ndjson.parse(
+			"{\"code\":\"abc\",\"longUrl\":\"HTTP://Example.com\",\"expiresAt\":\"2027-01-01T00:00:00\",\"clickCount\":3}");
+
+		assertThat(record.getShortCode()).isEqualTo("abc");
+		assertThat(record.getLongUrl()).isEqualTo("http://example.com");
+		assertThat(record.getExpiresAt()).isEqualTo(LocalDateTime.of(2027, 1, 1, 0, 0));
+		assertThat(record.getClickCount()).isEqualTo(3);
+		assertThat(ndjson.parse("{\"code\":\"abc\"")).as("malformed JSON").isNull();
+		assertThat(ndjson.parse("{\"code\":\"abc\",\"longUrl\":\" \"}")).as("blank URL").isNull();
+	}
+}
@@ -0,0 +1,234 @@
+package com.wastech.url_shortener.localstore;
+
+import com.wastech.url_shortener.util.Base62;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapMappingStoreTests {
+
+	private static final long NOW = 1_780_000_000_000L;
+	// Offsets into the file layout described on OffHeapMappingStore
+	private static final long HEADER_SIZE = 64;
+	private static final long H_VERSION = 8;
+	private static final long H_GENERATION = 16;
+	private static final long R_URL_LENGTH = 16;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void storesAndRemovesMappings() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", 0);
+			put(store, "xyz", "https://x.example", NOW + 60_000);
+
+			assertThat(get(store, "abc", NOW)).isEqualTo(new OffHeapMappingStore.Mapping("https://a.example", 0));
+			assertThat(get(store, "xyz", NOW)).isEqualTo(new OffHeapMappingStore.Mapping("https://x.example", NOW + 60_000));
+			assertThat(get(store, "nope", NOW)).isNull();
+			assertThat(store.size()).isEqualTo(2);
+
+			store.remove(Base62.decode("abc"));
+			store.remove(Base62.decode("nope"));
+
+			assertThat(get(store, "abc", NOW)).isNull();
+			assertThat(get(store, "xyz", NOW)).isNotNull();
+			assertThat(store.size()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void overwritesInPlaceOfTheOldRecord() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://old.example", 0);
+			put(store, "abc", "https://new.example", NOW + 60_000);
+			long arenaBytes = store.arenaBytes();
+
+			put(store, "abc", "https://new.example", NOW + 60_000);
+
+			assertThat(get(store, "abc", NOW)).isEqualTo(new OffHeapMappingStore.Mapping("https://new.example", NOW + 60_000));
+			assertThat(store.size()).isEqualTo(1);
+			assertThat(store.arenaBytes()).as("an unchanged mapping is not appended again").isEqualTo(arenaBytes);
+		}
+	}
+
+	@Test
+	void reportsExpiredAndAgedEntriesAsMisses() throws IOException {
+		try (OffHeapMappingStore store = open(5_000)) {
+			put(store, "abc", "https://a.example", NOW + 1_000);
+			put(store, "xyz", "https://x.example", 0);
+
+			assertThat(get(store, "abc", NOW + 999)).isNotNull();
+			assertThat(get(store, "abc", NOW + 1_000)).isNull();
+			assertThat(get(store, "xyz", NOW + 4_999)).isNotNull();
+			assertThat(get(store, "xyz", NOW + 5_000)).isNull();
+		}
+	}
+
+	@Test
+	void codesSharingAKeyDoNotMatchEachOther() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", 0);
+
+			assertThat(Base62.decode("00abc")).isEqualTo(Base62.decode("abc"));
+			assertThat(store.get(Base62.decode("abc"), "00abc", NOW)).isNull();
+		}
+	}
+
+	@Test
+	void skipsEntriesTooLargeForARecord() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example/" + "a".repeat(2048 * 3), 0);
+			store.put(Base62.decode("abc"), "abcdefghijk", "https://a.example", 0, NOW);
+
+			assertThat(store.size()).isZero();
+			assertThat(get(store, "abc", NOW)).isNull();
+		}
+	}
+
+	@Test
+	void growsTheTableBeyondTheLoadFactorAndDropsExpiredEntries() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "expiring", "https://gone.example", NOW + 5);
+			// The smallest table has 1024 slots and grows once 70% of them are used
+			for (int i = 1; i <= 2_000; i++) {
+				store.put(i, Base62.encode(i), "https://example.com/" + i, 0, NOW + 10);
+			}
+
+			assertThat(store.size()).isEqualTo(2_000);
+			for (int i = 1; i <= 2_000; i++) {
+				assertThat(store.get(i, Base62.encode(i), NOW + 10)).isEqualTo(new OffHeapMappingStore.Mapping("https://example.com/" + i, 0));
+			}
+			assertThat(get(store, "expiring", NOW)).isNull();
+		}
+	}
+
+	@Test
+	void compactsTheArenaOnceMostOfItIsGarbage() throws IOException {
+		String padding = "a".repeat(6_000);
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "other", "https://other.example", 0);
+			// Each overwrite leaves a 6 KB record behind; compaction starts past 64 MB of garbage
+			for (int i = 0; i < 12_000; i++) {
+				put(store, "abc", "https://example.com/" + i + "/" + padding, 0);
+			}
+
+			assertThat(store.arenaBytes()).isLessThan(64L << 20);
+			assertThat(get(store, "abc", NOW).longUrl()).startsWith("https://example.com/11999/");
+			assertThat(get(store, "other", NOW).longUrl()).isEqualTo("https://other.example");
+			assertThat(store.size()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	void clearDropsEveryEntry() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", 0);
+			put(store, "xyz", "https://x.example", 0);
+
+			store.clear();
+
+			assertThat(store.size()).isZero();
+			assertThat(get(store, "abc", NOW)).isNull();
+			put(store, "xyz", "https://x2.example", 0);
+			assertThat(get(store, "xyz", NOW).longUrl()).isEqualTo("https://x2.example");
+		}
+		try (OffHeapMappingStore reopened = open(0)) {
+			assertThat(reopened.size()).isEqualTo(1);
+			assertThat(get(reopened, "abc", NOW)).isNull();
+		}
+	}
+
+	@Test
+	void reopensThePreviousContents() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", NOW + 60_000);
+			put(store, "xyz", "https://x.example", 0);
+			store.remove(Base62.decode("xyz"));
+		}
+
+		try (OffHeapMappingStore reopened = open(0)) {
+			assertThat(reopened.size()).isEqualTo(1);
+			assertThat(get(reopened, "abc", NOW)).isEqualTo(new OffHeapMappingStore.Mapping("https://a.example", NOW + 60_000));
+			assertThat(get(reopened, "xyz", NOW)).isNull();
+		}
+	}
+
+	@Test
+	void startsEmptyWhenTheFilesAreFromDifferentGenerations() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", 0);
+		}
+		writeLong(directory.resolve("mappings.arena"), H_GENERATION, 42);
+
+		try (OffHeapMappingStore reopened = open(0)) {
+			assertThat(reopened.size()).isZero();
+			assertThat(get(reopened, "abc", NOW)).isNull();
+		}
+	}
+
+	@Test
+	void startsEmptyWhenTheFilesAreFromAnotherVersion() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", 0);
+		}
+		writeLong(directory.resolve("mappings.idx"), H_VERSION, 1);
+
+		try (OffHeapMappingStore reopened = open(0)) {
+			assertThat(reopened.size()).isZero();
+		}
+	}
+
+	@Test
+	void ignoresAndDropsDamagedRecords() throws IOException {
+		try (OffHeapMappingStore store = open(0)) {
+			put(store, "abc", "https://a.example", 0);
+		}
+		// The first record starts right after the arena header
+		writeInt(directory.resolve("mappings.arena"), HEADER_SIZE + R_URL_LENGTH, Integer.MAX_VALUE);
+
+		try (OffHeapMappingStore reopened = open(0)) {
+			assertThat(get(reopened, "abc", NOW)).isNull();
+
+			for (int i = 1; i <= 1_000; i++) {
+				reopened.put(i, Base62.encode(i), "https://example.com/" + i, 0, NOW);
+			}
+
+			assertThat(reopened.size()).as("the rebuild dropped the damaged slot").isEqualTo(1_000);
+			assertThat(get(reopened, "abc", NOW)).isNull();
+		}
+	}
+
+	private OffHeapMappingStore open(long maxAgeMillis) throws IOException {
+		return new OffHeapMappingStore(directory, 0, maxAgeMillis);
+	}
+
+	private static void put(OffHeapMappingStore store, String shortCode, String longUrl, long expiresAtMillis) {
+		store.put(Base62.decode(shortCode), shortCode, longUrl, expiresAtMillis, NOW);
+	}
+
+	private static OffHeapMappingStore.Mapping get(OffHeapMappingStore store, String shortCode, long nowMillis) {
+		return store.get(Base62.decode(shortCode), shortCode, nowMillis);
+	}
+
+	private static void writeLong(Path file, long offset, long value) throws IOException {
+		write(file, offset, ByteBuffer.allocate(Long.BYTES).putLong(0, value));
+	}
+
+	private static void writeInt(Path file, long offset, int value) throws IOException {
+		write(file, offset, ByteBuffer.allocate(Integer.BYTES).putInt(0, value));
+	}
+
+	private static void write(Path file, long offset, ByteBuffer bytes) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(bytes, offset);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.wastech.url_shortener.redirectrules;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class CompiledRedirectRulesTests {
+
+	private static final int US = CompiledRedirectRules.countryKey("US");
+	private static final int DE = CompiledRedirectRules.countryKey("DE");
+	private static final int EN = CompiledRedirectRules.languageKey("en");
+	private static final int FR = CompiledRedirectRules.languageKey("fr");
+	private static final long NOW = millis(LocalDateTime.of(2026, 6, 1, 12, 0));
+
+	@Test
+	void firstMatchingRuleWins() {
+		CompiledRedirectRules rules = CompiledRedirectRules.compile(List.of(
+			rule(List.of("US"), List.of(DeviceClass.MOBILE), null, "https://us-mobile.example"),
+			rule(List.of("US"), null, null, "https://us.example"),
+			rule(null, null, List.of("fr"), "https://fr.example"),
+			rule(null, null, null, "https://fallback.example")));
+
+		assertThat(rules.ruleCount()).isEqualTo(4);
+		assertThat(rules.select(US, DeviceClass.MOBILE, FR, NOW)).isEqualTo("https://us-mobile.example");
+		assertThat(rules.select(US, DeviceClass.DESKTOP, FR, NOW)).isEqualTo("https://us.example");
+		assertThat(rules.select(DE, DeviceClass.MOBILE, FR, NOW)).isEqualTo("https://fr.example");
+		assertThat(rules.select(DE, DeviceClass.MOBILE, EN, NOW)).isEqualTo("https://fallback.example");
+	}
+
+	@Test
+	void returnsNullWhenNoRuleMatches() {
+		CompiledRedirectRules rules = CompiledRedirectRules.compile(List.of(
+			rule(List.of("US", "ca"), List.of(DeviceClass.DESKTOP, DeviceClass.TABLET), List.of("en"), "https://na.example")));
+
+		assertThat(rules.select(CompiledRedirectRules.countryKey("CA"), DeviceClass.TABLET, EN, NOW)).isEqualTo("https://na.example");
+		assertThat(rules.select(DE, DeviceClass.DESKTOP, EN, NOW)).isNull();
+		assertThat(rules.select(US, DeviceClass.BOT, EN, NOW)).isNull();
+		assertThat(rules.select(US, DeviceClass.DESKTOP, FR, NOW)).isNull();
+	}
+
+	@Test
+	void unknownVisitorAttributesMatchOnlyUnconstrainedRules() {
+		CompiledRedirectRules rules = CompiledRedirectRules.compile(List.of(
+			rule(List.of("US"), null, null, "https://us.example"),
+			rule(null, null, List.of("en"), "https://en.example"),
+			rule(null, null, null, "https://fallback.example")));
+
+		assertThat(rules.select(CompiledRedirectRules.UNKNOWN, DeviceClass.DESKTOP, EN, NOW)).isEqualTo("https://en.example");
+		assertThat(rules.select(CompiledRedirectRules.UNKNOWN, DeviceClass.DESKTOP, CompiledRedirectRules.UNKNOWN, NOW))
+			.isEqualTo("https://fallback.example");
+	}
+
+	@Test
+	void timeWindowsIncludeTheStartAndExcludeTheEnd() {
+		LocalDateTime start = LocalDateTime.of(2026, 6, 1, 0, 0);
+		LocalDateTime end = LocalDateTime.of(2026, 6, 2, 0, 0);
+		RedirectRule campaign = rule(null, null, null, "https://campaign.example");
+		campaign.setStartsAt(start);
+		campaign.setEndsAt(end);
+		RedirectRule launch = rule(null, null, null, "https://launch.example");
+		launch.setStartsAt(end);
+		CompiledRedirectRules rules = CompiledRedirectRules.compile(List.of(campaign, launch));
+
+		assertThat(rules.select(US, DeviceClass.DESKTOP, EN, millis(start) - 1)).isNull();
+		assertThat(rules.select(US, DeviceClass.DESKTOP, EN, millis(start))).isEqualTo("https://campaign.example");
+		assertThat(rules.select(US, DeviceClass.DESKTOP, EN, millis(end) - 1)).isEqualTo("https://campaign.example");
+		assertThat(rules.select(US, DeviceClass.DESKTOP, EN, millis(end))).isEqualTo("https://launch.example");
+		assertThat(rules.select(US, DeviceClass.DESKTOP, EN, Long.MAX_VALUE - 1)).isEqualTo("https://launch.example");
+	}
+
+	@Test
+	void variantsAreDrawnInProportionToTheirWeights() {
+		RedirectRule split = new RedirectRule();
+		split.setVariants(List.of(
+			new RedirectRule.Variant("https://a.example", 1),
+			new RedirectRule.Variant("https://b.example", 3)));
+		CompiledRedirectRules rules = CompiledRedirectRules.compile(List.of(split));
+
+		int draws = 40_000;
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < draws; i++) {
+			counts.merge(rules.select(US, DeviceClass.DESKTOP, EN, NOW), 1, Integer::sum);
+		}
+
+		assertThat(counts).containsOnlyKeys("https://a.example", "https://b.example");
+		assertThat(counts.get("https://a.example") / (double) draws).isCloseTo(0.25, within(0.02));
+	}
+
+	@Test
+	void acceptsTheMaximumNumberOfRules() {
+		List<RedirectRule> many = new ArrayList<>();
+		for (int i = 0; i < CompiledRedirectRules.MAX_RULES; i++) {
+			many.add(rule(List.of(i == CompiledRedirectRules.MAX_RULES - 1 ? "DE" : "US"), null, null, "https://r" + i + ".example"));
+		}
+		CompiledRedirectRules rules = CompiledRedirectRules.compile(many);
+
+		assertThat(rules.select(DE, DeviceClass.DESKTOP, EN, NOW)).isEqualTo("https://r63.example");
+
+		many.add(rule(null, null, null, "https://one-too-many.example"));
+		assertThatThrownBy(() -> CompiledRedirectRules.compile(many)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void rejectsMalformedRules() {
+		RedirectRule backwards = rule(null, null, null, "https://a.example");
+		backwards.setStartsAt(LocalDateTime.of(2026, 6, 2, 0, 0));
+		backwards.setEndsAt(LocalDateTime.of(2026, 6, 1, 0, 0));
+		RedirectRule both = rule(null, null, null, "https://a.example");
+		both.setVariants(List.of(new RedirectRule.Variant("https://b.example", 1)));
+		RedirectRule zeroWeight = new RedirectRule();
+		zeroWeight.setVariants(List.of(new RedirectRule.Variant("https://b.example", 0)));
+
+		assertRejected(List.of(), "At least one redirect rule");
+		assertRejected(List.of(rule(List.of("USA"), null, null, "https://a.example")), "Rule 1: 'USA'");
+		assertRejected(List.of(rule(null, null, List.of("english"), "https://a.example")), "not a language subtag");
+		assertRejected(List.of(rule(null, null, null, "https://a.example"), backwards), "Rule 2: the time window");
+		assertRejected(List.of(rule(null, null, null, null)), "needs a url or variants");
+		assertRejected(List.of(both), "both a url and variants");
+		assertRejected(List.of(zeroWeight), "variant weights");
+		assertRejected(List.of(rule(null, null, null, "ftp://a.example")), "not an absolute http(s) URL");
+		assertRejected(List.of(rule(null, null, null, "https://a.example/" + "a".repeat(2048))), "1 to 2048 characters");
+	}
+
+	@Test
+	void countryKeysIgnoreCaseAndRejectPlaceholders() {
+		assertThat(CompiledRedirectRules.countryKey("us")).isEqualTo(US);
+		assertThat(CompiledRedirectRules.countryKey("AA")).isEqualTo(1);
+		assertThat(CompiledRedirectRules.countryKey("ZZ")).isEqualTo(26 * 26);
+		assertThat(CompiledRedirectRules.countryKey("XX")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.countryKey("T1")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.countryKey("USA")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.countryKey("")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.countryKey(null)).isEqualTo(CompiledRedirectRules.UNKNOWN);
+	}
+
+	@Test
+	void languageKeysUseThePrimarySubtagOfTheFirstEntry() {
+		assertThat(CompiledRedirectRules.languageKey("en-GB,en;q=0.8")).isEqualTo(EN);
+		assertThat(CompiledRedirectRules.languageKey("  EN_us")).isEqualTo(EN);
+		assertThat(CompiledRedirectRules.languageKey("en;q=0.5")).isEqualTo(EN);
+		assertThat(CompiledRedirectRules.languageKey("fr, en")).isEqualTo(FR);
+		assertThat(CompiledRedirectRules.languageKey("haw")).isNotEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.languageKey("e")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.languageKey("engl")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.languageKey("*")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.languageKey("en1")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.languageKey("")).isEqualTo(CompiledRedirectRules.UNKNOWN);
+		assertThat(CompiledRedirectRules.languageKey(null)).isEqualTo(CompiledRedirectRules.UNKNOWN);
+	}
+
+	private static RedirectRule rule(List<String> countries, List<DeviceClass> devices, List<String> languages, String url) {
+		RedirectRule rule = new RedirectRule();
+		rule.setCountries(countries);
+		rule.setDevices(devices);
+		rule.setLanguages(languages);
+		rule.setUrl(url);
+		return rule;
+	}
+
+	private static void assertRejected(List<RedirectRule> rules, String message) {
+		assertThatThrownBy(() -> CompiledRedirectRules.compile(rules))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining(message);
+	}
+
+	private static long millis(LocalDateTime time) {
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+}
@@ -0,0 +1,70 @@
+package com.wastech.url_shortener.redirectrules;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserAgentClassifierTests {
+
+	@Test
+	void classifiesCommonBrowsers() {
+		assertThat(UserAgentClassifier.classify(
+			"Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Safari/537.36"))
+			.isEqualTo(DeviceClass.DESKTOP);
+		assertThat(UserAgentClassifier.classify(
+			"Mozilla/5.0 (iPhone; CPU iPhone OS 17_5 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.5 Mobile/15E148 Safari/604.1"))
+			.isEqualTo(DeviceClass.MOBILE);
+		assertThat(UserAgentClassifier.classify(
+			"Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Mobile Safari/537.36"))
+			.isEqualTo(DeviceClass.MOBILE);
+		assertThat(UserAgentClassifier.classify(
+			"Mozilla/5.0 (iPad; CPU OS 17_5 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.5 Mobile/15E148 Safari/604.1"))
+			.as("tablet markers win over Mobile")
+			.isEqualTo(DeviceClass.TABLET);
+	}
+
+	@Test
+	void treatsAndroidWithoutMobileAsATablet() {
+		assertThat(UserAgentClassifier.classify(
+			"Mozilla/5.0 (Linux; Android 14; SM-X910) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Safari/537.36"))
+			.isEqualTo(DeviceClass.TABLET);
+	}
+
+	@Test
+	void botsWinOverEveryOtherMarker() {
+		assertThat(UserAgentClassifier.classify(
+			"Mozilla/5.0 (Linux; Android 6.0.1; Nexus 5X Build/MMB29P) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Mobile Safari/537.36 (compatible; Googlebot/2.1)"))
+			.isEqualTo(DeviceClass.BOT);
+		assertThat(UserAgentClassifier.classify("curl/8.7.1")).isEqualTo(DeviceClass.BOT);
+		assertThat(UserAgentClassifier.classify("python-requests/2.32.3")).isEqualTo(DeviceClass.BOT);
+		assertThat(UserAgentClassifier.classify("facebookexternalhit/1.1")).isEqualTo(DeviceClass.BOT);
+	}
+
+	@Test
+	void matchesTokensCaseInsensitivelyAndAcrossOverlaps() {
+		assertThat(UserAgentClassifier.classify("SOME-CRAWLER")).isEqualTo(DeviceClass.BOT);
+		assertThat(UserAgentClassifier.classify("xxmobimobilexx")).as("restarts inside a partial match").isEqualTo(DeviceClass.MOBILE);
+		assertThat(UserAgentClassifier.classify("Opera Mini/8.0")).isEqualTo(DeviceClass.MOBILE);
+	}
+
+	@Test
+	void nonAsciiCharactersBreakTokens() {
+		assertThat(UserAgentClassifier.classify("mobïle")).isEqualTo(DeviceClass.DESKTOP);
+		assertThat(UserAgentClassifier.classify("émobile")).isEqualTo(DeviceClass.MOBILE);
+	}
+
+	@Test
+	void scansOnlyThePrefixOfLongHeaders() {
+		String padding = "x".repeat(600);
+
+		assertThat(UserAgentClassifier.classify("iPhone " + padding)).isEqualTo(DeviceClass.MOBILE);
+		assertThat(UserAgentClassifier.classify(padding + " iPhone")).isEqualTo(DeviceClass.DESKTOP);
+	}
+
+	@Test
+	void defaultsToDesktop() {
+		assertThat(UserAgentClassifier.classify(null)).isEqualTo(DeviceClass.DESKTOP);
+		assertThat(UserAgentClassifier.classify("")).isEqualTo(DeviceClass.DESKTOP);
+		assertThat(UserAgentClassifier.classify("Mozilla/5.0 (Macintosh; Intel Mac OS X 14_5)")).isEqualTo(DeviceClass.DESKTOP);
+	}
+}
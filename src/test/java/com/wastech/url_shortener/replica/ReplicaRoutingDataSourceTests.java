@@ -0,0 +1,78 @@
+package com.wastech.url_shortener.replica;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTests {
+
+	private final Connection primaryConnection = mock(Connection.class);
+	private final Connection replicaConnection = mock(Connection.class);
+	private final DataSource primary = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private ReplicaRoutingDataSource routing;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		when(replica.getConnection()).thenReturn(replicaConnection);
+		LinkedHashMap<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", replica);
+		routing = new ReplicaRoutingDataSource(primary, replicas, 5000, new SimpleMeterRegistry());
+		routing.afterPropertiesSet();
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+
+	@Test
+	void writesGoToPrimary() throws SQLException {
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+	}
+
+	@Test
+	void readOnlyTransactionsGoToReplica() throws SQLException {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(routing.getConnection()).isSameAs(replicaConnection);
+	}
+
+	@Test
+	void explicitOverridesWinOverTransactionFlag() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertThat(ReplicaContext.onPrimary(this::connection)).isSameAs(primaryConnection);
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		assertThat(ReplicaContext.onReplica(this::connection)).isSameAs(replicaConnection);
+	}
+
+	@Test
+	void unreachableReplicaFallsBackToPrimary() throws SQLException {
+		when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+		assertThat(ReplicaContext.onReplica(this::connection)).isSameAs(primaryConnection);
+
+		// Once out of rotation the replica is not tried again until a health check succeeds
+		when(replica.getConnection()).thenReturn(replicaConnection);
+		assertThat(ReplicaContext.onReplica(this::connection)).isSameAs(primaryConnection);
+	}
+
+	private Connection connection() {
+		try {
+			return routing.getConnection();
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package com.wastech.url_shortener.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTests {
+
+	private static final long OPEN_MS = 50;
+
+	private SimpleMeterRegistry meterRegistry;
+	private CircuitBreaker breaker;
+
+	@BeforeEach
+	void setUp() {
+		CircuitBreakerProperties.Settings settings = new CircuitBreakerProperties.Settings();
+		settings.setFailureRateThreshold(0.5);
+		settings.setSlowCallMs(100);
+		settings.setMinimumCalls(4);
+		settings.setWindowSeconds(10);
+		settings.setOpenMs(OPEN_MS);
+		settings.setHalfOpenCalls(2);
+		meterRegistry = new SimpleMeterRegistry();
+		breaker = new CircuitBreaker("test", settings, meterRegistry);
+	}
+
+	@Test
+	void staysClosedBelowTheMinimumCallCount() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(breaker.tryAcquire()).isTrue();
+			breaker.onFailure();
+		}
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.getFailureRate()).isZero();
+	}
+
+	@Test
+	void opensOnceTheFailureRateReachesTheThreshold() {
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onFailure();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		breaker.onFailure();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.isCallPermitted()).isFalse();
+		assertThat(breaker.tryAcquire()).isFalse();
+		assertThat(transitionsTo("open")).isEqualTo(1);
+	}
+
+	@Test
+	void countsSlowCallsAsFailures() {
+		breaker.onSuccess(0);
+		breaker.onSuccess(0);
+		breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(150));
+		breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(100));
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void ignoresDurationWithoutASlowCallThreshold() {
+		CircuitBreakerProperties.Settings settings = new CircuitBreakerProperties.Settings();
+		settings.setMinimumCalls(4);
+		CircuitBreaker failuresOnly = new CircuitBreaker("failures-only", settings, meterRegistry);
+
+		for (int i = 0; i < 10; i++) {
+			failuresOnly.onSuccess(TimeUnit.SECONDS.toNanos(30));
+		}
+
+		assertThat(failuresOnly.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(failuresOnly.getFailureRate()).isZero();
+	}
+
+	@Test
+	void closesAfterTheTrialCallsSucceed() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_MS + 10);
+
+		assertThat(breaker.isCallPermitted()).isTrue();
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.tryAcquire()).as("only the configured trial calls are let through").isFalse();
+
+		breaker.onSuccess(0);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		breaker.onSuccess(0);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.getFailureRate()).as("the window starts empty after closing").isZero();
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(transitionsTo("half_open")).isEqualTo(1);
+		assertThat(transitionsTo("closed")).isEqualTo(1);
+	}
+
+	@Test
+	void reopensWhenATrialCallFails() throws InterruptedException {
+		open();
+		Thread.sleep(OPEN_MS + 10);
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+		breaker.onFailure();
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire()).as("the open interval starts over").isFalse();
+		assertThat(transitionsTo("open")).isEqualTo(2);
+
+		Thread.sleep(OPEN_MS + 10);
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+	}
+
+	@Test
+	void executeFailsFastWhileOpenAndCountsOnlyMatchingExceptions() {
+		RuntimeException answered = new IllegalArgumentException("bad request");
+		for (int i = 0; i < 10; i++) {
+			assertThatThrownBy(() -> breaker.execute(() -> {
+				throw answered;
+			}, e -> e instanceof IllegalStateException, IllegalStateException::new)).isSameAs(answered);
+		}
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+		open();
+
+		assertThatThrownBy(() -> breaker.execute(() -> "never called", e -> true, () -> new IllegalStateException("open")))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessage("open");
+		assertThat(meterRegistry.get("shortener.circuit.calls").tag("name", "test").tag("outcome", "rejected").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	void disabledBreakerNeverOpens() {
+		CircuitBreakerProperties.Settings settings = new CircuitBreakerProperties.Settings();
+		settings.setEnabled(false);
+		settings.setMinimumCalls(1);
+		CircuitBreaker disabled = new CircuitBreaker("disabled", settings, meterRegistry);
+
+		for (int i = 0; i < 10; i++) {
+			disabled.onFailure();
+		}
+
+		assertThat(disabled.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(disabled.tryAcquire()).isTrue();
+	}
+
+	private void open() {
+		for (int i = 0; i < 100 && breaker.getState() != CircuitBreaker.State.OPEN; i++) {
+			breaker.onFailure();
+		}
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	private double transitionsTo(String state) {
+		return meterRegistry.get("shortener.circuit.transitions").tag("name", "test").tag("to", state).counter().count();
+	}
+}
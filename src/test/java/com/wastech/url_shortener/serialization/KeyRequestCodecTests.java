@@ -0,0 +1,114 @@
+package com.wastech.url_shortener.serialization;
+
+import com.wastech.url_shortener.model.KeyRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyRequestCodecTests {
+
+	private static final LocalDateTime EXPIRES_AT = LocalDateTime.of(2027, 3, 14, 15, 9, 26, 535_000_000);
+
+	@Test
+	void roundTripsEveryField() {
+		KeyRequest request = new KeyRequest("aZ09", "https://example.com/path?q=1", 42L, EXPIRES_AT);
+
+		byte[] encoded = KeyRequestCodec.encode(request);
+
+		assertThat(KeyRequestCodec.isBinary(encoded)).isTrue();
+		assertThat(KeyRequestCodec.decode(encoded)).isEqualTo(request);
+	}
+
+	@Test
+	void roundTripsAbsentUserIdAndExpiry() {
+		KeyRequest request = new KeyRequest("abc", "https://example.com", null, null);
+
+		KeyRequest decoded = KeyRequestCodec.decode(KeyRequestCodec.encode(request));
+
+		assertThat(decoded).isEqualTo(request);
+		assertThat(decoded.getUserId()).isNull();
+		assertThat(decoded.getExpiresAt()).isNull();
+	}
+
+	@Test
+	void roundTripsAnEmptyRequest() {
+		byte[] encoded = KeyRequestCodec.encode(new KeyRequest());
+
+		assertThat(encoded).hasSize(3);
+		assertThat(KeyRequestCodec.decode(encoded)).isEqualTo(new KeyRequest());
+	}
+
+	@Test
+	void roundTripsExtremeValues() {
+		KeyRequest negative = new KeyRequest("x", "https://example.com", Long.MIN_VALUE, LocalDateTime.of(1960, 1, 1, 0, 0));
+		KeyRequest maximum = new KeyRequest("y", "https://example.com", Long.MAX_VALUE, LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_000_000));
+
+		assertThat(KeyRequestCodec.decode(KeyRequestCodec.encode(negative))).isEqualTo(negative);
+		assertThat(KeyRequestCodec.decode(KeyRequestCodec.encode(maximum))).isEqualTo(maximum);
+	}
+
+	@Test
+	void roundTripsAMaximumLengthUrl() {
+		String longUrl = "https://example.com/" + "é".repeat(2048 - 20);
+		KeyRequest request = new KeyRequest("0000000001", longUrl, 7L, EXPIRES_AT);
+
+		KeyRequest decoded = KeyRequestCodec.decode(KeyRequestCodec.encode(request));
+
+		assertThat(decoded.getLongUrl()).hasSize(2048).isEqualTo(longUrl);
+		assertThat(decoded).isEqualTo(request);
+	}
+
+	@Test
+	void rejectsEveryTruncation() {
+		byte[] encoded = KeyRequestCodec.encode(new KeyRequest("abc", "https://example.com", 300L, EXPIRES_AT));
+
+		for (int length = 0; length < encoded.length; length++) {
+			byte[] truncated = Arrays.copyOf(encoded, length);
+			assertThatThrownBy(() -> KeyRequestCodec.decode(truncated))
+				.as("payload cut to %d bytes", length)
+				.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	void rejectsALengthBeyondTheBuffer() {
+		byte[] encoded = KeyRequestCodec.encode(new KeyRequest("abc", null, null, null));
+		encoded[3] = 0x7F;
+
+		assertThatThrownBy(() -> KeyRequestCodec.decode(encoded))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("Truncated");
+	}
+
+	@Test
+	void rejectsAnOverlongVarint() {
+		byte[] payload = new byte[3 + 11];
+		payload[0] = KeyRequestCodec.MAGIC;
+		payload[1] = KeyRequestCodec.VERSION_1;
+		payload[2] = 1;
+		Arrays.fill(payload, 3, payload.length, (byte) 0xFF);
+
+		assertThatThrownBy(() -> KeyRequestCodec.decode(payload))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("Malformed varint");
+	}
+
+	@Test
+	void rejectsJsonAndUnknownVersions() {
+		byte[] json = "{\"shortCode\":\"abc\"}".getBytes(StandardCharsets.UTF_8);
+		byte[] future = KeyRequestCodec.encode(new KeyRequest("abc", null, null, null));
+		future[1] = 2;
+
+		assertThat(KeyRequestCodec.isBinary(json)).isFalse();
+		assertThat(KeyRequestCodec.isBinary(new byte[0])).isFalse();
+		assertThatThrownBy(() -> KeyRequestCodec.decode(json)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> KeyRequestCodec.decode(future))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("version: 2");
+	}
+}
@@ -0,0 +1,169 @@
+package com.wastech.url_shortener.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitServiceTests {
+
+	private static final String IP = "203.0.113.7";
+
+	private final RedissonClient redisson = mock(RedissonClient.class);
+	private final RBatch batch = mock(RBatch.class);
+	private final RAtomicLongAsync counter = mock(RAtomicLongAsync.class);
+	private RateLimitService rateLimitService;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		ObjectProvider<RedissonClient> provider = mock(ObjectProvider.class);
+		when(provider.getObject()).thenReturn(redisson);
+		when(redisson.createBatch()).thenReturn(batch);
+		when(batch.getAtomicLong(anyString())).thenReturn(counter);
+
+		rateLimitService = new RateLimitService(provider);
+		ReflectionTestUtils.setField(rateLimitService, "enabled", true);
+		ReflectionTestUtils.setField(rateLimitService, "maxBuckets", 100);
+		ReflectionTestUtils.setField(rateLimitService, "syncWindowSeconds", 60L);
+		ReflectionTestUtils.setField(rateLimitService, "lookupIpPerMinute", 10L);
+		ReflectionTestUtils.setField(rateLimitService, "lookupCodePerMinute", 10L);
+	}
+
+	@Test
+	void admitsABurstAndAnswersWithTheRetryAfterDelay() {
+		for (int i = 0; i < 10; i++) {
+			assertThat(rateLimitService.admitLookup(IP)).isZero();
+		}
+
+		// One token every 6 seconds
+		assertThat(rateLimitService.admitLookup(IP)).isEqualTo(6);
+		assertThat(rateLimitService.admitLookup("198.51.100.1")).as("other clients keep their own bucket").isZero();
+	}
+
+	@Test
+	void codeLookupsOnlyGetABucketForValidCodes() {
+		for (int i = 0; i < 10; i++) {
+			assertThat(rateLimitService.admitCodeLookup("abc")).isZero();
+		}
+		assertThat(rateLimitService.admitCodeLookup("abc")).isPositive();
+
+		ReflectionTestUtils.setField(rateLimitService, "maxBuckets", 1);
+		assertThat(rateLimitService.admitCodeLookup("not-a-code")).isZero();
+		assertThat(rateLimitService.admitCodeLookup("")).isZero();
+		assertThat(rateLimitService.admitCodeLookup(null)).isZero();
+		assertThat(rateLimitService.admitCodeLookup("abc")).as("the invalid codes took no slot").isPositive();
+	}
+
+	@Test
+	void admitsWithoutABucketOnceTheMapIsFull() {
+		ReflectionTestUtils.setField(rateLimitService, "maxBuckets", 1);
+		for (int i = 0; i < 10; i++) {
+			rateLimitService.admitLookup(IP);
+		}
+
+		assertThat(rateLimitService.admitLookup(IP)).isPositive();
+		for (int i = 0; i < 20; i++) {
+			assertThat(rateLimitService.admitLookup("198.51.100.1")).isZero();
+		}
+	}
+
+	@Test
+	void foldsInWhatTheRestOfTheClusterConsumed() {
+		rateLimitService.admitLookup(IP);
+		// The other instances took 8 of the 10 tokens
+		when(counter.addAndGetAsync(1)).thenReturn(completed(9L));
+
+		rateLimitService.syncWithCluster();
+
+		assertThat(rateLimitService.admitLookup(IP)).isZero();
+		assertThat(rateLimitService.admitLookup(IP)).isPositive();
+	}
+
+	@Test
+	void syncsOnlyBucketsThatConsumedTokensOrRunLow() {
+		rateLimitService.admitLookup(IP);
+		when(counter.addAndGetAsync(1)).thenReturn(completed(1L));
+		rateLimitService.syncWithCluster();
+
+		rateLimitService.syncWithCluster();
+
+		verify(redisson, times(1)).createBatch();
+		verify(counter, never()).getAsync();
+	}
+
+	@Test
+	void keepsSyncingABucketThatRunsLowWithoutLocalConsumption() {
+		rateLimitService.admitLookup(IP);
+		when(counter.addAndGetAsync(1)).thenReturn(completed(9L));
+		rateLimitService.syncWithCluster();
+		when(counter.getAsync()).thenReturn(completed(9L));
+
+		rateLimitService.syncWithCluster();
+
+		verify(counter).getAsync();
+	}
+
+	@Test
+	void publishesTheTokensOfAFailedSyncNextTime() {
+		rateLimitService.admitLookup(IP);
+		rateLimitService.admitLookup(IP);
+		when(counter.addAndGetAsync(anyLong())).thenReturn(completed(0L));
+		when(batch.execute()).thenThrow(new IllegalStateException("Redis is down")).thenReturn(null);
+		rateLimitService.syncWithCluster();
+
+		rateLimitService.admitLookup(IP);
+		rateLimitService.syncWithCluster();
+
+		verify(counter).addAndGetAsync(2);
+		verify(counter).addAndGetAsync(3);
+	}
+
+	@Test
+	void evictsIdleBuckets() {
+		for (int i = 0; i < 10; i++) {
+			rateLimitService.admitLookup(IP);
+		}
+		assertThat(rateLimitService.admitLookup(IP)).isPositive();
+
+		rateLimitService.syncWithCluster(System.nanoTime() + TimeUnit.MINUTES.toNanos(6));
+
+		assertThat(rateLimitService.admitLookup(IP)).as("a fresh bucket").isZero();
+		verify(redisson, never()).createBatch();
+	}
+
+	@Test
+	void admitsEverythingWhenDisabled() {
+		ReflectionTestUtils.setField(rateLimitService, "enabled", false);
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(rateLimitService.admitLookup(IP)).isZero();
+			assertThat(rateLimitService.admitCodeLookup("abc")).isZero();
+		}
+		rateLimitService.syncWithCluster();
+		verify(redisson, never()).createBatch();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RFuture<Long> completed(long value) {
+		RFuture<Long> future = mock(RFuture.class);
+		when(future.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(value));
+		return future;
+	}
+}
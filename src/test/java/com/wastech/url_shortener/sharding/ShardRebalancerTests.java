@@ -0,0 +1,154 @@
+package com.wastech.url_shortener.sharding;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardRebalancerTests {
+
+	// Decodes into [0, 1000), which the even split gives to shard 0
+	private static final String CODE = "A";
+	private static final long RANGE_END = 1000;
+
+	private static EmbeddedPostgres postgres;
+	private static ShardRoutingDataSource shards;
+
+	private ShardRouter shardRouter;
+	private ShardedShortenedUrlRepository repository;
+	private ShardRebalancer rebalancer;
+
+	@BeforeAll
+	static void startPostgres() throws IOException {
+		postgres = EmbeddedPostgres.builder().start();
+		JdbcTemplate admin = new JdbcTemplate(postgres.getPostgresDatabase());
+		Map<Object, Object> targets = new HashMap<>();
+		for (int shard = 0; shard < 2; shard++) {
+			admin.execute("CREATE DATABASE shard_" + shard);
+			DataSource dataSource = postgres.getDatabase("postgres", "shard_" + shard);
+			new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql")).execute(dataSource);
+			targets.put(shard, dataSource);
+		}
+		shards = new ShardRoutingDataSource();
+		shards.setTargetDataSources(targets);
+		shards.afterPropertiesSet();
+	}
+
+	@AfterAll
+	static void stopPostgres() throws IOException {
+		postgres.close();
+	}
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		StringRedisTemplate redis = mock(StringRedisTemplate.class);
+		when(redis.opsForValue()).thenReturn(mock(ValueOperations.class));
+		shardRouter = new ShardRouter(redis, 2);
+		repository = new ShardedShortenedUrlRepository(shards, shardRouter);
+		rebalancer = new ShardRebalancer(repository, shardRouter, new ShardingProperties(), "localhost:9092");
+		for (int shard = 0; shard < 2; shard++) {
+			repository.shard(shard).update("DELETE FROM shortened_urls");
+		}
+	}
+
+	@Test
+	void copiesTheRangeToTheTarget() {
+		insert(0, CODE, "https://old.example", null);
+		insert(0, "zz", "https://outside.example", null);
+
+		rebalancer.copyRange(job());
+
+		assertThat(longUrlOn(1, CODE)).isEqualTo("https://old.example");
+		assertThat(repository.shard(1).queryForObject("SELECT count(*) FROM shortened_urls WHERE short_code = 'zz'", Long.class))
+			.as("codes outside the range stay where they are")
+			.isZero();
+	}
+
+	@Test
+	void copiesRedirectRules() {
+		insert(0, CODE, "https://old.example", null);
+		String rules = "[{\"countries\":[\"US\"],\"url\":\"https://us.example\"}]";
+		ShardMoveJob job = job();
+		rebalancer.copyRange(job);
+
+		repository.updateRedirectRules(CODE, rules, LocalDateTime.now());
+		rebalancer.copyRange(job);
+
+		assertThat(repository.shard(1).queryForObject("SELECT redirect_rules FROM shortened_urls WHERE short_code = ?", String.class, CODE))
+			.isEqualTo(rules);
+	}
+
+	@Test
+	void catchUpKeepsUpdatesMadeOnTheTargetAfterTheFlip() {
+		insert(0, CODE, "https://old.example", null);
+		ShardMoveJob job = job();
+		rebalancer.copyRange(job);
+
+		shardRouter.reassign(0, RANGE_END, 1);
+		repository.updateLongUrl(CODE, "https://new.example", LocalDateTime.now());
+		rebalancer.copyRange(job);
+
+		assertThat(longUrlOn(1, CODE)).isEqualTo("https://new.example");
+	}
+
+	@Test
+	void catchUpCarriesOverSourceUpdatesMadeBeforeTheFlip() {
+		insert(0, CODE, "https://old.example", null);
+		ShardMoveJob job = job();
+		rebalancer.copyRange(job);
+
+		repository.updateLongUrl(CODE, "https://late.example", LocalDateTime.now());
+		shardRouter.reassign(0, RANGE_END, 1);
+		rebalancer.copyRange(job);
+
+		assertThat(longUrlOn(1, CODE)).isEqualTo("https://late.example");
+	}
+
+	@Test
+	void mergedReadsSkipCopiesLeftOnTheOldOwner() {
+		repository.shard(0).update(
+			"INSERT INTO shortened_urls (short_code, long_url, created_at, user_id) VALUES (?, ?, ?, 7)",
+			CODE, "https://old.example", Timestamp.valueOf(LocalDateTime.now()));
+		rebalancer.copyRange(job());
+		shardRouter.reassign(0, RANGE_END, 1);
+		repository.updateLongUrl(CODE, "https://new.example", LocalDateTime.now());
+
+		assertThat(repository.findSummariesByUserId(7L))
+			.singleElement()
+			.satisfies(summary -> assertThat(summary.getLongUrl()).isEqualTo("https://new.example"));
+		assertThat(repository.findAllSummaries()).hasSize(1);
+		assertThat(repository.findFirstSummaryByUserIdAndLongUrl(7L, "https://old.example")).isEmpty();
+	}
+
+	private ShardMoveJob job() {
+		return new ShardMoveJob("test", 0, RANGE_END, 1, false);
+	}
+
+	private void insert(int shard, String shortCode, String longUrl, LocalDateTime updatedAt) {
+		repository.shard(shard).update(
+			"INSERT INTO shortened_urls (short_code, long_url, created_at, updated_at) VALUES (?, ?, ?, ?)",
+			shortCode, longUrl, Timestamp.valueOf(LocalDateTime.now()), updatedAt == null ? null : Timestamp.valueOf(updatedAt));
+	}
+
+	private String longUrlOn(int shard, String shortCode) {
+		return repository.shard(shard).queryForObject("SELECT long_url FROM shortened_urls WHERE short_code = ?", String.class, shortCode);
+	}
+}
@@ -0,0 +1,31 @@
+package com.wastech.url_shortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Base62Tests {
+
+	@Test
+	void roundTripsThroughEncodeAndDecode() {
+		for (long value : new long[]{0, 1, 61, 62, 3_521_614_606_207L, Long.MAX_VALUE}) {
+			assertThat(Base62.decode(Base62.encode(value))).isEqualTo(value);
+		}
+		assertThat(Base62.encodeWithPadding(61, 7)).isEqualTo("000000z");
+	}
+
+	@Test
+	void acceptsOnlyShortBase62Codes() {
+		assertThat(Base62.isValidCode("0")).isTrue();
+		assertThat(Base62.isValidCode("aZ09xY")).isTrue();
+		assertThat(Base62.isValidCode("z".repeat(Base62.MAX_CODE_LENGTH))).isTrue();
+
+		assertThat(Base62.isValidCode(null)).isFalse();
+		assertThat(Base62.isValidCode("")).isFalse();
+		assertThat(Base62.isValidCode("z".repeat(Base62.MAX_CODE_LENGTH + 1))).isFalse();
+		assertThat(Base62.isValidCode("abc-def")).isFalse();
+		assertThat(Base62.isValidCode("my-urls")).isFalse();
+		assertThat(Base62.isValidCode("abc/")).isFalse();
+		assertThat(Base62.isValidCode("abé")).isFalse();
+	}
+}
@@ -0,0 +1,85 @@
+package com.wastech.url_shortener.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeistelPermutationTests {
+
+	private static final long CODE_SPACE = 3_521_614_606_208L; // 62^7
+
+	@ParameterizedTest
+	@ValueSource(longs = {1, 2, 3, 61, 62, 3_844, 238_328, 1_000_003, 1 << 22})
+	void isABijectionOnSmallDomains(long domainSize) {
+		FeistelPermutation permutation = new FeistelPermutation(domainSize, "test-secret");
+		BitSet seen = new BitSet((int) domainSize);
+		for (long value = 0; value < domainSize; value++) {
+			long permuted = permutation.permute(value);
+			assertThat(permuted).isBetween(0L, domainSize - 1);
+			assertThat(seen.get((int) permuted)).as("collision at %d", value).isFalse();
+			seen.set((int) permuted);
+			assertThat(permutation.invert(permuted)).isEqualTo(value);
+		}
+		assertThat(seen.cardinality()).isEqualTo((int) domainSize);
+	}
+
+	@Test
+	void roundTripsAcrossTheFullCodeSpace() {
+		FeistelPermutation permutation = new FeistelPermutation(CODE_SPACE, "test-secret");
+		SplittableRandom random = new SplittableRandom(42);
+		for (int i = 0; i < 1_000_000; i++) {
+			long value = random.nextLong(CODE_SPACE);
+			long permuted = permutation.permute(value);
+			assertThat(permuted).isBetween(0L, CODE_SPACE - 1);
+			assertThat(permutation.invert(permuted)).isEqualTo(value);
+		}
+		assertThat(permutation.permute(CODE_SPACE - 1)).isBetween(0L, CODE_SPACE - 1);
+	}
+
+	@Test
+	void isDeterministicForTheSameSecret() {
+		FeistelPermutation first = new FeistelPermutation(CODE_SPACE, "test-secret");
+		FeistelPermutation second = new FeistelPermutation(CODE_SPACE, "test-secret");
+		for (long value = 0; value < 1_000; value++) {
+			assertThat(second.permute(value)).isEqualTo(first.permute(value));
+		}
+	}
+
+	@Test
+	void consecutiveInputsDoNotProduceConsecutiveCodes() {
+		FeistelPermutation permutation = new FeistelPermutation(CODE_SPACE, "test-secret");
+		int adjacent = 0;
+		for (long value = 0; value < 10_000; value++) {
+			if (Math.abs(permutation.permute(value + 1) - permutation.permute(value)) < 62) {
+				adjacent++;
+			}
+		}
+		assertThat(adjacent).isLessThan(5);
+	}
+
+	@Test
+	void differentSecretsGiveDifferentPermutations() {
+		FeistelPermutation first = new FeistelPermutation(CODE_SPACE, "secret-a");
+		FeistelPermutation second = new FeistelPermutation(CODE_SPACE, "secret-b");
+		int equal = 0;
+		for (long value = 0; value < 1_000; value++) {
+			if (first.permute(value) == second.permute(value)) {
+				equal++;
+			}
+		}
+		assertThat(equal).isLessThan(2);
+	}
+
+	@Test
+	void rejectsValuesOutsideTheDomain() {
+		FeistelPermutation permutation = new FeistelPermutation(100, "test-secret");
+		assertThatThrownBy(() -> permutation.permute(100)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> permutation.invert(-1)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
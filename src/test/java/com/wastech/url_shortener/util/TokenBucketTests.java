@@ -0,0 +1,90 @@
+package com.wastech.url_shortener.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	private static final long START = 1_000 * SECOND;
+
+	// Three tokens, one refilled per second
+	private final TokenBucket bucket = new TokenBucket(3, 60, START);
+
+	@Test
+	void admitsABurstUpToTheCapacity() {
+		assertThat(bucket.tryAcquire(START)).isZero();
+		assertThat(bucket.tryAcquire(START)).isZero();
+		assertThat(bucket.tryAcquire(START)).isZero();
+
+		assertThat(bucket.tryAcquire(START)).isEqualTo(SECOND);
+		assertThat(bucket.tryAcquire(START + SECOND / 4)).isEqualTo(3 * SECOND / 4);
+	}
+
+	@Test
+	void refillsAtTheConfiguredRate() {
+		bucket.tryAcquire(3, START);
+
+		assertThat(bucket.tryAcquire(START + SECOND)).isZero();
+		assertThat(bucket.tryAcquire(START + SECOND)).isEqualTo(SECOND);
+		assertThat(bucket.availableTokens(START + 10 * SECOND)).as("never refills past the capacity").isEqualTo(3);
+	}
+
+	@Test
+	void takesSeveralTokensAtOnceOrNone() {
+		assertThat(bucket.tryAcquire(2, START)).isZero();
+		assertThat(bucket.tryAcquire(2, START)).isEqualTo(SECOND);
+		assertThat(bucket.availableTokens(START)).isEqualTo(1);
+
+		assertThat(bucket.tryAcquire(4, START + 60 * SECOND)).as("more than the capacity").isEqualTo(SECOND);
+	}
+
+	@Test
+	void tracksUnsyncedTokens() {
+		bucket.tryAcquire(START);
+		bucket.tryAcquire(2, START);
+		bucket.tryAcquire(START);
+
+		assertThat(bucket.drainUnsyncedTokens()).isEqualTo(3);
+		assertThat(bucket.drainUnsyncedTokens()).isZero();
+
+		bucket.restoreUnsyncedTokens(3);
+		bucket.restoreUnsyncedTokens(0);
+		assertThat(bucket.drainUnsyncedTokens()).isEqualTo(3);
+	}
+
+	@Test
+	void remoteConsumptionDrainsTheBucketButNeverPastEmpty() {
+		bucket.consumeRemote(2, START);
+		assertThat(bucket.availableTokens(START)).isEqualTo(1);
+		assertThat(bucket.drainUnsyncedTokens()).as("remote tokens are not published again").isZero();
+
+		bucket.consumeRemote(1_000, START);
+		assertThat(bucket.availableTokens(START)).isZero();
+		assertThat(bucket.tryAcquire(START)).isEqualTo(SECOND);
+
+		bucket.consumeRemote(0, START);
+		bucket.consumeRemote(-5, START);
+		assertThat(bucket.tryAcquire(START + SECOND)).isZero();
+	}
+
+	@Test
+	void recordsAccessAndSyncState() {
+		bucket.tryAcquire(START + SECOND);
+		bucket.markSynced(7, 42);
+
+		assertThat(bucket.getLastAccessNanos()).isEqualTo(START + SECOND);
+		assertThat(bucket.getSyncWindow()).isEqualTo(7);
+		assertThat(bucket.getLastSeenGlobal()).isEqualTo(42);
+	}
+
+	@Test
+	void rejectsNonPositiveLimits() {
+		assertThatThrownBy(() -> new TokenBucket(0, 60, START)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TokenBucket(3, 0, START)).isInstanceOf(IllegalArgumentException.class);
+	}
+}